@@ -0,0 +1,153 @@
+# coding=utf-8
+'''
+Client of the shared-memory bridge of the Java industrial benchmark
+(com.siemens.industrialbenchmark.bridge.SharedMemoryBridge).
+
+Start the bridge, e.g.
+    java -cp industrialbenchmark-jar-with-dependencies.jar \
+        com.siemens.industrialbenchmark.bridge.SharedMemoryBridge --file /dev/shm/ib --lanes 8
+and drive it with
+    client = SharedMemoryClient('/dev/shm/ib')
+    observations, rewards = client.step_all(np.zeros((client.lanes, 3)))
+
+The file layout must be kept in sync with SharedMemoryLayout.java. The handshake relies on
+stores becoming visible in program order (x86); the client is not safe on weakly ordered CPUs.
+'''
+from __future__ import division
+import mmap
+import os
+import time
+import numpy as np
+
+MAGIC = 0x4d534249
+VERSION = 1
+HEADER_SIZE = 64
+STATE_READY = 1
+STATE_STOPPED = 2
+
+# lane offsets in bytes
+REQUEST_SEQ = 0
+COMMAND = 8
+DELTAS = 16
+SEED = 40
+RESPONSE_SEQ = 64
+REWARD = 72
+STATUS = 80
+OBSERVATION = 88
+
+COMMAND_STEP = 0
+COMMAND_RESET = 1
+STATUS_OK = 0
+
+OBSERVATION_NAMES = ['SetPoint', 'Velocity', 'Gain', 'Shift', 'Fatigue', 'RewardTotal', 'Consumption']
+
+
+class BridgeError(Exception):
+    pass
+
+
+class SharedMemoryClient(object):
+    '''
+    Maps the file of a running bridge. Every lane drives its own benchmark instance; the
+    lanes of a batch are stepped concurrently by the bridge loop.
+    '''
+
+    def __init__(self, path, timeout=10.0):
+        self._file = open(path, 'r+b')
+        self._mmap = mmap.mmap(self._file.fileno(), os.fstat(self._file.fileno()).st_size)
+        header = np.frombuffer(self._mmap, dtype='<i4', count=6)
+        if header[0] != MAGIC or header[1] != VERSION:
+            raise BridgeError('%s is not a bridge file of version %d' % (path, VERSION))
+        if header[5] != STATE_READY:
+            raise BridgeError('bridge is not running')
+        self.lanes = int(header[2])
+        self.observation_size = int(header[3])
+        self.timeout = timeout
+        lane_size = int(header[4])
+
+        # one element per lane, strided over the lanes
+        def field(offset, dtype, count=None):
+            shape, strides = (self.lanes,), (lane_size,)
+            if count is not None:
+                shape, strides = (self.lanes, count), (lane_size, np.dtype(dtype).itemsize)
+            return np.ndarray(shape, dtype=dtype, buffer=self._mmap, offset=HEADER_SIZE + offset, strides=strides)
+
+        self._request_seq = field(REQUEST_SEQ, '<i8')
+        self._command = field(COMMAND, '<i4')
+        self._deltas = field(DELTAS, '<f8', 3)
+        self._seed = field(SEED, '<i8')
+        self._response_seq = field(RESPONSE_SEQ, '<i8')
+        self._reward = field(REWARD, '<f8')
+        self._status = field(STATUS, '<i4')
+        self._observation = field(OBSERVATION, '<f8', self.observation_size)
+        self._header = header
+        self._seq = self._request_seq.copy()
+
+    def step(self, lane, delta_velocity, delta_gain, delta_shift):
+        '''
+        Applies a delta action on one lane and returns (observation, reward).
+        '''
+        self._deltas[lane] = (delta_velocity, delta_gain, delta_shift)
+        self._command[lane] = COMMAND_STEP
+        self._call([lane])
+        return self._observation[lane].copy(), float(self._reward[lane])
+
+    def step_all(self, actions):
+        '''
+        Applies one delta action per lane, actions is an array of shape (lanes, 3).
+        Returns (observations of shape (lanes, observation_size), rewards of shape (lanes,)).
+        '''
+        self._deltas[:] = actions
+        self._command[:] = COMMAND_STEP
+        self._call(range(self.lanes))
+        return self._observation.copy(), self._reward.copy()
+
+    def reset(self, lane, seed):
+        '''
+        Resets one lane with the given seed and returns (observation, reward).
+        '''
+        self._seed[lane] = seed
+        self._command[lane] = COMMAND_RESET
+        self._call([lane])
+        return self._observation[lane].copy(), float(self._reward[lane])
+
+    def _call(self, lanes):
+        # publish the requests: the arguments are written before the sequence numbers
+        for lane in lanes:
+            self._seq[lane] += 1
+            self._request_seq[lane] = self._seq[lane]
+        deadline = time.time() + self.timeout
+        for lane in lanes:
+            spins = 0
+            while self._response_seq[lane] != self._seq[lane]:
+                spins += 1
+                if spins % 10000 == 0:
+                    if self._header[5] == STATE_STOPPED:
+                        raise BridgeError('bridge stopped')
+                    if time.time() > deadline:
+                        raise BridgeError('no response on lane %d' % lane)
+            if self._status[lane] != STATUS_OK:
+                raise BridgeError('lane %d: command rejected with status %d' % (lane, self._status[lane]))
+
+    def close(self):
+        self._request_seq = self._command = self._deltas = self._seed = None
+        self._response_seq = self._reward = self._status = self._observation = self._header = None
+        self._mmap.close()
+        self._file.close()
+
+
+if __name__ == '__main__':
+    import sys
+    client = SharedMemoryClient(sys.argv[1] if len(sys.argv) > 1 else '/dev/shm/industrialbenchmark')
+    for lane in range(client.lanes):
+        client.reset(lane, lane)
+    steps = 100000
+    start = time.time()
+    for i in range(steps):
+        client.step(0, *np.random.uniform(-1, 1, 3))
+    print('single lane: %.1f us per step round-trip' % (1e6 * (time.time() - start) / steps))
+    start = time.time()
+    for i in range(steps // client.lanes):
+        client.step_all(np.random.uniform(-1, 1, (client.lanes, 3)))
+    print('%d lanes: %.1f us per batch' % (client.lanes, 1e6 * (time.time() - start) / (steps // client.lanes)))
+    client.close()
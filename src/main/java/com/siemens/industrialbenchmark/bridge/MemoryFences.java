@@ -0,0 +1,41 @@
+/**
+Copyright 2016 Siemens AG.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.siemens.industrialbenchmark.bridge;
+
+import java.lang.invoke.VarHandle;
+
+/**
+ * Memory fences for the sequence number handshake on the shared buffer.
+ */
+final class MemoryFences {
+
+	private MemoryFences() {
+	}
+
+	/**
+	 * Loads after the fence are not reordered with loads before the fence.
+	 */
+	static void acquire() {
+		VarHandle.acquireFence();
+	}
+
+	/**
+	 * Loads and stores before the fence are not reordered with stores after the fence.
+	 */
+	static void release() {
+		VarHandle.releaseFence();
+	}
+}
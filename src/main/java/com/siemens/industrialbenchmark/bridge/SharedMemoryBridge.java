@@ -0,0 +1,229 @@
+/**
+Copyright 2016 Siemens AG.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.siemens.industrialbenchmark.bridge;
+
+import static com.siemens.industrialbenchmark.bridge.SharedMemoryLayout.*;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.locks.LockSupport;
+
+import com.beust.jcommander.JCommander;
+import com.beust.jcommander.Parameter;
+import com.google.common.base.Preconditions;
+import com.siemens.industrialbenchmark.datavector.state.ObservableStateDescription;
+import com.siemens.industrialbenchmark.dynamics.IndustrialBenchmarkDynamics;
+import com.siemens.industrialbenchmark.properties.PropertiesException;
+import com.siemens.industrialbenchmark.properties.PropertiesUtil;
+
+/**
+ * Serves benchmark instances to other processes, e.g. Python agents, through a memory mapped file. 
+ * Every lane of the file drives its own instance; the layout and the sequence number handshake are 
+ * described in {@link SharedMemoryLayout}. {@link #run()} polls all lanes in a loop and executes 
+ * the pending commands, so a client sees a step round-trip of a few microseconds without sockets 
+ * or serialization. The loop spins while commands arrive and backs off when idle.
+ * <p>
+ * Example: {@code java ... SharedMemoryBridge --file /dev/shm/ib --lanes 8}
+ */
+public class SharedMemoryBridge implements Runnable, Closeable {
+
+	/** idle polls before yielding */
+	private static final int SPIN_LIMIT = 10000;
+	/** idle polls before parking */
+	private static final int YIELD_LIMIT = 20000;
+	private static final long PARK_NANOS = 50000;
+
+	/**
+	 * Command line options of the bridge.
+	 */
+	public static class Options {
+		@Parameter(names = "--config", description = "Properties file of the benchmark")
+		public String config = "src/main/resources/sim.properties";
+
+		@Parameter(names = "--file", description = "File to share, preferably on a tmpfs like /dev/shm")
+		public String file = "/dev/shm/industrialbenchmark";
+
+		@Parameter(names = "--lanes", description = "Number of lanes, each driving its own instance")
+		public int lanes = 1;
+
+		@Parameter(names = "--help", help = true, description = "Prints the usage")
+		public boolean help = false;
+	}
+
+	private final List<IndustrialBenchmarkDynamics> envs;
+	private final RandomAccessFile file;
+	private final MappedByteBuffer buffer;
+	private final long[] handled;
+	private final double[] observation = new double[ObservableStateDescription.SIZE];
+	private volatile boolean running = true;
+	private volatile long commandCount;
+
+	/**
+	 * Creates (or overwrites) the shared file with one lane per environment and publishes the 
+	 * current observations of the environments.
+	 * @param file The file to share
+	 * @param envs The environments to drive, one per lane
+	 * @throws IOException
+	 */
+	public SharedMemoryBridge(File file, List<IndustrialBenchmarkDynamics> envs) throws IOException {
+		Preconditions.checkArgument(!envs.isEmpty(), "at least one lane is required");
+		this.envs = new ArrayList<IndustrialBenchmarkDynamics>(envs);
+		this.handled = new long[envs.size()];
+
+		this.file = new RandomAccessFile(file, "rw");
+		this.file.setLength(0);
+		this.file.setLength(fileSize(envs.size()));
+		this.buffer = this.file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, fileSize(envs.size()));
+		this.buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+		buffer.putInt(MAGIC_OFFSET, MAGIC);
+		buffer.putInt(VERSION_OFFSET, VERSION);
+		buffer.putInt(LANE_COUNT_OFFSET, envs.size());
+		buffer.putInt(OBSERVATION_SIZE_OFFSET, ObservableStateDescription.SIZE);
+		buffer.putInt(LANE_SIZE_OFFSET, LANE_SIZE);
+		for (int lane = 0; lane < envs.size(); lane++) {
+			IndustrialBenchmarkDynamics env = this.envs.get(lane);
+			env.stateInto(observation);
+			respond(laneOffset(lane), env.getReward(), STATUS_OK);
+		}
+		MemoryFences.release();
+		buffer.putInt(STATE_OFFSET, STATE_READY);
+	}
+
+	/**
+	 * Creates the bridge with new instances of the given configuration.
+	 * @param file The file to share
+	 * @param props The benchmark configuration
+	 * @param lanes The number of lanes
+	 * @return the bridge
+	 * @throws IOException
+	 * @throws PropertiesException
+	 */
+	public static SharedMemoryBridge create(File file, Properties props, int lanes) throws IOException, PropertiesException {
+		List<IndustrialBenchmarkDynamics> envs = new ArrayList<IndustrialBenchmarkDynamics>();
+		for (int i = 0; i < lanes; i++) {
+			envs.add(IndustrialBenchmarkDynamics.reproducible(props));
+		}
+		return new SharedMemoryBridge(file, envs);
+	}
+
+	/**
+	 * Executes the commands of all lanes until {@link #close()} is called.
+	 */
+	@Override
+	public void run() {
+		int idle = 0;
+		while (running) {
+			boolean busy = false;
+			for (int lane = 0; lane < handled.length; lane++) {
+				final int base = laneOffset(lane);
+				final long seq = buffer.getLong(base + REQUEST_SEQ_OFFSET);
+				if (seq != handled[lane]) {
+					MemoryFences.acquire();
+					execute(lane, base);
+					MemoryFences.release();
+					buffer.putLong(base + RESPONSE_SEQ_OFFSET, seq);
+					handled[lane] = seq;
+					busy = true;
+				}
+			}
+			if (busy) {
+				idle = 0;
+			} else if (++idle > YIELD_LIMIT) {
+				LockSupport.parkNanos(PARK_NANOS);
+			} else if (idle > SPIN_LIMIT) {
+				Thread.yield();
+			}
+		}
+		buffer.putInt(STATE_OFFSET, STATE_STOPPED);
+	}
+
+	private void execute(int lane, int base) {
+		final IndustrialBenchmarkDynamics env = envs.get(lane);
+		final int command = buffer.getInt(base + COMMAND_OFFSET);
+		try {
+			switch (command) {
+			case COMMAND_STEP:
+				double reward = env.step(buffer.getDouble(base + DELTA_VELOCITY_OFFSET), buffer.getDouble(base + DELTA_GAIN_OFFSET), 
+						buffer.getDouble(base + DELTA_SHIFT_OFFSET), observation);
+				respond(base, reward, STATUS_OK);
+				break;
+			case COMMAND_RESET:
+				env.reset(buffer.getLong(base + SEED_OFFSET));
+				env.stateInto(observation);
+				respond(base, env.getReward(), STATUS_OK);
+				break;
+			default:
+				buffer.putInt(base + STATUS_OFFSET, STATUS_UNKNOWN_COMMAND);
+			}
+		} catch (IllegalArgumentException e) {
+			buffer.putInt(base + STATUS_OFFSET, STATUS_INVALID_ARGUMENT);
+		}
+		commandCount++;
+	}
+
+	private void respond(int base, double reward, int status) {
+		buffer.putDouble(base + REWARD_OFFSET, reward);
+		buffer.putInt(base + STATUS_OFFSET, status);
+		for (int i = 0; i < ObservableStateDescription.SIZE; i++) {
+			buffer.putDouble(base + OBSERVATION_OFFSET + 8 * i, observation[i]);
+		}
+	}
+
+	/**
+	 * @return the number of executed commands
+	 */
+	public long getCommandCount() {
+		return commandCount;
+	}
+
+	/**
+	 * Stops the loop of {@link #run()} and closes the file. The loop marks the file as stopped.
+	 */
+	@Override
+	public void close() throws IOException {
+		running = false;
+		file.close();
+	}
+
+	/**
+	 * Runs the bridge from the command line until the process is terminated.
+	 * @param args see {@link Options}
+	 * @throws IOException
+	 * @throws PropertiesException
+	 */
+	public static void main(String[] args) throws IOException, PropertiesException {
+		Options options = new Options();
+		JCommander jc = new JCommander(options, args);
+		if (options.help) {
+			jc.usage();
+			return;
+		}
+
+		Properties props = PropertiesUtil.setpointProperties(new File(options.config));
+		final SharedMemoryBridge bridge = create(new File(options.file), props, options.lanes);
+		System.out.println("serving " + options.lanes + " lane(s) on '" + options.file + "'");
+		bridge.run();
+	}
+}
@@ -0,0 +1,105 @@
+/**
+Copyright 2016 Siemens AG.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.siemens.industrialbenchmark.bridge;
+
+/**
+ * Layout of the file shared by the {@link SharedMemoryBridge} and its clients. All values are 
+ * little-endian. The file starts with a header of {@link #HEADER_SIZE} bytes, followed by 
+ * {@code laneCount} lanes of {@link #LANE_SIZE} bytes each.
+ * 
+ * <pre>
+ * header                     lane (offset HEADER_SIZE + lane * LANE_SIZE)
+ *  0 int  magic "IBSM"        request (written by the client)
+ *  4 int  version               0 long   request sequence number
+ *  8 int  lane count            8 int    command (STEP or RESET)
+ * 12 int  observation size     16 double delta velocity
+ * 16 int  lane size            24 double delta gain
+ * 20 int  state                32 double delta shift
+ *                              40 long   seed (RESET only)
+ *                             response (written by the bridge)
+ *                              64 long   response sequence number
+ *                              72 double reward
+ *                              80 int    status
+ *                              88 double[observation size] observation
+ * </pre>
+ * 
+ * A client writes the command and its arguments and then increments the request sequence number. 
+ * The bridge executes the command, writes the response and then sets the response sequence number 
+ * to the request sequence number. Request and response are on separate cache lines.
+ * <p>
+ * Must be kept in sync with {@code industrial_benchmark_shm/shm_client.py}.
+ */
+public final class SharedMemoryLayout {
+
+	public static final int MAGIC = 0x4d534249; // "IBSM" in little-endian byte order
+	public static final int VERSION = 1;
+
+	public static final int HEADER_SIZE = 64;
+	public static final int MAGIC_OFFSET = 0;
+	public static final int VERSION_OFFSET = 4;
+	public static final int LANE_COUNT_OFFSET = 8;
+	public static final int OBSERVATION_SIZE_OFFSET = 12;
+	public static final int LANE_SIZE_OFFSET = 16;
+	public static final int STATE_OFFSET = 20;
+
+	/** bridge state: lanes initialized, commands are executed */
+	public static final int STATE_READY = 1;
+	/** bridge state: bridge stopped, commands are not executed anymore */
+	public static final int STATE_STOPPED = 2;
+
+	public static final int LANE_SIZE = 192;
+
+	public static final int REQUEST_SEQ_OFFSET = 0;
+	public static final int COMMAND_OFFSET = 8;
+	public static final int DELTA_VELOCITY_OFFSET = 16;
+	public static final int DELTA_GAIN_OFFSET = 24;
+	public static final int DELTA_SHIFT_OFFSET = 32;
+	public static final int SEED_OFFSET = 40;
+
+	public static final int RESPONSE_SEQ_OFFSET = 64;
+	public static final int REWARD_OFFSET = 72;
+	public static final int STATUS_OFFSET = 80;
+	public static final int OBSERVATION_OFFSET = 88;
+
+	/** command: apply the delta action */
+	public static final int COMMAND_STEP = 0;
+	/** command: reset the environment with the given seed */
+	public static final int COMMAND_RESET = 1;
+
+	public static final int STATUS_OK = 0;
+	/** the arguments of the command were rejected, e.g. a delta out of range; the state is unchanged */
+	public static final int STATUS_INVALID_ARGUMENT = 1;
+	public static final int STATUS_UNKNOWN_COMMAND = 2;
+
+	private SharedMemoryLayout() {
+	}
+
+	/**
+	 * @param laneCount The number of lanes
+	 * @return the size of the shared file
+	 */
+	public static int fileSize(int laneCount) {
+		return HEADER_SIZE + laneCount * LANE_SIZE;
+	}
+
+	/**
+	 * @param lane The lane index
+	 * @return the offset of the lane in the shared file
+	 */
+	public static int laneOffset(int lane) {
+		return HEADER_SIZE + lane * LANE_SIZE;
+	}
+}
@@ -0,0 +1,96 @@
+/**
+Copyright 2016 Siemens AG.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.siemens.industrialbenchmark.checkpoint;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StreamCorruptedException;
+import java.util.zip.CRC32;
+
+/**
+ * Container format of environment checkpoints: a magic number, the format version, the payload 
+ * length, the payload and the CRC32 of the payload. The payload is written and interpreted by 
+ * the checkpointed environment.
+ */
+public final class CheckpointFormat {
+
+	/** "IBCP" */
+	public static final int MAGIC = 0x49424350;
+	/** the current format version */
+	public static final int VERSION = 1;
+
+	private CheckpointFormat() {
+	}
+
+	/**
+	 * Writes a checkpoint. The stream is flushed but not closed.
+	 * @param out The stream to write to
+	 * @param payload The payload
+	 * @throws IOException
+	 */
+	public static void write(OutputStream out, byte[] payload) throws IOException {
+		CRC32 crc = new CRC32();
+		crc.update(payload, 0, payload.length);
+
+		DataOutputStream data = new DataOutputStream(out);
+		data.writeInt(MAGIC);
+		data.writeInt(VERSION);
+		data.writeInt(payload.length);
+		data.write(payload);
+		data.writeInt((int) crc.getValue());
+		data.flush();
+	}
+
+	/**
+	 * Reads a checkpoint and verifies its version and checksum. The stream is not closed.
+	 * @param in The stream to read from
+	 * @return the payload
+	 * @throws StreamCorruptedException if the stream is not a checkpoint, is truncated or the checksum does not match
+	 * @throws IOException if the version is not supported or reading fails
+	 */
+	public static byte[] read(InputStream in) throws IOException {
+		DataInputStream data = new DataInputStream(in);
+		try {
+			if (data.readInt() != MAGIC) {
+				throw new StreamCorruptedException("not a checkpoint");
+			}
+			int version = data.readInt();
+			if (version != VERSION) {
+				throw new IOException("unsupported checkpoint version " + version + ", expected " + VERSION);
+			}
+			int length = data.readInt();
+			if (length < 0) {
+				throw new StreamCorruptedException("invalid payload length " + length);
+			}
+			byte[] payload = new byte[length];
+			data.readFully(payload);
+			int checksum = data.readInt();
+
+			CRC32 crc = new CRC32();
+			crc.update(payload, 0, payload.length);
+			if ((int) crc.getValue() != checksum) {
+				throw new StreamCorruptedException("checkpoint checksum mismatch");
+			}
+			return payload;
+		} catch (EOFException e) {
+			throw new StreamCorruptedException("truncated checkpoint");
+		}
+	}
+}
@@ -0,0 +1,154 @@
+/**
+Copyright 2016 Siemens AG.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.siemens.industrialbenchmark.checkpoint;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.siemens.industrialbenchmark.dynamics.IndustrialBenchmarkDynamics;
+
+/**
+ * Writes periodic checkpoints of an environment to a file on a background thread. The state is 
+ * captured by {@link #submit(IndustrialBenchmarkDynamics)} on the calling (simulation) thread; 
+ * writing, syncing and atomically replacing the file happen in the background. If checkpoints are 
+ * submitted faster than they can be written, only the latest pending checkpoint is written.
+ * <p>
+ * After a crash, the file holds the last completely written checkpoint, to be read with 
+ * {@link IndustrialBenchmarkDynamics#restore(java.io.InputStream)} or 
+ * {@link IndustrialBenchmarkDynamics#fromCheckpoint(java.io.InputStream)}.
+ */
+public class CheckpointWriter implements Closeable {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(CheckpointWriter.class);
+
+	private final File file;
+	private final File tmpFile;
+	private final ExecutorService executor;
+	private final AtomicReference<byte[]> pending = new AtomicReference<byte[]>();
+	private final AtomicLong written = new AtomicLong();
+	private final AtomicLong skipped = new AtomicLong();
+	private volatile IOException lastError;
+
+	/**
+	 * Constructor with the checkpoint file
+	 * @param file The file to write the checkpoints to
+	 */
+	public CheckpointWriter(File file) {
+		this.file = file;
+		this.tmpFile = new File(file.getPath() + ".tmp");
+		this.executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "checkpoint-writer");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+	}
+
+	/**
+	 * Captures a checkpoint of the environment and schedules it for writing. Must be called from 
+	 * the thread that steps the environment.
+	 * @param env The environment
+	 * @throws IOException if the checkpoint cannot be encoded
+	 */
+	public void submit(IndustrialBenchmarkDynamics env) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(8192);
+		env.checkpoint(bytes);
+		if (pending.getAndSet(bytes.toByteArray()) != null) {
+			skipped.incrementAndGet(); // replaced a checkpoint that has not been written yet
+		} else {
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					writePending();
+				}
+			});
+		}
+	}
+
+	private void writePending() {
+		byte[] checkpoint = pending.getAndSet(null);
+		if (checkpoint == null) {
+			return;
+		}
+		try {
+			FileOutputStream out = new FileOutputStream(tmpFile);
+			try {
+				out.write(checkpoint);
+				out.getFD().sync();
+			} finally {
+				out.close();
+			}
+			Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			written.incrementAndGet();
+		} catch (IOException e) {
+			lastError = e;
+			LOGGER.warn("writing checkpoint " + file + " failed", e);
+		}
+	}
+
+	/**
+	 * @return the number of checkpoints written
+	 */
+	public long getWrittenCount() {
+		return written.get();
+	}
+
+	/**
+	 * @return the number of checkpoints replaced by a newer one before they were written
+	 */
+	public long getSkippedCount() {
+		return skipped.get();
+	}
+
+	/**
+	 * @return the error of the last failed write, or null
+	 */
+	public IOException getLastError() {
+		return lastError;
+	}
+
+	/**
+	 * Writes the pending checkpoint, if any, and stops the background thread.
+	 */
+	@Override
+	public void close() throws IOException {
+		executor.shutdown();
+		try {
+			if (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+				throw new IOException("timeout while writing checkpoint " + file);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("interrupted while writing checkpoint " + file);
+		}
+	}
+}
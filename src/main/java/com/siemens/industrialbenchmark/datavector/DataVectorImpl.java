@@ -15,6 +15,9 @@ limitations under the License.
 */
 package com.siemens.industrialbenchmark.datavector;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 
@@ -38,6 +41,19 @@ public class DataVectorImpl implements Cloneable, DataVector {
 	
 	private HashMap<String, Integer> indexMap = new HashMap<String, Integer>();
 	private double values[];
+	/**
+	 * fingerprint of the values in key order, computed on the first {@link #fingerprint()} and updated on every
+	 * write from then on; exact again after deserialization
+	 */
+	private transient StateFingerprint fingerprinter = StateFingerprint.EXACT;
+	private transient long fingerprint;
+	private transient boolean tracking;
+	/** 
+	 * positions of keys that occur more than once and are not the slot of their key, and the slot of their key.
+	 * The fingerprint takes the value of the slot for these positions, like {@link #getValuesArray()}. 
+	 */
+	private transient int[] shadowPositions;
+	private transient int[] shadowSlots;
 	
 	DataVectorDescription description = null;
 	ImmutableList<String> keys; 
@@ -77,13 +93,11 @@ public class DataVectorImpl implements Cloneable, DataVector {
 	 * @return The value
 	 */
 	public Double getValue(String key) {
-		Preconditions.checkArgument(this.getKeys().contains(key), "%s is not a valid variable", key);
-		
-		if (!indexMap.containsKey(key)) {
-			return Double.NaN;
-		} else {
-			return values[indexMap.get(key)];
+		Integer idx = indexMap.get(key);
+		if (idx == null) {
+			throw new IllegalArgumentException(key + " is not a valid variable");
 		}
+		return values[idx];
 	}
 	
 	/**
@@ -92,11 +106,166 @@ public class DataVectorImpl implements Cloneable, DataVector {
 	 * @param value The value
 	 */
 	public void setValue (String key, double value) {		
-		Preconditions.checkNotNull(this.getKeys(), "keySet is null!!");
-		Preconditions.checkArgument(this.getKeys().contains(key), "%s is not a valid variable. Available names are: %s", key, this.getKeys());
-		values[indexMap.get(key)] = value;
+		Integer idx = indexMap.get(key);
+		if (idx == null) {
+			throw new IllegalArgumentException(key + " is not a valid variable. Available names are: " + this.getKeys());
+		}
+		setValue(idx.intValue(), value);
 	}
 	
+	/**
+	 * Returns the slot index of a given state/action dimension, i.e. the position in the internal
+	 * value array that is read by {@link #getValue(String)}. Slot indices allow repeated accesses
+	 * without String lookups.
+	 * @param key The state/action dimension
+	 * @return The slot index
+	 */
+	public int getIndex(String key) {
+		Integer idx = indexMap.get(key);
+		if (idx == null) {
+			throw new IllegalArgumentException(key + " is not a valid variable");
+		}
+		return idx;
+	}
+
+	/**
+	 * Returns the value stored in a given slot
+	 * @param index The slot index, see {@link #getIndex(String)}
+	 * @return The value
+	 */
+	public double getValue(int index) {
+		return values[index];
+	}
+
+	/**
+	 * Sets the value stored in a given slot
+	 * @param index The slot index, see {@link #getIndex(String)}
+	 * @param value The value
+	 */
+	public void setValue(int index, double value) {
+		final double old = values[index];
+		values[index] = value;
+		if (tracking && Double.doubleToRawLongBits(old) != Double.doubleToRawLongBits(value) && !isShadow(index)) {
+			fingerprint = fingerprinter.update(fingerprint, index, old, value);
+			for (int k = 0; k < shadowSlots.length; k++) {
+				if (shadowSlots[k] == index) {
+					fingerprint = fingerprinter.update(fingerprint, shadowPositions[k], old, value);
+				}
+			}
+		}
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		fingerprinter = StateFingerprint.EXACT;
+	}
+
+	private void initShadows() {
+		int count = 0;
+		for (int i = 0; i < keys.size(); i++) {
+			if (indexMap.get(keys.get(i)) != i) {
+				count++;
+			}
+		}
+		shadowPositions = new int[count];
+		shadowSlots = new int[count];
+		for (int i = 0, k = 0; i < keys.size(); i++) {
+			int slot = indexMap.get(keys.get(i));
+			if (slot != i) {
+				shadowPositions[k] = i;
+				shadowSlots[k++] = slot;
+			}
+		}
+	}
+
+	private boolean isShadow(int index) {
+		for (int k = 0; k < shadowPositions.length; k++) {
+			if (shadowPositions[k] == index) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private long computeFingerprint() {
+		long h = 0;
+		for (int i = 0; i < values.length; i++) {
+			h ^= fingerprinter.hash(i, values[i]);
+		}
+		for (int k = 0; k < shadowPositions.length; k++) {
+			// replace the value of the shadow position by the value of its key
+			h ^= fingerprinter.hash(shadowPositions[k], values[shadowPositions[k]]) ^ fingerprinter.hash(shadowPositions[k], values[shadowSlots[k]]);
+		}
+		return h;
+	}
+
+	/**
+	 * Returns the number of slots. This equals the number of keys.
+	 * @return the number of slots
+	 */
+	public int getSlotCount() {
+		return values.length;
+	}
+
+	/**
+	 * Overwrites all slots with the given values.
+	 * @param source The values to copy, must be of length {@link #getSlotCount()}
+	 */
+	public void copySlotsFrom(double[] source) {
+		if (source.length != values.length) {
+			throw new IllegalArgumentException("expected " + values.length + " values, but got " + source.length);
+		}
+		System.arraycopy(source, 0, values, 0, values.length);
+		if (tracking) {
+			fingerprint = computeFingerprint();
+		}
+	}
+
+	/**
+	 * Copies all slots into the given array.
+	 * @param target The array to copy to, must be of length {@link #getSlotCount()}
+	 */
+	public void copySlotsInto(double[] target) {
+		if (target.length != values.length) {
+			throw new IllegalArgumentException("expected an array of length " + values.length + ", but got " + target.length);
+		}
+		System.arraycopy(values, 0, target, 0, values.length);
+	}
+
+	/**
+	 * Returns the fingerprint of the current values in the order of {@link #getValuesArray()}, see 
+	 * {@link StateFingerprint}. The first call computes the fingerprint, after that it is updated on every
+	 * write and reading it is free.
+	 * @return the fingerprint
+	 */
+	public long fingerprint() {
+		if (!tracking) {
+			if (shadowPositions == null) {
+				initShadows();
+			}
+			fingerprint = computeFingerprint();
+			tracking = true;
+		}
+		return fingerprint;
+	}
+
+	/**
+	 * Sets how {@link #fingerprint()} is computed, e.g. with quantized continuous variables. 
+	 * @param fingerprinter The fingerprint function, {@link StateFingerprint#EXACT} by default
+	 */
+	public void setFingerprinter(StateFingerprint fingerprinter) {
+		Preconditions.checkNotNull(fingerprinter, "fingerprinter must not be null");
+		this.fingerprinter = fingerprinter;
+		this.tracking = false;
+	}
+
+	/**
+	 * @return the fingerprint function of {@link #fingerprint()}
+	 */
+	public StateFingerprint getFingerprinter() {
+		return fingerprinter;
+	}
+
 	/**
 	 * returns a list containing the state/action dimension names
 	 * @return a list containing the state/action dimension names
@@ -145,6 +314,34 @@ public class DataVectorImpl implements Cloneable, DataVector {
     	return output;
     }
 
+    /**
+     * Two vectors are equal if they have the same keys and the same values in the sense of 
+     * {@link Double#equals(Object)}. 
+     */
+    @Override
+    public boolean equals(Object obj) {
+    	if (this == obj) {
+    		return true;
+    	}
+    	if (!(obj instanceof DataVectorImpl)) {
+    		return false;
+    	}
+    	DataVectorImpl other = (DataVectorImpl) obj;
+    	if (!getKeys().equals(other.getKeys())) {
+    		return false;
+    	}
+    	return Arrays.equals(getValuesArray(), other.getValuesArray());
+    }
+
+    /**
+     * Derived from the exact fingerprint of the values, see {@link StateFingerprint#EXACT}.
+     */
+    @Override
+    public int hashCode() {
+    	final long exact = getFingerprinter() == StateFingerprint.EXACT ? fingerprint() : StateFingerprint.EXACT.of(this);
+    	return (int) (exact ^ (exact >>> 32));
+    }
+
     public DataVector clone() {
 		DataVector s = new DataVectorImpl (this.getKeys());
     	for (String key : this.getKeys()) {
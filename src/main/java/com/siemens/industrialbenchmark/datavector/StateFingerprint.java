@@ -0,0 +1,160 @@
+/**
+Copyright 2016 Siemens AG.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.siemens.industrialbenchmark.datavector;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongConsumer;
+
+import com.google.common.base.Preconditions;
+import com.siemens.industrialbenchmark.datavector.codec.DataVectorReader;
+import com.siemens.industrialbenchmark.datavector.codec.DataVectorSchema;
+
+/**
+ * 64 bit Zobrist-style fingerprints of data vectors: the XOR over all slots of a hash of the slot index 
+ * and the value. Since every slot contributes independently, overwriting one value updates the fingerprint 
+ * in constant time, see {@link #update(long, int, double, double)}. {@link DataVectorImpl} maintains the 
+ * exact fingerprint this way on every write.
+ * <p>
+ * By default the hash is taken of the bit pattern of the value, so two vectors have the same fingerprint 
+ * if (up to hash collisions) they are equal in the sense of {@link Arrays#equals(double[], double[])}. 
+ * With a quantum per slot, values falling into the same interval of width quantum share their fingerprint; 
+ * a quantum of 0 keeps a slot exact.
+ */
+public final class StateFingerprint {
+
+	/** fingerprint of the bit patterns of the values */
+	public static final StateFingerprint EXACT = new StateFingerprint(new double[0]);
+
+	private final double[] quanta;
+
+	/**
+	 * @param quanta The quantum of each slot, 0 for exact slots. Slots beyond the array are exact.
+	 */
+	public StateFingerprint(double[] quanta) {
+		for (int i = 0; i < quanta.length; i++) {
+			Preconditions.checkArgument(quanta[i] >= 0 && !Double.isInfinite(quanta[i]), "quantum of slot %s must be finite and >= 0, but is %s", i, quanta[i]);
+		}
+		this.quanta = quanta.clone();
+	}
+
+	/**
+	 * @param keys The keys of the vectors, e.g. of {@link DataVectorImpl#getKeys()}
+	 * @param quanta The quantum of single keys, all other keys are exact
+	 * @return the fingerprint with the quanta mapped to the slots of the keys
+	 */
+	public static StateFingerprint quantized(List<String> keys, Map<String, Double> quanta) {
+		double[] slots = new double[keys.size()];
+		for (Map.Entry<String, Double> quantum : quanta.entrySet()) {
+			int slot = keys.indexOf(quantum.getKey());
+			Preconditions.checkArgument(slot >= 0, "%s is not a valid variable. Available names are: %s", quantum.getKey(), keys);
+			slots[slot] = quantum.getValue();
+		}
+		return new StateFingerprint(slots);
+	}
+
+	/**
+	 * @return true if no slot is quantized
+	 */
+	public boolean isExact() {
+		for (double quantum : quanta) {
+			if (quantum != 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @param slot The slot index
+	 * @param value The value of the slot
+	 * @return the contribution of the slot to the fingerprint
+	 */
+	public long hash(int slot, double value) {
+		if (slot < quanta.length && quanta[slot] != 0) {
+			// the interval index, with all NaNs in one interval
+			return mix(slot, value != value ? Long.MIN_VALUE : (long) Math.floor(value / quanta[slot]));
+		}
+		return mix(slot, Double.doubleToLongBits(value));
+	}
+
+	/**
+	 * @param fingerprint The fingerprint before the write
+	 * @param slot The written slot
+	 * @param oldValue The value before the write
+	 * @param newValue The written value
+	 * @return the fingerprint after the write
+	 */
+	public long update(long fingerprint, int slot, double oldValue, double newValue) {
+		return fingerprint ^ hash(slot, oldValue) ^ hash(slot, newValue);
+	}
+
+	/**
+	 * @param values The values of all slots
+	 * @return the fingerprint of the values
+	 */
+	public long of(double[] values) {
+		long fingerprint = 0;
+		for (int i = 0; i < values.length; i++) {
+			fingerprint ^= hash(i, values[i]);
+		}
+		return fingerprint;
+	}
+
+	/**
+	 * @param vector A vector
+	 * @return the fingerprint of the values of the vector in key order, see {@link DataVectorImpl#getValuesArray()}
+	 */
+	public long of(DataVectorImpl vector) {
+		return of(vector.getValuesArray());
+	}
+
+	/**
+	 * Fingerprints all vectors of a stream in one pass without decoding them into vectors. The slots 
+	 * are the positions in the schema of each vector.
+	 * 
+	 * @param in The stream of vectors, e.g. a recorded trajectory
+	 * @param sink receives the fingerprint of every vector in stream order
+	 * @return the number of vectors
+	 * @throws IOException
+	 */
+	public long ofAll(DataVectorReader in, LongConsumer sink) throws IOException {
+		long count = 0;
+		DataVectorSchema schema;
+		while ((schema = in.next()) != null) {
+			long fingerprint = 0;
+			for (int i = 0; i < schema.size(); i++) {
+				fingerprint ^= hash(i, in.getValue(i));
+			}
+			sink.accept(fingerprint);
+			count++;
+		}
+		return count;
+	}
+
+	/**
+	 * The finalizer of SplitMix64 over the value bits offset by the slot, a stand-in for a table of 
+	 * random numbers per slot and value.
+	 */
+	private static long mix(int slot, long bits) {
+		long z = bits + (slot + 1) * 0x9e3779b97f4a7c15L;
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+}
@@ -15,7 +15,6 @@ limitations under the License.
 */
 package com.siemens.industrialbenchmark.datavector.action;
 
-import com.google.common.base.Preconditions;
 import com.siemens.industrialbenchmark.datavector.DataVectorImpl;
 import com.siemens.industrialbenchmark.properties.PropertiesException;
 
@@ -31,7 +30,10 @@ public class ActionDelta extends DataVectorImpl {
 	 */
 	private static final long serialVersionUID = 1159603096632053185L;
 
-	protected double maxDelta = 10.0;
+	/** maximum absolute delta velocity and delta gain */
+	public static final double MAX_DELTA = 10.0;
+
+	protected double maxDelta = MAX_DELTA;
 	
 	/**
 	 * Constructor with deltas and properties file
@@ -44,14 +46,23 @@ public class ActionDelta extends DataVectorImpl {
 
 		super (new ActionDeltaDescription());
 		
-		Preconditions.checkArgument(Math.abs(deltaVelocity) <= maxDelta, "Math.abs(deltaA=%s) must be <= %s", deltaVelocity, maxDelta);
-		Preconditions.checkArgument(Math.abs(deltaGain) <= maxDelta, "Math.abs(deltaB=%s) must be <= %s", deltaGain, maxDelta);
+		checkDelta("deltaVelocity", deltaVelocity);
+		checkDelta("deltaGain", deltaGain);
 
 		this.setValue(ActionDeltaDescription.DeltaVelocity, deltaVelocity);
 		this.setValue(ActionDeltaDescription.DeltaGain, deltaGain);
 		this.setValue(ActionDeltaDescription.DeltaShift, deltaShift);
 	}
 
+	/**
+	 * checks the delta without allocating unless the check fails 
+	 */
+	private void checkDelta(String name, double delta) {
+		if (!(Math.abs(delta) <= maxDelta)) {
+			throw new IllegalArgumentException("Math.abs(" + name + "=" + delta + ") must be <= " + maxDelta);
+		}
+	}
+
 	/**
 	 * @return the deltaA
 	 */
@@ -77,7 +88,7 @@ public class ActionDelta extends DataVectorImpl {
 	 * @param deltaVelocity the delta velocity to set
 	 */
 	public void setDeltaVelocity(double deltaVelocity) {
-		Preconditions.checkArgument(Math.abs(deltaVelocity) <= maxDelta, "Math.abs(deltaVelocity=%s) must be <= %s", deltaVelocity, maxDelta);
+		checkDelta("deltaVelocity", deltaVelocity);
 		this.setValue(ActionDeltaDescription.DeltaVelocity, deltaVelocity);
 	}
 
@@ -85,7 +96,7 @@ public class ActionDelta extends DataVectorImpl {
 	 * @param deltaGain the delta gain to set
 	 */
 	public void setDeltaGain(double deltaGain) {
-		Preconditions.checkArgument(Math.abs(deltaGain) <= maxDelta, "Math.abs(deltaGain=%s) must be <= %s", deltaGain, maxDelta);
+		checkDelta("deltaGain", deltaGain);
 		this.setValue(ActionDeltaDescription.DeltaGain, deltaGain);
 	}
 	
@@ -0,0 +1,74 @@
+/**
+Copyright 2016 Siemens AG.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.siemens.industrialbenchmark.datavector.action;
+
+/**
+ * Enumeration of the 27 discrete delta actions {-1,0,1}^3. The index of an action is 
+ * <code>9*(deltaVelocity+1) + 3*(deltaGain+1) + (deltaShift+1)</code>, which is the order of the 
+ * discrete action space of the OpenAI gym wrapper.
+ */
+public final class DiscreteActions {
+
+	/** number of discrete actions */
+	public static final int COUNT = 27;
+
+	private DiscreteActions() {
+	}
+
+	/**
+	 * @param index The action index in [0, {@link #COUNT})
+	 * @return The delta velocity of the action, one of -1, 0, 1
+	 */
+	public static int deltaVelocity(int index) {
+		checkIndex(index);
+		return index / 9 - 1;
+	}
+
+	/**
+	 * @param index The action index in [0, {@link #COUNT})
+	 * @return The delta gain of the action, one of -1, 0, 1
+	 */
+	public static int deltaGain(int index) {
+		checkIndex(index);
+		return (index / 3) % 3 - 1;
+	}
+
+	/**
+	 * @param index The action index in [0, {@link #COUNT})
+	 * @return The delta shift of the action, one of -1, 0, 1
+	 */
+	public static int deltaShift(int index) {
+		checkIndex(index);
+		return index % 3 - 1;
+	}
+
+	/**
+	 * @return The index of the action with the given deltas, each one of -1, 0, 1
+	 */
+	public static int index(int deltaVelocity, int deltaGain, int deltaShift) {
+		if (Math.abs(deltaVelocity) > 1 || Math.abs(deltaGain) > 1 || Math.abs(deltaShift) > 1) {
+			throw new IllegalArgumentException("deltas must be one of -1, 0, 1, but got (" 
+					+ deltaVelocity + ", " + deltaGain + ", " + deltaShift + ")");
+		}
+		return 9 * (deltaVelocity + 1) + 3 * (deltaGain + 1) + (deltaShift + 1);
+	}
+
+	private static void checkIndex(int index) {
+		if (index < 0 || index >= COUNT) {
+			throw new IllegalArgumentException("action index must be in [0, " + COUNT + "), but got " + index);
+		}
+	}
+}
@@ -30,8 +30,29 @@ public class EffectiveAction {
 		effectiveVelocity = calcEffectiveVelocity(action.getVelocity(), action.getGain(), setpoint);
 		effectiveGain = calcEffectiveGain(action.getGain(), setpoint); 
 	}
+
+	/**
+	 * Computes the effective velocity without creating an action object.
+	 * @param velocity The velocity
+	 * @param gain The gain
+	 * @param setpoint The setpoint
+	 * @return the effective velocity
+	 */
+	public static double effectiveVelocity(double velocity, double gain, double setpoint) {
+		return calcEffectiveVelocity(velocity, gain, setpoint);
+	}
+
+	/**
+	 * Computes the effective gain without creating an action object.
+	 * @param gain The gain
+	 * @param setpoint The setpoint
+	 * @return the effective gain
+	 */
+	public static double effectiveGain(double gain, double setpoint) {
+		return calcEffectiveGain(gain, setpoint);
+	}
 	
-	private double  calcEffectiveVelocity(double  a, double  b, double  setpoint) {
+	private static double  calcEffectiveVelocity(double  a, double  b, double  setpoint) {
 		final double  minAlphaUnscaled = calcAlphaUnscaled(calcEffectiveA(100, setpoint), calcEffectiveB(0,   setpoint));
 		final double  maxAlphaUnscaled = calcAlphaUnscaled(calcEffectiveA(0,   setpoint), calcEffectiveB(100, setpoint));
 		final double  alphaUnscaled    = calcAlphaUnscaled(calcEffectiveA(a,   setpoint), calcEffectiveB(b,   setpoint)); 
@@ -39,7 +60,7 @@ public class EffectiveAction {
 		return (alphaUnscaled - minAlphaUnscaled) / (maxAlphaUnscaled - minAlphaUnscaled);
 	}
 	
-	private double  calcEffectiveGain(double  b, double  setpoint) {
+	private static double  calcEffectiveGain(double  b, double  setpoint) {
 		final double  minBetaUnscaled = calcBetaUnscaled(calcEffectiveB(100, setpoint));
 		final double  maxBetaUnscaled = calcBetaUnscaled(calcEffectiveB(0,   setpoint));
 		final double  betaUnscaled    = calcBetaUnscaled(calcEffectiveB(b,   setpoint));
@@ -47,19 +68,19 @@ public class EffectiveAction {
 		return (betaUnscaled - minBetaUnscaled) / (maxBetaUnscaled - minBetaUnscaled); 
 	}
 	
-	private double  calcEffectiveA (double  a, double  setpoint) {
+	private static double  calcEffectiveA (double  a, double  setpoint) {
 		return a + 101.f - setpoint;
 	}
 	
-	private double  calcEffectiveB (double  b, double  setpoint) {
+	private static double  calcEffectiveB (double  b, double  setpoint) {
 		return b + 1.f + setpoint;
 	}
 	
-	private double  calcAlphaUnscaled (double  effectiveA, double  effectiveB) {
+	private static double  calcAlphaUnscaled (double  effectiveA, double  effectiveB) {
 		return (effectiveB + 1.0f) / effectiveA;
 	}
 	
-	private double  calcBetaUnscaled (double  effectiveB) {
+	private static double  calcBetaUnscaled (double  effectiveB) {
 		return 1.0f / effectiveB;
 	}
 	
@@ -0,0 +1,225 @@
+/**
+Copyright 2016 Siemens AG.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.siemens.industrialbenchmark.datavector.action;
+
+import java.util.List;
+import java.util.Properties;
+
+import com.google.common.collect.ImmutableList;
+import com.siemens.industrialbenchmark.datavector.state.ObservableStateDescription;
+import com.siemens.industrialbenchmark.properties.PropertiesException;
+import com.siemens.industrialbenchmark.properties.PropertiesUtil;
+import com.siemens.rl.interfaces.DataVector;
+
+/**
+ * Lightweight, reusable action holding velocity, gain and shift as primitive doubles. The bounds 
+ * are computed once at construction, the setters allocate only if validation fails.
+ * <p>
+ * A delta action ({@link #delta()}) is applied like an {@link ActionDelta}, an absolute action 
+ * ({@link #absolute(Properties)}) like an {@link ActionAbsolute}. Both are accepted directly by 
+ * {@link com.siemens.industrialbenchmark.dynamics.IndustrialBenchmarkDynamics#step(DataVector)}.
+ */
+public final class MutableAction implements DataVector {
+
+	private static final long serialVersionUID = -6226407294562071227L;
+
+	private static final List<String> DELTA_KEYS = ImmutableList.of(
+			ActionDeltaDescription.DeltaVelocity, ActionDeltaDescription.DeltaGain, ActionDeltaDescription.DeltaShift);
+	private static final List<String> ABSOLUTE_KEYS = ImmutableList.of(
+			ObservableStateDescription.Action_Velocity, ObservableStateDescription.Action_Gain, ObservableStateDescription.Action_Shift);
+
+	private final boolean absolute;
+	private final double velocityMin;
+	private final double velocityMax;
+	private final double gainMin;
+	private final double gainMax;
+	private final double shiftMin;
+	private final double shiftMax;
+
+	private double velocity;
+	private double gain;
+	private double shift;
+
+	private MutableAction(boolean absolute, double velocityMin, double velocityMax, double gainMin, double gainMax, double shiftMin, double shiftMax) {
+		this.absolute = absolute;
+		this.velocityMin = velocityMin;
+		this.velocityMax = velocityMax;
+		this.gainMin = gainMin;
+		this.gainMax = gainMax;
+		this.shiftMin = shiftMin;
+		this.shiftMax = shiftMax;
+	}
+
+	/**
+	 * Creates a delta action with all deltas set to zero. Like for {@link ActionDelta}, the absolute 
+	 * delta velocity and delta gain must be &lt;= {@link ActionDelta#MAX_DELTA}.
+	 * @return the delta action
+	 */
+	public static MutableAction delta() {
+		return new MutableAction(false, -ActionDelta.MAX_DELTA, ActionDelta.MAX_DELTA, -ActionDelta.MAX_DELTA, ActionDelta.MAX_DELTA,
+				Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+	}
+
+	/**
+	 * Creates an absolute action with the bounds of velocity, gain and shift read from the given 
+	 * Properties, like {@link ActionAbsolute}. The values are set to the lower bounds.
+	 * @param props The Properties file with boundaries for velocity, gain and shift
+	 * @return the absolute action
+	 * @throws PropertiesException
+	 */
+	public static MutableAction absolute(Properties props) throws PropertiesException {
+		MutableAction action = new MutableAction(true, 
+				PropertiesUtil.getFloat(props, ObservableStateDescription.Action_Velocity + "_MIN", 0f),
+				PropertiesUtil.getFloat(props, ObservableStateDescription.Action_Velocity + "_MAX", 100f),
+				PropertiesUtil.getFloat(props, ObservableStateDescription.Action_Gain + "_MIN", 0f),
+				PropertiesUtil.getFloat(props, ObservableStateDescription.Action_Gain + "_MAX", 100f),
+				PropertiesUtil.getFloat(props, ObservableStateDescription.Action_Shift + "_MIN", 0f),
+				PropertiesUtil.getFloat(props, ObservableStateDescription.Action_Shift + "_MAX", 100f));
+		action.set(action.velocityMin, action.gainMin, action.shiftMin);
+		return action;
+	}
+
+	/**
+	 * Sets all three components.
+	 * @param velocity The (delta) velocity
+	 * @param gain The (delta) gain
+	 * @param shift The (delta) shift
+	 * @return this action
+	 */
+	public MutableAction set(double velocity, double gain, double shift) {
+		setVelocity(velocity);
+		setGain(gain);
+		setShift(shift);
+		return this;
+	}
+
+	/**
+	 * @param velocity the (delta) velocity to set
+	 */
+	public void setVelocity(double velocity) {
+		if (!(velocity >= velocityMin && velocity <= velocityMax)) {
+			throw outOfRange("velocity", velocity, velocityMin, velocityMax);
+		}
+		this.velocity = velocity;
+	}
+
+	/**
+	 * @param gain the (delta) gain to set
+	 */
+	public void setGain(double gain) {
+		if (!(gain >= gainMin && gain <= gainMax)) {
+			throw outOfRange("gain", gain, gainMin, gainMax);
+		}
+		this.gain = gain;
+	}
+
+	/**
+	 * @param shift the (delta) shift to set
+	 */
+	public void setShift(double shift) {
+		if (!(shift >= shiftMin && shift <= shiftMax)) {
+			throw outOfRange("shift", shift, shiftMin, shiftMax);
+		}
+		this.shift = shift;
+	}
+
+	private IllegalArgumentException outOfRange(String name, double value, double min, double max) {
+		return new IllegalArgumentException((absolute ? "" : "delta ") + name + "=" + value + " must be in range [" + min + ", " + max + "]");
+	}
+
+	/**
+	 * @return true if the components are absolute values, false if they are deltas
+	 */
+	public boolean isAbsolute() {
+		return absolute;
+	}
+
+	/**
+	 * @return the (delta) velocity
+	 */
+	public double getVelocity() {
+		return velocity;
+	}
+
+	/**
+	 * @return the (delta) gain
+	 */
+	public double getGain() {
+		return gain;
+	}
+
+	/**
+	 * @return the (delta) shift
+	 */
+	public double getShift() {
+		return shift;
+	}
+
+	private int indexOf(String key) {
+		int index = getKeys().indexOf(key);
+		if (index < 0) {
+			throw new IllegalArgumentException(key + " is not a valid variable. Available names are: " + getKeys());
+		}
+		return index;
+	}
+
+	@Override
+	public Double getValue(String key) {
+		switch (indexOf(key)) {
+		case 0: return velocity;
+		case 1: return gain;
+		default: return shift;
+		}
+	}
+
+	@Override
+	public void setValue(String key, double value) {
+		switch (indexOf(key)) {
+		case 0: setVelocity(value); break;
+		case 1: setGain(value); break;
+		default: setShift(value);
+		}
+	}
+
+	/**
+	 * Returns the keys of {@link ActionDeltaDescription} for delta actions and the velocity, gain 
+	 * and shift keys of {@link ObservableStateDescription} for absolute actions.
+	 */
+	@Override
+	public List<String> getKeys() {
+		return absolute ? ABSOLUTE_KEYS : DELTA_KEYS;
+	}
+
+	@Override
+	public double[] getValuesArray() {
+		return new double[] {velocity, gain, shift};
+	}
+
+	@Override
+	public MutableAction clone() {
+		MutableAction copy = new MutableAction(absolute, velocityMin, velocityMax, gainMin, gainMax, shiftMin, shiftMax);
+		copy.velocity = velocity;
+		copy.gain = gain;
+		copy.shift = shift;
+		return copy;
+	}
+
+	@Override
+	public String toString() {
+		List<String> keys = getKeys();
+		return "{" + keys.get(0) + "=" + velocity + ", " + keys.get(1) + "=" + gain + ", " + keys.get(2) + "=" + shift + "}";
+	}
+}
@@ -0,0 +1,180 @@
+/**
+Copyright 2016 Siemens AG.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.siemens.industrialbenchmark.datavector.codec;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.siemens.industrialbenchmark.datavector.DataVectorDescription;
+import com.siemens.industrialbenchmark.datavector.DataVectorImpl;
+import com.siemens.rl.interfaces.DataVector;
+
+/**
+ * Binary codec for {@link DataVector}s, replacing Java serialization. An encoded vector is the 
+ * 64 bit schema id followed by the values as raw little-endian doubles, in the order of 
+ * {@link DataVector#getKeys()}. The keys themselves are not written; the decoder resolves the 
+ * schema id against the schemas known to its codec (see {@link #register(List)}). 
+ * {@link DataVectorWriter} and {@link DataVectorReader} transfer the schemas inline for streams.
+ * <p>
+ * Instances are thread-safe.
+ */
+public class DataVectorCodec {
+
+	private final ConcurrentMap<Long, DataVectorSchema> byId = new ConcurrentHashMap<Long, DataVectorSchema>();
+	private final ConcurrentMap<List<String>, DataVectorSchema> byKeys = new ConcurrentHashMap<List<String>, DataVectorSchema>();
+
+	/** schema of the last encoded key list, avoids hashing the keys for repeated encodes of the same vector */
+	private volatile CachedSchema last = new CachedSchema(null, null);
+
+	private static final class CachedSchema {
+		final List<String> keys;
+		final DataVectorSchema schema;
+
+		CachedSchema(List<String> keys, DataVectorSchema schema) {
+			this.keys = keys;
+			this.schema = schema;
+		}
+	}
+
+	/**
+	 * Registers the schema of the given keys.
+	 * @param keys The ordered keys
+	 * @return the registered schema
+	 */
+	public DataVectorSchema register(List<String> keys) {
+		DataVectorSchema schema = byKeys.get(keys);
+		if (schema == null) {
+			schema = new DataVectorSchema(keys);
+			DataVectorSchema known = byId.putIfAbsent(schema.getId(), schema);
+			if (known != null) {
+				if (!known.getKeys().equals(schema.getKeys())) {
+					throw new IllegalStateException("schema id collision between " + known + " and " + schema);
+				}
+				schema = known;
+			}
+			byKeys.putIfAbsent(schema.getKeys(), schema);
+		}
+		return schema;
+	}
+
+	/**
+	 * Registers the schema of the given description.
+	 * @param description The description
+	 * @return the registered schema
+	 */
+	public DataVectorSchema register(DataVectorDescription description) {
+		return register(description.getVarNames());
+	}
+
+	/**
+	 * Returns the schema of the given vector, registering it if required.
+	 * @param vector The vector
+	 * @return the schema
+	 */
+	public DataVectorSchema schemaOf(DataVector vector) {
+		List<String> keys = vector.getKeys();
+		CachedSchema cached = last;
+		if (cached.keys == keys) {
+			return cached.schema;
+		}
+		DataVectorSchema schema = register(keys);
+		last = new CachedSchema(keys, schema);
+		return schema;
+	}
+
+	/**
+	 * Returns a registered schema.
+	 * @param id The schema id
+	 * @return the schema
+	 * @throws IllegalArgumentException if no schema with the given id is registered
+	 */
+	public DataVectorSchema schema(long id) {
+		DataVectorSchema schema = byId.get(id);
+		if (schema == null) {
+			throw new IllegalArgumentException(String.format("unknown schema id %016x", id));
+		}
+		return schema;
+	}
+
+	/**
+	 * Writes the schema id and the values of the vector at the current position of the buffer. 
+	 * The byte order of the buffer is not changed.
+	 * @param vector The vector to encode
+	 * @param target The buffer to write to
+	 * @return the schema of the vector
+	 * @throws java.nio.BufferOverflowException if the buffer is too small
+	 */
+	public DataVectorSchema encode(DataVector vector, ByteBuffer target) {
+		DataVectorSchema schema = schemaOf(vector);
+		putLong(target, schema.getId());
+		if (vector instanceof DataVectorImpl) {
+			DataVectorImpl v = (DataVectorImpl) vector;
+			for (int i = 0; i < schema.size(); i++) {
+				putLong(target, Double.doubleToRawLongBits(v.getValue(schema.slot(i))));
+			}
+		} else {
+			for (double value : vector.getValuesArray()) {
+				putLong(target, Double.doubleToRawLongBits(value));
+			}
+		}
+		return schema;
+	}
+
+	/**
+	 * Reads a vector from the current position of the buffer.
+	 * @param source The buffer to read from
+	 * @return a new vector with the keys of the schema
+	 */
+	public DataVectorImpl decode(ByteBuffer source) {
+		DataVectorSchema schema = schema(getLong(source));
+		DataVectorImpl vector = new DataVectorImpl(schema.getKeys());
+		readValues(schema, source, vector);
+		return vector;
+	}
+
+	/**
+	 * Reads a vector from the current position of the buffer into an existing vector without allocating.
+	 * @param source The buffer to read from
+	 * @param target A vector with the keys of the encoded schema
+	 * @throws IllegalArgumentException if the keys of the target do not match the encoded schema
+	 */
+	public void decodeInto(ByteBuffer source, DataVectorImpl target) {
+		DataVectorSchema schema = schemaOf(target);
+		long id = getLong(source);
+		if (id != schema.getId()) {
+			throw new IllegalArgumentException(String.format("encoded schema %016x does not match the target schema %s", id, schema));
+		}
+		readValues(schema, source, target);
+	}
+
+	private static void readValues(DataVectorSchema schema, ByteBuffer source, DataVectorImpl target) {
+		for (int i = 0; i < schema.size(); i++) {
+			target.setValue(schema.slot(i), Double.longBitsToDouble(getLong(source)));
+		}
+	}
+
+	static void putLong(ByteBuffer buffer, long value) {
+		buffer.putLong(buffer.order() == ByteOrder.LITTLE_ENDIAN ? value : Long.reverseBytes(value));
+	}
+
+	static long getLong(ByteBuffer buffer) {
+		long value = buffer.getLong();
+		return buffer.order() == ByteOrder.LITTLE_ENDIAN ? value : Long.reverseBytes(value);
+	}
+}
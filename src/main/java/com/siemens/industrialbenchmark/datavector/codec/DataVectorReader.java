@@ -0,0 +1,166 @@
+/**
+Copyright 2016 Siemens AG.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.siemens.industrialbenchmark.datavector.codec;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.siemens.industrialbenchmark.datavector.DataVectorImpl;
+
+/**
+ * Reads {@link com.siemens.rl.interfaces.DataVector}s written by a {@link DataVectorWriter}.
+ */
+public class DataVectorReader implements Closeable {
+
+	private final DataInputStream in;
+	private final DataVectorCodec codec;
+	private ByteBuffer buffer = ByteBuffer.allocate(512).order(ByteOrder.LITTLE_ENDIAN);
+	/** schema of the vector in the buffer */
+	private DataVectorSchema current;
+
+	/**
+	 * Constructor with the stream to read from
+	 * @param in The stream to read from
+	 */
+	public DataVectorReader(InputStream in) {
+		this(in, new DataVectorCodec());
+	}
+
+	/**
+	 * Constructor with the stream to read from and the codec to register the schemas in
+	 * @param in The stream to read from
+	 * @param codec The codec
+	 */
+	public DataVectorReader(InputStream in, DataVectorCodec codec) {
+		this.in = new DataInputStream(in);
+		this.codec = codec;
+	}
+
+	/**
+	 * Reads the next vector.
+	 * @return the vector, or null at the end of the stream
+	 * @throws IOException
+	 */
+	public DataVectorImpl read() throws IOException {
+		if (!readVectorRecord()) {
+			return null;
+		}
+		return codec.decode(buffer);
+	}
+
+	/**
+	 * Reads the next vector into an existing vector without allocating.
+	 * @param target A vector with the keys of the next encoded vector
+	 * @return false at the end of the stream
+	 * @throws IOException
+	 */
+	public boolean readInto(DataVectorImpl target) throws IOException {
+		if (!readVectorRecord()) {
+			return false;
+		}
+		codec.decodeInto(buffer, target);
+		return true;
+	}
+
+	/**
+	 * Reads the next vector without decoding it. Single values are then read with {@link #getValue(int)}.
+	 * @return the schema of the vector, or null at the end of the stream
+	 * @throws IOException
+	 */
+	public DataVectorSchema next() throws IOException {
+		return readVectorRecord() ? current : null;
+	}
+
+	/**
+	 * @param position The position of a key in the schema returned by {@link #next()}
+	 * @return the value of the key in the current vector
+	 */
+	public double getValue(int position) {
+		if (position < 0 || position >= current.size()) {
+			throw new IndexOutOfBoundsException("position " + position + " of " + current.size() + " values");
+		}
+		return buffer.getDouble(8 + 8 * position);
+	}
+
+	/**
+	 * reads schema records until the next vector record and leaves the vector in the buffer 
+	 */
+	private boolean readVectorRecord() throws IOException {
+		int tag;
+		while ((tag = in.read()) == DataVectorWriter.SCHEMA_RECORD) {
+			readSchema();
+		}
+		if (tag < 0) {
+			return false;
+		}
+		if (tag != DataVectorWriter.VECTOR_RECORD) {
+			throw new StreamCorruptedException("unknown record type " + tag);
+		}
+		fill(8);
+		DataVectorSchema schema = codec.schema(DataVectorCodec.getLong(buffer));
+		if (buffer.capacity() < schema.encodedSize()) {
+			long id = buffer.getLong(0);
+			buffer = ByteBuffer.allocate(schema.encodedSize()).order(ByteOrder.LITTLE_ENDIAN);
+			buffer.putLong(id);
+		}
+		in.readFully(buffer.array(), 8, schema.encodedSize() - 8);
+		buffer.position(0);
+		buffer.limit(schema.encodedSize());
+		current = schema;
+		return true;
+	}
+
+	private void readSchema() throws IOException {
+		fill(12);
+		long id = buffer.getLong();
+		int count = buffer.getInt();
+		List<String> keys = new ArrayList<String>(count);
+		for (int i = 0; i < count; i++) {
+			fill(4);
+			byte[] name = new byte[buffer.getInt()];
+			in.readFully(name);
+			keys.add(new String(name, StandardCharsets.UTF_8));
+		}
+		DataVectorSchema schema = codec.register(keys);
+		if (schema.getId() != id) {
+			throw new StreamCorruptedException(String.format("schema id %016x does not match the keys %s", id, schema));
+		}
+	}
+
+	private void fill(int length) throws IOException {
+		buffer.clear();
+		try {
+			in.readFully(buffer.array(), 0, length);
+		} catch (EOFException e) {
+			throw new StreamCorruptedException("truncated record");
+		}
+		buffer.limit(length);
+	}
+
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+}
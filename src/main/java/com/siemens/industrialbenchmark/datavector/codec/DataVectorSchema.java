@@ -0,0 +1,94 @@
+/**
+Copyright 2016 Siemens AG.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.siemens.industrialbenchmark.datavector.codec;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * The ordered keys of an encoded {@link com.siemens.rl.interfaces.DataVector}. The id is a 64 bit 
+ * FNV-1a hash of the keys, so encoder and decoder in different processes derive the same id for 
+ * the same description.
+ */
+public final class DataVectorSchema {
+
+	private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	private final long id;
+	private final ImmutableList<String> keys;
+	/** slot of each key in a DataVectorImpl with these keys, i.e. the last position of a duplicate key */
+	private final int[] slots;
+
+	DataVectorSchema(List<String> keys) {
+		this.keys = ImmutableList.copyOf(keys);
+		this.id = hash(this.keys);
+		this.slots = new int[this.keys.size()];
+		for (int i = 0; i < slots.length; i++) {
+			slots[i] = this.keys.lastIndexOf(this.keys.get(i));
+		}
+	}
+
+	private static long hash(List<String> keys) {
+		long h = FNV_OFFSET;
+		for (String key : keys) {
+			for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+				h = (h ^ (b & 0xff)) * FNV_PRIME;
+			}
+			h = (h ^ 0xff) * FNV_PRIME; // separator, not a valid UTF-8 byte
+		}
+		return h;
+	}
+
+	/**
+	 * @return the schema id
+	 */
+	public long getId() {
+		return id;
+	}
+
+	/**
+	 * @return the ordered keys
+	 */
+	public List<String> getKeys() {
+		return keys;
+	}
+
+	/**
+	 * @return the number of values
+	 */
+	public int size() {
+		return slots.length;
+	}
+
+	int slot(int position) {
+		return slots[position];
+	}
+
+	/**
+	 * @return the number of bytes of an encoded vector: the schema id and the values
+	 */
+	public int encodedSize() {
+		return 8 + 8 * slots.length;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%016x%s", id, keys);
+	}
+}
@@ -0,0 +1,117 @@
+/**
+Copyright 2016 Siemens AG.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.siemens.industrialbenchmark.datavector.codec;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import com.siemens.rl.interfaces.DataVector;
+
+/**
+ * Writes {@link DataVector}s to a stream in the format of {@link DataVectorCodec}. The keys of 
+ * a schema are written once, before the first vector of the schema; later vectors of the same 
+ * schema are written as schema id and values only. Read the stream with {@link DataVectorReader}.
+ * <p>
+ * Every call writes to the underlying stream, wrap it into a {@link java.io.BufferedOutputStream} 
+ * for many small vectors.
+ */
+public class DataVectorWriter implements Closeable, Flushable {
+
+	static final int SCHEMA_RECORD = 1;
+	static final int VECTOR_RECORD = 2;
+
+	private final OutputStream out;
+	private final DataVectorCodec codec;
+	private final Set<DataVectorSchema> writtenSchemas = Collections.newSetFromMap(new IdentityHashMap<DataVectorSchema, Boolean>());
+	private ByteBuffer buffer = ByteBuffer.allocate(512).order(ByteOrder.LITTLE_ENDIAN);
+
+	/**
+	 * Constructor with the stream to write to
+	 * @param out The stream to write to
+	 */
+	public DataVectorWriter(OutputStream out) {
+		this(out, new DataVectorCodec());
+	}
+
+	/**
+	 * Constructor with the stream to write to and the codec holding the schemas
+	 * @param out The stream to write to
+	 * @param codec The codec
+	 */
+	public DataVectorWriter(OutputStream out, DataVectorCodec codec) {
+		this.out = out;
+		this.codec = codec;
+	}
+
+	/**
+	 * Writes a vector, preceded by its schema if the schema has not been written to this stream before.
+	 * @param vector The vector to write
+	 * @throws IOException
+	 */
+	public void write(DataVector vector) throws IOException {
+		DataVectorSchema schema = codec.schemaOf(vector);
+		if (writtenSchemas.add(schema)) {
+			writeSchema(schema);
+		}
+		ensureCapacity(1 + schema.encodedSize());
+		buffer.put((byte) VECTOR_RECORD);
+		codec.encode(vector, buffer);
+		out.write(buffer.array(), 0, buffer.position());
+	}
+
+	private void writeSchema(DataVectorSchema schema) throws IOException {
+		int size = 1 + 8 + 4;
+		byte[][] names = new byte[schema.size()][];
+		for (int i = 0; i < names.length; i++) {
+			names[i] = schema.getKeys().get(i).getBytes(StandardCharsets.UTF_8);
+			size += 4 + names[i].length;
+		}
+		ensureCapacity(size);
+		buffer.put((byte) SCHEMA_RECORD);
+		buffer.putLong(schema.getId());
+		buffer.putInt(names.length);
+		for (byte[] name : names) {
+			buffer.putInt(name.length);
+			buffer.put(name);
+		}
+		out.write(buffer.array(), 0, buffer.position());
+	}
+
+	private void ensureCapacity(int size) {
+		if (buffer.capacity() < size) {
+			buffer = ByteBuffer.allocate(Math.max(size, 2 * buffer.capacity())).order(ByteOrder.LITTLE_ENDIAN);
+		}
+		buffer.clear();
+	}
+
+	@Override
+	public void flush() throws IOException {
+		out.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		out.close();
+	}
+}
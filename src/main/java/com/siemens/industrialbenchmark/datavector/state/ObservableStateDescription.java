@@ -34,6 +34,9 @@ public class ObservableStateDescription extends DataVectorDescription {
     private final static String[] mStateVars = new String[] {
         	SetPoint, Action_Velocity, Action_Gain, Action_Shift, Fatigue, RewardTotal, Consumption
     };
+
+    /** the number of observable variables, i.e. the length of an observation */
+    public static final int SIZE = mStateVars.length;
        
     public ObservableStateDescription () {
     	super (mStateVars);
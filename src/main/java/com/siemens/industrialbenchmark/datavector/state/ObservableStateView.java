@@ -0,0 +1,133 @@
+/**
+Copyright 2016 Siemens AG.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.siemens.industrialbenchmark.datavector.state;
+
+import java.util.List;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableList.Builder;
+import com.siemens.industrialbenchmark.datavector.DataVectorImpl;
+import com.siemens.rl.interfaces.DataVector;
+
+/**
+ * Read-only {@link ObservableState} that projects a live markov state through a precomputed slot 
+ * index array. Reading a value reads the current value of the markov state, nothing is copied. 
+ * Use {@link #snapshot()} to keep the values of a given time step.
+ */
+public class ObservableStateView extends ObservableState {
+
+	private static final long serialVersionUID = -2479226131834614383L;
+
+	private final DataVectorImpl source;
+	private final int[] slots;
+
+	/**
+	 * Constructor with the markov state and the slot of each observable variable
+	 * @param source The markov state to read from
+	 * @param slots The slot index in the markov state for each variable of {@link ObservableStateDescription}
+	 */
+	public ObservableStateView(DataVectorImpl source, int[] slots) {
+		if (slots.length != getSlotCount()) {
+			throw new IllegalArgumentException("expected " + getSlotCount() + " slots, but got " + slots.length);
+		}
+		this.source = source;
+		this.slots = slots.clone();
+	}
+
+	/**
+	 * Returns an independent copy of the current values.
+	 * @return the copy
+	 */
+	public ObservableState snapshot() {
+		ObservableState s = new ObservableState();
+		for (int i = 0; i < slots.length; i++) {
+			s.setValue(i, source.getValue(slots[i]));
+		}
+		return s;
+	}
+
+	@Override
+	public Double getValue(String key) {
+		return source.getValue(slots[getIndex(key)]);
+	}
+
+	@Override
+	public double getValue(int index) {
+		return source.getValue(slots[index]);
+	}
+
+	@Override
+	public void setValue(String key, double value) {
+		throw new UnsupportedOperationException("the observable state view is read-only");
+	}
+
+	@Override
+	public void setValue(int index, double value) {
+		throw new UnsupportedOperationException("the observable state view is read-only");
+	}
+
+	@Override
+	public void copySlotsFrom(double[] source) {
+		throw new UnsupportedOperationException("the observable state view is read-only");
+	}
+
+	@Override
+	public void copySlotsInto(double[] target) {
+		if (target.length != slots.length) {
+			throw new IllegalArgumentException("expected an array of length " + slots.length + ", but got " + target.length);
+		}
+		for (int i = 0; i < slots.length; i++) {
+			target[i] = source.getValue(slots[i]);
+		}
+	}
+
+	/**
+	 * Computes the fingerprint of the current values, the view is not notified of writes to the markov state.
+	 */
+	@Override
+	public long fingerprint() {
+		return getFingerprinter().of(this);
+	}
+
+	@Override
+	public double[] getValuesArray() {
+		double[] values = new double[slots.length];
+		copySlotsInto(values);
+		return values;
+	}
+
+	@Override
+	public List<Double> getValues() {
+		Builder<Double> valueBuilder = new ImmutableList.Builder<Double>();
+		for (int i = 0; i < slots.length; i++) {
+			valueBuilder.add(source.getValue(slots[i]));
+		}
+		return valueBuilder.build();
+	}
+
+	@Override
+	public String toString() {
+		return snapshot().toString();
+	}
+
+	/**
+	 * Returns a copy of the current values, see {@link #snapshot()}.
+	 */
+	@Override
+	public DataVector clone() {
+		return snapshot();
+	}
+}
@@ -0,0 +1,243 @@
+/**
+Copyright 2016 Siemens AG.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.siemens.industrialbenchmark.dynamics;
+
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.base.Preconditions;
+import com.siemens.industrialbenchmark.properties.PropertiesException;
+
+/**
+ * Thread-safe pool of {@link IndustrialBenchmarkDynamics} instances, keyed by their configuration. 
+ * Constructing an instance parses the Properties and builds the goldstone tables; the pool avoids 
+ * this cost for workloads that create and discard many short-lived environments.
+ * <p>
+ * Instances are handed out as {@link Lease}s. Closing a lease resets the instance in place and 
+ * returns it to the pool, unless the pool already holds {@link #getMaxSize()} idle instances, in
+ * which case the instance is dropped. Every handed out instance is in the state of 
+ * {@link IndustrialBenchmarkDynamics#reset()} (or {@link IndustrialBenchmarkDynamics#reset(long)} 
+ * if a seed is given) and has no {@link TransitionCache}.
+ * 
+ * <pre>
+ * {@code
+ * try (EnvironmentPool.Lease lease = pool.acquire(props, seed)) {
+ *     IndustrialBenchmarkDynamics env = lease.get();
+ *     ...
+ * }
+ * }
+ * </pre>
+ */
+public class EnvironmentPool {
+
+	private final int maxSize;
+	private final ConcurrentMap<Map<String, String>, ConcurrentLinkedDeque<IndustrialBenchmarkDynamics>> idle = 
+			new ConcurrentHashMap<Map<String, String>, ConcurrentLinkedDeque<IndustrialBenchmarkDynamics>>();
+	private final AtomicInteger idleCount = new AtomicInteger();
+	private final AtomicInteger borrowedCount = new AtomicInteger();
+	private final AtomicLong createdCount = new AtomicLong();
+	private final AtomicLong reusedCount = new AtomicLong();
+
+	/**
+	 * Constructor with the maximum number of idle instances
+	 * @param maxSize The maximum number of idle instances kept over all configurations
+	 */
+	public EnvironmentPool(int maxSize) {
+		Preconditions.checkArgument(maxSize >= 0, "maxSize must be non-negative, but is %s", maxSize);
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * Hands out an instance for the given configuration, reset with the configured seed.
+	 * @param config The benchmark configuration
+	 * @return the lease of the instance
+	 * @throws PropertiesException if a new instance has to be created and the configuration is invalid
+	 */
+	public Lease acquire(Properties config) throws PropertiesException {
+		return acquire(config, null);
+	}
+
+	/**
+	 * Hands out an instance for the given configuration, reset with the given seed.
+	 * @param config The benchmark configuration
+	 * @param seed The seed of the episode
+	 * @return the lease of the instance
+	 * @throws PropertiesException if a new instance has to be created and the configuration is invalid
+	 */
+	public Lease acquire(Properties config, long seed) throws PropertiesException {
+		return acquire(config, Long.valueOf(seed));
+	}
+
+	private Lease acquire(Properties config, Long seed) throws PropertiesException {
+		final Map<String, String> key = keyOf(config);
+		IndustrialBenchmarkDynamics env = null;
+		ConcurrentLinkedDeque<IndustrialBenchmarkDynamics> queue = idle.get(key);
+		if (queue != null) {
+			env = queue.pollFirst();
+		}
+		if (env != null) {
+			idleCount.decrementAndGet();
+			reusedCount.incrementAndGet();
+		} else {
+			env = create(key);
+		}
+		if (seed != null) {
+			env.reset(seed);
+		}
+		borrowedCount.incrementAndGet();
+		return new Lease(key, env);
+	}
+
+	/**
+	 * Creates instances for the given configuration up to the maximum pool size.
+	 * @param config The benchmark configuration
+	 * @param count The number of instances to create
+	 * @throws PropertiesException if the configuration is invalid
+	 */
+	public void prewarm(Properties config, int count) throws PropertiesException {
+		final Map<String, String> key = keyOf(config);
+		for (int i = 0; i < count; i++) {
+			if (!offer(key, create(key))) {
+				return;
+			}
+		}
+	}
+
+	private IndustrialBenchmarkDynamics create(Map<String, String> key) throws PropertiesException {
+		Properties props = new Properties();
+		props.putAll(key);
+		IndustrialBenchmarkDynamics env = IndustrialBenchmarkDynamics.reproducible(props);
+		env.reset();
+		createdCount.incrementAndGet();
+		return env;
+	}
+
+	private void release(Map<String, String> key, IndustrialBenchmarkDynamics env) {
+		borrowedCount.decrementAndGet();
+		// the cache belongs to the borrower, the next one must not share or keep it alive
+		env.setTransitionCache(null);
+		env.reset();
+		offer(key, env);
+	}
+
+	private boolean offer(Map<String, String> key, IndustrialBenchmarkDynamics env) {
+		// reserve a place first, so that the bound also holds under concurrent releases
+		if (idleCount.incrementAndGet() > maxSize) {
+			idleCount.decrementAndGet();
+			return false;
+		}
+		ConcurrentLinkedDeque<IndustrialBenchmarkDynamics> queue = idle.get(key);
+		if (queue == null) {
+			ConcurrentLinkedDeque<IndustrialBenchmarkDynamics> newQueue = new ConcurrentLinkedDeque<IndustrialBenchmarkDynamics>();
+			queue = idle.putIfAbsent(key, newQueue);
+			if (queue == null) {
+				queue = newQueue;
+			}
+		}
+		queue.offerFirst(env);
+		return true;
+	}
+
+	private static Map<String, String> keyOf(Properties config) {
+		Map<String, String> key = new TreeMap<String, String>();
+		for (String name : config.stringPropertyNames()) {
+			key.put(name, config.getProperty(name));
+		}
+		return key;
+	}
+
+	/**
+	 * @return the maximum number of idle instances
+	 */
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * @return the number of idle instances held by the pool
+	 */
+	public int getIdleCount() {
+		return idleCount.get();
+	}
+
+	/**
+	 * @return the number of instances currently handed out
+	 */
+	public int getBorrowedCount() {
+		return borrowedCount.get();
+	}
+
+	/**
+	 * @return the fraction of the maximum size occupied by idle instances
+	 */
+	public double getOccupancy() {
+		return maxSize == 0 ? 0.0 : idleCount.get() / (double) maxSize;
+	}
+
+	/**
+	 * @return the number of instances constructed by the pool
+	 */
+	public long getCreatedCount() {
+		return createdCount.get();
+	}
+
+	/**
+	 * @return the number of acquisitions served by an idle instance
+	 */
+	public long getReusedCount() {
+		return reusedCount.get();
+	}
+
+	/**
+	 * An instance handed out by the pool. Closing the lease returns the instance; 
+	 * it must not be used afterwards.
+	 */
+	public final class Lease implements AutoCloseable {
+		private final Map<String, String> key;
+		private IndustrialBenchmarkDynamics env;
+
+		private Lease(Map<String, String> key, IndustrialBenchmarkDynamics env) {
+			this.key = key;
+			this.env = env;
+		}
+
+		/**
+		 * @return the leased instance
+		 */
+		public IndustrialBenchmarkDynamics get() {
+			Preconditions.checkState(env != null, "lease has already been closed");
+			return env;
+		}
+
+		/**
+		 * Resets the instance and returns it to the pool. Closing a lease twice has no effect.
+		 */
+		@Override
+		public void close() {
+			if (env != null) {
+				IndustrialBenchmarkDynamics e = env;
+				env = null;
+				release(key, e);
+			}
+		}
+	}
+}
@@ -15,27 +15,49 @@ limitations under the License.
 */
 package com.siemens.industrialbenchmark.dynamics;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StreamCorruptedException;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
 
-import org.apache.commons.collections.buffer.CircularFifoBuffer;
 import org.apache.commons.math3.random.RandomDataGenerator;
 import org.apache.log4j.Logger;
 
 import com.google.common.base.Preconditions;
+import com.siemens.industrialbenchmark.checkpoint.CheckpointFormat;
+import com.siemens.industrialbenchmark.datavector.DataVectorImpl;
+import com.siemens.industrialbenchmark.datavector.StateFingerprint;
 import com.siemens.industrialbenchmark.datavector.action.ActionAbsolute;
 import com.siemens.industrialbenchmark.datavector.action.ActionDelta;
+import com.siemens.industrialbenchmark.datavector.action.DiscreteActions;
 import com.siemens.industrialbenchmark.datavector.action.EffectiveAction;
+import com.siemens.industrialbenchmark.datavector.action.MutableAction;
+import com.siemens.industrialbenchmark.datavector.codec.DataVectorReader;
+import com.siemens.industrialbenchmark.datavector.codec.DataVectorWriter;
 import com.siemens.industrialbenchmark.datavector.state.MarkovianState;
 import com.siemens.industrialbenchmark.datavector.state.MarkovianStateDescription;
 import com.siemens.industrialbenchmark.datavector.state.ObservableState;
 import com.siemens.industrialbenchmark.datavector.state.ObservableStateDescription;
+import com.siemens.industrialbenchmark.datavector.state.ObservableStateView;
 import com.siemens.industrialbenchmark.dynamics.goldstone.GoldstoneEnvironment;
 import com.siemens.industrialbenchmark.externaldrivers.setpointgen.SetPointGenerator;
+import com.siemens.industrialbenchmark.monitoring.SimulationEvents;
+import com.siemens.industrialbenchmark.monitoring.StepProbe;
+import com.siemens.industrialbenchmark.monitoring.StepProfiler;
+import com.siemens.industrialbenchmark.monitoring.StepStage;
 import com.siemens.industrialbenchmark.properties.PropertiesException;
 import com.siemens.industrialbenchmark.properties.PropertiesUtil;
+import com.siemens.rl.interfaces.Checkpointable;
 import com.siemens.rl.interfaces.DataVector;
 import com.siemens.rl.interfaces.Environment;
 import com.siemens.rl.interfaces.ExternalDriver;
@@ -57,8 +79,11 @@ public class IndustrialBenchmarkDynamics implements Environment
 	protected final float STEP_SIZE_VELOCITY;
 	protected final float STEP_SIZE_GAIN;
 
-	/** Ring Buffer of fixed size implementing a FIFO queue */
-	protected CircularFifoBuffer mOperationalCostsBuffer;
+	/** Ring buffer of fixed size holding the operationalcost history; mOperationalCostsHead points to the oldest entry */
+	private double[] mOperationalCosts;
+	private int mOperationalCostsHead;
+	/** markov state slots of the OPERATIONALCOST_i variables */
+	private int[] mOperationalCostSlots;
 
 	private float[] mEmConvWeights;
 	private boolean convToInit = true;
@@ -68,6 +93,9 @@ public class IndustrialBenchmarkDynamics implements Environment
 	private final float gsBound = 1.5f; 
 	private final float gsSetPointDependency = 0.02f;
 
+	/** setpoint generator seed of {@link #reproducible(Properties)} */
+	private static final long REPRODUCIBLE_DRIVER_SEED = 0;
+
 	private enum C {
 		DGain, DVelocity, DSetPoint, 
 		CostSetPoint, CostGain, CostVelocity, DBase,
@@ -79,6 +107,24 @@ public class IndustrialBenchmarkDynamics implements Environment
     protected MarkovianState mMin;
     protected final Properties mProperties;
 
+    /** markov state slots right after parsing the _INIT values, used as template by {@link #reset()} */
+    private double[] mInitialValues;
+    /** the configured SEED, null if the seed is taken from the clock */
+    private Long mConfiguredSeed;
+    /** states of the external drivers at initialization, restored by {@link #reset()} */
+    private List<DataVector> mInitialDriverStates;
+    /** markov state slot of each variable of the {@link #stateInto(double[])} layout */
+    private int[] mObservableSlots;
+    /** markov state slot of each variable of the {@link #markovStateInto(double[])} layout */
+    private int[] mMarkovSlots;
+    /** read-only view of the observable variables of the markov state */
+    private ObservableStateView mStateView;
+    /** markov state slots after the shared setpoint filter of {@link #lookaheadAll(double[], double[], double[])}, allocated on first use */
+    private double[] mLookaheadSlots;
+    /** optional memo of the transitions of {@link #step(double, double, double, double[])} */
+    private TransitionCache mTransitionCache;
+    private double[] mCachedSuccessor;
+
 	private IndustrialBenchmarkRewardFunction mRewardCore;
     private RandomDataGenerator rda = new RandomDataGenerator(); 
     private long randomSeed = 0;
@@ -87,6 +133,9 @@ public class IndustrialBenchmarkDynamics implements Environment
     private List<String> markovStateAdditionalNames;
     private List<ExternalDriver> externalDrivers = new ArrayList<ExternalDriver>(); 
     private final ActionDelta zeroAction = new ActionDelta(0, 0, 0);
+
+    /** per-stage step timer, only instantiated if {@link StepProfiler#ENABLED} */
+    private final StepProbe mProbe = StepProfiler.ENABLED ? StepProfiler.newProbe() : null;
 	
 
     /**
@@ -95,30 +144,60 @@ public class IndustrialBenchmarkDynamics implements Environment
      * @throws PropertiesException
      */
     public IndustrialBenchmarkDynamics(Properties aProperties) throws PropertiesException {
+    	this(aProperties, defaultExternalDrivers(aProperties), true);
+    }
+    
+    /**
+     * Constructor with configuration Properties and external driver list
+     * @param aProperties The properties objects
+     * @param externalDrivers The list containing external drivers
+     * @throws PropertiesException
+     */
+    public IndustrialBenchmarkDynamics(Properties aProperties, List<ExternalDriver> externalDrivers) throws PropertiesException {
+    	this(aProperties, externalDrivers, false);
+    }
+
+    /**
+     * @param aProperties The properties objects
+     * @param externalDrivers The list containing external drivers
+     * @param initOperationalCostHistory if true, the first step fills the whole operationalcost history 
+     * 		with the first operationalcost value, otherwise the history starts with zeros. The latter has 
+     * 		always been the behaviour of the constructor with an external driver list.   
+     * @throws PropertiesException
+     */
+    private IndustrialBenchmarkDynamics(Properties aProperties, List<ExternalDriver> externalDrivers, boolean initOperationalCostHistory) throws PropertiesException {
         mProperties = aProperties;
         mRewardCore = new IndustrialBenchmarkRewardFunction(aProperties);
         STEP_SIZE_GAIN = PropertiesUtil.getFloat(mProperties, C.STEP_SIZE_GAIN.name(), true);
         STEP_SIZE_VELOCITY = PropertiesUtil.getFloat(mProperties, C.STEP_SIZE_VELOCITY.name(), true);
 		
-		externalDrivers.add(new SetPointGenerator(mProperties));
+		this.externalDrivers = externalDrivers;
+		this.convToInit = initOperationalCostHistory;
 
         init();
         step(zeroAction);
+        SimulationEvents.episode("init", randomSeed);
     }
-    
+
+    private static List<ExternalDriver> defaultExternalDrivers(Properties aProperties) throws PropertiesException {
+    	List<ExternalDriver> drivers = new ArrayList<ExternalDriver>();
+    	drivers.add(new SetPointGenerator(aProperties));
+    	return drivers;
+    }
+
     /**
-     * Constructor with configuration Properties and external driver list
+     * Creates an environment whose episodes only depend on the seed passed to {@link #reset(long)}. The 
+     * setpoint generator starts with a fixed seed instead of the current time, so all environments with 
+     * the same configuration follow the same trajectory for the same seed, independent of the thread they 
+     * run on. As with the constructor with an external driver list, the operationalcost history starts with zeros.
      * @param aProperties The properties objects
-     * @param externalDrivers The list containing external drivers
+     * @return the new environment
      * @throws PropertiesException
      */
-    public IndustrialBenchmarkDynamics(Properties aProperties, List<ExternalDriver> externalDrivers) throws PropertiesException {
-    	this(aProperties);
-    	
-    	this.externalDrivers = externalDrivers;
-    	
-    	init();
-    	step(zeroAction);
+    public static IndustrialBenchmarkDynamics reproducible(Properties aProperties) throws PropertiesException {
+    	List<ExternalDriver> drivers = new ArrayList<ExternalDriver>();
+    	drivers.add(new SetPointGenerator(REPRODUCIBLE_DRIVER_SEED, aProperties));
+    	return new IndustrialBenchmarkDynamics(aProperties, drivers, false);
     }
 
 	/**
@@ -131,9 +210,8 @@ public class IndustrialBenchmarkDynamics implements Environment
 		CRGS = PropertiesUtil.getFloat(mProperties, "CRGS", true);
         mEmConvWeights = getFloatArray(mProperties.getProperty("ConvArray"));
         markovStateAdditionalNames = new ArrayList <String>();
-        mOperationalCostsBuffer = new CircularFifoBuffer(mEmConvWeights.length);
+        mOperationalCosts = new double[mEmConvWeights.length];
         for (int i = 0; i < mEmConvWeights.length; i++) {
-            mOperationalCostsBuffer.add(0.0d); // initialize all operationalcosts with zero
             markovStateAdditionalNames.add("OPERATIONALCOST_" + i); // add operationalcost_lag to list of convoluted markov variables
         }
         markovStateAdditionalNames.addAll(MarkovianStateDescription.getNonConvolutedInternalVariables());
@@ -154,6 +232,18 @@ public class IndustrialBenchmarkDynamics implements Environment
         markovState = new MarkovianState(markovStateAdditionalNames);
         mMin = new MarkovianState(markovStateAdditionalNames); // lower variable boundaries
         mMax = new MarkovianState(markovStateAdditionalNames); // upper variable boundaries
+
+        // resolve the primitive state layouts to markov state slots
+        List<String> observableNames = new ObservableStateDescription().getVarNames();
+        mObservableSlots = new int[observableNames.size()];
+        for (int i = 0; i < mObservableSlots.length; i++) {
+        	mObservableSlots[i] = markovState.getIndex(observableNames.get(i));
+        }
+        mMarkovSlots = new int[markovState.getKeys().size()];
+        for (int i = 0; i < mMarkovSlots.length; i++) {
+        	mMarkovSlots[i] = markovState.getIndex(markovState.getKeys().get(i));
+        }
+        mStateView = new ObservableStateView(markovState, mObservableSlots);
         
     	// extract variable boundings + initial values from Properties 
         for (String v : this.markovState.getKeys()) {
@@ -166,32 +256,56 @@ public class IndustrialBenchmarkDynamics implements Environment
             mMin.setValue(v, min);
             markovState.setValue(v, init);
         }
+        mInitialValues = new double[markovState.getSlotCount()];
+        markovState.copySlotsInto(mInitialValues);
+
+        mOperationalCostSlots = new int[mEmConvWeights.length];
+        for (int i = 0; i < mOperationalCostSlots.length; i++) {
+        	mOperationalCostSlots[i] = markovState.getIndex("OPERATIONALCOST_" + i);
+        }
+
+        mInitialDriverStates = new ArrayList<DataVector>();
+        for (ExternalDriver d : this.externalDrivers) {
+        	mInitialDriverStates.add(d.getState());
+        }
 
         // seed all random number generators for allowing to re-conduct the experiment 
-        randomSeed = PropertiesUtil.getLong(mProperties, "SEED", System.currentTimeMillis());
-        //mLogger.debug("init seed: " + randomSeed);
+        mConfiguredSeed = mProperties.getProperty("SEED") != null ? PropertiesUtil.getLong(mProperties, "SEED") : null;
+
+		this.gsEnvironment = new GoldstoneEnvironment(24, maxRequiredStep, maxRequiredStep/2.0);
+
+		restart(mConfiguredSeed != null ? mConfiguredSeed : System.currentTimeMillis());
+	}
+
+	/**
+	 * Brings the already allocated state back to its initial values: the markov state is overwritten 
+	 * with the initial values, the operationalcost history is cleared, the goldstone dynamics are reset,
+	 * the external drivers are set back to their initial configuration and all random number generators 
+	 * and external drivers are re-seeded.  
+	 * @param seed The seed to start with
+	 */
+	private void restart(long seed) {
+		markovState.copySlotsFrom(mInitialValues);
+		Arrays.fill(mOperationalCosts, 0.0); // initialize all operationalcosts with zero
+		mOperationalCostsHead = 0;
+
+        randomSeed = seed;
         rda.reSeed(randomSeed);
-        
-        //extDriver.setSeed(rda.nextLong(0, Long.MAX_VALUE));
-        for (ExternalDriver d : this.externalDrivers) {
+        for (int i = 0; i < externalDrivers.size(); i++) {
+        	ExternalDriver d = externalDrivers.get(i);
+        	d.setConfiguration(mInitialDriverStates.get(i));
         	d.setSeed(rda.nextLong(0, Long.MAX_VALUE));
         	d.filter(markovState);
         }
-            
-		this.gsEnvironment = new GoldstoneEnvironment(24, maxRequiredStep, maxRequiredStep/2.0);
+
+        gsEnvironment.reset();
 
 		// set all NaN values to 0.0
-		for (String key : markovState.getKeys()) {
-			if (Double.isNaN(markovState.getValue(key))) {
-				markovState.setValue(key, 0.0);				
+		for (int i = 0; i < markovState.getSlotCount(); i++) {
+			if (Double.isNaN(markovState.getValue(i))) {
+				markovState.setValue(i, 0.0);
 			}
 		}
-			
-		//for (String key : markovState.getKeys()) {
-		//	mLogger.debug(key  + "=" + markovState.getValue(key));
-		//}
-		//System.exit(-1);
-		//mRewardCore.setNormal(rda);
 	}
 
 	/**
@@ -217,12 +331,67 @@ public class IndustrialBenchmarkDynamics implements Environment
      */    
     public ObservableState getState() {
     	ObservableState s = new ObservableState();
-    	for (String key : s.getKeys()) {
-    		s.setValue(key, this.markovState.getValue(key));
+    	for (int i = 0; i < mObservableSlots.length; i++) {
+    		s.setValue(i, this.markovState.getValue(mObservableSlots[i]));
     	}
     	return s;
     }
 
+    /**
+     * Returns a read-only view of the observable components of the markovian state. The view is
+     * not a copy: it always shows the current state and changes with every step. Use
+     * {@link ObservableStateView#snapshot()} or {@link #getState()} to keep a state.
+     *  
+     * @return live view of the current state of the industrial benchmark
+     */
+    public ObservableStateView getStateView() {
+    	return mStateView;
+    }
+
+    /**
+     * Copies the observable state into the given array. The layout is the variable order of 
+     * {@link ObservableStateDescription}: SetPoint, Velocity, Gain, Shift, Fatigue, RewardTotal, Consumption.
+     * 
+     * @param out The array to copy to, of length 7
+     */
+    @Override
+    public void stateInto(double[] out) {
+    	if (out.length != mObservableSlots.length) {
+    		throw new IllegalArgumentException("expected an array of length " + mObservableSlots.length + ", but got " + out.length);
+    	}
+    	for (int i = 0; i < mObservableSlots.length; i++) {
+    		out[i] = this.markovState.getValue(mObservableSlots[i]);
+    	}
+    }
+
+    /**
+     * Copies the markovian state into the given array. The layout is the key order of 
+     * {@link #getInternalMarkovState()}: the operationalcost history OPERATIONALCOST_0..n-1, the variables of
+     * {@link MarkovianStateDescription} and the state variables of the external drivers. The layout does not 
+     * change during the lifetime of the instance. 
+     * 
+     * @param out The array to copy to, of the length of the markov state keys
+     */
+    @Override
+    public void markovStateInto(double[] out) {
+    	if (out.length != mMarkovSlots.length) {
+    		throw new IllegalArgumentException("expected an array of length " + mMarkovSlots.length + ", but got " + out.length);
+    	}
+    	for (int i = 0; i < mMarkovSlots.length; i++) {
+    		out[i] = this.markovState.getValue(mMarkovSlots[i]);
+    	}
+    }
+
+    /**
+     * Returns the fingerprint of the markovian state, which equals {@link StateFingerprint#EXACT} applied 
+     * to the layout of {@link #markovStateInto(double[])}. After the first call the fingerprint is 
+     * maintained on every write of the state and reading it is free.
+     * 
+     * @return the fingerprint of the markovian state
+     */
+    public long fingerprint() {
+    	return markovState.fingerprint();
+    }
 
 	/**
 	 * This function applies an action to the industrial benchmark
@@ -233,22 +402,127 @@ public class IndustrialBenchmarkDynamics implements Environment
     @Override
 	public double step(DataVector aAction) {
 
+		filterExternalDrivers();
+
+		// add actions to state:
+		if (aAction instanceof MutableAction) {
+			MutableAction a = (MutableAction) aAction;
+			if (a.isAbsolute()) {
+				setAction(a.getVelocity(), a.getGain(), a.getShift());
+			} else {
+				addAction(a.getVelocity(), a.getGain(), a.getShift());
+			}
+		} else if (aAction instanceof ActionAbsolute) {
+			ActionAbsolute a = (ActionAbsolute) aAction;
+			setAction(a.getVelocity(), a.getGain(), a.getShift());
+		} else {
+			ActionDelta a = (ActionDelta) aAction;
+			addAction(a.getDeltaVelocity(), a.getDeltaGain(), a.getDeltaShift());
+		}
+		if (StepProfiler.ENABLED) mProbe.lap(StepStage.ADD_ACTION);
+
+		return advance();
+	}
+
+	/**
+	 * Applies a delta action, like {@link #step(DataVector)} with an {@link ActionDelta}, without 
+	 * allocating an action or a state object. 
+	 * 
+	 * @param deltaVelocity The delta velocity, |deltaVelocity| must be &lt;= {@link ActionDelta#MAX_DELTA}
+	 * @param deltaGain The delta gain, |deltaGain| must be &lt;= {@link ActionDelta#MAX_DELTA}
+	 * @param deltaShift The delta shift
+	 * @param observationOut receives the successor observation in the layout of {@link #stateInto(double[])}, may be null
+	 * @return The reward
+	 */
+	@Override
+	public double step(double deltaVelocity, double deltaGain, double deltaShift, double[] observationOut) {
+		if (!(Math.abs(deltaVelocity) <= ActionDelta.MAX_DELTA) || !(Math.abs(deltaGain) <= ActionDelta.MAX_DELTA)) {
+			throw new IllegalArgumentException("Math.abs(deltaVelocity=" + deltaVelocity + ") and Math.abs(deltaGain=" 
+					+ deltaGain + ") must be <= " + ActionDelta.MAX_DELTA);
+		}
+		if (observationOut != null && observationOut.length != mObservableSlots.length) {
+			throw new IllegalArgumentException("expected an array of length " + mObservableSlots.length + ", but got " + observationOut.length);
+		}
+
+		// the first step of a fresh history fills it and is not a function of the markov state
+		final boolean cached = mTransitionCache != null && !convToInit;
+		final long fingerprint = cached ? markovState.fingerprint() : 0;
+		if (cached && mTransitionCache.lookup(fingerprint, deltaVelocity, deltaGain, deltaShift, mCachedSuccessor)) {
+			restore(mCachedSuccessor);
+			if (observationOut != null) {
+				stateInto(observationOut);
+			}
+			return markovState.getValue(ObservableStateDescription.RewardTotal);
+		}
+
+		filterExternalDrivers();
+		addAction(deltaVelocity, deltaGain, deltaShift);
+		if (StepProfiler.ENABLED) mProbe.lap(StepStage.ADD_ACTION);
+
+		double reward = advance();
+		if (cached) {
+			markovStateInto(mCachedSuccessor);
+			mTransitionCache.store(fingerprint, deltaVelocity, deltaGain, deltaShift, mCachedSuccessor);
+		}
+		if (observationOut != null) {
+			stateInto(observationOut);
+		}
+		return reward;
+	}
+
+	/**
+	 * Puts a memo of transitions in front of {@link #step(double, double, double, double[])}: a step from a 
+	 * markov state with an action that is in the cache restores the cached successor instead of simulating. 
+	 * Hits are not seen by the {@link StepProfiler} and the {@link SimulationEvents}. The cache may be shared 
+	 * by instances of the same configuration, e.g. the rollout instances of a planner.
+	 * 
+	 * @param cache The cache for states of the length of {@link #markovStateInto(double[])}, null to simulate every step
+	 */
+	public void setTransitionCache(TransitionCache cache) {
+		if (cache != null && cache.getStateSize() != mMarkovSlots.length) {
+			throw new IllegalArgumentException("expected a cache for states of length " + mMarkovSlots.length + ", but got " + cache.getStateSize());
+		}
+		this.mTransitionCache = cache;
+		this.mCachedSuccessor = cache == null ? null : new double[mMarkovSlots.length];
+	}
+
+	/**
+	 * @return the transition cache, null if every step is simulated
+	 */
+	public TransitionCache getTransitionCache() {
+		return mTransitionCache;
+	}
+
+	/**
+	 * Starts a step: applies the random seed to the PRNG and filters the external drivers (e.g. setpoint).
+	 */
+	private void filterExternalDrivers() {
+
+		if (StepProfiler.ENABLED) mProbe.begin();
+
         // apply randomSeed to PRNGs and external drivers + filter (e.g. setpoint)
     	this.rda.reSeed(randomSeed);
     	for (ExternalDriver d : externalDrivers) {
         	d.setSeed(rda.nextLong(0, Long.MAX_VALUE));    		
         	d.filter(this.markovState);
     	}
+		if (StepProfiler.ENABLED) mProbe.lap(StepStage.DRIVER_FILTER);
+	}
 
-		// add actions to state:
-		addAction((ActionDelta) aAction);
+	/**
+	 * Completes a step after the action has been added to the state.
+	 * @return The reward
+	 */
+	private double advance() {
 
 		try {
 	        // update spiking dynamics
 	        updateFatigue();
+			if (StepProfiler.ENABLED) mProbe.lap(StepStage.FATIGUE);
 
 			// updated current operationalcost
 			updateCurrentOperationalCost();
+			if (StepProfiler.ENABLED) mProbe.lap(StepStage.OPERATIONAL_COST);
 			
 		} catch (PropertiesException e) {
 			e.printStackTrace();
@@ -256,11 +530,14 @@ public class IndustrialBenchmarkDynamics implements Environment
 
 		// update convoluted operationalcosts
 		updateOperationalCostCovolution();
+		if (StepProfiler.ENABLED) mProbe.lap(StepStage.CONVOLUTION);
 		
 		// update gs
 		updateGS();
+		if (StepProfiler.ENABLED) mProbe.lap(StepStage.GOLDSTONE);
 	
 		updateOperationalCosts();
+		if (StepProfiler.ENABLED) mProbe.lap(StepStage.CONSUMPTION);
 		
         		
         // update reward
@@ -269,6 +546,11 @@ public class IndustrialBenchmarkDynamics implements Environment
         // set random seed for next iteration
         this.randomSeed = rda.nextLong(0, Long.MAX_VALUE);
         this.markovState.setValue(MarkovianStateDescription.RandomSeed, Double.longBitsToDouble(this.randomSeed));
+		if (StepProfiler.ENABLED) {
+			mProbe.lap(StepStage.REWARD);
+			mProbe.end();
+		}
+		SimulationEvents.step(markovState);
                 
         //return observableState;        
         return this.markovState.getValue(ObservableStateDescription.RewardTotal); 
@@ -286,49 +568,61 @@ public class IndustrialBenchmarkDynamics implements Environment
 	 	markovState.setValue(MarkovianStateDescription.Consumption, operationalcosts);
 	}
 
-	private void addAction(ActionDelta aAction) {
+	private void addAction(double deltaVelocity, double deltaGain, double deltaShift) {
 		
 	  	double velocityMax = mMax.getValue(MarkovianStateDescription.Action_Velocity);
 	  	double velocityMin = mMin.getValue(MarkovianStateDescription.Action_Velocity);
-	  	double velocity = Math.min(velocityMax, Math.max(velocityMin, markovState.getValue(MarkovianStateDescription.Action_Velocity) + aAction.getDeltaVelocity() * STEP_SIZE_VELOCITY));
-	  	if(aAction instanceof ActionAbsolute){
-	  		double velocityToSet = ((ActionAbsolute)aAction).getVelocity();
-	  		double diff = velocityToSet - markovState.getValue(MarkovianStateDescription.Action_Velocity);
-	  		if(diff>STEP_SIZE_VELOCITY){
-	  			diff = STEP_SIZE_VELOCITY;
-	  		}else if(diff<-STEP_SIZE_VELOCITY){
-	  			diff = -STEP_SIZE_VELOCITY;
-	  		}
-	  		velocity = Math.min(velocityMax, Math.max(velocityMin, markovState.getValue(MarkovianStateDescription.Action_Velocity) + diff));
-	  	}
+	  	double velocity = Math.min(velocityMax, Math.max(velocityMin, markovState.getValue(MarkovianStateDescription.Action_Velocity) + deltaVelocity * STEP_SIZE_VELOCITY));
 	  	
 	  	double gainMax = mMax.getValue(MarkovianStateDescription.Action_Gain);
 	  	double gainMin = mMin.getValue(MarkovianStateDescription.Action_Gain);
-	  	double gain = Math.min(gainMax, Math.max(gainMin, markovState.getValue(MarkovianStateDescription.Action_Gain) + aAction.getDeltaGain() * STEP_SIZE_GAIN));
-	  	if(aAction instanceof ActionAbsolute){
-	  		double gainToSet = ((ActionAbsolute)aAction).getGain();
-	  		double diff = gainToSet - markovState.getValue(MarkovianStateDescription.Action_Gain);
-	  		if(diff>STEP_SIZE_GAIN){
-	  			diff = STEP_SIZE_GAIN;
-	  		}else if(diff<-STEP_SIZE_GAIN){
-	  			diff = -STEP_SIZE_GAIN;
-	  		}
-	  		gain = Math.min(gainMax, Math.max(gainMin, markovState.getValue(MarkovianStateDescription.Action_Gain) + diff));
-	  	}
+	  	double gain = Math.min(gainMax, Math.max(gainMin, markovState.getValue(MarkovianStateDescription.Action_Gain) + deltaGain * STEP_SIZE_GAIN));
 	  	
 		// beide: 10 = 2*1.5 + 0.07*100
 	  	final double gsScale = 2.0f*gsBound + 100.0f*gsSetPointDependency;
-	  	double shift = (float) Math.min(100.0f, Math.max(0.0f, markovState.getValue(MarkovianStateDescription.Action_Shift) + aAction.getDeltaShift()*(maxRequiredStep/0.9f)*100.0f/gsScale));
-	  	if(aAction instanceof ActionAbsolute){
-	  		double shiftToSet = ((ActionAbsolute)aAction).getShift();
-	  		double diff = shiftToSet - markovState.getValue(MarkovianStateDescription.Action_Shift);
-	  		if(diff>((maxRequiredStep/0.9f)*100.0f/gsScale)){
-	  			diff = ((maxRequiredStep/0.9f)*100.0f/gsScale);
-	  		}else if(diff<-((maxRequiredStep/0.9f)*100.0f/gsScale)){
-	  			diff = -((maxRequiredStep/0.9f)*100.0f/gsScale);
-	  		}
-	  		shift = (float) Math.min(100.0f, Math.max(0.0f, markovState.getValue(MarkovianStateDescription.Action_Shift) + diff));
-	  	}
+	  	double shift = (float) Math.min(100.0f, Math.max(0.0f, markovState.getValue(MarkovianStateDescription.Action_Shift) + deltaShift*(maxRequiredStep/0.9f)*100.0f/gsScale));
+
+	  	applyAction(velocity, gain, shift, gsScale);
+	}
+
+	/**
+	 * moves the actions towards the given absolute values, limited by the step sizes 
+	 */
+	private void setAction(double velocityToSet, double gainToSet, double shiftToSet) {
+		
+	  	double velocityMax = mMax.getValue(MarkovianStateDescription.Action_Velocity);
+	  	double velocityMin = mMin.getValue(MarkovianStateDescription.Action_Velocity);
+  		double diff = velocityToSet - markovState.getValue(MarkovianStateDescription.Action_Velocity);
+  		if(diff>STEP_SIZE_VELOCITY){
+  			diff = STEP_SIZE_VELOCITY;
+  		}else if(diff<-STEP_SIZE_VELOCITY){
+  			diff = -STEP_SIZE_VELOCITY;
+  		}
+  		double velocity = Math.min(velocityMax, Math.max(velocityMin, markovState.getValue(MarkovianStateDescription.Action_Velocity) + diff));
+	  	
+	  	double gainMax = mMax.getValue(MarkovianStateDescription.Action_Gain);
+	  	double gainMin = mMin.getValue(MarkovianStateDescription.Action_Gain);
+  		diff = gainToSet - markovState.getValue(MarkovianStateDescription.Action_Gain);
+  		if(diff>STEP_SIZE_GAIN){
+  			diff = STEP_SIZE_GAIN;
+  		}else if(diff<-STEP_SIZE_GAIN){
+  			diff = -STEP_SIZE_GAIN;
+  		}
+  		double gain = Math.min(gainMax, Math.max(gainMin, markovState.getValue(MarkovianStateDescription.Action_Gain) + diff));
+	  	
+	  	final double gsScale = 2.0f*gsBound + 100.0f*gsSetPointDependency;
+  		diff = shiftToSet - markovState.getValue(MarkovianStateDescription.Action_Shift);
+  		if(diff>((maxRequiredStep/0.9f)*100.0f/gsScale)){
+  			diff = ((maxRequiredStep/0.9f)*100.0f/gsScale);
+  		}else if(diff<-((maxRequiredStep/0.9f)*100.0f/gsScale)){
+  			diff = -((maxRequiredStep/0.9f)*100.0f/gsScale);
+  		}
+  		double shift = (float) Math.min(100.0f, Math.max(0.0f, markovState.getValue(MarkovianStateDescription.Action_Shift) + diff));
+
+	  	applyAction(velocity, gain, shift, gsScale);
+	}
+
+	private void applyAction(double velocity, double gain, double shift, double gsScale) {
 	  	double hiddenShift = (float) Math.min(gsBound, Math.max(-gsBound, (gsScale*shift/100.0f - gsSetPointDependency*markovState.getValue(MarkovianStateDescription.SetPoint) - gsBound)));
 	  	
 	  	markovState.setValue(MarkovianStateDescription.Action_Velocity, velocity);
@@ -357,9 +651,8 @@ public class IndustrialBenchmarkDynamics implements Environment
 		double hiddenStateVelocity = markovState.getValue(MarkovianStateDescription.FatigueLatent1); 
 		double hiddenStateGain = markovState.getValue(MarkovianStateDescription.FatigueLatent2);
 
-        EffectiveAction effAction = new EffectiveAction (new ActionAbsolute(velocity, gain, 0.0, this.mProperties), setpoint);
-        double  effActionVelocity = effAction.getEffectiveVelocity();
-        double  effActionGain = effAction.getEffectiveGain();
+        double  effActionVelocity = EffectiveAction.effectiveVelocity(velocity, gain, setpoint);
+        double  effActionGain = EffectiveAction.effectiveGain(gain, setpoint);
 
         // base noise
         double noiseGain = 2.0 * (1.0/(1.0+Math.exp(-rda.nextExponential(expLambda))) - 0.5);
@@ -428,35 +721,44 @@ public class IndustrialBenchmarkDynamics implements Environment
 		
 	    double operationalcosts = (float) Math.exp(costs / 100.);
 	    markovState.setValue(MarkovianStateDescription.CurrentOperationalCost, operationalcosts);
-	    mOperationalCostsBuffer.add(operationalcosts);
+	    addOperationalCost(operationalcosts);
 	    
 	    if(convToInit){
-	    	for(int i=1; i<mOperationalCostsBuffer.size(); i++){
-	    	    mOperationalCostsBuffer.add(operationalcosts);
+	    	for(int i=1; i<mOperationalCosts.length; i++){
+	    		addOperationalCost(operationalcosts);
 	    	}
 	    	convToInit = false;
 	    }
 	}
+
+	/**
+	 * Appends a value to the operationalcost history, overwriting the oldest entry.
+	 */
+	private void addOperationalCost(double operationalcost) {
+		mOperationalCosts[mOperationalCostsHead] = operationalcost;
+		mOperationalCostsHead = (mOperationalCostsHead + 1) % mOperationalCosts.length;
+	}
 	
 	private void updateOperationalCostCovolution() {
 		double aggregatedOperationalCosts = 0;
-	    int i = 0;
-	    Iterator<?> iterator = mOperationalCostsBuffer.iterator();
-	    while(iterator.hasNext()) {
-	    	double operationalcost = (Double)iterator.next();   	
+		// iterate from the oldest to the newest entry
+		for (int i = 0; i < mOperationalCosts.length; i++) {
+			double operationalcost = mOperationalCosts[(mOperationalCostsHead + i) % mOperationalCosts.length];
 	    	aggregatedOperationalCosts += mEmConvWeights[i] * operationalcost;
-	    	markovState.setValue("OPERATIONALCOST_"+i, operationalcost);
-	    	i += 1;
+	    	markovState.setValue(mOperationalCostSlots[i], operationalcost);
 	    }
 	    markovState.setValue(MarkovianStateDescription.OperationalCostsConv, aggregatedOperationalCosts);	 		
 	}
 	
 	private void updateGS() {
+		final float oldPhiIdx = gsEnvironment.getPhiIdx();
+		final float oldDomain = gsEnvironment.getDomain();
 		gsEnvironment.setControlPosition(markovState.getValue(MarkovianStateDescription.EffectiveShift));
 		markovState.setValue(MarkovianStateDescription.MisCalibration, (float) gsEnvironment.reward());
 		markovState.setValue(MarkovianStateDescription.MisCalibrationDomain, gsEnvironment.getDomain());
 		markovState.setValue(MarkovianStateDescription.MisCalibrationSystemResponse, gsEnvironment.getSystemResponse());
 		markovState.setValue(MarkovianStateDescription.MisCalibrationPhiIdx, gsEnvironment.getPhiIdx());
+		SimulationEvents.goldstoneTransition(oldPhiIdx, gsEnvironment.getPhiIdx(), oldDomain, gsEnvironment.getDomain());
 	}
 
 	private float getConst(C aConst) throws PropertiesException {
@@ -467,7 +769,7 @@ public class IndustrialBenchmarkDynamics implements Environment
 	 *  @return length of the operationalcosts history (including current value) 
 	 */
 	public int getOperationalCostsHistoryLength() {
-		return mOperationalCostsBuffer.size();
+		return mOperationalCosts.length;
 	}
 
     /**
@@ -507,7 +809,7 @@ public class IndustrialBenchmarkDynamics implements Environment
     		String key = "OPERATIONALCOST_" +i;
     		operationalcost = markovState.getValue(key);
     		aggregatedOperationalCosts += markovState.getValue(key)  * mEmConvWeights[i];
-   			mOperationalCostsBuffer.add(operationalcost);
+   			addOperationalCost(operationalcost);
     	}
     	markovState.setValue(MarkovianStateDescription.OperationalCostsConv, aggregatedOperationalCosts);
 		//mRewardCore.setNormal(rda);
@@ -520,13 +822,321 @@ public class IndustrialBenchmarkDynamics implements Environment
 	}
 
 
+	/**
+	 * Sets the current <b>markovian</b> state of the dynamics from an array in the layout of 
+	 * {@link #markovStateInto(double[])}. The resulting dynamics are the same as after 
+	 * {@link #setInternalMarkovState(DataVector)} with the corresponding DataVector, but the values are
+	 * copied by slot index and the given array is not modified.
+	 * 
+	 * @param markovLayout The markovian state in the layout of {@link #markovStateInto(double[])}
+	 */
+	public void restore(double[] markovLayout) {
+		if (markovLayout.length != mMarkovSlots.length) {
+			throw new IllegalArgumentException("expected an array of length " + mMarkovSlots.length + ", but got " + markovLayout.length);
+		}
+
+		// 1) import all values
+		for (int i = 0; i < mMarkovSlots.length; i++) {
+			markovState.setValue(mMarkovSlots[i], markovLayout[i]);
+		}
+
+		// 2) + 3) random seed, goldstone state and operationalcost history
+		restoreDerivedState();
+
+		// 4) set state variables to external driver (e.g. SetPointGenerator parameters)
+		for (ExternalDriver d : externalDrivers) {
+			d.setConfiguration(markovState);
+		}
+	}
+
+	/**
+	 * Sets the random seed, the goldstone environment and the operationalcost history from the values
+	 * of the markov state.
+	 */
+	private void restoreDerivedState() {
+		// 2) set random number generator states
+		this.randomSeed = Double.doubleToLongBits(markovState.getValue(MarkovianStateDescription.RandomSeed));
+
+		this.gsEnvironment.setControlPosition(markovState.getValue(MarkovianStateDescription.EffectiveShift));
+		this.gsEnvironment.setDomain(markovState.getValue(MarkovianStateDescription.MisCalibrationDomain));
+		this.gsEnvironment.setSystemResponse(markovState.getValue(MarkovianStateDescription.MisCalibrationSystemResponse));
+		this.gsEnvironment.setPhiIdx(markovState.getValue(MarkovianStateDescription.MisCalibrationPhiIdx));
+
+		// 3) refill the operationalcost history, OPERATIONALCOST_0 is the oldest entry
+		for (int i = 0; i < mOperationalCosts.length; i++) {
+			mOperationalCosts[i] = markovState.getValue(mOperationalCostSlots[i]);
+		}
+		mOperationalCostsHead = 0;
+	}
+
+	/**
+	 * Evaluates all {@link DiscreteActions#COUNT} discrete delta actions from the given markovian state.
+	 * The results are bit-identical to {@link #restore(double[])} followed by {@link #step(double, double, double, double[])}
+	 * for each action, but the setpoint filter and the seeding of the external drivers, which do not depend on
+	 * the action, are computed only once. Afterwards the dynamics are in the given state, as after {@link #restore(double[])}.
+	 *
+	 * @param markovLayout The markovian state in the layout of {@link #markovStateInto(double[])}
+	 * @param observationsOut receives the successor observations in the layout of {@link #stateInto(double[])},
+	 *        action after action in the order of {@link DiscreteActions}, of length {@link DiscreteActions#COUNT} times the observation length
+	 * @param rewardsOut receives the rewards in the order of {@link DiscreteActions}, of length {@link DiscreteActions#COUNT}
+	 */
+	public void lookaheadAll(double[] markovLayout, double[] observationsOut, double[] rewardsOut) {
+		final int observationSize = mObservableSlots.length;
+		if (observationsOut.length != DiscreteActions.COUNT * observationSize) {
+			throw new IllegalArgumentException("expected an observation array of length " + DiscreteActions.COUNT * observationSize + ", but got " + observationsOut.length);
+		}
+		if (rewardsOut.length != DiscreteActions.COUNT) {
+			throw new IllegalArgumentException("expected a reward array of length " + DiscreteActions.COUNT + ", but got " + rewardsOut.length);
+		}
+
+		restore(markovLayout);
+		final boolean convolutionToInit = convToInit;
+		filterExternalDrivers();
+		if (mLookaheadSlots == null) {
+			mLookaheadSlots = new double[markovState.getSlotCount()];
+		}
+		markovState.copySlotsInto(mLookaheadSlots);
+
+		for (int a = 0; a < DiscreteActions.COUNT; a++) {
+			if (a > 0) {
+				// back to the filtered state, replaying the draws of the driver seeding
+				if (StepProfiler.ENABLED) mProbe.begin();
+				markovState.copySlotsFrom(mLookaheadSlots);
+				restoreDerivedState();
+				convToInit = convolutionToInit;
+				rda.reSeed(randomSeed);
+				for (int i = 0; i < externalDrivers.size(); i++) {
+					rda.nextLong(0, Long.MAX_VALUE);
+				}
+			}
+			addAction(DiscreteActions.deltaVelocity(a), DiscreteActions.deltaGain(a), DiscreteActions.deltaShift(a));
+			if (StepProfiler.ENABLED) mProbe.lap(StepStage.ADD_ACTION);
+
+			rewardsOut[a] = advance();
+			for (int i = 0; i < observationSize; i++) {
+				observationsOut[a * observationSize + i] = markovState.getValue(mObservableSlots[i]);
+			}
+		}
+
+		restore(markovLayout);
+		convToInit = convolutionToInit;
+	}
+
+	/**
+	 * Evaluates all {@link DiscreteActions#COUNT} discrete delta actions from the given markovian state,
+	 * see {@link #lookaheadAll(double[], double[], double[])}.
+	 *
+	 * @param state The markovian state, e.g. from {@link #getInternalMarkovState()}
+	 * @return The successor observations and rewards in the order of {@link DiscreteActions}
+	 */
+	public Lookahead lookaheadAll(DataVector state) {
+		final List<String> keys = markovState.getKeys();
+		final double[] markovLayout = new double[keys.size()];
+		for (int i = 0; i < markovLayout.length; i++) {
+			markovLayout[i] = state.getValue(keys.get(i));
+		}
+		final double[] observations = new double[DiscreteActions.COUNT * mObservableSlots.length];
+		final double[] rewards = new double[DiscreteActions.COUNT];
+		lookaheadAll(markovLayout, observations, rewards);
+		return new Lookahead(observations, rewards, mObservableSlots.length);
+	}
+
+	/**
+	 * Writes a checkpoint of the complete environment: the configuration, the markovian state, the 
+	 * random seed, the goldstone state and the state of all external drivers. The format is versioned
+	 * and checksummed, see {@link CheckpointFormat}. The stream is flushed but not closed. 
+	 * 
+	 * @param out The stream to write to
+	 * @throws IOException
+	 */
+	public void checkpoint(OutputStream out) throws IOException {
+		CheckpointFormat.write(out, checkpointPayload());
+	}
+
+	/**
+	 * Encodes the checkpoint payload, see {@link #checkpoint(OutputStream)}.
+	 * @return the payload
+	 * @throws IOException
+	 */
+	private byte[] checkpointPayload() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(4096);
+		DataOutputStream data = new DataOutputStream(bytes);
+
+		// configuration
+		Set<String> names = new TreeSet<String>(mProperties.stringPropertyNames());
+		data.writeInt(names.size());
+		for (String name : names) {
+			data.writeUTF(name);
+			data.writeUTF(mProperties.getProperty(name));
+		}
+
+		// dynamics
+		new DataVectorWriter(data).write(markovState);
+		data.writeLong(randomSeed);
+		data.writeBoolean(convToInit);
+		data.writeDouble(gsEnvironment.getControlPosition());
+		data.writeFloat(gsEnvironment.getDomain());
+		data.writeFloat(gsEnvironment.getSystemResponse());
+		data.writeFloat(gsEnvironment.getPhiIdx());
+
+		// external drivers
+		data.writeInt(externalDrivers.size());
+		for (ExternalDriver d : externalDrivers) {
+			data.writeUTF(d.getClass().getName());
+			ByteArrayOutputStream driverBytes = new ByteArrayOutputStream();
+			if (d instanceof Checkpointable) {
+				((Checkpointable) d).writeCheckpoint(new DataOutputStream(driverBytes));
+			} else {
+				new DataVectorWriter(driverBytes).write(d.getState());
+			}
+			data.writeInt(driverBytes.size());
+			driverBytes.writeTo(data);
+		}
+		data.flush();
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Restores a checkpoint written by {@link #checkpoint(OutputStream)}. The environment must have
+	 * the configuration and the external driver types of the checkpointed environment. Nothing is 
+	 * changed if the checkpoint is invalid or does not match. 
+	 *   
+	 * @param in The stream to read from
+	 * @throws IOException if the checkpoint is invalid, see {@link CheckpointFormat#read(InputStream)}
+	 * @throws IllegalArgumentException if the checkpoint was written for a different configuration or external drivers
+	 */
+	public void restore(InputStream in) throws IOException {
+		restoreCheckpoint(CheckpointFormat.read(in));
+	}
+
+	/**
+	 * Creates an environment from a checkpoint written by {@link #checkpoint(OutputStream)}, using the 
+	 * checkpointed configuration and the default external drivers.
+	 * 
+	 * @param in The stream to read from
+	 * @return the restored environment
+	 * @throws IOException if the checkpoint is invalid, see {@link CheckpointFormat#read(InputStream)}
+	 * @throws PropertiesException if the checkpointed configuration is invalid
+	 */
+	public static IndustrialBenchmarkDynamics fromCheckpoint(InputStream in) throws IOException, PropertiesException {
+		byte[] payload = CheckpointFormat.read(in);
+		IndustrialBenchmarkDynamics d = new IndustrialBenchmarkDynamics(readProperties(new DataInputStream(new ByteArrayInputStream(payload))));
+		d.restoreCheckpoint(payload);
+		return d;
+	}
+
+	private static Properties readProperties(DataInputStream data) throws IOException {
+		Properties props = new Properties();
+		int count = data.readInt();
+		for (int i = 0; i < count; i++) {
+			props.setProperty(data.readUTF(), data.readUTF());
+		}
+		return props;
+	}
+
+	private void restoreCheckpoint(byte[] payload) throws IOException {
+		DataInputStream data = new DataInputStream(new ByteArrayInputStream(payload));
+
+		// read and validate everything before changing the state
+		Properties props = readProperties(data);
+		Set<String> names = mProperties.stringPropertyNames();
+		boolean sameConfiguration = names.equals(props.stringPropertyNames());
+		for (String name : names) {
+			sameConfiguration &= mProperties.getProperty(name).equals(props.getProperty(name));
+		}
+		Preconditions.checkArgument(sameConfiguration, "the checkpoint was written for a different configuration");
+
+		DataVectorImpl markov = new DataVectorReader(data).read();
+		if (markov == null) {
+			throw new StreamCorruptedException("markov state missing");
+		}
+		Preconditions.checkArgument(markov.getKeys().equals(markovState.getKeys()), 
+				"the checkpoint has the markov state variables %s, but expected %s", markov.getKeys(), markovState.getKeys());
+		long seed = data.readLong();
+		boolean convolutionToInit = data.readBoolean();
+		double gsControlPosition = data.readDouble();
+		float gsDomain = data.readFloat();
+		float gsSystemResponse = data.readFloat();
+		float gsPhiIdx = data.readFloat();
+
+		int driverCount = data.readInt();
+		Preconditions.checkArgument(driverCount == externalDrivers.size(), 
+				"the checkpoint has %s external drivers, but expected %s", driverCount, externalDrivers.size());
+		byte[][] driverStates = new byte[driverCount][];
+		DataVector[] driverConfigurations = new DataVector[driverCount];
+		byte[][] driverRollback = new byte[driverCount][];
+		for (int i = 0; i < driverCount; i++) {
+			ExternalDriver d = externalDrivers.get(i);
+			String type = data.readUTF();
+			Preconditions.checkArgument(type.equals(d.getClass().getName()), 
+					"the checkpoint has an external driver of type %s at index %s, but expected %s", type, i, d.getClass().getName());
+			driverStates[i] = new byte[data.readInt()];
+			data.readFully(driverStates[i]);
+			if (d instanceof Checkpointable) {
+				// decoded by the driver itself, keep its current state to undo a failed restore
+				ByteArrayOutputStream current = new ByteArrayOutputStream();
+				((Checkpointable) d).writeCheckpoint(new DataOutputStream(current));
+				driverRollback[i] = current.toByteArray();
+			} else {
+				driverConfigurations[i] = new DataVectorReader(new ByteArrayInputStream(driverStates[i])).read();
+				if (driverConfigurations[i] == null) {
+					throw new StreamCorruptedException("state of external driver " + i + " missing");
+				}
+			}
+		}
+
+		// apply, a failing external driver undoes everything applied before
+		double[] previousMarkov = markovState.getValuesArray();
+		long previousSeed = randomSeed;
+		boolean previousConvToInit = convToInit;
+		double previousGsControlPosition = gsEnvironment.getControlPosition();
+		float previousGsDomain = gsEnvironment.getDomain();
+		float previousGsSystemResponse = gsEnvironment.getSystemResponse();
+		float previousGsPhiIdx = gsEnvironment.getPhiIdx();
+
+		restore(markov.getValuesArray());
+		randomSeed = seed;
+		convToInit = convolutionToInit;
+		gsEnvironment.restore(gsControlPosition, gsDomain, gsSystemResponse, gsPhiIdx);
+		for (int i = 0; i < driverCount; i++) {
+			ExternalDriver d = externalDrivers.get(i);
+			if (d instanceof Checkpointable) {
+				try {
+					((Checkpointable) d).readCheckpoint(new DataInputStream(new ByteArrayInputStream(driverStates[i])));
+				} catch (IOException | RuntimeException e) {
+					restore(previousMarkov);
+					randomSeed = previousSeed;
+					convToInit = previousConvToInit;
+					gsEnvironment.restore(previousGsControlPosition, previousGsDomain, previousGsSystemResponse, previousGsPhiIdx);
+					for (int j = 0; j < driverCount; j++) {
+						if (driverRollback[j] != null) {
+							((Checkpointable) externalDrivers.get(j)).readCheckpoint(new DataInputStream(new ByteArrayInputStream(driverRollback[j])));
+						}
+					}
+					throw e;
+				}
+			} else {
+				d.setConfiguration(driverConfigurations[i]);
+			}
+		}
+	}
+
+	/**
+	 * Resets the environment in place to its initial state, using the configured SEED (or 
+	 * the current time if no SEED is configured). The Properties are not parsed again. 
+	 */
 	@Override
 	public void reset() {
-		try {
-			this.init();
-		} catch (PropertiesException e) {
-			e.printStackTrace();
-		}		
+		reset(mConfiguredSeed != null ? mConfiguredSeed : System.currentTimeMillis());
+	}
+
+	/**
+	 * Resets the environment in place to its initial state and re-seeds it with the given seed.
+	 * @param seed The seed to start the new episode with
+	 */
+	public void reset(long seed) {
+		restart(seed);
+		SimulationEvents.episode("reset", randomSeed);
 	}
 
 	@Override
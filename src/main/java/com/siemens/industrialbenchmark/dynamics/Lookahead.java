@@ -0,0 +1,64 @@
+/**
+Copyright 2016 Siemens AG.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.siemens.industrialbenchmark.dynamics;
+
+import com.siemens.industrialbenchmark.datavector.action.DiscreteActions;
+
+/**
+ * The successors of all {@link DiscreteActions#COUNT} discrete actions from one state, 
+ * see {@link IndustrialBenchmarkDynamics#lookaheadAll(com.siemens.rl.interfaces.DataVector)}.
+ */
+public final class Lookahead {
+
+	private final double[][] observations;
+	private final double[] rewards;
+
+	Lookahead(double[] observations, double[] rewards, int observationSize) {
+		this.observations = new double[DiscreteActions.COUNT][observationSize];
+		for (int a = 0; a < DiscreteActions.COUNT; a++) {
+			System.arraycopy(observations, a * observationSize, this.observations[a], 0, observationSize);
+		}
+		this.rewards = rewards;
+	}
+
+	/**
+	 * @return The successor observations, indexed by the action index of {@link DiscreteActions}, 
+	 * 		each in the layout of {@link IndustrialBenchmarkDynamics#stateInto(double[])}
+	 */
+	public double[][] getObservations() {
+		return observations;
+	}
+
+	/**
+	 * @return The rewards, indexed by the action index of {@link DiscreteActions}
+	 */
+	public double[] getRewards() {
+		return rewards;
+	}
+
+	/**
+	 * @return The index of the action with the highest reward, the lowest index on ties
+	 */
+	public int getGreedyAction() {
+		int best = 0;
+		for (int a = 1; a < rewards.length; a++) {
+			if (rewards[a] > rewards[best]) {
+				best = a;
+			}
+		}
+		return best;
+	}
+}
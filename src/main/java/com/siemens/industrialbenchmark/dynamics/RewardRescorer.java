@@ -0,0 +1,206 @@
+/**
+Copyright 2016 Siemens AG.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.siemens.industrialbenchmark.dynamics;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.List;
+
+import com.google.common.base.Preconditions;
+import com.siemens.industrialbenchmark.datavector.codec.DataVectorReader;
+import com.siemens.industrialbenchmark.datavector.codec.DataVectorSchema;
+import com.siemens.industrialbenchmark.datavector.state.MarkovianStateDescription;
+
+/**
+ * Recomputes {@code RewardTotal} of recorded trajectories for other reward weights, without 
+ * re-simulating them. The reward only depends on the recorded fatigue and consumption, which are 
+ * gathered into columns of {@link #BLOCK_SIZE} steps and scored for all weight sets in one pass. 
+ * With the weights of the recording, the re-scored rewards equal the recorded ones bit by bit.
+ */
+public class RewardRescorer {
+
+	/** the number of steps scored per block */
+	public static final int BLOCK_SIZE = 1024;
+
+	/**
+	 * Receives the re-scored rewards block by block.
+	 */
+	public interface Listener {
+		/**
+		 * @param rewards The rewards per weight set, {@code rewards[k][i]} for step i of the block; reused for the next block
+		 * @param count The number of steps of the block
+		 * @throws IOException
+		 */
+		void accept(double[][] rewards, int count) throws IOException;
+	}
+
+	private final double[] crd;
+	private final double[] cre;
+	private final double[] fatigue = new double[BLOCK_SIZE];
+	private final double[] consumption = new double[BLOCK_SIZE];
+	private final double[][] rewards;
+	private final double[] totals;
+	private long steps;
+
+	/**
+	 * @param weights The weight sets to score every step with
+	 */
+	public RewardRescorer(RewardWeights... weights) {
+		Preconditions.checkArgument(weights.length > 0, "no weights given");
+		this.crd = new double[weights.length];
+		this.cre = new double[weights.length];
+		for (int k = 0; k < weights.length; k++) {
+			crd[k] = weights[k].getCRD();
+			cre[k] = weights[k].getCRE();
+		}
+		this.rewards = new double[weights.length][BLOCK_SIZE];
+		this.totals = new double[weights.length];
+	}
+
+	/**
+	 * Scores the given steps with all weight sets.
+	 * @param fatigue The fatigue of the steps
+	 * @param consumption The consumption of the steps
+	 * @param count The number of steps
+	 * @param rewardsOut receives the rewards, {@code rewardsOut[k][i]} for weight set k and step i
+	 */
+	public void rescore(double[] fatigue, double[] consumption, int count, double[][] rewardsOut) {
+		for (int k = 0; k < crd.length; k++) {
+			final double d = crd[k];
+			final double e = cre[k];
+			final double[] out = rewardsOut[k];
+			// same operations as IndustrialBenchmarkRewardFunction.calcReward
+			for (int i = 0; i < count; i++) {
+				out[i] = d * -fatigue[i] + e * -consumption[i];
+			}
+		}
+	}
+
+	/**
+	 * Re-scores vectors written by a {@link com.siemens.industrialbenchmark.datavector.codec.DataVectorWriter}, 
+	 * e.g. markov or observable states.
+	 * @param in The recorded vectors, each with the keys Fatigue and Consumption
+	 * @param listener receives the rewards; may be null
+	 * @return the number of re-scored steps
+	 * @throws IOException
+	 */
+	public long rescore(DataVectorReader in, Listener listener) throws IOException {
+		final long before = steps;
+		DataVectorSchema schema;
+		DataVectorSchema last = null;
+		int fatiguePosition = -1;
+		int consumptionPosition = -1;
+		int count = 0;
+		while ((schema = in.next()) != null) {
+			if (schema != last) {
+				fatiguePosition = position(schema.getKeys(), MarkovianStateDescription.Fatigue);
+				consumptionPosition = position(schema.getKeys(), MarkovianStateDescription.Consumption);
+				last = schema;
+			}
+			fatigue[count] = in.getValue(fatiguePosition);
+			consumption[count] = in.getValue(consumptionPosition);
+			if (++count == BLOCK_SIZE) {
+				flush(count, listener);
+				count = 0;
+			}
+		}
+		flush(count, listener);
+		return steps - before;
+	}
+
+	/**
+	 * Re-scores a text trajectory with a header line and one line of space separated values per step, as 
+	 * written by the {@link com.siemens.industrialbenchmark.ExampleMain} or a 
+	 * {@link com.siemens.industrialbenchmark.pipeline.TrajectoryWriter}. For transitions, the reward 
+	 * of the next observation is computed.
+	 * @param in The trajectory
+	 * @param listener receives the rewards; may be null
+	 * @return the number of re-scored steps
+	 * @throws IOException
+	 */
+	public long rescore(Reader in, Listener listener) throws IOException {
+		final BufferedReader reader = new BufferedReader(in);
+		final String header = reader.readLine();
+		if (header == null) {
+			return 0;
+		}
+		final List<String> columns = Arrays.asList(header.trim().split("\\s+"));
+		final String prefix = columns.contains("next_" + MarkovianStateDescription.Fatigue) ? "next_" : "";
+		final int fatigueColumn = position(columns, prefix + MarkovianStateDescription.Fatigue);
+		final int consumptionColumn = position(columns, prefix + MarkovianStateDescription.Consumption);
+
+		final long before = steps;
+		int count = 0;
+		String line;
+		while ((line = reader.readLine()) != null) {
+			if (line.trim().isEmpty()) {
+				continue;
+			}
+			final String[] values = line.trim().split("\\s+");
+			fatigue[count] = Double.parseDouble(values[fatigueColumn]);
+			consumption[count] = Double.parseDouble(values[consumptionColumn]);
+			if (++count == BLOCK_SIZE) {
+				flush(count, listener);
+				count = 0;
+			}
+		}
+		flush(count, listener);
+		return steps - before;
+	}
+
+	private static int position(List<String> keys, String key) {
+		final int position = keys.indexOf(key);
+		if (position < 0) {
+			throw new IllegalArgumentException("the trajectory has no " + key + ": " + keys);
+		}
+		return position;
+	}
+
+	private void flush(int count, Listener listener) throws IOException {
+		if (count == 0) {
+			return;
+		}
+		rescore(fatigue, consumption, count, rewards);
+		for (int k = 0; k < totals.length; k++) {
+			final double[] r = rewards[k];
+			double sum = 0;
+			for (int i = 0; i < count; i++) {
+				sum += r[i];
+			}
+			totals[k] += sum;
+		}
+		steps += count;
+		if (listener != null) {
+			listener.accept(rewards, count);
+		}
+	}
+
+	/**
+	 * @return the sum of the rewards per weight set over all re-scored steps
+	 */
+	public double[] getTotals() {
+		return totals.clone();
+	}
+
+	/**
+	 * @return the number of re-scored steps
+	 */
+	public long getStepCount() {
+		return steps;
+	}
+}
@@ -0,0 +1,63 @@
+/**
+Copyright 2016 Siemens AG.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.siemens.industrialbenchmark.dynamics;
+
+import java.util.Properties;
+
+import com.siemens.industrialbenchmark.properties.PropertiesException;
+import com.siemens.industrialbenchmark.properties.PropertiesUtil;
+
+/**
+ * Weights of the reward components, see {@link IndustrialBenchmarkRewardFunction}.
+ */
+public final class RewardWeights {
+
+	private final double crd;
+	private final double cre;
+
+	/**
+	 * @param crd The weight of the fatigue
+	 * @param cre The weight of the consumption
+	 */
+	public RewardWeights(double crd, double cre) {
+		this.crd = crd;
+		this.cre = cre;
+	}
+
+	/**
+	 * Reads the weights like the {@link IndustrialBenchmarkRewardFunction}, i.e. with float precision, 
+	 * so re-scored rewards equal the simulated ones bit by bit.
+	 * @param aProperties The properties with the keys CRD and CRE
+	 * @return the weights
+	 * @throws PropertiesException if a key is missing
+	 */
+	public static RewardWeights fromProperties(Properties aProperties) throws PropertiesException {
+		return new RewardWeights(PropertiesUtil.getFloat(aProperties, "CRD", true), PropertiesUtil.getFloat(aProperties, "CRE", true));
+	}
+
+	public double getCRD() {
+		return crd;
+	}
+
+	public double getCRE() {
+		return cre;
+	}
+
+	@Override
+	public String toString() {
+		return "CRD=" + crd + ", CRE=" + cre;
+	}
+}
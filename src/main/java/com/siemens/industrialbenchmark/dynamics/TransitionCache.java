@@ -0,0 +1,348 @@
+/**
+Copyright 2016 Siemens AG.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.siemens.industrialbenchmark.dynamics;
+
+import java.util.Arrays;
+
+import com.google.common.base.Preconditions;
+import com.siemens.industrialbenchmark.datavector.StateFingerprint;
+
+/**
+ * Bounded memo of transitions: maps the {@link StateFingerprint#EXACT fingerprint} of a markov state and 
+ * a delta action to the successor markov state. Since the random seed is part of the markov state, a state 
+ * and an action determine the successor, see {@link IndustrialBenchmarkDynamics#setTransitionCache(TransitionCache)}.
+ * States are only compared by their 64 bit fingerprint, actions by their bit patterns.
+ * <p>
+ * Entries live in flat primitive arrays and are found by an open addressing table with linear probing. 
+ * When the cache is full, an entry is evicted by {@link Eviction#CLOCK} or {@link Eviction#LRU}. 
+ * The cache is thread-safe and can be shared by benchmark instances of the same configuration.
+ */
+public final class TransitionCache {
+
+	/**
+	 * Eviction policies of a full cache.
+	 */
+	public enum Eviction {
+		/** second chance: evicts the next entry not hit since the clock hand passed it */
+		CLOCK,
+		/** evicts the least recently stored or hit entry */
+		LRU
+	}
+
+	private static final int EMPTY = -1;
+
+	private final int stateSize;
+	private final int capacity;
+	private final Eviction eviction;
+
+	/** entry index per table position, EMPTY if free */
+	private final int[] table;
+	private final int mask;
+
+	// entries
+	private final long[] hashes;
+	private final long[] fingerprints;
+	private final long[] actions;
+	private final double[] successors;
+	private int size;
+
+	// CLOCK
+	private final boolean[] referenced;
+	private int hand;
+
+	// LRU list, head is the most recently used entry
+	private final int[] prev;
+	private final int[] next;
+	private int head = EMPTY;
+	private int tail = EMPTY;
+
+	private long hits;
+	private long misses;
+	private long evictions;
+
+	/**
+	 * @param stateSize The length of the markov states, see {@link IndustrialBenchmarkDynamics#markovStateInto(double[])}
+	 * @param capacity The maximum number of transitions
+	 * @param eviction The eviction policy of a full cache
+	 */
+	public TransitionCache(int stateSize, int capacity, Eviction eviction) {
+		Preconditions.checkArgument(stateSize > 0, "stateSize must be positive, but is %s", stateSize);
+		Preconditions.checkArgument(capacity > 0 && capacity <= 1 << 28, "capacity must be in [1, 2^28], but is %s", capacity);
+		Preconditions.checkNotNull(eviction, "eviction must not be null");
+		this.stateSize = stateSize;
+		this.capacity = capacity;
+		this.eviction = eviction;
+
+		// at most half of the table positions are used
+		int tableSize = Integer.highestOneBit(capacity) << 2;
+		this.table = new int[tableSize];
+		this.mask = tableSize - 1;
+		Arrays.fill(table, EMPTY);
+
+		this.hashes = new long[capacity];
+		this.fingerprints = new long[capacity];
+		this.actions = new long[3 * capacity];
+		this.successors = new double[capacity * stateSize];
+		this.referenced = eviction == Eviction.CLOCK ? new boolean[capacity] : null;
+		this.prev = eviction == Eviction.LRU ? new int[capacity] : null;
+		this.next = eviction == Eviction.LRU ? new int[capacity] : null;
+	}
+
+	/**
+	 * Looks up a transition and counts a hit or a miss.
+	 * @param fingerprint The fingerprint of the markov state before the step
+	 * @param deltaVelocity The delta velocity of the action
+	 * @param deltaGain The delta gain of the action
+	 * @param deltaShift The delta shift of the action
+	 * @param successorOut receives the markov state after the step on a hit
+	 * @return true on a hit
+	 */
+	public synchronized boolean lookup(long fingerprint, double deltaVelocity, double deltaGain, double deltaShift, double[] successorOut) {
+		checkStateSize(successorOut);
+		final long v = Double.doubleToLongBits(deltaVelocity);
+		final long g = Double.doubleToLongBits(deltaGain);
+		final long s = Double.doubleToLongBits(deltaShift);
+		final int entry = find(hash(fingerprint, v, g, s), fingerprint, v, g, s);
+		if (entry == EMPTY) {
+			misses++;
+			return false;
+		}
+		hits++;
+		touch(entry);
+		System.arraycopy(successors, entry * stateSize, successorOut, 0, stateSize);
+		return true;
+	}
+
+	/**
+	 * Stores a transition, evicting an entry if the cache is full. An existing entry of the state and 
+	 * action is overwritten.
+	 * @param fingerprint The fingerprint of the markov state before the step
+	 * @param deltaVelocity The delta velocity of the action
+	 * @param deltaGain The delta gain of the action
+	 * @param deltaShift The delta shift of the action
+	 * @param successor The markov state after the step
+	 */
+	public synchronized void store(long fingerprint, double deltaVelocity, double deltaGain, double deltaShift, double[] successor) {
+		checkStateSize(successor);
+		final long v = Double.doubleToLongBits(deltaVelocity);
+		final long g = Double.doubleToLongBits(deltaGain);
+		final long s = Double.doubleToLongBits(deltaShift);
+		final long hash = hash(fingerprint, v, g, s);
+		int entry = find(hash, fingerprint, v, g, s);
+		if (entry == EMPTY) {
+			if (size < capacity) {
+				entry = size++;
+			} else {
+				entry = victim();
+				remove(entry);
+				evictions++;
+			}
+			hashes[entry] = hash;
+			fingerprints[entry] = fingerprint;
+			actions[3 * entry] = v;
+			actions[3 * entry + 1] = g;
+			actions[3 * entry + 2] = s;
+			insert(entry);
+			link(entry);
+		} else {
+			touch(entry);
+		}
+		System.arraycopy(successor, 0, successors, entry * stateSize, stateSize);
+	}
+
+	/**
+	 * Removes all entries and resets the counters.
+	 */
+	public synchronized void clear() {
+		Arrays.fill(table, EMPTY);
+		if (referenced != null) {
+			Arrays.fill(referenced, false);
+		}
+		size = 0;
+		hand = 0;
+		head = tail = EMPTY;
+		hits = misses = evictions = 0;
+	}
+
+	/**
+	 * @return the length of the cached markov states
+	 */
+	public int getStateSize() {
+		return stateSize;
+	}
+
+	/**
+	 * @return the maximum number of transitions
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * @return the number of cached transitions
+	 */
+	public synchronized int size() {
+		return size;
+	}
+
+	/**
+	 * @return the number of lookups that found a transition
+	 */
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	/**
+	 * @return the number of lookups that did not find a transition
+	 */
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * @return the number of entries evicted from the full cache
+	 */
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	/**
+	 * @return the fraction of lookups that found a transition, NaN before the first lookup
+	 */
+	public synchronized double getHitRate() {
+		return hits + misses == 0 ? Double.NaN : (double) hits / (hits + misses);
+	}
+
+	@Override
+	public synchronized String toString() {
+		return String.format("TransitionCache[%s, %d/%d entries, hit rate %.3f, %d evictions]", eviction, size, capacity, getHitRate(), evictions);
+	}
+
+	private void checkStateSize(double[] state) {
+		if (state.length != stateSize) {
+			throw new IllegalArgumentException("expected a state of length " + stateSize + ", but got " + state.length);
+		}
+	}
+
+	private int find(long hash, long fingerprint, long v, long g, long s) {
+		for (int i = (int) hash & mask; table[i] != EMPTY; i = (i + 1) & mask) {
+			final int e = table[i];
+			if (hashes[e] == hash && fingerprints[e] == fingerprint
+					&& actions[3 * e] == v && actions[3 * e + 1] == g && actions[3 * e + 2] == s) {
+				return e;
+			}
+		}
+		return EMPTY;
+	}
+
+	private void insert(int entry) {
+		int i = (int) hashes[entry] & mask;
+		while (table[i] != EMPTY) {
+			i = (i + 1) & mask;
+		}
+		table[i] = entry;
+	}
+
+	/**
+	 * Removes the entry from the table and shifts the following entries of its probe sequence back.
+	 */
+	private void remove(int entry) {
+		int i = (int) hashes[entry] & mask;
+		while (table[i] != entry) {
+			i = (i + 1) & mask;
+		}
+		table[i] = EMPTY;
+		for (int j = (i + 1) & mask; table[j] != EMPTY; j = (j + 1) & mask) {
+			final int home = (int) hashes[table[j]] & mask;
+			// move the entry unless its home lies cyclically in (i, j]
+			final boolean stays = i <= j ? (home > i && home <= j) : (home > i || home <= j);
+			if (!stays) {
+				table[i] = table[j];
+				table[j] = EMPTY;
+				i = j;
+			}
+		}
+		unlink(entry);
+	}
+
+	private int victim() {
+		if (eviction == Eviction.LRU) {
+			return tail;
+		}
+		while (referenced[hand]) {
+			referenced[hand] = false;
+			hand = (hand + 1) % capacity;
+		}
+		final int victim = hand;
+		hand = (hand + 1) % capacity;
+		return victim;
+	}
+
+	private void touch(int entry) {
+		if (eviction == Eviction.CLOCK) {
+			referenced[entry] = true;
+		} else if (head != entry) {
+			unlink(entry);
+			link(entry);
+		}
+	}
+
+	/** makes the entry the most recently used one */
+	private void link(int entry) {
+		if (eviction == Eviction.CLOCK) {
+			referenced[entry] = false;
+			return;
+		}
+		prev[entry] = EMPTY;
+		next[entry] = head;
+		if (head != EMPTY) {
+			prev[head] = entry;
+		}
+		head = entry;
+		if (tail == EMPTY) {
+			tail = entry;
+		}
+	}
+
+	private void unlink(int entry) {
+		if (eviction == Eviction.CLOCK) {
+			return;
+		}
+		if (prev[entry] != EMPTY) {
+			next[prev[entry]] = next[entry];
+		} else {
+			head = next[entry];
+		}
+		if (next[entry] != EMPTY) {
+			prev[next[entry]] = prev[entry];
+		} else {
+			tail = prev[entry];
+		}
+	}
+
+	/**
+	 * The finalizer of SplitMix64 over the fingerprint combined with the action bits.
+	 */
+	private static long hash(long fingerprint, long v, long g, long s) {
+		long z = fingerprint;
+		z = z * 0x9e3779b97f4a7c15L + v;
+		z = z * 0x9e3779b97f4a7c15L + g;
+		z = z * 0x9e3779b97f4a7c15L + s;
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+}
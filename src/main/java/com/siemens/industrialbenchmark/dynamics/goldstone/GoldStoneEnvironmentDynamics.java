@@ -71,6 +71,7 @@ public class GoldStoneEnvironmentDynamics {
 	public void reset() {
 		this.domain = Domain.POSITIVE;
 		systemResponse = SystemResponse.ADVANTAGEOUS;
+		phiIdx = 0;
 	}
 
 	public double rewardAt (double pos) {
@@ -245,5 +246,18 @@ public class GoldStoneEnvironmentDynamics {
 	public void setPhiIdx(int phiIdx) {
 		this.phiIdx = phiIdx;
 	}
+
+	/**
+	 * Restores the complete internal state without a state transition.
+	 * @param domain The domain
+	 * @param systemResponse The system response
+	 * @param phiIdx The phi index
+	 */
+	public void restore(Domain domain, SystemResponse systemResponse, int phiIdx) {
+		this.domain = domain;
+		this.systemResponse = systemResponse;
+		this.phiIdx = phiIdx;
+		this.currentPenaltyFunction = this.getPenaltyFunction();
+	}
 }
 
@@ -32,8 +32,13 @@ public class GoldstoneEnvironment {
 		this.reset(0);
 	}
 	
+	/**
+	 * Resets the control position and the internal state of the dynamics (domain, system response, phi index).
+	 * @param controlStartValue The control position to start from
+	 */
 	public void reset(double controlStartValue) {
 		this.controlPosition = controlStartValue;
+		this.dynamics.reset();
 	}
 	
 	public double reward() {
@@ -94,4 +99,17 @@ public class GoldstoneEnvironment {
 	public void setPhiIdx(double phiIdx){
 		dynamics.setPhiIdx((int) phiIdx);
 	}
+
+	/**
+	 * Restores the control position and the internal state of the dynamics without a state transition,
+	 * unlike {@link #setControlPosition(double)}.
+	 * @param controlPosition The control position
+	 * @param domain The domain, see {@link #getDomain()}
+	 * @param systemResponse The system response, see {@link #getSystemResponse()}
+	 * @param phiIdx The phi index, see {@link #getPhiIdx()}
+	 */
+	public void restore(double controlPosition, double domain, double systemResponse, double phiIdx) {
+		this.controlPosition = controlPosition;
+		dynamics.restore(Domain.fromDouble(domain), SystemResponse.fromDouble(systemResponse), (int) phiIdx);
+	}
 }
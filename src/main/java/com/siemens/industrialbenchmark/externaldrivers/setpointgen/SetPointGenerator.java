@@ -15,17 +15,23 @@ limitations under the License.
 */
 package com.siemens.industrialbenchmark.externaldrivers.setpointgen;
 
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.File;
 import java.io.IOException;
+import java.io.StreamCorruptedException;
 import java.util.Properties;
 
 import org.apache.commons.math3.random.RandomDataGenerator;
+import org.apache.commons.math3.random.Well19937c;
 
 import com.google.common.base.Preconditions;
 import com.siemens.industrialbenchmark.datavector.DataVectorImpl;
+import com.siemens.industrialbenchmark.monitoring.SimulationEvents;
 import com.siemens.industrialbenchmark.properties.PropertiesException;
 import com.siemens.industrialbenchmark.properties.PropertiesUtil;
 import com.siemens.industrialbenchmark.util.PlotCurve;
+import com.siemens.rl.interfaces.Checkpointable;
 import com.siemens.rl.interfaces.DataVector;
 import com.siemens.rl.interfaces.ExternalDriver;
 
@@ -35,7 +41,7 @@ import com.siemens.rl.interfaces.ExternalDriver;
  * @author Siegmund Duell, Michel Tokic
  *
  */
-public class SetPointGenerator implements ExternalDriver {
+public class SetPointGenerator implements ExternalDriver, Checkpointable {
 
 	private final float SETPOINT_STEP_SIZE;
 	private final float MAX_CHANGE_RATE_PER_STEP_SETPOINT;
@@ -49,7 +55,8 @@ public class SetPointGenerator implements ExternalDriver {
 	private boolean mIsStationary;
 	private double mSetPoint;
 	
-	private RandomDataGenerator mRandom = new RandomDataGenerator(); 
+	private final CheckpointableWell mWell = new CheckpointableWell();
+	private final RandomDataGenerator mRandom = new RandomDataGenerator(mWell); 
 	
 
 	/**
@@ -72,7 +79,6 @@ public class SetPointGenerator implements ExternalDriver {
 		MAXSETPOINT = PropertiesUtil.getFloat(aProperties, "SetPoint_MAX", true);
 		SETPOINT_STEP_SIZE = PropertiesUtil.getFloat(aProperties, "SETPOINT_STEP_SIZE", true);
 		
-		this.mRandom = new RandomDataGenerator();
 		this.mRandom.reSeed(seed);
 		defineNewSequence();
 	}
@@ -193,6 +199,7 @@ public class SetPointGenerator implements ExternalDriver {
 		if (r > 0.9f) {
 			mChangeRatePerStep = 0;
 		}
+		SimulationEvents.setPointSequence(mLastSequenceSteps, mChangeRatePerStep);
 	}
 	
 	/**
@@ -251,4 +258,63 @@ public class SetPointGenerator implements ExternalDriver {
 		
 		return s; 		
 	}
+
+	/**
+	 * Writes the sequence state, the stationary flag and the state of the random number generator.
+	 */
+	@Override
+	public void writeCheckpoint(DataOutput out) throws IOException {
+		out.writeBoolean(mIsStationary);
+		out.writeDouble(mSetPoint);
+		out.writeInt(mCurrentSteps);
+		out.writeInt(mLastSequenceSteps);
+		out.writeDouble(mChangeRatePerStep);
+		mWell.writeState(out);
+	}
+
+	@Override
+	public void readCheckpoint(DataInput in) throws IOException {
+		boolean isStationary = in.readBoolean();
+		double setPoint = in.readDouble();
+		int currentSteps = in.readInt();
+		int lastSequenceSteps = in.readInt();
+		double changeRatePerStep = in.readDouble();
+		int index = in.readInt();
+		int[] state = new int[mWell.stateSize()];
+		if (in.readInt() != state.length || index < 0 || index >= state.length) {
+			throw new StreamCorruptedException("invalid random number generator state");
+		}
+		for (int i = 0; i < state.length; i++) {
+			state[i] = in.readInt();
+		}
+
+		mWell.restoreState(index, state);
+		mIsStationary = isStationary;
+		setState(setPoint, currentSteps, lastSequenceSteps, changeRatePerStep);
+	}
+
+	/**
+	 * The random number generator, whose state is checkpointed as plain ints instead of by Java serialization.
+	 */
+	private static final class CheckpointableWell extends Well19937c {
+		private static final long serialVersionUID = 1L;
+
+		int stateSize() {
+			return v.length;
+		}
+
+		void writeState(DataOutput out) throws IOException {
+			out.writeInt(index);
+			out.writeInt(v.length);
+			for (int x : v) {
+				out.writeInt(x);
+			}
+		}
+
+		void restoreState(int index, int[] state) {
+			System.arraycopy(state, 0, v, 0, v.length);
+			this.index = index;
+			clear();
+		}
+	}
 }
@@ -0,0 +1,157 @@
+/**
+Copyright 2016 Siemens AG.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.siemens.industrialbenchmark.monitoring;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.siemens.industrialbenchmark.datavector.state.MarkovianStateDescription;
+import com.siemens.rl.interfaces.DataVector;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The JFR event types. This class references the jdk.jfr API and is therefore only loaded
+ * by {@link SimulationEvents} if the API is {@link SimulationEvents#AVAILABLE available}.
+ */
+final class JfrEvents {
+
+	private static final String CATEGORY = "Industrial Benchmark";
+
+	/** checked before an event is allocated, so that disabled events cost no allocation */
+	static final EventType STEP = EventType.getEventType(StepEvent.class);
+	static final EventType GOLDSTONE_TRANSITION = EventType.getEventType(GoldstoneTransitionEvent.class);
+	static final EventType SETPOINT_SEQUENCE = EventType.getEventType(SetPointSequenceEvent.class);
+	static final EventType EPISODE = EventType.getEventType(EpisodeEvent.class);
+
+	/** counts the steps while step events are enabled, shared by all threads */
+	static final AtomicInteger stepCounter = new AtomicInteger();
+
+	private JfrEvents() {
+	}
+
+	static void step(DataVector markovState) {
+		if (!STEP.isEnabled() || (stepCounter.incrementAndGet() % SimulationEvents.STEP_SAMPLE_INTERVAL) != 0) {
+			return;
+		}
+		StepEvent e = new StepEvent();
+		e.rewardTotal = markovState.getValue(MarkovianStateDescription.RewardTotal);
+		e.rewardFatigueWeighted = markovState.getValue(MarkovianStateDescription.RewardFatigueWeighted);
+		e.rewardConsumptionWeighted = markovState.getValue(MarkovianStateDescription.RewardConsumptionWeighted);
+		e.fatigue = markovState.getValue(MarkovianStateDescription.Fatigue);
+		e.consumption = markovState.getValue(MarkovianStateDescription.Consumption);
+		e.misCalibration = markovState.getValue(MarkovianStateDescription.MisCalibration);
+		e.setPoint = markovState.getValue(MarkovianStateDescription.SetPoint);
+		e.commit();
+	}
+
+	static void goldstoneTransition(int oldPhiIdx, int newPhiIdx, int oldDomain, int newDomain) {
+		if (GOLDSTONE_TRANSITION.isEnabled()) {
+			GoldstoneTransitionEvent e = new GoldstoneTransitionEvent();
+			e.oldPhiIdx = oldPhiIdx;
+			e.newPhiIdx = newPhiIdx;
+			e.oldDomain = oldDomain;
+			e.newDomain = newDomain;
+			e.commit();
+		}
+	}
+
+	static void setPointSequence(int sequenceLength, double changeRatePerStep) {
+		if (SETPOINT_SEQUENCE.isEnabled()) {
+			SetPointSequenceEvent e = new SetPointSequenceEvent();
+			e.sequenceLength = sequenceLength;
+			e.changeRatePerStep = changeRatePerStep;
+			e.commit();
+		}
+	}
+
+	static void episode(String boundary, long seed) {
+		if (EPISODE.isEnabled()) {
+			EpisodeEvent e = new EpisodeEvent();
+			e.boundary = boundary;
+			e.seed = seed;
+			e.commit();
+		}
+	}
+
+	@Name("com.siemens.industrialbenchmark.Step")
+	@Label("Simulation Step")
+	@Description("Sampled reward components of a simulation step")
+	@Category(CATEGORY)
+	@Enabled(false)
+	@StackTrace(false)
+	static class StepEvent extends Event {
+		@Label("Reward Total")
+		double rewardTotal;
+		@Label("Weighted Fatigue Reward")
+		double rewardFatigueWeighted;
+		@Label("Weighted Consumption Reward")
+		double rewardConsumptionWeighted;
+		@Label("Fatigue")
+		double fatigue;
+		@Label("Consumption")
+		double consumption;
+		@Label("MisCalibration")
+		double misCalibration;
+		@Label("SetPoint")
+		double setPoint;
+	}
+
+	@Name("com.siemens.industrialbenchmark.GoldstoneTransition")
+	@Label("Goldstone Transition")
+	@Description("Change of the goldstone phi index or domain")
+	@Category(CATEGORY)
+	@StackTrace(false)
+	static class GoldstoneTransitionEvent extends Event {
+		@Label("Old Phi Index")
+		int oldPhiIdx;
+		@Label("New Phi Index")
+		int newPhiIdx;
+		@Label("Old Domain")
+		int oldDomain;
+		@Label("New Domain")
+		int newDomain;
+	}
+
+	@Name("com.siemens.industrialbenchmark.SetPointSequence")
+	@Label("SetPoint Sequence")
+	@Description("A new setpoint trajectory sequence has been defined")
+	@Category(CATEGORY)
+	@StackTrace(false)
+	static class SetPointSequenceEvent extends Event {
+		@Label("Sequence Length")
+		int sequenceLength;
+		@Label("Change Rate Per Step")
+		double changeRatePerStep;
+	}
+
+	@Name("com.siemens.industrialbenchmark.Episode")
+	@Label("Episode Boundary")
+	@Description("Initialization or reset of a dynamics instance")
+	@Category(CATEGORY)
+	static class EpisodeEvent extends Event {
+		@Label("Boundary")
+		String boundary;
+		@Label("Seed")
+		long seed;
+	}
+}
@@ -0,0 +1,100 @@
+/**
+Copyright 2016 Siemens AG.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.siemens.industrialbenchmark.monitoring;
+
+import com.siemens.rl.interfaces.DataVector;
+
+/**
+ * Emits Java Flight Recorder events for domain specific simulation behaviour, so that GC and CPU
+ * profiles can be correlated with what the simulation is doing. The following events are defined:
+ * <ul>
+ * 	<li>{@code com.siemens.industrialbenchmark.Step}: sampled reward components of a step (disabled by default)</li>
+ * 	<li>{@code com.siemens.industrialbenchmark.GoldstoneTransition}: changes of the goldstone phi index or domain</li>
+ * 	<li>{@code com.siemens.industrialbenchmark.SetPointSequence}: a new setpoint sequence has been defined</li>
+ * 	<li>{@code com.siemens.industrialbenchmark.Episode}: construction or reset of a dynamics instance</li>
+ * </ul>
+ * The events are switched on and off with regular JFR settings, e.g. the bundled
+ * {@code industrialbenchmark.jfc}. Every {@code industrialbenchmark.jfr.stepSampleInterval}-th
+ * step event (default 10) is committed. Without an active recording, an emit call only costs
+ * an {@code isEnabled()} check and allocates nothing; on JVMs without JFR it is a no-op.
+ */
+public final class SimulationEvents {
+
+	/** true if the running JVM provides the jdk.jfr API */
+	public static final boolean AVAILABLE = jfrAvailable();
+
+	/** every how many steps a step event is committed */
+	static final int STEP_SAMPLE_INTERVAL = Math.max(1, Integer.getInteger("industrialbenchmark.jfr.stepSampleInterval", 10));
+
+	private SimulationEvents() {
+	}
+
+	/**
+	 * Emits a (sampled) step event with the reward components of the given markov state.
+	 * @param markovState The markov state after the step
+	 */
+	public static void step(DataVector markovState) {
+		if (AVAILABLE) {
+			JfrEvents.step(markovState);
+		}
+	}
+
+	/**
+	 * Emits a goldstone transition event if the phi index or the domain have changed.
+	 * @param oldPhiIdx The phi index before the transition
+	 * @param newPhiIdx The phi index after the transition
+	 * @param oldDomain The domain before the transition
+	 * @param newDomain The domain after the transition
+	 */
+	public static void goldstoneTransition(float oldPhiIdx, float newPhiIdx, float oldDomain, float newDomain) {
+		if (AVAILABLE && (oldPhiIdx != newPhiIdx || oldDomain != newDomain)) {
+			JfrEvents.goldstoneTransition((int) oldPhiIdx, (int) newPhiIdx, (int) oldDomain, (int) newDomain);
+		}
+	}
+
+	/**
+	 * Emits a setpoint sequence event.
+	 * @param sequenceLength The number of steps of the new sequence
+	 * @param changeRatePerStep The setpoint change rate of the new sequence
+	 */
+	public static void setPointSequence(int sequenceLength, double changeRatePerStep) {
+		if (AVAILABLE) {
+			JfrEvents.setPointSequence(sequenceLength, changeRatePerStep);
+		}
+	}
+
+	/**
+	 * Emits an episode boundary event.
+	 * @param boundary What caused the boundary, e.g. "init" or "reset"
+	 * @param seed The seed the episode starts with
+	 */
+	public static void episode(String boundary, long seed) {
+		if (AVAILABLE) {
+			JfrEvents.episode(boundary, seed);
+		}
+	}
+
+	private static boolean jfrAvailable() {
+		try {
+			Class.forName("jdk.jfr.Event", false, SimulationEvents.class.getClassLoader());
+			return true;
+		} catch (ClassNotFoundException e) {
+			return false;
+		} catch (LinkageError e) {
+			return false;
+		}
+	}
+}
@@ -0,0 +1,118 @@
+/**
+Copyright 2016 Siemens AG.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.siemens.industrialbenchmark.monitoring;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+/**
+ * Per-instance timer used by the dynamics to time the {@link StepStage}s of a step.
+ * A probe belongs to exactly one dynamics instance and must not be shared between threads.
+ * All methods are no-ops for steps that are not sampled.
+ */
+public final class StepProbe {
+
+	private static final com.sun.management.ThreadMXBean THREAD_BEAN = allocationBean();
+
+	private final StepProfiler profiler;
+	private final int sampleInterval;
+	private final long[] stageNanos = new long[StepStage.values().length];
+	private final long allocationOverhead;
+	private long stepCounter;
+	private boolean sampled;
+	private long lastNanos;
+	private long allocatedAtBegin;
+
+	StepProbe(StepProfiler profiler, int sampleInterval) {
+		this.profiler = profiler;
+		this.sampleInterval = sampleInterval;
+		this.allocationOverhead = measureAllocationOverhead();
+	}
+
+	/**
+	 * Marks the beginning of a step.
+	 */
+	public void begin() {
+		profiler.countStep();
+		sampled = (++stepCounter % sampleInterval) == 0;
+		if (sampled) {
+			Arrays.fill(stageNanos, 0);
+			allocatedAtBegin = allocatedBytes();
+			lastNanos = System.nanoTime();
+		}
+	}
+
+	/**
+	 * Attributes the time since the last call to the given stage.
+	 * @param stage The stage that has just finished
+	 */
+	public void lap(StepStage stage) {
+		if (sampled) {
+			final long now = System.nanoTime();
+			stageNanos[stage.ordinal()] += now - lastNanos;
+			lastNanos = now;
+		}
+	}
+
+	/**
+	 * Marks the end of a step and publishes the timings of a sampled step.
+	 */
+	public void end() {
+		if (sampled) {
+			final long allocated = allocatedAtBegin < 0 ? -1 : Math.max(0, allocatedBytes() - allocatedAtBegin - allocationOverhead);
+			profiler.recordSample(stageNanos, allocated);
+			sampled = false;
+		}
+	}
+
+	private static long allocatedBytes() {
+		if (THREAD_BEAN == null) {
+			return -1;
+		}
+		return THREAD_BEAN.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	/**
+	 * The allocation counter itself may allocate; measure that once so it can be subtracted.
+	 */
+	private static long measureAllocationOverhead() {
+		if (THREAD_BEAN == null) {
+			return 0;
+		}
+		long min = Long.MAX_VALUE;
+		for (int i = 0; i < 8; i++) {
+			final long a = allocatedBytes();
+			final long b = allocatedBytes();
+			min = Math.min(min, b - a);
+		}
+		return min;
+	}
+
+	private static com.sun.management.ThreadMXBean allocationBean() {
+		try {
+			java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+			if (bean instanceof com.sun.management.ThreadMXBean) {
+				com.sun.management.ThreadMXBean b = (com.sun.management.ThreadMXBean) bean;
+				if (b.isThreadAllocatedMemorySupported() && b.isThreadAllocatedMemoryEnabled()) {
+					return b;
+				}
+			}
+		} catch (LinkageError e) {
+			// not a HotSpot-compatible JVM
+		}
+		return null;
+	}
+}
@@ -0,0 +1,103 @@
+/**
+Copyright 2016 Siemens AG.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.siemens.industrialbenchmark.monitoring;
+
+/**
+ * Immutable snapshot of the counters collected by the {@link StepProfiler}.
+ */
+public class StepProfile {
+
+	private final long stepCount;
+	private final long sampledStepCount;
+	private final long elapsedNanos;
+	private final double[] meanStageNanos;
+	private final double allocatedBytesPerStep;
+
+	StepProfile(long stepCount, long sampledStepCount, long elapsedNanos, double[] meanStageNanos, double allocatedBytesPerStep) {
+		this.stepCount = stepCount;
+		this.sampledStepCount = sampledStepCount;
+		this.elapsedNanos = elapsedNanos;
+		this.meanStageNanos = meanStageNanos;
+		this.allocatedBytesPerStep = allocatedBytesPerStep;
+	}
+
+	/**
+	 * @return the number of steps performed
+	 */
+	public long getStepCount() {
+		return stepCount;
+	}
+
+	/**
+	 * @return the number of timed steps
+	 */
+	public long getSampledStepCount() {
+		return sampledStepCount;
+	}
+
+	/**
+	 * @return the wall clock time covered by this snapshot in nanoseconds
+	 */
+	public long getElapsedNanos() {
+		return elapsedNanos;
+	}
+
+	/**
+	 * @return the step throughput
+	 */
+	public double getStepsPerSecond() {
+		return elapsedNanos > 0 ? stepCount * 1e9 / elapsedNanos : 0.0;
+	}
+
+	/**
+	 * Returns the mean duration of the given stage.
+	 * @param stage The stage
+	 * @return the mean duration in nanoseconds, NaN if no step has been sampled yet
+	 */
+	public double getMeanNanos(StepStage stage) {
+		return meanStageNanos[stage.ordinal()];
+	}
+
+	/**
+	 * @return the mean duration of all stages of a step in nanoseconds
+	 */
+	public double getMeanStepNanos() {
+		double sum = 0;
+		for (double n : meanStageNanos) {
+			sum += n;
+		}
+		return sum;
+	}
+
+	/**
+	 * @return the mean number of bytes allocated per step, NaN if unsupported by the JVM
+	 */
+	public double getAllocatedBytesPerStep() {
+		return allocatedBytesPerStep;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("{steps=").append(stepCount)
+				.append(", sampled=").append(sampledStepCount)
+				.append(", stepsPerSecond=").append(getStepsPerSecond())
+				.append(", allocatedBytesPerStep=").append(allocatedBytesPerStep);
+		for (StepStage stage : StepStage.values()) {
+			sb.append(", ").append(stage.name()).append("=").append(getMeanNanos(stage)).append("ns");
+		}
+		return sb.append("}").toString();
+	}
+}
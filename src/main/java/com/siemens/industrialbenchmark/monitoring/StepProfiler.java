@@ -0,0 +1,173 @@
+/**
+Copyright 2016 Siemens AG.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.siemens.industrialbenchmark.monitoring;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Process wide aggregation of per-stage step timings of all {@code IndustrialBenchmarkDynamics}
+ * instances. Profiling is switched on with the system property
+ * {@code -Dindustrialbenchmark.profiling=true}; only every
+ * {@code industrialbenchmark.profiling.sampleInterval}-th step (default 64) of an instance is timed.
+ * <p>
+ * Since {@link #ENABLED} is a static final constant, the JIT removes all instrumentation
+ * if profiling is disabled. The counters can be read via JMX (see {@link StepProfilerMXBean})
+ * or programmatically via {@link #snapshot()}.
+ */
+public final class StepProfiler implements StepProfilerMXBean {
+
+	/** true if step profiling is enabled */
+	public static final boolean ENABLED = Boolean.getBoolean("industrialbenchmark.profiling");
+
+	/** every how many steps an instance times a step */
+	public static final int SAMPLE_INTERVAL = Math.max(1, Integer.getInteger("industrialbenchmark.profiling.sampleInterval", 64));
+
+	/** JMX object name of the profiler */
+	public static final String OBJECT_NAME = "com.siemens.industrialbenchmark:type=StepProfiler";
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(StepProfiler.class);
+	private static volatile StepProfiler instance;
+
+	private final LongAdder steps = new LongAdder();
+	private final LongAdder sampledSteps = new LongAdder();
+	private final LongAdder[] stageNanos = new LongAdder[StepStage.values().length];
+	private final LongAdder allocatedBytes = new LongAdder();
+	private final LongAdder allocationSamples = new LongAdder();
+	private volatile long startNanos = System.nanoTime();
+
+	private StepProfiler() {
+		for (int i = 0; i < stageNanos.length; i++) {
+			stageNanos[i] = new LongAdder();
+		}
+	}
+
+	/**
+	 * Returns the profiler and registers its MBean on first use.
+	 * @return the process wide profiler
+	 */
+	public static StepProfiler get() {
+		StepProfiler p = instance;
+		if (p == null) {
+			synchronized (StepProfiler.class) {
+				p = instance;
+				if (p == null) {
+					p = new StepProfiler();
+					try {
+						ManagementFactory.getPlatformMBeanServer().registerMBean(p, new ObjectName(OBJECT_NAME));
+					} catch (JMException e) {
+						LOGGER.warn("could not register step profiler MBean " + OBJECT_NAME, e);
+					}
+					instance = p;
+				}
+			}
+		}
+		return p;
+	}
+
+	/**
+	 * Creates a probe for a single dynamics instance. Probes are not thread-safe.
+	 * @return a new probe reporting to this profiler
+	 */
+	public static StepProbe newProbe() {
+		return new StepProbe(get(), SAMPLE_INTERVAL);
+	}
+
+	void countStep() {
+		steps.increment();
+	}
+
+	void recordSample(long[] nanos, long allocated) {
+		sampledSteps.increment();
+		for (int i = 0; i < nanos.length; i++) {
+			stageNanos[i].add(nanos[i]);
+		}
+		if (allocated >= 0) {
+			allocatedBytes.add(allocated);
+			allocationSamples.increment();
+		}
+	}
+
+	/**
+	 * Returns a consistent-enough copy of the current counters.
+	 * @return the snapshot
+	 */
+	public StepProfile snapshot() {
+		final long sampled = sampledSteps.sum();
+		double[] means = new double[stageNanos.length];
+		for (int i = 0; i < means.length; i++) {
+			means[i] = sampled > 0 ? stageNanos[i].sum() / (double) sampled : Double.NaN;
+		}
+		final long allocSamples = allocationSamples.sum();
+		final double allocPerStep = allocSamples > 0 ? allocatedBytes.sum() / (double) allocSamples : Double.NaN;
+		return new StepProfile(steps.sum(), sampled, System.nanoTime() - startNanos, means, allocPerStep);
+	}
+
+	@Override
+	public long getStepCount() {
+		return steps.sum();
+	}
+
+	@Override
+	public long getSampledStepCount() {
+		return sampledSteps.sum();
+	}
+
+	@Override
+	public int getSampleInterval() {
+		return SAMPLE_INTERVAL;
+	}
+
+	@Override
+	public double getStepsPerSecond() {
+		return snapshot().getStepsPerSecond();
+	}
+
+	@Override
+	public double getAllocatedBytesPerStep() {
+		return snapshot().getAllocatedBytesPerStep();
+	}
+
+	@Override
+	public Map<String, Double> getMeanStageNanos() {
+		StepProfile s = snapshot();
+		Map<String, Double> result = new LinkedHashMap<String, Double>();
+		for (StepStage stage : StepStage.values()) {
+			result.put(stage.name(), s.getMeanNanos(stage));
+		}
+		return result;
+	}
+
+	@Override
+	public void reset() {
+		steps.reset();
+		sampledSteps.reset();
+		for (LongAdder a : stageNanos) {
+			a.reset();
+		}
+		allocatedBytes.reset();
+		allocationSamples.reset();
+		startNanos = System.nanoTime();
+	}
+}
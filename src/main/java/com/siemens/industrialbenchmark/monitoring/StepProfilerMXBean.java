@@ -0,0 +1,68 @@
+/**
+Copyright 2016 Siemens AG.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.siemens.industrialbenchmark.monitoring;
+
+import java.util.Map;
+
+/**
+ * JMX management interface of the {@link StepProfiler}. The MBean is registered under
+ * {@value StepProfiler#OBJECT_NAME} as soon as profiling is enabled and the first
+ * dynamics instance is created.
+ */
+public interface StepProfilerMXBean {
+
+	/**
+	 * Returns the number of steps performed since start or the last reset.
+	 * @return the number of steps
+	 */
+	long getStepCount();
+
+	/**
+	 * Returns the number of steps that were timed.
+	 * @return the number of sampled steps
+	 */
+	long getSampledStepCount();
+
+	/**
+	 * Returns every how many steps a step is timed.
+	 * @return the sample interval
+	 */
+	int getSampleInterval();
+
+	/**
+	 * Returns the step throughput of all instances since start or the last reset.
+	 * @return steps per second
+	 */
+	double getStepsPerSecond();
+
+	/**
+	 * Returns the mean number of bytes allocated by a sampled step, or NaN if the JVM
+	 * does not support thread allocation accounting.
+	 * @return allocated bytes per step
+	 */
+	double getAllocatedBytesPerStep();
+
+	/**
+	 * Returns the mean duration of each {@link StepStage} in nanoseconds.
+	 * @return map of stage name to mean nanoseconds
+	 */
+	Map<String, Double> getMeanStageNanos();
+
+	/**
+	 * Clears all counters.
+	 */
+	void reset();
+}
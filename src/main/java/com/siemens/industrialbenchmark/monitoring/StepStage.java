@@ -0,0 +1,39 @@
+/**
+Copyright 2016 Siemens AG.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.siemens.industrialbenchmark.monitoring;
+
+/**
+ * The stages of {@code IndustrialBenchmarkDynamics.step()} that are timed by the {@link StepProfiler}.
+ * The enum order corresponds to the order in which the stages are executed.
+ */
+public enum StepStage {
+	/** seeding and filtering of the external drivers (e.g. setpoint generator) */
+	DRIVER_FILTER,
+	/** application of the action to velocity, gain and shift */
+	ADD_ACTION,
+	/** spiking fatigue dynamics */
+	FATIGUE,
+	/** current operational cost */
+	OPERATIONAL_COST,
+	/** convolution of the operational cost history */
+	CONVOLUTION,
+	/** goldstone (miscalibration) dynamics */
+	GOLDSTONE,
+	/** noisy consumption */
+	CONSUMPTION,
+	/** reward computation */
+	REWARD
+}
@@ -0,0 +1,28 @@
+/**
+Copyright 2016 Siemens AG.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.siemens.industrialbenchmark.pipeline;
+
+/**
+ * Chooses the delta action for an observation.
+ */
+public interface Policy {
+
+	/**
+	 * @param observation The current observation, in the order of the observable state keys
+	 * @param actionOut receives deltaVelocity, deltaGain and deltaShift
+	 */
+	void act(double[] observation, double[] actionOut);
+}
@@ -0,0 +1,40 @@
+/**
+Copyright 2016 Siemens AG.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.siemens.industrialbenchmark.pipeline;
+
+import java.util.Random;
+
+/**
+ * Uniformly random delta actions from [-1, 1], independent of the observation.
+ */
+public class RandomPolicy implements Policy {
+
+	private final Random rand;
+
+	/**
+	 * @param seed The seed of the actions
+	 */
+	public RandomPolicy(long seed) {
+		this.rand = new Random(seed);
+	}
+
+	@Override
+	public void act(double[] observation, double[] actionOut) {
+		actionOut[0] = 2 * rand.nextDouble() - 1;
+		actionOut[1] = 2 * rand.nextDouble() - 1;
+		actionOut[2] = 2 * rand.nextDouble() - 1;
+	}
+}
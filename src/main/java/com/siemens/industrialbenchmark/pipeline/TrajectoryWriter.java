@@ -0,0 +1,80 @@
+/**
+Copyright 2016 Siemens AG.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.siemens.industrialbenchmark.pipeline;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+import com.siemens.industrialbenchmark.datavector.action.ActionDeltaDescription;
+
+/**
+ * Writes transitions as space separated text lines, one per step, like the files written by the 
+ * {@link com.siemens.industrialbenchmark.ExampleMain}.
+ */
+public class TrajectoryWriter implements TransitionSink {
+
+	private final Writer out;
+	private final StringBuilder line = new StringBuilder(512);
+	private long step;
+
+	/**
+	 * Writes the column headers.
+	 * @param out The target; closed with this writer
+	 * @param observationKeys The keys of the observation
+	 * @throws IOException
+	 */
+	public TrajectoryWriter(Writer out, List<String> observationKeys) throws IOException {
+		this.out = new BufferedWriter(out);
+		line.append("time ");
+		for (String key : observationKeys) {
+			line.append(key).append(' ');
+		}
+		line.append(ActionDeltaDescription.DeltaVelocity).append(' ')
+			.append(ActionDeltaDescription.DeltaGain).append(' ')
+			.append(ActionDeltaDescription.DeltaShift).append(' ')
+			.append("Reward ");
+		for (String key : observationKeys) {
+			line.append("next_").append(key).append(' ');
+		}
+		line.append('\n');
+		this.out.write(line.toString());
+	}
+
+	@Override
+	public void accept(double[] ring, int offset) throws IOException {
+		line.setLength(0);
+		line.append(++step).append(' ');
+		for (int i = 0; i < TransitionRing.SLOT_SIZE; i++) {
+			line.append(ring[offset + i]).append(' ');
+		}
+		line.append('\n');
+		out.write(line.toString());
+	}
+
+	/**
+	 * @return the number of written transitions
+	 */
+	public long getStepCount() {
+		return step;
+	}
+
+	@Override
+	public void close() throws IOException {
+		out.close();
+	}
+}
@@ -0,0 +1,94 @@
+/**
+Copyright 2016 Siemens AG.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.siemens.industrialbenchmark.pipeline;
+
+import static com.siemens.industrialbenchmark.pipeline.TransitionRing.ACTION_SIZE;
+
+import java.util.Arrays;
+
+import com.siemens.industrialbenchmark.datavector.state.ObservableStateDescription;
+
+/**
+ * One step of the environment: the observation, the applied delta action, the reward and the 
+ * next observation. Instances handed out by a {@link TransitionPublisher} are reused; see there.
+ */
+public final class Transition {
+
+	private long step;
+	private final double[] observation = new double[ObservableStateDescription.SIZE];
+	private final double[] action = new double[ACTION_SIZE];
+	private double reward;
+	private final double[] nextObservation = new double[ObservableStateDescription.SIZE];
+
+	/**
+	 * @return the number of the step within the stream, starting at 1
+	 */
+	public long getStep() {
+		return step;
+	}
+
+	/**
+	 * @return the observation before the step; the array is owned by this transition
+	 */
+	public double[] getObservation() {
+		return observation;
+	}
+
+	/**
+	 * @return deltaVelocity, deltaGain and deltaShift; the array is owned by this transition
+	 */
+	public double[] getAction() {
+		return action;
+	}
+
+	public double getReward() {
+		return reward;
+	}
+
+	/**
+	 * @return the observation after the step; the array is owned by this transition
+	 */
+	public double[] getNextObservation() {
+		return nextObservation;
+	}
+
+	void setStep(long step) {
+		this.step = step;
+	}
+
+	void setReward(double reward) {
+		this.reward = reward;
+	}
+
+	/**
+	 * @return an independent copy, which may be kept after the transition has been reused
+	 */
+	public Transition copy() {
+		Transition copy = new Transition();
+		copy.step = step;
+		System.arraycopy(observation, 0, copy.observation, 0, ObservableStateDescription.SIZE);
+		System.arraycopy(action, 0, copy.action, 0, ACTION_SIZE);
+		copy.reward = reward;
+		System.arraycopy(nextObservation, 0, copy.nextObservation, 0, ObservableStateDescription.SIZE);
+		return copy;
+	}
+
+	@Override
+	public String toString() {
+		return "Transition [step=" + step + ", observation=" + Arrays.toString(observation) + ", action=" + Arrays.toString(action)
+				+ ", reward=" + reward + ", nextObservation=" + Arrays.toString(nextObservation) + "]";
+	}
+}
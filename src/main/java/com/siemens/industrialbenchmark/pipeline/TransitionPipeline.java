@@ -0,0 +1,188 @@
+/**
+Copyright 2016 Siemens AG.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.siemens.industrialbenchmark.pipeline;
+
+import static com.siemens.industrialbenchmark.pipeline.TransitionRing.*;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import com.google.common.base.Preconditions;
+import com.siemens.industrialbenchmark.datavector.state.ObservableStateDescription;
+import com.siemens.rl.interfaces.Environment;
+
+/**
+ * Decouples the simulation from its consumers: a producer thread steps the environment under a 
+ * {@link Policy} and publishes the transitions into a {@link TransitionRing}, a consumer thread 
+ * claims them in batches and hands them to the {@link TransitionSink}s in order.
+ */
+public class TransitionPipeline {
+
+	private final Environment env;
+	private final Policy policy;
+	private final long steps;
+	private final TransitionRing ring;
+	private final int maxBatch;
+	private final List<TransitionSink> sinks;
+	private final Thread producer;
+	private final Thread consumer;
+	private volatile Throwable failure;
+	private long produced;
+	private long consumed;
+
+	/**
+	 * @param env The environment, stepped from its current state
+	 * @param policy The policy choosing the actions
+	 * @param steps The number of transitions to produce
+	 * @param ring The ring between the producer and the consumer
+	 * @param maxBatch The maximum number of transitions claimed by the consumer at once
+	 * @param sinks The consumers of the transitions; closed when the pipeline ends
+	 */
+	public TransitionPipeline(Environment env, Policy policy, long steps, TransitionRing ring, int maxBatch, TransitionSink... sinks) {
+		Preconditions.checkArgument(steps >= 0, "steps must be non-negative, but is %s", steps);
+		Preconditions.checkArgument(maxBatch > 0, "maxBatch must be positive, but is %s", maxBatch);
+		this.env = Preconditions.checkNotNull(env);
+		this.policy = Preconditions.checkNotNull(policy);
+		this.steps = steps;
+		this.ring = Preconditions.checkNotNull(ring);
+		this.maxBatch = maxBatch;
+		this.sinks = Arrays.asList(sinks.clone());
+		this.producer = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				produce();
+			}
+		}, "transition-producer");
+		this.consumer = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				consume();
+			}
+		}, "transition-consumer");
+	}
+
+	/**
+	 * Starts the producer and the consumer thread.
+	 * @return this pipeline
+	 */
+	public TransitionPipeline start() {
+		consumer.start();
+		producer.start();
+		return this;
+	}
+
+	private void produce() {
+		final double[] buffer = ring.buffer();
+		final double[] observation = new double[ObservableStateDescription.SIZE];
+		final double[] action = new double[ACTION_SIZE];
+		try {
+			env.stateInto(observation);
+			for (long i = 0; i < steps; i++) {
+				final int offset = ring.offset(ring.claim());
+				System.arraycopy(observation, 0, buffer, offset + OBSERVATION_OFFSET, ObservableStateDescription.SIZE);
+				policy.act(observation, action);
+				System.arraycopy(action, 0, buffer, offset + ACTION_OFFSET, ACTION_SIZE);
+				buffer[offset + REWARD_OFFSET] = env.step(action[0], action[1], action[2], observation);
+				System.arraycopy(observation, 0, buffer, offset + NEXT_OBSERVATION_OFFSET, ObservableStateDescription.SIZE);
+				ring.publish();
+				produced++;
+			}
+		} catch (InterruptedException e) {
+			// cancelled
+		} catch (RuntimeException e) {
+			fail(e);
+		} finally {
+			ring.close();
+		}
+	}
+
+	private void consume() {
+		final double[] buffer = ring.buffer();
+		try {
+			int n;
+			while ((n = ring.claimBatch(maxBatch)) > 0) {
+				final long first = ring.consumerSequence();
+				for (int i = 0; i < n; i++) {
+					final int offset = ring.offset(first + i);
+					for (TransitionSink sink : sinks) {
+						sink.accept(buffer, offset);
+					}
+				}
+				ring.release(n);
+				consumed += n;
+			}
+		} catch (InterruptedException e) {
+			// cancelled
+		} catch (IOException | RuntimeException e) {
+			fail(e);
+		} finally {
+			for (TransitionSink sink : sinks) {
+				try {
+					sink.close();
+				} catch (IOException e) {
+					fail(e);
+				}
+			}
+		}
+	}
+
+	private void fail(Throwable t) {
+		if (failure == null) {
+			failure = t;
+		}
+		producer.interrupt();
+		consumer.interrupt();
+	}
+
+	/**
+	 * Stops both threads; transitions not yet consumed are dropped.
+	 */
+	public void cancel() {
+		producer.interrupt();
+		consumer.interrupt();
+	}
+
+	/**
+	 * Waits until all transitions have been consumed and the sinks are closed.
+	 * @return the number of consumed transitions
+	 * @throws ExecutionException if the environment, the policy or a sink failed
+	 * @throws InterruptedException
+	 */
+	public long await() throws ExecutionException, InterruptedException {
+		producer.join();
+		consumer.join();
+		if (failure != null) {
+			throw new ExecutionException(failure);
+		}
+		return consumed;
+	}
+
+	/**
+	 * @return the number of produced transitions; valid after {@link #await()}
+	 */
+	public long getProducedCount() {
+		return produced;
+	}
+
+	/**
+	 * @return the number of consumed transitions; valid after {@link #await()}
+	 */
+	public long getConsumedCount() {
+		return consumed;
+	}
+}
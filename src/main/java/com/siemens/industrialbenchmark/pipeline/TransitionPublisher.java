@@ -0,0 +1,187 @@
+/**
+Copyright 2016 Siemens AG.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.siemens.industrialbenchmark.pipeline;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+import com.siemens.rl.interfaces.Environment;
+
+/**
+ * Reactive Streams publisher of the transitions of an environment stepped under a {@link Policy}. 
+ * The environment is stepped lazily, on the thread calling {@link Subscription#request(long)}, and 
+ * only as far as the subscriber has requested, so nothing is buffered for a slow subscriber. 
+ * On Java 9+, {@code org.reactivestreams.FlowAdapters.toFlowPublisher(publisher)} exposes it as a 
+ * {@code java.util.concurrent.Flow.Publisher}.
+ * <p>
+ * Ownership: a subscription reuses a single {@link Transition} for all its {@code onNext} signals. 
+ * The subscriber owns it only until {@code onNext} returns and must {@link Transition#copy()} it 
+ * to keep it.
+ * <p>
+ * The publisher is unicast, since all transitions come from the same environment: a second 
+ * subscriber receives {@code onError} with an {@link IllegalStateException}.
+ */
+public class TransitionPublisher implements Publisher<Transition> {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(TransitionPublisher.class);
+
+	private final Environment env;
+	private final Policy policy;
+	private final long steps;
+	private final AtomicBoolean subscribed = new AtomicBoolean();
+
+	/**
+	 * @param env The environment, stepped from its current state
+	 * @param policy The policy choosing the actions
+	 * @param steps The number of transitions before {@code onComplete}, {@link Long#MAX_VALUE} for a continuous stream
+	 */
+	public TransitionPublisher(Environment env, Policy policy, long steps) {
+		Preconditions.checkArgument(steps >= 0, "steps must be non-negative, but is %s", steps);
+		this.env = Preconditions.checkNotNull(env);
+		this.policy = Preconditions.checkNotNull(policy);
+		this.steps = steps;
+	}
+
+	/**
+	 * @return a publisher of an endless stream of transitions
+	 */
+	public static TransitionPublisher continuous(Environment env, Policy policy) {
+		return new TransitionPublisher(env, policy, Long.MAX_VALUE);
+	}
+
+	@Override
+	public void subscribe(Subscriber<? super Transition> subscriber) {
+		Preconditions.checkNotNull(subscriber);
+		if (!subscribed.compareAndSet(false, true)) {
+			subscriber.onSubscribe(new Subscription() {
+				@Override
+				public void request(long n) {
+				}
+
+				@Override
+				public void cancel() {
+				}
+			});
+			subscriber.onError(new IllegalStateException("the publisher allows only a single subscriber"));
+			return;
+		}
+		StepSubscription subscription = new StepSubscription(subscriber);
+		subscriber.onSubscribe(subscription);
+		// completes empty streams without demand
+		subscription.drain();
+	}
+
+	private final class StepSubscription implements Subscription {
+		private final Subscriber<? super Transition> subscriber;
+		private final Transition transition = new Transition();
+		private final AtomicLong demand = new AtomicLong();
+		/** serializes the signals; only the thread incrementing it from 0 emits */
+		private final AtomicInteger work = new AtomicInteger();
+		private volatile boolean cancelled;
+		private volatile Throwable invalidRequest;
+		private long emitted;
+		private boolean started;
+
+		StepSubscription(Subscriber<? super Transition> subscriber) {
+			this.subscriber = subscriber;
+		}
+
+		@Override
+		public void request(long n) {
+			if (n <= 0) {
+				invalidRequest = new IllegalArgumentException("§3.9: the number of requested elements must be positive, but is " + n);
+			} else {
+				long current, next;
+				do {
+					current = demand.get();
+					next = current + n < 0 ? Long.MAX_VALUE : current + n;
+				} while (!demand.compareAndSet(current, next));
+			}
+			drain();
+		}
+
+		@Override
+		public void cancel() {
+			cancelled = true;
+		}
+
+		void drain() {
+			if (work.getAndIncrement() != 0) {
+				return;
+			}
+			int missed = 1;
+			do {
+				if (!cancelled && invalidRequest != null) {
+					cancelled = true;
+					subscriber.onError(invalidRequest);
+				}
+				final long requested = demand.get();
+				long done = 0;
+				while (done != requested && emitted < steps && !cancelled) {
+					try {
+						next();
+					} catch (RuntimeException e) {
+						cancelled = true;
+						subscriber.onError(e);
+						break;
+					}
+					done++;
+					try {
+						subscriber.onNext(transition);
+					} catch (RuntimeException e) {
+						// §2.13: the subscriber violated the specification
+						cancelled = true;
+						LOGGER.warn("subscriber failed in onNext, the subscription is cancelled", e);
+					}
+				}
+				if (emitted == steps && !cancelled) {
+					cancelled = true;
+					subscriber.onComplete();
+				}
+				if (done != 0 && requested != Long.MAX_VALUE) {
+					demand.addAndGet(-done);
+				}
+				missed = work.addAndGet(-missed);
+			} while (missed != 0);
+		}
+
+		/**
+		 * Steps the environment into the reused transition.
+		 */
+		private void next() {
+			final double[] observation = transition.getObservation();
+			final double[] nextObservation = transition.getNextObservation();
+			final double[] action = transition.getAction();
+			if (started) {
+				System.arraycopy(nextObservation, 0, observation, 0, observation.length);
+			} else {
+				env.stateInto(observation);
+				started = true;
+			}
+			policy.act(observation, action);
+			transition.setReward(env.step(action[0], action[1], action[2], nextObservation));
+			transition.setStep(++emitted);
+		}
+	}
+}
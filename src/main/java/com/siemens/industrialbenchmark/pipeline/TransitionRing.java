@@ -0,0 +1,199 @@
+/**
+Copyright 2016 Siemens AG.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.siemens.industrialbenchmark.pipeline;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.base.Preconditions;
+import com.siemens.industrialbenchmark.datavector.state.ObservableStateDescription;
+
+/**
+ * Preallocated single-producer/single-consumer ring of transitions. Every slot holds 
+ * {@link #SLOT_SIZE} doubles: the observation, the delta action, the reward and the next observation, 
+ * at the offsets given by the constants of this class. The producer blocks while the ring is full, 
+ * which throttles the simulation to the speed of the consumer.
+ * <p>
+ * Producer: {@link #claim()}, write the slot at {@link #offset(long)} into {@link #buffer()}, {@link #publish()}, 
+ * and {@link #close()} after the last transition.<br>
+ * Consumer: {@link #claimBatch(int)}, read the slots from {@link #consumerSequence()} on, {@link #release(int)}.
+ */
+public final class TransitionRing {
+
+	/** the size of a delta action */
+	public static final int ACTION_SIZE = 3;
+
+	public static final int OBSERVATION_OFFSET = 0;
+	public static final int ACTION_OFFSET = OBSERVATION_OFFSET + ObservableStateDescription.SIZE;
+	public static final int REWARD_OFFSET = ACTION_OFFSET + ACTION_SIZE;
+	public static final int NEXT_OBSERVATION_OFFSET = REWARD_OFFSET + 1;
+	public static final int SLOT_SIZE = NEXT_OBSERVATION_OFFSET + ObservableStateDescription.SIZE;
+
+	private final double[] buffer;
+	private final int capacity;
+	private final int mask;
+	private final WaitStrategy producerWait;
+	private final WaitStrategy consumerWait;
+
+	/** the number of published transitions; written by the producer */
+	private final AtomicLong published = new AtomicLong();
+	/** the number of released transitions; written by the consumer */
+	private final AtomicLong released = new AtomicLong();
+	private volatile boolean closed;
+
+	// producer-local
+	private long tail;
+	private long cachedReleased;
+	private long producerWaits;
+
+	// consumer-local
+	private long head;
+	private long cachedPublished;
+	private long consumerWaits;
+
+	/**
+	 * @param capacity The number of slots, a power of two
+	 * @param producerWait How the producer waits while the ring is full
+	 * @param consumerWait How the consumer waits while the ring is empty
+	 */
+	public TransitionRing(int capacity, WaitStrategy producerWait, WaitStrategy consumerWait) {
+		Preconditions.checkArgument(capacity > 0 && Integer.bitCount(capacity) == 1, "capacity must be a power of two, but is %s", capacity);
+		this.buffer = new double[capacity * SLOT_SIZE];
+		this.capacity = capacity;
+		this.mask = capacity - 1;
+		this.producerWait = Preconditions.checkNotNull(producerWait);
+		this.consumerWait = Preconditions.checkNotNull(consumerWait);
+	}
+
+	/**
+	 * @return the slots of the ring, {@link #SLOT_SIZE} doubles each
+	 */
+	public double[] buffer() {
+		return buffer;
+	}
+
+	/**
+	 * @param sequence The sequence number of a transition
+	 * @return the offset of its slot in {@link #buffer()}
+	 */
+	public int offset(long sequence) {
+		return (int) (sequence & mask) * SLOT_SIZE;
+	}
+
+	/**
+	 * @return the number of slots
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Waits for a free slot. Producer only.
+	 * @return the sequence number of the claimed slot
+	 * @throws InterruptedException if the producer was interrupted while waiting
+	 */
+	public long claim() throws InterruptedException {
+		if (tail - cachedReleased >= capacity) {
+			cachedReleased = released.get();
+			if (tail - cachedReleased >= capacity) {
+				producerWaits++;
+				for (int attempt = 0; tail - (cachedReleased = released.get()) >= capacity; attempt++) {
+					if (Thread.interrupted()) {
+						throw new InterruptedException();
+					}
+					producerWait.idle(attempt);
+				}
+			}
+		}
+		return tail;
+	}
+
+	/**
+	 * Makes the claimed slot visible to the consumer. Producer only.
+	 */
+	public void publish() {
+		published.lazySet(++tail);
+	}
+
+	/**
+	 * Signals that no more transitions will be published. Producer only.
+	 */
+	public void close() {
+		closed = true;
+	}
+
+	/**
+	 * Waits for published transitions. Consumer only.
+	 * @param max The maximum number of transitions to claim
+	 * @return the number of claimed transitions, starting at {@link #consumerSequence()}; 
+	 * 0 if the ring is closed and all transitions have been consumed
+	 * @throws InterruptedException if the consumer was interrupted while waiting
+	 */
+	public int claimBatch(int max) throws InterruptedException {
+		Preconditions.checkArgument(max > 0, "max must be positive, but is %s", max);
+		if (cachedPublished == head) {
+			cachedPublished = published.get();
+			if (cachedPublished == head) {
+				consumerWaits++;
+				for (int attempt = 0; (cachedPublished = published.get()) == head; attempt++) {
+					if (closed) {
+						// the last publish happens before close
+						cachedPublished = published.get();
+						if (cachedPublished == head) {
+							return 0;
+						}
+						break;
+					}
+					if (Thread.interrupted()) {
+						throw new InterruptedException();
+					}
+					consumerWait.idle(attempt);
+				}
+			}
+		}
+		return (int) Math.min(max, cachedPublished - head);
+	}
+
+	/**
+	 * @return the sequence number of the first claimed transition. Consumer only.
+	 */
+	public long consumerSequence() {
+		return head;
+	}
+
+	/**
+	 * Frees the first {@code count} claimed slots for the producer. Consumer only.
+	 * @param count The number of consumed transitions
+	 */
+	public void release(int count) {
+		Preconditions.checkArgument(count >= 0 && head + count <= cachedPublished, "cannot release %s transitions", count);
+		head += count;
+		released.lazySet(head);
+	}
+
+	/**
+	 * @return the number of claims during which the producer had to wait for the consumer
+	 */
+	public long getProducerWaitCount() {
+		return producerWaits;
+	}
+
+	/**
+	 * @return the number of batch claims during which the consumer had to wait for the producer
+	 */
+	public long getConsumerWaitCount() {
+		return consumerWaits;
+	}
+}
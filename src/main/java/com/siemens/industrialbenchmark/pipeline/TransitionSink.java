@@ -0,0 +1,32 @@
+/**
+Copyright 2016 Siemens AG.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.siemens.industrialbenchmark.pipeline;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Receives the transitions consumed from a {@link TransitionRing}.
+ */
+public interface TransitionSink extends Closeable {
+
+	/**
+	 * @param ring The buffer of the ring; only valid during the call
+	 * @param offset The offset of the transition, laid out as described in {@link TransitionRing}
+	 * @throws IOException
+	 */
+	void accept(double[] ring, int offset) throws IOException;
+}
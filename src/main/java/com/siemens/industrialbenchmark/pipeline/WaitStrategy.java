@@ -0,0 +1,60 @@
+/**
+Copyright 2016 Siemens AG.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.siemens.industrialbenchmark.pipeline;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * How a thread of a {@link TransitionRing} waits for the other side. Busy-spinning has the lowest 
+ * latency but occupies a core, parking frees the core at the cost of a wake-up delay.
+ */
+public enum WaitStrategy {
+
+	/** re-checks immediately */
+	BUSY_SPIN {
+		@Override
+		public void idle(int attempt) {
+			// spin
+		}
+	},
+
+	/** yields the core to other runnable threads */
+	YIELD {
+		@Override
+		public void idle(int attempt) {
+			Thread.yield();
+		}
+	},
+
+	/** spins briefly, then parks the thread for short periods */
+	PARK {
+		@Override
+		public void idle(int attempt) {
+			if (attempt >= SPIN_ATTEMPTS) {
+				LockSupport.parkNanos(PARK_NANOS);
+			}
+		}
+	};
+
+	private static final int SPIN_ATTEMPTS = 100;
+	private static final long PARK_NANOS = 10000;
+
+	/**
+	 * Called repeatedly while the awaited condition does not hold.
+	 * @param attempt The number of earlier calls during the current wait, starting at 0
+	 */
+	public abstract void idle(int attempt);
+}
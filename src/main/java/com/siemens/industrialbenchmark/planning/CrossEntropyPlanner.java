@@ -0,0 +1,138 @@
+/**
+Copyright 2016 Siemens AG.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.siemens.industrialbenchmark.planning;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Cross-entropy method: samples a population of sequences from independent Gaussians, refits the 
+ * means and standard deviations to the elite sequences and repeats. The current mean is always part 
+ * of the population, so the result is never worse than the initial solution.
+ */
+public class CrossEntropyPlanner extends Planner {
+
+	private final int population;
+	private final int elites;
+	private final int iterations;
+	private final Random rand;
+	private double initialStd = 0.5;
+	private double minStd = 0.05;
+	private double smoothing = 0.2;
+
+	private final double[] mean;
+	private final double[] std;
+	private final double[] samples;
+	private final double[] returns;
+	private final int[] eliteIndices;
+
+	/**
+	 * @param evaluator The evaluator of the candidate sequences
+	 * @param horizon The number of steps of a sequence
+	 * @param population The number of sequences per iteration
+	 * @param elites The number of best sequences the distribution is refitted to
+	 * @param iterations The number of iterations per control step
+	 * @param seed The seed of the sampling
+	 */
+	public CrossEntropyPlanner(RolloutEvaluator evaluator, int horizon, int population, int elites, int iterations, long seed) {
+		super(evaluator, horizon);
+		Preconditions.checkArgument(population > 1, "population must be at least 2, but is %s", population);
+		Preconditions.checkArgument(elites > 0 && elites <= population, "elites must be in [1, %s], but is %s", population, elites);
+		Preconditions.checkArgument(iterations > 0, "iterations must be positive, but is %s", iterations);
+		this.population = population;
+		this.elites = elites;
+		this.iterations = iterations;
+		this.rand = new Random(seed);
+		this.mean = new double[dimension];
+		this.std = new double[dimension];
+		this.samples = new double[population * dimension];
+		this.returns = new double[population];
+		this.eliteIndices = new int[elites];
+	}
+
+	/**
+	 * @param initialStd The standard deviation of the sampling at the start of a control step
+	 * @param minStd The lower bound of the standard deviation
+	 * @param smoothing The weight of the previous distribution when refitting, in [0, 1)
+	 */
+	public void setSampling(double initialStd, double minStd, double smoothing) {
+		Preconditions.checkArgument(initialStd > 0 && minStd >= 0, "invalid standard deviations %s, %s", initialStd, minStd);
+		Preconditions.checkArgument(smoothing >= 0 && smoothing < 1, "smoothing must be in [0, 1), but is %s", smoothing);
+		this.initialStd = initialStd;
+		this.minStd = minStd;
+		this.smoothing = smoothing;
+	}
+
+	@Override
+	protected double optimize(double[] markovState, double[] initial, double[] bestOut) {
+		System.arraycopy(initial, 0, mean, 0, dimension);
+		Arrays.fill(std, initialStd);
+		double bestReturn = Double.NEGATIVE_INFINITY;
+
+		for (int it = 0; it < iterations; it++) {
+			System.arraycopy(mean, 0, samples, 0, dimension);
+			for (int p = 1; p < population; p++) {
+				final int offset = p * dimension;
+				for (int i = 0; i < dimension; i++) {
+					samples[offset + i] = clip(mean[i] + std[i] * rand.nextGaussian());
+				}
+			}
+			evaluator.evaluate(markovState, samples, population, horizon, getDiscount(), returns);
+
+			selectElites();
+			if (returns[eliteIndices[0]] > bestReturn) {
+				bestReturn = returns[eliteIndices[0]];
+				System.arraycopy(samples, eliteIndices[0] * dimension, bestOut, 0, dimension);
+			}
+
+			for (int i = 0; i < dimension; i++) {
+				double m = 0;
+				for (int e = 0; e < elites; e++) {
+					m += samples[eliteIndices[e] * dimension + i];
+				}
+				m /= elites;
+				double v = 0;
+				for (int e = 0; e < elites; e++) {
+					final double d = samples[eliteIndices[e] * dimension + i] - m;
+					v += d * d;
+				}
+				mean[i] = smoothing * mean[i] + (1 - smoothing) * m;
+				std[i] = Math.max(minStd, smoothing * std[i] + (1 - smoothing) * Math.sqrt(v / elites));
+			}
+		}
+		return bestReturn;
+	}
+
+	/**
+	 * Selects the indices of the best returns in descending order.
+	 */
+	private void selectElites() {
+		int count = 0;
+		for (int p = 0; p < population; p++) {
+			if (count == elites && returns[p] <= returns[eliteIndices[count - 1]]) {
+				continue;
+			}
+			int i = count < elites ? count++ : count - 1;
+			while (i > 0 && returns[eliteIndices[i - 1]] < returns[p]) {
+				eliteIndices[i] = eliteIndices[i - 1];
+				i--;
+			}
+			eliteIndices[i] = p;
+		}
+	}
+}
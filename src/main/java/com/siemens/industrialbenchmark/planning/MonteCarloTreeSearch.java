@@ -0,0 +1,425 @@
+/**
+Copyright 2016 Siemens AG.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.siemens.industrialbenchmark.planning;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.base.Preconditions;
+import com.siemens.industrialbenchmark.datavector.StateFingerprint;
+import com.siemens.industrialbenchmark.datavector.action.DiscreteActions;
+import com.siemens.industrialbenchmark.dynamics.IndustrialBenchmarkDynamics;
+import com.siemens.industrialbenchmark.dynamics.TransitionCache;
+import com.siemens.industrialbenchmark.properties.PropertiesException;
+
+/**
+ * Monte Carlo tree search over the {@link DiscreteActions#COUNT} discrete delta actions. Every node holds 
+ * the markov state in the layout of {@link IndustrialBenchmarkDynamics#markovStateInto(double[])}. Since the 
+ * random seed is part of that state, a node and an action determine the successor, and nodes reached on 
+ * different paths are merged by a transposition table keyed by the markov state. The table is kept between 
+ * searches, so the subtree below the next root is reused in closed loop, and cleared when it exceeds 
+ * {@link #setMaxTableSize(int) its size limit}.
+ * <p>
+ * A playout descends by UCT with the action values normalized per node, expands one edge and continues 
+ * with uniformly random actions up to the depth. Playouts run in parallel, one benchmark instance per 
+ * thread; an edge taken by a running playout carries a virtual loss, the worst value of its node, until 
+ * the playout is backed up. Not thread-safe.
+ */
+public class MonteCarloTreeSearch implements Closeable {
+
+	/**
+	 * A node of the search graph. The statistics of the outgoing edges are guarded by the node.
+	 */
+	static final class Node {
+		final double[] state;
+		final Node[] children = new Node[DiscreteActions.COUNT];
+		final double[] rewards = new double[DiscreteActions.COUNT];
+		final int[] visits = new int[DiscreteActions.COUNT];
+		final int[] virtual = new int[DiscreteActions.COUNT];
+		/** sums of the discounted returns of the edges, including the reward of the edge */
+		final double[] values = new double[DiscreteActions.COUNT];
+		int totalVisits;
+
+		Node(double[] state) {
+			this.state = state;
+		}
+	}
+
+	/**
+	 * Key of the transposition table: the markov state with its {@link StateFingerprint#EXACT exact fingerprint}.
+	 */
+	static final class StateKey {
+		final double[] state;
+		final long fingerprint;
+
+		StateKey(double[] state, long fingerprint) {
+			this.state = state;
+			this.fingerprint = fingerprint;
+		}
+
+		@Override
+		public int hashCode() {
+			return (int) (fingerprint ^ (fingerprint >>> 32));
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof StateKey)) {
+				return false;
+			}
+			StateKey other = (StateKey) obj;
+			return fingerprint == other.fingerprint && Arrays.equals(state, other.state);
+		}
+	}
+
+	private final IndustrialBenchmarkDynamics[] envs;
+	private final Random[] randoms;
+	private final ExecutorService executor;
+	private final int depth;
+	private final double discount;
+	private final ConcurrentHashMap<StateKey, Node> table = new ConcurrentHashMap<StateKey, Node>();
+	private final AtomicLong transpositions = new AtomicLong();
+
+	private double exploration = 1.0;
+	private int virtualLoss = 1;
+	private int maxTableSize = 1 << 18;
+	private Node root;
+
+	/**
+	 * @param props The configuration of the benchmark
+	 * @param threads The number of threads running playouts
+	 * @param depth The number of steps of a playout, in the tree and beyond
+	 * @param discount The discount factor of the rewards
+	 * @param seed The seed of the random choices
+	 * @throws PropertiesException
+	 */
+	public MonteCarloTreeSearch(Properties props, int threads, int depth, double discount, long seed) throws PropertiesException {
+		Preconditions.checkArgument(threads > 0, "threads must be positive, but is %s", threads);
+		Preconditions.checkArgument(depth > 0, "depth must be positive, but is %s", depth);
+		Preconditions.checkArgument(discount > 0 && discount <= 1, "discount must be in (0, 1], but is %s", discount);
+		this.depth = depth;
+		this.discount = discount;
+		this.envs = new IndustrialBenchmarkDynamics[threads];
+		this.randoms = new Random[threads];
+		for (int i = 0; i < threads; i++) {
+			envs[i] = new IndustrialBenchmarkDynamics(props);
+			randoms[i] = new Random(seed + i);
+		}
+		final AtomicInteger count = new AtomicInteger();
+		this.executor = threads == 1 ? null : Executors.newFixedThreadPool(threads - 1, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "playout-" + count.incrementAndGet());
+				t.setDaemon(true);
+				return t;
+			}
+		});
+	}
+
+	/**
+	 * @param exploration The UCT exploration constant, applied to action values normalized to [0, 1]
+	 */
+	public void setExploration(double exploration) {
+		Preconditions.checkArgument(exploration >= 0, "exploration must not be negative, but is %s", exploration);
+		this.exploration = exploration;
+	}
+
+	/**
+	 * @param virtualLoss The number of virtual visits an edge gets while a playout passes it
+	 */
+	public void setVirtualLoss(int virtualLoss) {
+		Preconditions.checkArgument(virtualLoss >= 0, "virtualLoss must not be negative, but is %s", virtualLoss);
+		this.virtualLoss = virtualLoss;
+	}
+
+	/**
+	 * @param maxTableSize The number of nodes above which the transposition table is cleared before a search
+	 */
+	public void setMaxTableSize(int maxTableSize) {
+		Preconditions.checkArgument(maxTableSize > 0, "maxTableSize must be positive, but is %s", maxTableSize);
+		this.maxTableSize = maxTableSize;
+	}
+
+	/**
+	 * Memoizes the transitions of the playouts in a cache shared by all threads, see 
+	 * {@link IndustrialBenchmarkDynamics#setTransitionCache(TransitionCache)}.
+	 * @param cache The cache, null to simulate every step
+	 */
+	public void setTransitionCache(TransitionCache cache) {
+		for (IndustrialBenchmarkDynamics env : envs) {
+			env.setTransitionCache(cache);
+		}
+	}
+
+	/**
+	 * @return the length of the markov state arrays accepted as root states
+	 */
+	public int getStateSize() {
+		return envs[0].getInternalMarkovState().getKeys().size();
+	}
+
+	/**
+	 * @return the number of nodes in the transposition table
+	 */
+	public int getTableSize() {
+		return table.size();
+	}
+
+	/**
+	 * @return the number of expansions that found their successor in the transposition table
+	 */
+	public long getTranspositions() {
+		return transpositions.get();
+	}
+
+	/**
+	 * Discards the transposition table.
+	 */
+	public void clear() {
+		table.clear();
+		root = null;
+	}
+
+	/**
+	 * Runs the playouts from the given state.
+	 * @param markovState The root state, as written by {@link IndustrialBenchmarkDynamics#markovStateInto(double[])}
+	 * @param playouts The number of playouts
+	 * @return the index of the most visited root action, see {@link DiscreteActions}
+	 */
+	public int search(double[] markovState, final int playouts) {
+		Preconditions.checkArgument(markovState.length == getStateSize(), "expected a state of length %s, but got %s", getStateSize(), markovState.length);
+		Preconditions.checkArgument(playouts > 0, "playouts must be positive, but is %s", playouts);
+		if (table.size() > maxTableSize) {
+			table.clear();
+		}
+		root = node(markovState.clone(), StateFingerprint.EXACT.of(markovState));
+
+		final AtomicInteger remaining = new AtomicInteger(playouts);
+		List<Future<?>> futures = new ArrayList<Future<?>>(envs.length - 1);
+		for (int i = 1; i < envs.length; i++) {
+			final int worker = i;
+			futures.add(executor.submit(new Callable<Void>() {
+				@Override
+				public Void call() {
+					playouts(worker, remaining);
+					return null;
+				}
+			}));
+		}
+		playouts(0, remaining);
+		try {
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("interrupted while running playouts", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("playout failed", e.getCause());
+		}
+		return getBestAction();
+	}
+
+	/**
+	 * @return the most visited action of the last search, the one with the higher value on ties
+	 */
+	public int getBestAction() {
+		Preconditions.checkState(root != null, "no search has been run");
+		synchronized (root) {
+			int best = 0;
+			for (int a = 1; a < DiscreteActions.COUNT; a++) {
+				if (root.visits[a] > root.visits[best] || (root.visits[a] == root.visits[best] && root.visits[a] > 0
+						&& root.values[a] / root.visits[a] > root.values[best] / root.visits[best])) {
+					best = a;
+				}
+			}
+			return best;
+		}
+	}
+
+	/**
+	 * @param action The index of a root action
+	 * @return the number of visits of the action in the last search, including earlier searches from the same state
+	 */
+	public int getRootVisits(int action) {
+		Preconditions.checkState(root != null, "no search has been run");
+		synchronized (root) {
+			return root.visits[action];
+		}
+	}
+
+	/**
+	 * @param action The index of a root action
+	 * @return the mean discounted return of the action, NaN if it has not been visited
+	 */
+	public double getRootValue(int action) {
+		Preconditions.checkState(root != null, "no search has been run");
+		synchronized (root) {
+			return root.visits[action] == 0 ? Double.NaN : root.values[action] / root.visits[action];
+		}
+	}
+
+	private void playouts(int worker, AtomicInteger remaining) {
+		final IndustrialBenchmarkDynamics env = envs[worker];
+		final Random random = randoms[worker];
+		final Node[] nodes = new Node[depth];
+		final int[] actions = new int[depth];
+		final double[] rewards = new double[depth];
+		while (remaining.getAndDecrement() > 0) {
+			playout(env, random, nodes, actions, rewards);
+		}
+	}
+
+	private void playout(IndustrialBenchmarkDynamics env, Random random, Node[] nodes, int[] actions, double[] rewards) {
+		Node node = root;
+		double tail = 0;
+		int d = 0;
+		while (d < depth) {
+			final int a;
+			Node child;
+			synchronized (node) {
+				a = select(node, random);
+				node.virtual[a] += virtualLoss;
+				child = node.children[a];
+				rewards[d] = node.rewards[a];
+			}
+			nodes[d] = node;
+			actions[d] = a;
+			if (child == null) {
+				env.restore(node.state);
+				double reward = env.step(DiscreteActions.deltaVelocity(a), DiscreteActions.deltaGain(a), DiscreteActions.deltaShift(a), null);
+				double[] successor = new double[node.state.length];
+				env.markovStateInto(successor);
+				child = node(successor, env.fingerprint());
+				synchronized (node) {
+					if (node.children[a] == null) {
+						node.children[a] = child;
+						node.rewards[a] = reward;
+					}
+				}
+				rewards[d++] = reward;
+				tail = rollout(env, random, depth - d);
+				break;
+			}
+			node = child;
+			d++;
+		}
+
+		// back up the discounted returns and remove the virtual losses
+		double value = tail;
+		for (int i = d - 1; i >= 0; i--) {
+			value = rewards[i] + discount * value;
+			Node n = nodes[i];
+			synchronized (n) {
+				n.visits[actions[i]]++;
+				n.values[actions[i]] += value;
+				n.virtual[actions[i]] -= virtualLoss;
+				n.totalVisits++;
+			}
+		}
+	}
+
+	/**
+	 * Picks an untried action in random order, otherwise the action with the highest UCT score. 
+	 * Must be called while holding the lock of the node.
+	 */
+	private int select(Node node, Random random) {
+		final int offset = random.nextInt(DiscreteActions.COUNT);
+		for (int k = 0; k < DiscreteActions.COUNT; k++) {
+			int a = (offset + k) % DiscreteActions.COUNT;
+			if (node.visits[a] + node.virtual[a] == 0) {
+				return a;
+			}
+		}
+
+		double min = Double.POSITIVE_INFINITY;
+		double max = Double.NEGATIVE_INFINITY;
+		int pending = 0;
+		for (int a = 0; a < DiscreteActions.COUNT; a++) {
+			pending += node.virtual[a];
+			if (node.visits[a] > 0) {
+				double q = node.values[a] / node.visits[a];
+				min = Math.min(min, q);
+				max = Math.max(max, q);
+			}
+		}
+		if (min > max) {
+			// all edges are only pending
+			min = max = 0;
+		}
+		final double range = max - min;
+		final double logTotal = Math.log(node.totalVisits + pending);
+		int best = 0;
+		double bestScore = Double.NEGATIVE_INFINITY;
+		for (int a = 0; a < DiscreteActions.COUNT; a++) {
+			final int n = node.visits[a] + node.virtual[a];
+			final double q = (node.values[a] + node.virtual[a] * min) / n;
+			final double normalized = range > 0 ? (q - min) / range : 0.5;
+			final double score = normalized + exploration * Math.sqrt(logTotal / n);
+			if (score > bestScore) {
+				bestScore = score;
+				best = a;
+			}
+		}
+		return best;
+	}
+
+	private double rollout(IndustrialBenchmarkDynamics env, Random random, int steps) {
+		double sum = 0;
+		double weight = 1;
+		for (int t = 0; t < steps; t++) {
+			int a = random.nextInt(DiscreteActions.COUNT);
+			sum += weight * env.step(DiscreteActions.deltaVelocity(a), DiscreteActions.deltaGain(a), DiscreteActions.deltaShift(a), null);
+			weight *= discount;
+		}
+		return sum;
+	}
+
+	/**
+	 * @return the node of the state from the transposition table, a new node if there is none
+	 */
+	private Node node(double[] state, long fingerprint) {
+		StateKey key = new StateKey(state, fingerprint);
+		Node node = table.get(key);
+		if (node != null) {
+			transpositions.incrementAndGet();
+			return node;
+		}
+		Node created = new Node(state);
+		node = table.putIfAbsent(key, created);
+		return node == null ? created : node;
+	}
+
+	@Override
+	public void close() {
+		if (executor != null) {
+			executor.shutdownNow();
+		}
+	}
+}
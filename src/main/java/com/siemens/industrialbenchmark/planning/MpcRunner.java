@@ -0,0 +1,180 @@
+/**
+Copyright 2016 Siemens AG.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.siemens.industrialbenchmark.planning;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Properties;
+
+import org.HdrHistogram.Histogram;
+
+import com.beust.jcommander.JCommander;
+import com.beust.jcommander.Parameter;
+import com.siemens.industrialbenchmark.datavector.action.DiscreteActions;
+import com.siemens.industrialbenchmark.dynamics.IndustrialBenchmarkDynamics;
+import com.siemens.industrialbenchmark.dynamics.TransitionCache;
+import com.siemens.industrialbenchmark.properties.PropertiesException;
+import com.siemens.industrialbenchmark.properties.PropertiesUtil;
+
+/**
+ * Controls the benchmark with a {@link Planner} in closed loop and reports the rewards and the 
+ * planning time per control step.
+ * <p>
+ * Example: {@code java ... MpcRunner --planner cem --horizon 20 --particles 64 --iterations 5 --steps 200}
+ * <p>
+ * With {@code --planner mcts} the discrete actions are searched by {@link MonteCarloTreeSearch} with 
+ * the horizon as playout depth.
+ */
+public class MpcRunner {
+
+	/**
+	 * Command line options of the runner.
+	 */
+	public static class Options {
+		@Parameter(names = "--config", description = "Properties file of the benchmark")
+		public String config = "src/main/resources/sim.properties";
+
+		@Parameter(names = "--planner", description = "Optimizer: cem, pso or mcts")
+		public String planner = "cem";
+
+		@Parameter(names = "--horizon", description = "Number of planned steps")
+		public int horizon = 20;
+
+		@Parameter(names = "--particles", description = "Number of particles (pso) or population size (cem)")
+		public int particles = 64;
+
+		@Parameter(names = "--elites", description = "Number of elite sequences (cem)")
+		public int elites = 8;
+
+		@Parameter(names = "--iterations", description = "Number of iterations per control step")
+		public int iterations = 5;
+
+		@Parameter(names = "--playouts", description = "Number of playouts per control step (mcts)")
+		public int playouts = 2000;
+
+		@Parameter(names = "--cache", description = "Number of memoized transitions, 0 to simulate every step")
+		public int cache = 0;
+
+		@Parameter(names = "--trie", description = "Number of rollout snapshots shared by action prefix (cem, pso), 0 to simulate every rollout")
+		public int trie = 0;
+
+		@Parameter(names = "--threads", description = "Number of threads evaluating the rollouts")
+		public int threads = Runtime.getRuntime().availableProcessors();
+
+		@Parameter(names = "--steps", description = "Number of control steps")
+		public int steps = 200;
+
+		@Parameter(names = "--seed", description = "Seed of the benchmark and the planner")
+		public long seed = 1;
+
+		@Parameter(names = "--help", help = true, description = "Prints the usage")
+		public boolean help = false;
+	}
+
+	/**
+	 * @param options The options
+	 * @return a planner evaluating its rollouts with the evaluator
+	 */
+	static Planner newPlanner(Options options, RolloutEvaluator evaluator) {
+		if ("cem".equals(options.planner)) {
+			return new CrossEntropyPlanner(evaluator, options.horizon, options.particles, options.elites, options.iterations, options.seed);
+		} else if ("pso".equals(options.planner)) {
+			return new ParticleSwarmPlanner(evaluator, options.horizon, options.particles, options.iterations, options.seed);
+		}
+		throw new IllegalArgumentException("unknown planner: " + options.planner);
+	}
+
+	/**
+	 * Runs the closed loop from the command line.
+	 * @param args see {@link Options}
+	 * @throws IOException
+	 * @throws PropertiesException
+	 */
+	public static void main(String[] args) throws IOException, PropertiesException {
+		Options options = new Options();
+		JCommander jc = new JCommander(options, args);
+		if (options.help) {
+			jc.usage();
+			return;
+		}
+
+		Properties props = PropertiesUtil.setpointProperties(new File(options.config));
+		IndustrialBenchmarkDynamics env = new IndustrialBenchmarkDynamics(props);
+		env.reset(options.seed);
+		if ("mcts".equals(options.planner)) {
+			runTreeSearch(options, props, env);
+			return;
+		}
+		try (RolloutEvaluator evaluator = new RolloutEvaluator(props, options.threads)) {
+			TransitionCache cache = newCache(options, evaluator.getStateSize());
+			evaluator.setTransitionCache(cache);
+			RolloutTrie trie = options.trie > 0 ? new RolloutTrie(options.trie) : null;
+			evaluator.setRolloutTrie(trie);
+			Planner planner = newPlanner(options, evaluator);
+			double[] state = new double[evaluator.getStateSize()];
+			double[] action = new double[RolloutEvaluator.ACTION_SIZE];
+			double total = 0;
+			for (int i = 0; i < options.steps; i++) {
+				env.markovStateInto(state);
+				planner.plan(state, action);
+				double reward = env.step(action[0], action[1], action[2], null);
+				total += reward;
+				System.out.printf("step %d: reward %.2f, planning %.2f ms%n", i + 1, reward, planner.getLastPlanningNanos() / 1e6);
+			}
+
+			Histogram planning = planner.getPlanningTime();
+			System.out.printf("mean reward %.2f%n", total / options.steps);
+			System.out.printf("planning time per control step [ms]: p50 %.2f, p99 %.2f, max %.2f%n",
+					planning.getValueAtPercentile(50) / 1e6, planning.getValueAtPercentile(99) / 1e6, planning.getMaxValue() / 1e6);
+			if (cache != null) {
+				System.out.println(cache);
+			}
+			if (trie != null) {
+				System.out.println(trie);
+			}
+		}
+	}
+
+	private static void runTreeSearch(Options options, Properties props, IndustrialBenchmarkDynamics env) throws PropertiesException {
+		try (MonteCarloTreeSearch search = new MonteCarloTreeSearch(props, options.threads, options.horizon, 1.0, options.seed)) {
+			TransitionCache cache = newCache(options, search.getStateSize());
+			search.setTransitionCache(cache);
+			Histogram planning = new Histogram(Planner.SIGNIFICANT_DIGITS);
+			double[] state = new double[search.getStateSize()];
+			double total = 0;
+			for (int i = 0; i < options.steps; i++) {
+				env.markovStateInto(state);
+				long start = System.nanoTime();
+				int a = search.search(state, options.playouts);
+				long nanos = System.nanoTime() - start;
+				planning.recordValue(nanos);
+				double reward = env.step(DiscreteActions.deltaVelocity(a), DiscreteActions.deltaGain(a), DiscreteActions.deltaShift(a), null);
+				total += reward;
+				System.out.printf("step %d: reward %.2f, planning %.2f ms, %d nodes%n", i + 1, reward, nanos / 1e6, search.getTableSize());
+			}
+			System.out.printf("mean reward %.2f%n", total / options.steps);
+			System.out.printf("planning time per control step [ms]: p50 %.2f, p99 %.2f, max %.2f%n",
+					planning.getValueAtPercentile(50) / 1e6, planning.getValueAtPercentile(99) / 1e6, planning.getMaxValue() / 1e6);
+			if (cache != null) {
+				System.out.println(cache);
+			}
+		}
+	}
+
+	private static TransitionCache newCache(Options options, int stateSize) {
+		return options.cache > 0 ? new TransitionCache(stateSize, options.cache, TransitionCache.Eviction.CLOCK) : null;
+	}
+}
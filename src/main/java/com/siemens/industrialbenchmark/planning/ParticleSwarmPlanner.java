@@ -0,0 +1,127 @@
+/**
+Copyright 2016 Siemens AG.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.siemens.industrialbenchmark.planning;
+
+import java.util.Random;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Particle swarm optimization with inertia weight. The first particle starts at the initial solution, 
+ * the others are spread uniformly over [-1, 1], so the result is never worse than the initial solution.
+ */
+public class ParticleSwarmPlanner extends Planner {
+
+	private final int particles;
+	private final int iterations;
+	private final Random rand;
+	private double inertia = 0.7298;
+	private double cognitive = 1.49618;
+	private double social = 1.49618;
+	private double maxVelocity = 1.0;
+
+	private final double[] positions;
+	private final double[] velocities;
+	private final double[] personalBest;
+	private final double[] personalBestReturns;
+	private final double[] returns;
+
+	/**
+	 * @param evaluator The evaluator of the candidate sequences
+	 * @param horizon The number of steps of a sequence
+	 * @param particles The number of particles
+	 * @param iterations The number of iterations per control step
+	 * @param seed The seed of the swarm
+	 */
+	public ParticleSwarmPlanner(RolloutEvaluator evaluator, int horizon, int particles, int iterations, long seed) {
+		super(evaluator, horizon);
+		Preconditions.checkArgument(particles > 0, "particles must be positive, but is %s", particles);
+		Preconditions.checkArgument(iterations > 0, "iterations must be positive, but is %s", iterations);
+		this.particles = particles;
+		this.iterations = iterations;
+		this.rand = new Random(seed);
+		this.positions = new double[particles * dimension];
+		this.velocities = new double[particles * dimension];
+		this.personalBest = new double[particles * dimension];
+		this.personalBestReturns = new double[particles];
+		this.returns = new double[particles];
+	}
+
+	/**
+	 * @param inertia The weight of the previous velocity
+	 * @param cognitive The attraction to the particle's own best position
+	 * @param social The attraction to the best position of the swarm
+	 * @param maxVelocity The bound of every velocity component
+	 */
+	public void setCoefficients(double inertia, double cognitive, double social, double maxVelocity) {
+		Preconditions.checkArgument(maxVelocity > 0, "maxVelocity must be positive, but is %s", maxVelocity);
+		this.inertia = inertia;
+		this.cognitive = cognitive;
+		this.social = social;
+		this.maxVelocity = maxVelocity;
+	}
+
+	@Override
+	protected double optimize(double[] markovState, double[] initial, double[] bestOut) {
+		System.arraycopy(initial, 0, positions, 0, dimension);
+		for (int i = dimension; i < positions.length; i++) {
+			positions[i] = 2 * rand.nextDouble() - 1;
+		}
+		for (int i = 0; i < velocities.length; i++) {
+			velocities[i] = maxVelocity * (2 * rand.nextDouble() - 1);
+		}
+		evaluator.evaluate(markovState, positions, particles, horizon, getDiscount(), returns);
+		System.arraycopy(positions, 0, personalBest, 0, positions.length);
+		System.arraycopy(returns, 0, personalBestReturns, 0, particles);
+		int globalBest = argmax(personalBestReturns);
+
+		for (int it = 1; it < iterations; it++) {
+			final int g = globalBest * dimension;
+			for (int p = 0; p < particles; p++) {
+				final int offset = p * dimension;
+				for (int i = 0; i < dimension; i++) {
+					double v = inertia * velocities[offset + i]
+							+ cognitive * rand.nextDouble() * (personalBest[offset + i] - positions[offset + i])
+							+ social * rand.nextDouble() * (personalBest[g + i] - positions[offset + i]);
+					v = Math.max(-maxVelocity, Math.min(maxVelocity, v));
+					velocities[offset + i] = v;
+					positions[offset + i] = clip(positions[offset + i] + v);
+				}
+			}
+			evaluator.evaluate(markovState, positions, particles, horizon, getDiscount(), returns);
+			for (int p = 0; p < particles; p++) {
+				if (returns[p] > personalBestReturns[p]) {
+					personalBestReturns[p] = returns[p];
+					System.arraycopy(positions, p * dimension, personalBest, p * dimension, dimension);
+				}
+			}
+			globalBest = argmax(personalBestReturns);
+		}
+
+		System.arraycopy(personalBest, globalBest * dimension, bestOut, 0, dimension);
+		return personalBestReturns[globalBest];
+	}
+
+	private static int argmax(double[] values) {
+		int best = 0;
+		for (int i = 1; i < values.length; i++) {
+			if (values[i] > values[best]) {
+				best = i;
+			}
+		}
+		return best;
+	}
+}
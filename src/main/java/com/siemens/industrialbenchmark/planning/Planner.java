@@ -0,0 +1,151 @@
+/**
+Copyright 2016 Siemens AG.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.siemens.industrialbenchmark.planning;
+
+import static com.siemens.industrialbenchmark.planning.RolloutEvaluator.ACTION_SIZE;
+
+import java.util.Arrays;
+
+import org.HdrHistogram.Histogram;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Model predictive control: optimizes a sequence of delta actions over a horizon by rolling it out 
+ * on the benchmark itself and returns its first action. The action components are searched in 
+ * [-1, 1]. By default, the optimization starts from the best sequence of the previous control step, 
+ * shifted by one step. The duration of every {@link #plan} call is recorded as the planning time 
+ * of the control step.
+ */
+public abstract class Planner {
+
+	static final int SIGNIFICANT_DIGITS = 3;
+
+	protected final RolloutEvaluator evaluator;
+	protected final int horizon;
+	protected final int dimension;
+	private double discount = 1;
+	private boolean warmStart = true;
+	/** the initial solution of the next optimization */
+	private final double[] initial;
+	private final double[] best;
+	private double bestReturn;
+	private final Histogram planningTime = new Histogram(SIGNIFICANT_DIGITS);
+	private long lastPlanningNanos;
+
+	/**
+	 * @param evaluator The evaluator of the candidate sequences
+	 * @param horizon The number of steps of a sequence
+	 */
+	protected Planner(RolloutEvaluator evaluator, int horizon) {
+		Preconditions.checkArgument(horizon > 0, "horizon must be positive, but is %s", horizon);
+		this.evaluator = Preconditions.checkNotNull(evaluator);
+		this.horizon = horizon;
+		this.dimension = horizon * ACTION_SIZE;
+		this.initial = new double[dimension];
+		this.best = new double[dimension];
+	}
+
+	/**
+	 * @param discount The discount factor of the rewards within the horizon
+	 */
+	public void setDiscount(double discount) {
+		Preconditions.checkArgument(discount > 0 && discount <= 1, "discount must be in (0, 1], but is %s", discount);
+		this.discount = discount;
+	}
+
+	public double getDiscount() {
+		return discount;
+	}
+
+	/**
+	 * @param warmStart true to start from the shifted solution of the previous control step, false to start from zero actions
+	 */
+	public void setWarmStart(boolean warmStart) {
+		this.warmStart = warmStart;
+		if (!warmStart) {
+			Arrays.fill(initial, 0);
+		}
+	}
+
+	/**
+	 * Forgets the previous solution, e.g. at the start of an episode.
+	 */
+	public void reset() {
+		Arrays.fill(initial, 0);
+	}
+
+	/**
+	 * Plans from a state.
+	 * @param markovState The current state, as written by {@code markovStateInto}
+	 * @param actionOut receives the first action of the best sequence
+	 * @return the return of the best sequence
+	 */
+	public double plan(double[] markovState, double[] actionOut) {
+		final long start = System.nanoTime();
+		bestReturn = optimize(markovState, initial, best);
+		System.arraycopy(best, 0, actionOut, 0, ACTION_SIZE);
+		if (warmStart) {
+			// shift by one step and repeat the last action
+			System.arraycopy(best, ACTION_SIZE, initial, 0, dimension - ACTION_SIZE);
+			System.arraycopy(best, dimension - ACTION_SIZE, initial, dimension - ACTION_SIZE, ACTION_SIZE);
+		}
+		lastPlanningNanos = System.nanoTime() - start;
+		planningTime.recordValue(lastPlanningNanos);
+		return bestReturn;
+	}
+
+	/**
+	 * Searches the best sequence.
+	 * @param markovState The start state of the rollouts
+	 * @param initial The initial solution; must not be modified
+	 * @param bestOut receives the best sequence found
+	 * @return the return of the best sequence
+	 */
+	protected abstract double optimize(double[] markovState, double[] initial, double[] bestOut);
+
+	/**
+	 * @return the best sequence of the last {@link #plan} call
+	 */
+	public double[] getPlan() {
+		return best.clone();
+	}
+
+	/**
+	 * @return the return of the best sequence of the last {@link #plan} call
+	 */
+	public double getPlanReturn() {
+		return bestReturn;
+	}
+
+	/**
+	 * @return the duration of the last {@link #plan} call in nanoseconds
+	 */
+	public long getLastPlanningNanos() {
+		return lastPlanningNanos;
+	}
+
+	/**
+	 * @return a copy of the histogram of the durations of all {@link #plan} calls in nanoseconds
+	 */
+	public Histogram getPlanningTime() {
+		return planningTime.copy();
+	}
+
+	static double clip(double value) {
+		return value < -1 ? -1 : (value > 1 ? 1 : value);
+	}
+}
@@ -0,0 +1,215 @@
+/**
+Copyright 2016 Siemens AG.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.siemens.industrialbenchmark.planning;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.base.Preconditions;
+import com.siemens.industrialbenchmark.dynamics.IndustrialBenchmarkDynamics;
+import com.siemens.industrialbenchmark.dynamics.TransitionCache;
+import com.siemens.industrialbenchmark.properties.PropertiesException;
+
+/**
+ * Evaluates batches of action sequences by rolling them out from a shared start state. The batch is 
+ * split into one chunk per thread, and every thread restores its own benchmark instance to the start 
+ * state before each rollout. Since the random seed is part of the markov state, a rollout is a 
+ * deterministic function of the start state and the actions.
+ * <p>
+ * Actions are laid out as {@code actions[(particle * horizon + t) * 3 + c]} with the components 
+ * deltaVelocity, deltaGain and deltaShift. Not thread-safe.
+ */
+public class RolloutEvaluator implements Closeable {
+
+	/** the number of components of an action */
+	public static final int ACTION_SIZE = 3;
+
+	private final IndustrialBenchmarkDynamics[] envs;
+	private final ExecutorService executor;
+	private volatile RolloutTrie trie;
+
+	/**
+	 * @param props The configuration of the benchmark
+	 * @param threads The number of threads evaluating a batch
+	 * @throws PropertiesException
+	 */
+	public RolloutEvaluator(Properties props, int threads) throws PropertiesException {
+		Preconditions.checkArgument(threads > 0, "threads must be positive, but is %s", threads);
+		this.envs = new IndustrialBenchmarkDynamics[threads];
+		for (int i = 0; i < threads; i++) {
+			envs[i] = new IndustrialBenchmarkDynamics(props);
+		}
+		final AtomicInteger count = new AtomicInteger();
+		this.executor = threads == 1 ? null : Executors.newFixedThreadPool(threads - 1, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "rollout-" + count.incrementAndGet());
+				t.setDaemon(true);
+				return t;
+			}
+		});
+	}
+
+	/**
+	 * @return the number of threads evaluating a batch
+	 */
+	public int getThreadCount() {
+		return envs.length;
+	}
+
+	/**
+	 * Memoizes the transitions of the rollouts in a cache shared by all threads, see 
+	 * {@link IndustrialBenchmarkDynamics#setTransitionCache(TransitionCache)}.
+	 * @param cache The cache, null to simulate every step
+	 */
+	public void setTransitionCache(TransitionCache cache) {
+		for (IndustrialBenchmarkDynamics env : envs) {
+			env.setTransitionCache(cache);
+		}
+	}
+
+	/**
+	 * Resumes rollouts from the snapshots of their longest simulated action prefix. The returns are the 
+	 * same as without the trie.
+	 * @param trie The snapshots, null to simulate every rollout from the start state
+	 */
+	public void setRolloutTrie(RolloutTrie trie) {
+		this.trie = trie;
+	}
+
+	/**
+	 * @return the length of the markov state arrays accepted as start states
+	 */
+	public int getStateSize() {
+		return envs[0].getInternalMarkovState().getKeys().size();
+	}
+
+	/**
+	 * Rolls out every action sequence from the start state.
+	 * @param start The start state, as written by {@link IndustrialBenchmarkDynamics#markovStateInto(double[])}
+	 * @param actions The action sequences of all particles
+	 * @param particles The number of particles
+	 * @param horizon The number of steps per sequence
+	 * @param discount The discount factor of the rewards
+	 * @param returnsOut receives the discounted sum of the rewards of every particle
+	 */
+	public void evaluate(final double[] start, final double[] actions, final int particles, final int horizon,
+			final double discount, final double[] returnsOut) {
+		Preconditions.checkArgument(particles > 0 && horizon > 0, "invalid batch of %s particles and horizon %s", particles, horizon);
+		Preconditions.checkArgument(actions.length >= particles * horizon * ACTION_SIZE, "actions holds less than %s particles", particles);
+		Preconditions.checkArgument(returnsOut.length >= particles, "returnsOut holds less than %s values", particles);
+
+		final RolloutTrie trie = this.trie;
+		final int chunks = Math.min(envs.length, particles);
+		final int chunkSize = (particles + chunks - 1) / chunks;
+		if (chunks == 1) {
+			rollout(envs[0], trie, start, actions, 0, particles, horizon, discount, returnsOut);
+			return;
+		}
+		List<Future<?>> futures = new ArrayList<Future<?>>(chunks - 1);
+		for (int c = 1; c < chunks; c++) {
+			final IndustrialBenchmarkDynamics env = envs[c];
+			final int from = c * chunkSize;
+			final int to = Math.min(particles, from + chunkSize);
+			futures.add(executor.submit(new Callable<Void>() {
+				@Override
+				public Void call() {
+					rollout(env, trie, start, actions, from, to, horizon, discount, returnsOut);
+					return null;
+				}
+			}));
+		}
+		rollout(envs[0], trie, start, actions, 0, Math.min(particles, chunkSize), horizon, discount, returnsOut);
+		try {
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("interrupted while evaluating rollouts", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("rollout failed", e.getCause());
+		}
+	}
+
+	private static void rollout(IndustrialBenchmarkDynamics env, RolloutTrie trie, double[] start, double[] actions, int from, int to,
+			int horizon, double discount, double[] returnsOut) {
+		if (trie != null) {
+			resume(env, trie, start, actions, from, to, horizon, discount, returnsOut);
+			return;
+		}
+		for (int p = from; p < to; p++) {
+			env.restore(start);
+			int a = p * horizon * ACTION_SIZE;
+			double sum = 0;
+			double weight = 1;
+			for (int t = 0; t < horizon; t++, a += ACTION_SIZE) {
+				sum += weight * env.step(actions[a], actions[a + 1], actions[a + 2], null);
+				weight *= discount;
+			}
+			returnsOut[p] = sum;
+		}
+	}
+
+	/**
+	 * Rolls out like {@link #rollout}, but starts every particle at its longest cached prefix and adds 
+	 * the snapshots of the simulated steps to the trie.
+	 */
+	private static void resume(IndustrialBenchmarkDynamics env, RolloutTrie trie, double[] start, double[] actions, int from, int to,
+			int horizon, double discount, double[] returnsOut) {
+		final RolloutTrie.Node[] path = new RolloutTrie.Node[horizon];
+		for (int p = from; p < to; p++) {
+			RolloutTrie.Node node = trie.begin(start);
+			int a = p * horizon * ACTION_SIZE;
+			final int cached = trie.descend(node, actions, a, horizon, path);
+			double sum = 0;
+			double weight = 1;
+			for (int t = 0; t < cached; t++, a += ACTION_SIZE) {
+				sum += weight * path[t].reward;
+				weight *= discount;
+			}
+			if (cached < horizon) {
+				if (cached > 0) {
+					node = path[cached - 1];
+				}
+				env.restore(node.state);
+				for (int t = cached; t < horizon; t++, a += ACTION_SIZE) {
+					double reward = env.step(actions[a], actions[a + 1], actions[a + 2], null);
+					sum += weight * reward;
+					weight *= discount;
+					node = trie.add(node, actions[a], actions[a + 1], actions[a + 2], reward, env);
+				}
+			}
+			returnsOut[p] = sum;
+		}
+	}
+
+	@Override
+	public void close() {
+		if (executor != null) {
+			executor.shutdownNow();
+		}
+	}
+}
@@ -0,0 +1,290 @@
+/**
+Copyright 2016 Siemens AG.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.siemens.industrialbenchmark.planning;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+
+import com.google.common.base.Preconditions;
+import com.siemens.industrialbenchmark.datavector.StateFingerprint;
+import com.siemens.industrialbenchmark.dynamics.IndustrialBenchmarkDynamics;
+
+/**
+ * Snapshots of rollouts, keyed by the start state and the action prefix. A node holds the markov state 
+ * after its prefix and the reward of its last action, so a rollout whose first actions were already 
+ * simulated resumes from the snapshot of the deepest cached prefix, see 
+ * {@link RolloutEvaluator#setRolloutTrie(RolloutTrie)}. Actions are compared by their bit patterns.
+ * <p>
+ * Every node is indexed by the fingerprint of its state, so a prefix simulated from one control step is 
+ * found again from the next one: the successor of the executed action is a node of the previous trie. 
+ * When the trie holds more than its maximum number of nodes, the quarter that was used least recently 
+ * is evicted. Since a rollout marks its whole path, a node is never used more recently than its parent 
+ * within a rollout and cold branches are evicted as a whole. The root of an earlier control step is 
+ * evicted before the current root that descends from it. Thread-safe.
+ */
+public final class RolloutTrie {
+
+	/**
+	 * A node of the trie. All fields but the snapshot are guarded by the trie.
+	 */
+	static final class Node {
+		final double[] state;
+		final double reward;
+		final long velocity;
+		final long gain;
+		final long shift;
+		Node firstChild;
+		Node nextSibling;
+		long lastUsed;
+		boolean evicted;
+
+		Node(double[] state, double reward, long velocity, long gain, long shift) {
+			this.state = state;
+			this.reward = reward;
+			this.velocity = velocity;
+			this.gain = gain;
+			this.shift = shift;
+		}
+	}
+
+	private final int maxNodes;
+	private final List<Node> nodes = new ArrayList<Node>();
+	private final HashMap<Long, Node> index = new HashMap<Long, Node>();
+	private long clock;
+
+	private long reusedSteps;
+	private long simulatedSteps;
+	private long evictions;
+
+	/**
+	 * @param maxNodes The maximum number of snapshots
+	 */
+	public RolloutTrie(int maxNodes) {
+		Preconditions.checkArgument(maxNodes > 0, "maxNodes must be positive, but is %s", maxNodes);
+		this.maxNodes = maxNodes;
+	}
+
+	/**
+	 * Starts a rollout.
+	 * @param start The start state in the layout of {@link IndustrialBenchmarkDynamics#markovStateInto(double[])}
+	 * @return the node of the start state, a new root if no node has the state
+	 */
+	synchronized Node begin(double[] start) {
+		final long stamp = ++clock;
+		final long fingerprint = StateFingerprint.EXACT.of(start);
+		Node node = index.get(fingerprint);
+		if (node == null || !Arrays.equals(node.state, start)) {
+			node = new Node(start.clone(), 0, 0, 0, 0);
+			register(node, fingerprint);
+		}
+		node.lastUsed = stamp;
+		return node;
+	}
+
+	/**
+	 * Descends along the actions as far as they are cached.
+	 * @param node The node of the start state, see {@link #begin(double[])}
+	 * @param actions The actions, laid out like in {@link RolloutEvaluator}
+	 * @param offset The index of the first action
+	 * @param steps The number of actions
+	 * @param path receives the nodes of the cached prefix
+	 * @return the length of the cached prefix
+	 */
+	synchronized int descend(Node node, double[] actions, int offset, int steps, Node[] path) {
+		final long stamp = node.lastUsed;
+		int t = 0;
+		for (; t < steps; t++, offset += RolloutEvaluator.ACTION_SIZE) {
+			Node child = child(node, Double.doubleToLongBits(actions[offset]), Double.doubleToLongBits(actions[offset + 1]), Double.doubleToLongBits(actions[offset + 2]));
+			if (child == null) {
+				break;
+			}
+			child.lastUsed = Math.max(child.lastUsed, stamp);
+			path[t] = node = child;
+		}
+		reusedSteps += t;
+		return t;
+	}
+
+	/**
+	 * Adds the snapshot after a simulated step.
+	 * @param parent The node before the step
+	 * @param deltaVelocity The delta velocity of the step
+	 * @param deltaGain The delta gain of the step
+	 * @param deltaShift The delta shift of the step
+	 * @param reward The reward of the step
+	 * @param env The benchmark after the step
+	 * @return the node after the step
+	 */
+	Node add(Node parent, double deltaVelocity, double deltaGain, double deltaShift, double reward, IndustrialBenchmarkDynamics env) {
+		double[] state = new double[parent.state.length];
+		env.markovStateInto(state);
+		final long fingerprint = env.fingerprint();
+		Node node = new Node(state, reward, 
+				Double.doubleToLongBits(deltaVelocity), Double.doubleToLongBits(deltaGain), Double.doubleToLongBits(deltaShift));
+		synchronized (this) {
+			simulatedSteps++;
+			node.lastUsed = parent.lastUsed;
+			if (parent.evicted) {
+				// the branch was evicted during the rollout, keep the node out of the trie
+				node.evicted = true;
+				return node;
+			}
+			Node existing = child(parent, node.velocity, node.gain, node.shift);
+			if (existing != null) {
+				// simulated concurrently by another rollout
+				return existing;
+			}
+			node.nextSibling = parent.firstChild;
+			parent.firstChild = node;
+			register(node, fingerprint);
+		}
+		return node;
+	}
+
+	/**
+	 * Removes all nodes and resets the counters.
+	 */
+	public synchronized void clear() {
+		for (Node node : nodes) {
+			node.evicted = true;
+		}
+		nodes.clear();
+		index.clear();
+		reusedSteps = simulatedSteps = evictions = 0;
+	}
+
+	/**
+	 * @return the number of snapshots
+	 */
+	public synchronized int size() {
+		return nodes.size();
+	}
+
+	/**
+	 * @return the number of steps resumed from snapshots
+	 */
+	public synchronized long getReusedSteps() {
+		return reusedSteps;
+	}
+
+	/**
+	 * @return the number of simulated steps
+	 */
+	public synchronized long getSimulatedSteps() {
+		return simulatedSteps;
+	}
+
+	/**
+	 * @return the number of evicted snapshots
+	 */
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	/**
+	 * @return the fraction of rollout steps resumed from snapshots, NaN before the first rollout
+	 */
+	public synchronized double getReuseRate() {
+		return reusedSteps + simulatedSteps == 0 ? Double.NaN : (double) reusedSteps / (reusedSteps + simulatedSteps);
+	}
+
+	@Override
+	public synchronized String toString() {
+		return String.format("RolloutTrie[%d/%d nodes, reuse rate %.3f, %d evictions]", nodes.size(), maxNodes, getReuseRate(), evictions);
+	}
+
+	private Node child(Node node, long velocity, long gain, long shift) {
+		Node previous = null;
+		for (Node child = node.firstChild; child != null; previous = child, child = child.nextSibling) {
+			if (child.velocity == velocity && child.gain == gain && child.shift == shift) {
+				if (previous != null) {
+					// move to front, the hot prefixes are found first
+					previous.nextSibling = child.nextSibling;
+					child.nextSibling = node.firstChild;
+					node.firstChild = child;
+				}
+				return child;
+			}
+		}
+		return null;
+	}
+
+	private void register(Node node, long fingerprint) {
+		nodes.add(node);
+		if (!index.containsKey(fingerprint)) {
+			index.put(fingerprint, node);
+		}
+		if (nodes.size() > maxNodes) {
+			evictCold();
+		}
+	}
+
+	/**
+	 * Evicts the least recently used quarter of the nodes, together with their subtrees. The links of the 
+	 * evicted nodes are cleared, so that an evicted node does not keep kept nodes reachable, e.g. the 
+	 * previous root the current root descends from.
+	 */
+	private void evictCold() {
+		long[] stamps = new long[nodes.size()];
+		for (int i = 0; i < stamps.length; i++) {
+			stamps[i] = nodes.get(i).lastUsed;
+		}
+		Arrays.sort(stamps);
+		final long threshold = stamps[Math.max(0, stamps.length - maxNodes * 3 / 4 - 1)];
+
+		List<Node> evicted = new ArrayList<Node>();
+		int kept = 0;
+		for (int i = 0; i < nodes.size(); i++) {
+			Node node = nodes.get(i);
+			if (node.lastUsed <= threshold) {
+				node.evicted = true;
+				evicted.add(node);
+				evictions++;
+			} else {
+				nodes.set(kept++, node);
+			}
+		}
+		nodes.subList(kept, nodes.size()).clear();
+
+		// unlink the evicted children of the kept nodes and drop the evicted nodes from the index
+		for (Node node : nodes) {
+			Node previous = null;
+			for (Node child = node.firstChild; child != null; child = child.nextSibling) {
+				if (child.evicted) {
+					if (previous == null) {
+						node.firstChild = child.nextSibling;
+					} else {
+						previous.nextSibling = child.nextSibling;
+					}
+				} else {
+					previous = child;
+				}
+			}
+		}
+		for (Node node : evicted) {
+			node.firstChild = null;
+			node.nextSibling = null;
+		}
+		for (Iterator<Node> it = index.values().iterator(); it.hasNext();) {
+			if (it.next().evicted) {
+				it.remove();
+			}
+		}
+	}
+}
@@ -0,0 +1,60 @@
+/**
+Copyright 2016 Siemens AG.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.siemens.industrialbenchmark.policysearch;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Linear policy with tanh output: {@code action[j] = tanh(b[j] + sum_i W[j][i] * features[i])}. 
+ * The parameters are stored row by row, every row followed by its bias.
+ */
+public class LinearPolicy implements ParametricPolicy {
+
+	private final int inputs;
+	private final int outputs;
+
+	/**
+	 * @param inputs The number of features
+	 * @param outputs The number of action components
+	 */
+	public LinearPolicy(int inputs, int outputs) {
+		Preconditions.checkArgument(inputs > 0 && outputs > 0, "invalid size %s x %s", outputs, inputs);
+		this.inputs = inputs;
+		this.outputs = outputs;
+	}
+
+	@Override
+	public int getParameterCount() {
+		return outputs * (inputs + 1);
+	}
+
+	@Override
+	public int getScratchSize() {
+		return 0;
+	}
+
+	@Override
+	public void act(double[] parameters, int offset, double[] features, double[] scratch, double[] actionOut) {
+		int p = offset;
+		for (int j = 0; j < outputs; j++) {
+			double sum = 0;
+			for (int i = 0; i < inputs; i++) {
+				sum += parameters[p++] * features[i];
+			}
+			actionOut[j] = Math.tanh(sum + parameters[p++]);
+		}
+	}
+}
@@ -0,0 +1,70 @@
+/**
+Copyright 2016 Siemens AG.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.siemens.industrialbenchmark.policysearch;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Multilayer perceptron with one tanh hidden layer and tanh output. The parameters are the hidden 
+ * layer followed by the output layer, each stored row by row with every row followed by its bias.
+ */
+public class MlpPolicy implements ParametricPolicy {
+
+	private final int inputs;
+	private final int hidden;
+	private final int outputs;
+
+	/**
+	 * @param inputs The number of features
+	 * @param hidden The number of hidden units
+	 * @param outputs The number of action components
+	 */
+	public MlpPolicy(int inputs, int hidden, int outputs) {
+		Preconditions.checkArgument(inputs > 0 && hidden > 0 && outputs > 0, "invalid size %s-%s-%s", inputs, hidden, outputs);
+		this.inputs = inputs;
+		this.hidden = hidden;
+		this.outputs = outputs;
+	}
+
+	@Override
+	public int getParameterCount() {
+		return hidden * (inputs + 1) + outputs * (hidden + 1);
+	}
+
+	@Override
+	public int getScratchSize() {
+		return hidden;
+	}
+
+	@Override
+	public void act(double[] parameters, int offset, double[] features, double[] scratch, double[] actionOut) {
+		int p = offset;
+		for (int k = 0; k < hidden; k++) {
+			double sum = 0;
+			for (int i = 0; i < inputs; i++) {
+				sum += parameters[p++] * features[i];
+			}
+			scratch[k] = Math.tanh(sum + parameters[p++]);
+		}
+		for (int j = 0; j < outputs; j++) {
+			double sum = 0;
+			for (int k = 0; k < hidden; k++) {
+				sum += parameters[p++] * scratch[k];
+			}
+			actionOut[j] = Math.tanh(sum + parameters[p++]);
+		}
+	}
+}
@@ -0,0 +1,43 @@
+/**
+Copyright 2016 Siemens AG.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.siemens.industrialbenchmark.policysearch;
+
+/**
+ * A policy parameterized by a slice of a flat parameter array, so whole populations of policies 
+ * live in one {@code double[]} without per-policy objects. Implementations are stateless.
+ */
+public interface ParametricPolicy {
+
+	/**
+	 * @return the number of parameters of one policy
+	 */
+	int getParameterCount();
+
+	/**
+	 * @return the size of the scratch array passed to {@link #act}
+	 */
+	int getScratchSize();
+
+	/**
+	 * Computes the delta action of the policy.
+	 * @param parameters The parameters of the population
+	 * @param offset The offset of the policy's parameters
+	 * @param features The normalized observation
+	 * @param scratch Temporary storage of {@link #getScratchSize()} values
+	 * @param actionOut receives deltaVelocity, deltaGain and deltaShift, each in [-1, 1]
+	 */
+	void act(double[] parameters, int offset, double[] features, double[] scratch, double[] actionOut);
+}
@@ -0,0 +1,230 @@
+/**
+Copyright 2016 Siemens AG.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.siemens.industrialbenchmark.policysearch;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.base.Preconditions;
+import com.siemens.industrialbenchmark.datavector.state.ObservableStateDescription;
+import com.siemens.industrialbenchmark.dynamics.IndustrialBenchmarkDynamics;
+import com.siemens.industrialbenchmark.properties.PropertiesException;
+
+/**
+ * Evaluates populations of {@link ParametricPolicy}s held in one flat parameter array. Every thread 
+ * claims individuals one by one and runs their episodes on its own lanes of benchmark instances in 
+ * lockstep, with the policy inference fused into the step loop. All buffers are allocated once, 
+ * so an evaluation creates no objects per episode or step. Not thread-safe.
+ * <p>
+ * The fitness of an individual is its mean return over the given episode seeds. The policies see 
+ * the observation divided component-wise by the observation scale.
+ */
+public class PolicySearchEngine implements Closeable {
+
+	/** the size of a delta action */
+	public static final int ACTION_SIZE = 3;
+	/** rough ranges of SetPoint, Velocity, Gain, Shift, Fatigue, RewardTotal and Consumption */
+	private static final double[] DEFAULT_OBSERVATION_SCALE = {100, 100, 100, 100, 100, 1000, 1000};
+
+	private final ParametricPolicy policy;
+	private final Worker[] workers;
+	private final ExecutorService executor;
+	private final double[] inverseScale = new double[ObservableStateDescription.SIZE];
+	private final AtomicInteger nextIndividual = new AtomicInteger();
+
+	/**
+	 * @param props The configuration of the benchmark
+	 * @param policy The policy of all individuals
+	 * @param threads The number of threads evaluating a population
+	 * @param lanes The number of episodes each thread runs in lockstep
+	 * @throws PropertiesException
+	 */
+	public PolicySearchEngine(Properties props, ParametricPolicy policy, int threads, int lanes) throws PropertiesException {
+		Preconditions.checkArgument(threads > 0, "threads must be positive, but is %s", threads);
+		Preconditions.checkArgument(lanes > 0, "lanes must be positive, but is %s", lanes);
+		this.policy = Preconditions.checkNotNull(policy);
+		this.workers = new Worker[threads];
+		for (int i = 0; i < threads; i++) {
+			workers[i] = new Worker(props, lanes);
+		}
+		setObservationScale(DEFAULT_OBSERVATION_SCALE);
+		final AtomicInteger count = new AtomicInteger();
+		this.executor = threads == 1 ? null : Executors.newFixedThreadPool(threads - 1, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "policy-search-" + count.incrementAndGet());
+				t.setDaemon(true);
+				return t;
+			}
+		});
+	}
+
+	/**
+	 * @param scale The divisor of every observation component
+	 */
+	public void setObservationScale(double[] scale) {
+		Preconditions.checkArgument(scale.length == ObservableStateDescription.SIZE, "expected %s scales, but got %s", ObservableStateDescription.SIZE, scale.length);
+		for (int i = 0; i < ObservableStateDescription.SIZE; i++) {
+			Preconditions.checkArgument(scale[i] > 0, "scales must be positive, but %s is %s", i, scale[i]);
+			inverseScale[i] = 1 / scale[i];
+		}
+	}
+
+	/**
+	 * @return the policy of all individuals
+	 */
+	public ParametricPolicy getPolicy() {
+		return policy;
+	}
+
+	/**
+	 * Evaluates a population.
+	 * @param population The parameters of all individuals, {@link ParametricPolicy#getParameterCount()} values each
+	 * @param size The number of individuals
+	 * @param seeds The seeds of the episodes every individual is evaluated on
+	 * @param steps The number of steps per episode
+	 * @param fitnessOut receives the mean return of every individual
+	 */
+	public void evaluate(final double[] population, final int size, final long[] seeds, final int steps, final double[] fitnessOut) {
+		Preconditions.checkArgument(size > 0, "size must be positive, but is %s", size);
+		Preconditions.checkArgument(population.length >= size * policy.getParameterCount(), "population holds less than %s individuals", size);
+		Preconditions.checkArgument(fitnessOut.length >= size, "fitnessOut holds less than %s values", size);
+		Preconditions.checkArgument(seeds.length > 0 && steps > 0, "no episodes to evaluate");
+
+		nextIndividual.set(0);
+		List<Future<?>> futures = new ArrayList<Future<?>>();
+		for (int w = 1; w < Math.min(workers.length, size); w++) {
+			final Worker worker = workers[w];
+			futures.add(executor.submit(new Callable<Void>() {
+				@Override
+				public Void call() {
+					worker.run(population, size, seeds, steps, fitnessOut);
+					return null;
+				}
+			}));
+		}
+		workers[0].run(population, size, seeds, steps, fitnessOut);
+		try {
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("interrupted while evaluating the population", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("evaluation failed", e.getCause());
+		}
+	}
+
+	/**
+	 * @param fitness The fitness of the individuals
+	 * @param size The number of individuals
+	 * @return the indices of the individuals, best first
+	 */
+	public static int[] rank(final double[] fitness, int size) {
+		Integer[] order = new Integer[size];
+		for (int i = 0; i < size; i++) {
+			order[i] = i;
+		}
+		Arrays.sort(order, Collections.reverseOrder(new Comparator<Integer>() {
+			@Override
+			public int compare(Integer a, Integer b) {
+				return Double.compare(fitness[a], fitness[b]);
+			}
+		}));
+		int[] ranking = new int[size];
+		for (int i = 0; i < size; i++) {
+			ranking[i] = order[i];
+		}
+		return ranking;
+	}
+
+	@Override
+	public void close() {
+		if (executor != null) {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * The lanes and buffers of one thread.
+	 */
+	private final class Worker {
+		private final IndustrialBenchmarkDynamics[] lanes;
+		private final double[][] observations;
+		private final double[] returns;
+		private final double[] features = new double[ObservableStateDescription.SIZE];
+		private final double[] scratch;
+		private final double[] action = new double[ACTION_SIZE];
+
+		Worker(Properties props, int laneCount) throws PropertiesException {
+			this.lanes = new IndustrialBenchmarkDynamics[laneCount];
+			for (int l = 0; l < laneCount; l++) {
+				// the fitness does not depend on the thread
+				lanes[l] = IndustrialBenchmarkDynamics.reproducible(props);
+			}
+			this.observations = new double[laneCount][ObservableStateDescription.SIZE];
+			this.returns = new double[laneCount];
+			this.scratch = new double[policy.getScratchSize()];
+		}
+
+		void run(double[] population, int size, long[] seeds, int steps, double[] fitnessOut) {
+			int individual;
+			while ((individual = nextIndividual.getAndIncrement()) < size) {
+				fitnessOut[individual] = evaluate(population, individual * policy.getParameterCount(), seeds, steps);
+			}
+		}
+
+		private double evaluate(double[] population, int offset, long[] seeds, int steps) {
+			double total = 0;
+			for (int first = 0; first < seeds.length; first += lanes.length) {
+				final int n = Math.min(lanes.length, seeds.length - first);
+				for (int l = 0; l < n; l++) {
+					lanes[l].reset(seeds[first + l]);
+					lanes[l].stateInto(observations[l]);
+					returns[l] = 0;
+				}
+				for (int t = 0; t < steps; t++) {
+					for (int l = 0; l < n; l++) {
+						final double[] observation = observations[l];
+						for (int i = 0; i < ObservableStateDescription.SIZE; i++) {
+							features[i] = observation[i] * inverseScale[i];
+						}
+						policy.act(population, offset, features, scratch, action);
+						returns[l] += lanes[l].step(action[0], action[1], action[2], observation);
+					}
+				}
+				// summed per episode and in seed order, so the fitness does not depend on the number of lanes
+				for (int l = 0; l < n; l++) {
+					total += returns[l];
+				}
+			}
+			return total / seeds.length;
+		}
+	}
+}
@@ -0,0 +1,233 @@
+/**
+Copyright 2016 Siemens AG.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.siemens.industrialbenchmark.policysearch;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import com.beust.jcommander.JCommander;
+import com.beust.jcommander.Parameter;
+import com.google.common.base.Preconditions;
+import com.siemens.industrialbenchmark.datavector.state.ObservableStateDescription;
+import com.siemens.industrialbenchmark.properties.PropertiesException;
+import com.siemens.industrialbenchmark.properties.PropertiesUtil;
+
+/**
+ * Policy search with particle swarm optimization: every particle is the parameter vector of a 
+ * policy, and its fitness is evaluated by a {@link PolicySearchEngine}. Positions, velocities and 
+ * the personal bests of the swarm are flat arrays.
+ * <p>
+ * Example: {@code java ... SwarmPolicySearch --policy mlp --hidden 8 --particles 64 --generations 50}
+ */
+public class SwarmPolicySearch {
+
+	/**
+	 * Command line options of the search.
+	 */
+	public static class Options {
+		@Parameter(names = "--config", description = "Properties file of the benchmark")
+		public String config = "src/main/resources/sim.properties";
+
+		@Parameter(names = "--policy", description = "Policy: linear or mlp")
+		public String policy = "linear";
+
+		@Parameter(names = "--hidden", description = "Number of hidden units of the mlp policy")
+		public int hidden = 8;
+
+		@Parameter(names = "--particles", description = "Number of particles")
+		public int particles = 64;
+
+		@Parameter(names = "--generations", description = "Number of generations")
+		public int generations = 50;
+
+		@Parameter(names = "--episodes", description = "Number of episodes per evaluation")
+		public int episodes = 8;
+
+		@Parameter(names = "--steps", description = "Number of steps per episode")
+		public int steps = 200;
+
+		@Parameter(names = "--threads", description = "Number of threads evaluating the population")
+		public int threads = Runtime.getRuntime().availableProcessors();
+
+		@Parameter(names = "--seed", description = "Seed of the swarm and the episodes")
+		public long seed = 1;
+
+		@Parameter(names = "--help", help = true, description = "Prints the usage")
+		public boolean help = false;
+	}
+
+	private final PolicySearchEngine engine;
+	private final int particles;
+	private final int dimension;
+	private final Random rand;
+	private double inertia = 0.7298;
+	private double cognitive = 1.49618;
+	private double social = 1.49618;
+	private double maxVelocity = 0.5;
+	private double bound = 5;
+
+	private final double[] positions;
+	private final double[] velocities;
+	private final double[] personalBest;
+	private final double[] personalBestFitness;
+	private final double[] fitness;
+	private int globalBest = -1;
+
+	/**
+	 * @param engine The engine evaluating the particles
+	 * @param particles The number of particles
+	 * @param initialRange The initial parameters are drawn uniformly from [-initialRange, initialRange]
+	 * @param seed The seed of the swarm
+	 */
+	public SwarmPolicySearch(PolicySearchEngine engine, int particles, double initialRange, long seed) {
+		Preconditions.checkArgument(particles > 0, "particles must be positive, but is %s", particles);
+		this.engine = Preconditions.checkNotNull(engine);
+		this.particles = particles;
+		this.dimension = engine.getPolicy().getParameterCount();
+		this.rand = new Random(seed);
+		this.positions = new double[particles * dimension];
+		this.velocities = new double[particles * dimension];
+		this.personalBest = new double[particles * dimension];
+		this.personalBestFitness = new double[particles];
+		this.fitness = new double[particles];
+		for (int i = 0; i < positions.length; i++) {
+			positions[i] = initialRange * (2 * rand.nextDouble() - 1);
+		}
+		Arrays.fill(personalBestFitness, Double.NEGATIVE_INFINITY);
+	}
+
+	/**
+	 * @param inertia The weight of the previous velocity
+	 * @param cognitive The attraction to the particle's own best position
+	 * @param social The attraction to the best position of the swarm
+	 * @param maxVelocity The bound of every velocity component
+	 * @param bound The bound of every parameter
+	 */
+	public void setCoefficients(double inertia, double cognitive, double social, double maxVelocity, double bound) {
+		Preconditions.checkArgument(maxVelocity > 0 && bound > 0, "invalid bounds %s, %s", maxVelocity, bound);
+		this.inertia = inertia;
+		this.cognitive = cognitive;
+		this.social = social;
+		this.maxVelocity = maxVelocity;
+		this.bound = bound;
+	}
+
+	/**
+	 * Evaluates the swarm and moves it. The first generation evaluates the initial positions.
+	 * @param seeds The seeds of the evaluation episodes; keep them fixed to compare the generations
+	 * @param steps The number of steps per episode
+	 * @return the best fitness found so far
+	 */
+	public double generation(long[] seeds, int steps) {
+		if (globalBest >= 0) {
+			move();
+		}
+		engine.evaluate(positions, particles, seeds, steps, fitness);
+		for (int p = 0; p < particles; p++) {
+			if (fitness[p] > personalBestFitness[p]) {
+				personalBestFitness[p] = fitness[p];
+				System.arraycopy(positions, p * dimension, personalBest, p * dimension, dimension);
+			}
+			if (globalBest < 0 || personalBestFitness[p] > personalBestFitness[globalBest]) {
+				globalBest = p;
+			}
+		}
+		return personalBestFitness[globalBest];
+	}
+
+	private void move() {
+		final int g = globalBest * dimension;
+		for (int p = 0; p < particles; p++) {
+			final int offset = p * dimension;
+			for (int i = 0; i < dimension; i++) {
+				double v = inertia * velocities[offset + i]
+						+ cognitive * rand.nextDouble() * (personalBest[offset + i] - positions[offset + i])
+						+ social * rand.nextDouble() * (personalBest[g + i] - positions[offset + i]);
+				v = Math.max(-maxVelocity, Math.min(maxVelocity, v));
+				velocities[offset + i] = v;
+				positions[offset + i] = Math.max(-bound, Math.min(bound, positions[offset + i] + v));
+			}
+		}
+	}
+
+	/**
+	 * @return the fitness of the particles in the last generation
+	 */
+	public double[] getFitness() {
+		return fitness.clone();
+	}
+
+	/**
+	 * @return the best fitness found so far
+	 */
+	public double getBestFitness() {
+		return globalBest < 0 ? Double.NEGATIVE_INFINITY : personalBestFitness[globalBest];
+	}
+
+	/**
+	 * @return the parameters of the best policy found so far
+	 */
+	public double[] getBestParameters() {
+		Preconditions.checkState(globalBest >= 0, "no generation evaluated yet");
+		return Arrays.copyOfRange(personalBest, globalBest * dimension, (globalBest + 1) * dimension);
+	}
+
+	/**
+	 * Runs a search from the command line.
+	 * @param args see {@link Options}
+	 * @throws IOException
+	 * @throws PropertiesException
+	 */
+	public static void main(String[] args) throws IOException, PropertiesException {
+		Options options = new Options();
+		JCommander jc = new JCommander(options, args);
+		if (options.help) {
+			jc.usage();
+			return;
+		}
+
+		ParametricPolicy policy;
+		if ("linear".equals(options.policy)) {
+			policy = new LinearPolicy(ObservableStateDescription.SIZE, PolicySearchEngine.ACTION_SIZE);
+		} else if ("mlp".equals(options.policy)) {
+			policy = new MlpPolicy(ObservableStateDescription.SIZE, options.hidden, PolicySearchEngine.ACTION_SIZE);
+		} else {
+			throw new IllegalArgumentException("unknown policy: " + options.policy);
+		}
+
+		long[] seeds = new long[options.episodes];
+		for (int i = 0; i < seeds.length; i++) {
+			seeds[i] = options.seed + i;
+		}
+		try (PolicySearchEngine engine = new PolicySearchEngine(PropertiesUtil.setpointProperties(new File(options.config)),
+				policy, options.threads, Math.min(options.episodes, 8))) {
+			SwarmPolicySearch search = new SwarmPolicySearch(engine, options.particles, 0.5, options.seed);
+			for (int g = 0; g < options.generations; g++) {
+				long start = System.nanoTime();
+				double best = search.generation(seeds, options.steps);
+				double mean = 0;
+				for (double f : search.getFitness()) {
+					mean += f;
+				}
+				System.out.printf("generation %d: best %.2f, mean %.2f, %.0f ms%n", g + 1, best / options.steps,
+						mean / options.particles / options.steps, (System.nanoTime() - start) / 1e6);
+			}
+			System.out.println("best parameters: " + Arrays.toString(search.getBestParameters()));
+		}
+	}
+}
@@ -0,0 +1,69 @@
+/**
+Copyright 2016 Siemens AG.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.siemens.industrialbenchmark.runner;
+
+import com.google.common.base.Preconditions;
+import com.siemens.industrialbenchmark.dynamics.IndustrialBenchmarkDynamics;
+import com.siemens.industrialbenchmark.pipeline.Policy;
+
+/**
+ * An episode of an {@link EpisodeSpliterator}: an environment reset to the seed of the episode. 
+ * The environment belongs to the worker thread and is reused for its next episode, so an episode 
+ * must be evaluated before the stream advances on that thread, e.g. within {@code map}.
+ */
+public final class Episode {
+
+	private final long seed;
+	private final IndustrialBenchmarkDynamics env;
+
+	Episode(long seed, IndustrialBenchmarkDynamics env) {
+		this.seed = seed;
+		this.env = env;
+	}
+
+	/**
+	 * @return the seed the environment was reset to
+	 */
+	public long getSeed() {
+		return seed;
+	}
+
+	/**
+	 * @return the environment, reset to {@link #getSeed()} when the episode was created
+	 */
+	public IndustrialBenchmarkDynamics getEnvironment() {
+		return env;
+	}
+
+	/**
+	 * Steps the environment under the policy.
+	 * @param policy The policy choosing the delta actions
+	 * @param steps The number of steps
+	 * @return the sum of the rewards
+	 */
+	public double run(Policy policy, int steps) {
+		Preconditions.checkArgument(steps >= 0, "steps must be non-negative, but is %s", steps);
+		final double[] observation = new double[env.getStateView().getKeys().size()];
+		final double[] action = new double[3];
+		env.stateInto(observation);
+		double total = 0;
+		for (int i = 0; i < steps; i++) {
+			policy.act(observation, action);
+			total += env.step(action[0], action[1], action[2], observation);
+		}
+		return total;
+	}
+}
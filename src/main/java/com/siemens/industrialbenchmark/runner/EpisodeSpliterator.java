@@ -0,0 +1,130 @@
+/**
+Copyright 2016 Siemens AG.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.siemens.industrialbenchmark.runner;
+
+import java.util.Properties;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import com.google.common.base.Preconditions;
+import com.siemens.industrialbenchmark.dynamics.IndustrialBenchmarkDynamics;
+import com.siemens.industrialbenchmark.properties.PropertiesException;
+
+/**
+ * Spliterator over a range of seeds, yielding one {@link Episode} per seed. Episodes are created 
+ * lazily on the consuming thread, which reuses its own environment for all its episodes. 
+ * The range splits in halves and reports {@link #SIZED} and {@link #SUBSIZED}, so parallel 
+ * streams balance evenly:
+ * <pre>
+ * EpisodeSpliterator.episodes(props, 0, 1000).parallel().mapToDouble(e -&gt; e.run(policy, 1000)).sum()
+ * </pre>
+ * All environments are created by {@link IndustrialBenchmarkDynamics#reproducible(Properties)}, so an 
+ * episode only depends on its own seed, not on the thread it ran on.
+ */
+public class EpisodeSpliterator implements Spliterator<Episode> {
+
+	private final ThreadLocal<IndustrialBenchmarkDynamics> environments;
+	private long next;
+	private final long end;
+
+	/**
+	 * @param config The benchmark configuration
+	 * @param firstSeed The seed of the first episode
+	 * @param endSeed The seed after the last episode
+	 * @throws PropertiesException if the configuration is invalid
+	 */
+	public EpisodeSpliterator(final Properties config, long firstSeed, long endSeed) throws PropertiesException {
+		Preconditions.checkArgument(endSeed - firstSeed >= 0, "invalid seed range [%s, %s)", firstSeed, endSeed);
+		final IndustrialBenchmarkDynamics first = IndustrialBenchmarkDynamics.reproducible(config);
+		this.environments = new ThreadLocal<IndustrialBenchmarkDynamics>() {
+			@Override
+			protected IndustrialBenchmarkDynamics initialValue() {
+				try {
+					return IndustrialBenchmarkDynamics.reproducible(config);
+				} catch (PropertiesException e) {
+					// the configuration was accepted for the first environment
+					throw new IllegalStateException(e);
+				}
+			}
+		};
+		environments.set(first);
+		this.next = firstSeed;
+		this.end = endSeed;
+	}
+
+	private EpisodeSpliterator(ThreadLocal<IndustrialBenchmarkDynamics> environments, long next, long end) {
+		this.environments = environments;
+		this.next = next;
+		this.end = end;
+	}
+
+	/**
+	 * @param config The benchmark configuration
+	 * @param firstSeed The seed of the first episode
+	 * @param endSeed The seed after the last episode
+	 * @return a sequential stream of the episodes; call {@code parallel()} to evaluate them in parallel
+	 * @throws PropertiesException if the configuration is invalid
+	 */
+	public static Stream<Episode> episodes(Properties config, long firstSeed, long endSeed) throws PropertiesException {
+		return StreamSupport.stream(new EpisodeSpliterator(config, firstSeed, endSeed), false);
+	}
+
+	private Episode episode(long seed) {
+		final IndustrialBenchmarkDynamics env = environments.get();
+		env.reset(seed);
+		return new Episode(seed, env);
+	}
+
+	@Override
+	public boolean tryAdvance(Consumer<? super Episode> action) {
+		if (next >= end) {
+			return false;
+		}
+		action.accept(episode(next++));
+		return true;
+	}
+
+	@Override
+	public void forEachRemaining(Consumer<? super Episode> action) {
+		while (next < end) {
+			action.accept(episode(next++));
+		}
+	}
+
+	@Override
+	public Spliterator<Episode> trySplit() {
+		final long size = end - next;
+		if (size < 2) {
+			return null;
+		}
+		final long mid = next + (size >>> 1);
+		final EpisodeSpliterator prefix = new EpisodeSpliterator(environments, next, mid);
+		next = mid;
+		return prefix;
+	}
+
+	@Override
+	public long estimateSize() {
+		return end - next;
+	}
+
+	@Override
+	public int characteristics() {
+		return ORDERED | DISTINCT | SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+	}
+}
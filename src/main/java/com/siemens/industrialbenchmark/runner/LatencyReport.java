@@ -0,0 +1,147 @@
+/**
+Copyright 2016 Siemens AG.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.siemens.industrialbenchmark.runner;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogWriter;
+
+/**
+ * Result of a {@link LatencyRunner} run: one raw (service time) and one coordinated-omission
+ * corrected histogram per thread. All values are recorded in nanoseconds. The histograms of
+ * different threads or runs can be merged with {@link #merge(List)}.
+ */
+public class LatencyReport {
+
+	private final List<Histogram> serviceTimes;
+	private final List<Histogram> responseTimes;
+
+	LatencyReport(List<Histogram> serviceTimes, List<Histogram> responseTimes) {
+		this.serviceTimes = Collections.unmodifiableList(serviceTimes);
+		this.responseTimes = Collections.unmodifiableList(responseTimes);
+	}
+
+	/**
+	 * Returns the per-thread histograms of the pure step durations.
+	 * @return one histogram per thread
+	 */
+	public List<Histogram> getServiceTimes() {
+		return serviceTimes;
+	}
+
+	/**
+	 * Returns the per-thread histograms of the step latencies measured from the intended start
+	 * time of each step. When driving at a fixed rate these are corrected for coordinated
+	 * omission; when driving as fast as possible they are identical to the service times.
+	 * @return one histogram per thread
+	 */
+	public List<Histogram> getResponseTimes() {
+		return responseTimes;
+	}
+
+	/**
+	 * @return the service times of all threads merged into one histogram
+	 */
+	public Histogram getMergedServiceTimes() {
+		return merge(serviceTimes);
+	}
+
+	/**
+	 * @return the response times of all threads merged into one histogram
+	 */
+	public Histogram getMergedResponseTimes() {
+		return merge(responseTimes);
+	}
+
+	/**
+	 * Merges the given histograms into a new histogram.
+	 * @param histograms The histograms to merge
+	 * @return the merged histogram
+	 */
+	public static Histogram merge(List<Histogram> histograms) {
+		Histogram merged = new Histogram(LatencyRunner.SIGNIFICANT_DIGITS);
+		long start = Long.MAX_VALUE;
+		long end = 0;
+		for (Histogram h : histograms) {
+			merged.add(h);
+			start = Math.min(start, h.getStartTimeStamp());
+			end = Math.max(end, h.getEndTimeStamp());
+		}
+		merged.setStartTimeStamp(start == Long.MAX_VALUE ? 0 : start);
+		merged.setEndTimeStamp(end);
+		return merged;
+	}
+
+	/**
+	 * Prints p50, p99, p99.9 and max of every thread and of the merged histograms in microseconds.
+	 * @param out The stream to print to
+	 */
+	public void print(PrintStream out) {
+		out.println(String.format("%-12s %-9s %10s %10s %10s %10s %10s", "thread", "kind", "count", "p50[us]", "p99[us]", "p99.9[us]", "max[us]"));
+		for (int i = 0; i < serviceTimes.size(); i++) {
+			printLine(out, "thread-" + i, "service", serviceTimes.get(i));
+			printLine(out, "thread-" + i, "response", responseTimes.get(i));
+		}
+		printLine(out, "all", "service", getMergedServiceTimes());
+		printLine(out, "all", "response", getMergedResponseTimes());
+	}
+
+	private static void printLine(PrintStream out, String thread, String kind, Histogram h) {
+		out.println(String.format("%-12s %-9s %10d %10.2f %10.2f %10.2f %10.2f", thread, kind, h.getTotalCount(),
+				h.getValueAtPercentile(50.0) / 1e3, h.getValueAtPercentile(99.0) / 1e3,
+				h.getValueAtPercentile(99.9) / 1e3, h.getMaxValue() / 1e3));
+	}
+
+	/**
+	 * Writes all histograms in the HdrHistogram log format, which can be compared between
+	 * releases with the HdrHistogram tools (e.g. HistogramLogProcessor). Histograms are tagged
+	 * with "service-thread-i", "response-thread-i", "service-all" and "response-all".
+	 * @param file The file to write to
+	 * @throws FileNotFoundException if the file cannot be created
+	 */
+	public void write(File file) throws FileNotFoundException {
+		HistogramLogWriter writer = new HistogramLogWriter(file);
+		try {
+			writer.outputLogFormatVersion();
+			writer.outputComment("Industrial Benchmark step latencies [ns]");
+			writer.outputLegend();
+			List<Histogram> all = new ArrayList<Histogram>();
+			for (int i = 0; i < serviceTimes.size(); i++) {
+				all.add(tagged(serviceTimes.get(i), "service-thread-" + i));
+				all.add(tagged(responseTimes.get(i), "response-thread-" + i));
+			}
+			all.add(tagged(getMergedServiceTimes(), "service-all"));
+			all.add(tagged(getMergedResponseTimes(), "response-all"));
+			for (Histogram h : all) {
+				writer.outputIntervalHistogram(h);
+			}
+		} finally {
+			writer.close();
+		}
+	}
+
+	private static Histogram tagged(Histogram h, String tag) {
+		Histogram copy = h.copy();
+		copy.setTag(tag);
+		return copy;
+	}
+}
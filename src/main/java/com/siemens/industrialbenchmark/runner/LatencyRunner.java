@@ -0,0 +1,197 @@
+/**
+Copyright 2016 Siemens AG.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.siemens.industrialbenchmark.runner;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.LockSupport;
+
+import org.HdrHistogram.Histogram;
+
+import com.beust.jcommander.JCommander;
+import com.beust.jcommander.Parameter;
+import com.siemens.industrialbenchmark.datavector.action.ActionDelta;
+import com.siemens.industrialbenchmark.dynamics.IndustrialBenchmarkDynamics;
+import com.siemens.industrialbenchmark.properties.PropertiesException;
+import com.siemens.industrialbenchmark.properties.PropertiesUtil;
+import com.siemens.rl.interfaces.Environment;
+
+/**
+ * Harness that records the latency of single {@link Environment#step} calls into
+ * HdrHistograms. Every thread drives its own benchmark instance with random actions,
+ * either as fast as possible or at a fixed rate. At a fixed rate, the response time of a
+ * step is measured from its intended start time, which corrects for coordinated omission
+ * when a slow step delays the following ones.
+ * <p>
+ * Example: {@code java ... LatencyRunner --threads 4 --steps 1000000 --rate 20000 --output latency.hlog}
+ */
+public class LatencyRunner {
+
+	static final int SIGNIFICANT_DIGITS = 3;
+	private static final long PARK_THRESHOLD_NANOS = 100000;
+
+	/**
+	 * Command line options of the runner.
+	 */
+	public static class Options {
+		@Parameter(names = "--config", description = "Properties file of the benchmark")
+		public String config = "src/main/resources/sim.properties";
+
+		@Parameter(names = "--threads", description = "Number of threads, each driving its own instance")
+		public int threads = 1;
+
+		@Parameter(names = "--steps", description = "Number of recorded steps per thread")
+		public int steps = 100000;
+
+		@Parameter(names = "--warmup", description = "Number of unrecorded warmup steps per thread")
+		public int warmup = 20000;
+
+		@Parameter(names = "--rate", description = "Steps per second and thread; 0 runs as fast as possible")
+		public double rate = 0;
+
+		@Parameter(names = "--seed", description = "Seed of the random actions; thread i uses seed+i")
+		public long seed = 1;
+
+		@Parameter(names = "--output", description = "Optional HdrHistogram log file to write the histograms to")
+		public String output = null;
+
+		@Parameter(names = "--help", help = true, description = "Prints the usage")
+		public boolean help = false;
+	}
+
+	private final Properties properties;
+	private final Options options;
+
+	/**
+	 * Constructor with benchmark properties and runner options
+	 * @param properties The benchmark configuration
+	 * @param options The runner options
+	 */
+	public LatencyRunner(Properties properties, Options options) {
+		this.properties = properties;
+		this.options = options;
+	}
+
+	/**
+	 * Runs all threads and waits for them to finish.
+	 * @return the recorded histograms
+	 * @throws PropertiesException if the benchmark cannot be instantiated
+	 * @throws InterruptedException if interrupted while waiting for the threads
+	 */
+	public LatencyReport run() throws PropertiesException, InterruptedException {
+		ExecutorService executor = Executors.newFixedThreadPool(options.threads);
+		try {
+			List<Future<Histogram[]>> futures = new ArrayList<Future<Histogram[]>>();
+			for (int t = 0; t < options.threads; t++) {
+				final long seed = options.seed + t;
+				final Environment env = new IndustrialBenchmarkDynamics(properties);
+				futures.add(executor.submit(() -> drive(env, seed)));
+			}
+			List<Histogram> service = new ArrayList<Histogram>();
+			List<Histogram> response = new ArrayList<Histogram>();
+			for (Future<Histogram[]> f : futures) {
+				Histogram[] h = f.get();
+				service.add(h[0]);
+				response.add(h[1]);
+			}
+			return new LatencyReport(service, response);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("latency run failed", e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Drives the given environment for the configured number of steps.
+	 * @param env The environment to step
+	 * @param seed The seed of the random actions
+	 * @return the service time and the response time histogram
+	 * @throws PropertiesException
+	 */
+	Histogram[] drive(Environment env, long seed) throws PropertiesException {
+		final Histogram service = new Histogram(SIGNIFICANT_DIGITS);
+		final Histogram response = new Histogram(SIGNIFICANT_DIGITS);
+		final long interval = options.rate > 0 ? (long) (1e9 / options.rate) : 0;
+		final Random rand = new Random(seed);
+		final ActionDelta action = new ActionDelta(0, 0, 0);
+
+		long intendedStart = System.nanoTime();
+		for (int i = 0; i < options.warmup + options.steps; i++) {
+			action.setDeltaGain(2.f * (rand.nextFloat() - 0.5f));
+			action.setDeltaVelocity(2.f * (rand.nextFloat() - 0.5f));
+			action.setDeltaShift(2.f * (rand.nextFloat() - 0.5f));
+
+			if (interval > 0) {
+				// park for long waits only, the timer slack of parkNanos is in the order of 50us
+				long wait;
+				while ((wait = intendedStart - System.nanoTime()) > 0) {
+					if (wait > PARK_THRESHOLD_NANOS) {
+						LockSupport.parkNanos(wait - PARK_THRESHOLD_NANOS);
+					}
+				}
+			}
+			if (i == options.warmup) {
+				service.setStartTimeStamp(System.currentTimeMillis());
+				response.setStartTimeStamp(service.getStartTimeStamp());
+			}
+			final long start = System.nanoTime();
+			env.step(action);
+			final long end = System.nanoTime();
+
+			if (i >= options.warmup) {
+				service.recordValue(end - start);
+				response.recordValue(interval > 0 ? end - intendedStart : end - start);
+			}
+			intendedStart = interval > 0 ? intendedStart + interval : end;
+		}
+		service.setEndTimeStamp(System.currentTimeMillis());
+		response.setEndTimeStamp(service.getEndTimeStamp());
+		return new Histogram[] { service, response };
+	}
+
+	/**
+	 * Runs the latency harness from the command line and prints the percentiles.
+	 * @param args see {@link Options}
+	 * @throws IOException
+	 * @throws PropertiesException
+	 * @throws InterruptedException
+	 */
+	public static void main(String[] args) throws IOException, PropertiesException, InterruptedException {
+		Options options = new Options();
+		JCommander jc = new JCommander(options, args);
+		if (options.help) {
+			jc.usage();
+			return;
+		}
+
+		Properties props = PropertiesUtil.setpointProperties(new File(options.config));
+		LatencyReport report = new LatencyRunner(props, options).run();
+		report.print(System.out);
+		if (options.output != null) {
+			report.write(new File(options.output));
+			System.out.println("histograms written to '" + options.output + "'");
+		}
+	}
+}
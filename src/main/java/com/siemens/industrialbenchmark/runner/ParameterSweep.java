@@ -0,0 +1,483 @@
+/**
+Copyright 2016 Siemens AG.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.siemens.industrialbenchmark.runner;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.LongFunction;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.beust.jcommander.JCommander;
+import com.beust.jcommander.Parameter;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Maps;
+import com.siemens.industrialbenchmark.dynamics.IndustrialBenchmarkDynamics;
+import com.siemens.industrialbenchmark.pipeline.Policy;
+import com.siemens.industrialbenchmark.pipeline.RandomPolicy;
+import com.siemens.industrialbenchmark.properties.PropertiesException;
+import com.siemens.industrialbenchmark.properties.PropertiesUtil;
+
+/**
+ * Runs the episodes of a parameter grid over the keys of a benchmark configuration, for a range of 
+ * seeds and a set of named policies, on several threads. The result of every (configuration, seed, 
+ * policy) job is cached on disk under the SHA-256 hash of its inputs, so re-running a partially 
+ * changed sweep only computes the new jobs. Policies are identified by their name: rename a policy 
+ * when its behavior changes.
+ * <p>
+ * Example: {@code java ... ParameterSweep --grid grid.properties --seeds 20 --cache sweep-cache --output sweep.csv}, 
+ * where every line of the grid file lists the alternatives of a key separated by {@code |}, e.g. {@code CRD = 1 | 3 | 5}.
+ */
+public class ParameterSweep {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ParameterSweep.class);
+
+	/** grid value which removes the key from the configuration, e.g. to sweep over a non-stationary setpoint */
+	public static final String UNSET = "-";
+	/** separator of the alternatives in a grid file */
+	public static final String GRID_SEPARATOR = "|";
+	/** part of every cache key; increment when the dynamics change the results of existing jobs */
+	static final int CACHE_VERSION = 1;
+
+	/**
+	 * Command line options of the sweep.
+	 */
+	public static class Options {
+		@Parameter(names = "--config", description = "Properties file of the benchmark")
+		public String config = "src/main/resources/sim.properties";
+
+		@Parameter(names = "--grid", description = "Properties file listing the alternatives of every swept key, separated by |", required = true)
+		public String grid;
+
+		@Parameter(names = "--first-seed", description = "Seed of the first episode")
+		public long firstSeed = 0;
+
+		@Parameter(names = "--seeds", description = "Number of seeds per configuration and policy")
+		public int seeds = 10;
+
+		@Parameter(names = "--steps", description = "Number of steps per episode")
+		public int steps = 1000;
+
+		@Parameter(names = "--policy", description = "Policies to evaluate: random, zero")
+		public List<String> policies = new ArrayList<String>(Arrays.asList("random"));
+
+		@Parameter(names = "--threads", description = "Number of worker threads")
+		public int threads = Runtime.getRuntime().availableProcessors();
+
+		@Parameter(names = "--cache", description = "Directory of the result cache")
+		public String cache = "sweep-cache";
+
+		@Parameter(names = "--output", description = "CSV file to write the results to")
+		public String output = "sweep.csv";
+
+		@Parameter(names = "--help", help = true, description = "Prints the usage")
+		public boolean help = false;
+	}
+
+	/**
+	 * The outcome of one job.
+	 */
+	public static final class Result {
+		private final SortedMap<String, String> parameters;
+		private final long seed;
+		private final String policy;
+		private final double totalReward;
+		private final boolean cached;
+
+		Result(SortedMap<String, String> parameters, long seed, String policy, double totalReward, boolean cached) {
+			this.parameters = parameters;
+			this.seed = seed;
+			this.policy = policy;
+			this.totalReward = totalReward;
+			this.cached = cached;
+		}
+
+		/**
+		 * @return the swept values of the job's configuration, by key
+		 */
+		public SortedMap<String, String> getParameters() {
+			return parameters;
+		}
+
+		public long getSeed() {
+			return seed;
+		}
+
+		public String getPolicy() {
+			return policy;
+		}
+
+		/**
+		 * @return the sum of the rewards of the episode
+		 */
+		public double getTotalReward() {
+			return totalReward;
+		}
+
+		/**
+		 * @return true if the result was read from the cache
+		 */
+		public boolean isCached() {
+			return cached;
+		}
+	}
+
+	/**
+	 * Environment of a worker thread, kept for consecutive jobs of the same configuration.
+	 */
+	private static final class WorkerEnvironment {
+		SortedMap<String, String> parameters;
+		IndustrialBenchmarkDynamics env;
+	}
+
+	private final Properties base;
+	private final File cacheDir;
+	private final SortedMap<String, List<String>> grid = new TreeMap<String, List<String>>();
+	private final Map<String, LongFunction<Policy>> policies = new LinkedHashMap<String, LongFunction<Policy>>();
+	private long firstSeed = 0;
+	private long endSeed = 1;
+	private int steps = 1000;
+	private final ThreadLocal<WorkerEnvironment> workerEnvironments = new ThreadLocal<WorkerEnvironment>() {
+		@Override
+		protected WorkerEnvironment initialValue() {
+			return new WorkerEnvironment();
+		}
+	};
+
+	/**
+	 * @param base The configuration the grid values are applied to
+	 * @param cacheDir The directory of the result cache, created if missing; null disables the cache
+	 */
+	public ParameterSweep(Properties base, File cacheDir) {
+		this.base = Preconditions.checkNotNull(base);
+		this.cacheDir = cacheDir;
+	}
+
+	/**
+	 * Adds a swept key. Without swept keys, the sweep runs the base configuration only.
+	 * @param key A key of the configuration
+	 * @param values The alternatives, {@link #UNSET} removes the key
+	 * @return this sweep
+	 */
+	public ParameterSweep addParameter(String key, String... values) {
+		Preconditions.checkArgument(values.length > 0, "no values given for %s", key);
+		grid.put(key, Collections.unmodifiableList(new ArrayList<String>(Arrays.asList(values))));
+		return this;
+	}
+
+	/**
+	 * Adds the swept keys of a grid file, listing the alternatives of every key separated by {@link #GRID_SEPARATOR}.
+	 * @param gridFile The grid file
+	 * @return this sweep
+	 * @throws IOException
+	 */
+	public ParameterSweep addParameters(File gridFile) throws IOException {
+		Properties gridProps = PropertiesUtil.setpointProperties(gridFile);
+		for (String key : gridProps.stringPropertyNames()) {
+			String[] values = gridProps.getProperty(key).split("\\" + GRID_SEPARATOR);
+			for (int i = 0; i < values.length; i++) {
+				values[i] = values[i].trim();
+			}
+			addParameter(key, values);
+		}
+		return this;
+	}
+
+	/**
+	 * @param name The name of the policy, part of the cache key
+	 * @param factory Creates the policy of an episode from its seed
+	 * @return this sweep
+	 */
+	public ParameterSweep addPolicy(String name, LongFunction<Policy> factory) {
+		policies.put(Preconditions.checkNotNull(name), Preconditions.checkNotNull(factory));
+		return this;
+	}
+
+	/**
+	 * @param first The seed of the first episode
+	 * @param end The seed after the last episode
+	 * @return this sweep
+	 */
+	public ParameterSweep setSeeds(long first, long end) {
+		Preconditions.checkArgument(end - first > 0, "invalid seed range [%s, %s)", first, end);
+		this.firstSeed = first;
+		this.endSeed = end;
+		return this;
+	}
+
+	/**
+	 * @param steps The number of steps per episode
+	 * @return this sweep
+	 */
+	public ParameterSweep setSteps(int steps) {
+		Preconditions.checkArgument(steps > 0, "steps must be positive, but is %s", steps);
+		this.steps = steps;
+		return this;
+	}
+
+	/**
+	 * @return the swept values of every configuration of the grid
+	 */
+	public List<SortedMap<String, String>> configurations() {
+		List<SortedMap<String, String>> configurations = new ArrayList<SortedMap<String, String>>();
+		configurations.add(new TreeMap<String, String>());
+		for (Map.Entry<String, List<String>> parameter : grid.entrySet()) {
+			List<SortedMap<String, String>> expanded = new ArrayList<SortedMap<String, String>>();
+			for (SortedMap<String, String> configuration : configurations) {
+				for (String value : parameter.getValue()) {
+					SortedMap<String, String> next = new TreeMap<String, String>(configuration);
+					next.put(parameter.getKey(), value);
+					expanded.add(next);
+				}
+			}
+			configurations = expanded;
+		}
+		return configurations;
+	}
+
+	/**
+	 * @param parameters The swept values
+	 * @return the base configuration with the swept values applied
+	 */
+	public Properties configuration(SortedMap<String, String> parameters) {
+		Properties config = new Properties();
+		config.putAll(base);
+		for (Map.Entry<String, String> parameter : parameters.entrySet()) {
+			if (UNSET.equals(parameter.getValue())) {
+				config.remove(parameter.getKey());
+			} else {
+				config.setProperty(parameter.getKey(), parameter.getValue());
+			}
+		}
+		return config;
+	}
+
+	/**
+	 * Runs all jobs not found in the cache.
+	 * @param threads The number of worker threads
+	 * @return the results of all jobs, ordered by configuration, policy and seed
+	 * @throws ExecutionException if a job failed
+	 * @throws InterruptedException
+	 * @throws IOException if the cache directory cannot be created
+	 */
+	public List<Result> run(int threads) throws ExecutionException, InterruptedException, IOException {
+		Preconditions.checkArgument(threads > 0, "threads must be positive, but is %s", threads);
+		Preconditions.checkState(!policies.isEmpty(), "no policy added");
+		if (cacheDir != null && !cacheDir.isDirectory() && !cacheDir.mkdirs()) {
+			throw new IOException("cannot create the cache directory " + cacheDir);
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<Result>> futures = new ArrayList<Future<Result>>();
+			for (final SortedMap<String, String> parameters : configurations()) {
+				final Properties config = configuration(parameters);
+				for (final Map.Entry<String, LongFunction<Policy>> policy : policies.entrySet()) {
+					for (long seed = firstSeed; seed < endSeed; seed++) {
+						final long jobSeed = seed;
+						futures.add(executor.submit(new Callable<Result>() {
+							@Override
+							public Result call() throws Exception {
+								return runJob(parameters, config, jobSeed, policy.getKey(), policy.getValue());
+							}
+						}));
+					}
+				}
+			}
+
+			List<Result> results = new ArrayList<Result>(futures.size());
+			int cached = 0;
+			for (Future<Result> future : futures) {
+				Result result = future.get();
+				results.add(result);
+				if (result.isCached()) {
+					cached++;
+				}
+			}
+			LOGGER.info("sweep finished: {} jobs computed, {} read from the cache", results.size() - cached, cached);
+			return results;
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private Result runJob(SortedMap<String, String> parameters, Properties config, long seed, String policyName,
+			LongFunction<Policy> policy) throws IOException, PropertiesException {
+		final String key = cacheKey(config, seed, policyName);
+		final File file = cacheDir != null ? new File(cacheDir, key + ".result") : null;
+		if (file != null && file.isFile()) {
+			try {
+				return new Result(parameters, seed, policyName, readResult(file), true);
+			} catch (IOException | NumberFormatException e) {
+				LOGGER.warn("ignoring the unreadable cache entry " + file, e);
+			}
+		}
+
+		WorkerEnvironment worker = workerEnvironments.get();
+		if (!parameters.equals(worker.parameters)) {
+			worker.env = IndustrialBenchmarkDynamics.reproducible(config);
+			worker.parameters = parameters;
+		}
+		worker.env.reset(seed);
+		final double totalReward = new Episode(seed, worker.env).run(policy.apply(seed), steps);
+		if (file != null) {
+			writeResult(file, totalReward);
+		}
+		return new Result(parameters, seed, policyName, totalReward, false);
+	}
+
+	/**
+	 * @return the hex encoded SHA-256 hash of everything the result of a job depends on
+	 */
+	String cacheKey(Properties config, long seed, String policyName) {
+		StringBuilder inputs = new StringBuilder();
+		inputs.append("version=").append(CACHE_VERSION).append('\n');
+		for (String name : new TreeMap<String, String>(Maps.fromProperties(config)).keySet()) {
+			inputs.append(name).append('=').append(config.getProperty(name).trim()).append('\n');
+		}
+		inputs.append("seed=").append(seed).append('\n');
+		inputs.append("steps=").append(steps).append('\n');
+		inputs.append("policy=").append(policyName).append('\n');
+
+		final byte[] hash;
+		try {
+			hash = MessageDigest.getInstance("SHA-256").digest(inputs.toString().getBytes(StandardCharsets.UTF_8));
+		} catch (NoSuchAlgorithmException e) {
+			// every Java platform supports SHA-256
+			throw new IllegalStateException(e);
+		}
+		StringBuilder hex = new StringBuilder(2 * hash.length);
+		for (byte b : hash) {
+			hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+		}
+		return hex.toString();
+	}
+
+	private static double readResult(File file) throws IOException {
+		return Double.parseDouble(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8).trim());
+	}
+
+	/**
+	 * Writes the result to a temporary file first, so concurrent or interrupted sweeps never leave a partial entry.
+	 */
+	private static void writeResult(File file, double totalReward) throws IOException {
+		File tmpFile = File.createTempFile(file.getName(), ".tmp", file.getParentFile());
+		try {
+			try (OutputStream out = new FileOutputStream(tmpFile)) {
+				out.write((Double.toString(totalReward) + "\n").getBytes(StandardCharsets.UTF_8));
+			}
+			Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(tmpFile.toPath());
+		}
+	}
+
+	/**
+	 * Writes the results as CSV, with a column per swept key.
+	 * @param results The results of {@link #run(int)}
+	 * @param out The target
+	 * @throws IOException
+	 */
+	public void writeCsv(List<Result> results, Writer out) throws IOException {
+		StringBuilder line = new StringBuilder();
+		for (String key : grid.keySet()) {
+			appendCsv(line, key).append(',');
+		}
+		line.append("seed,policy,totalReward,cached\n");
+		out.write(line.toString());
+		for (Result result : results) {
+			line.setLength(0);
+			for (String key : grid.keySet()) {
+				appendCsv(line, result.getParameters().get(key)).append(',');
+			}
+			line.append(result.getSeed()).append(',');
+			appendCsv(line, result.getPolicy()).append(',');
+			line.append(result.getTotalReward()).append(',').append(result.isCached()).append('\n');
+			out.write(line.toString());
+		}
+		out.flush();
+	}
+
+	/**
+	 * Appends a CSV field, quoted if necessary, e.g. for the values of {@code ConvArray}.
+	 */
+	private static StringBuilder appendCsv(StringBuilder line, String value) {
+		if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+			return line.append(value);
+		}
+		return line.append('"').append(value.replace("\"", "\"\"")).append('"');
+	}
+
+	/**
+	 * Runs a sweep from the command line.
+	 * @param args see {@link Options}
+	 * @throws IOException
+	 * @throws ExecutionException
+	 * @throws InterruptedException
+	 */
+	public static void main(String[] args) throws IOException, ExecutionException, InterruptedException {
+		Options options = new Options();
+		JCommander jc = new JCommander(options, args);
+		if (options.help) {
+			jc.usage();
+			return;
+		}
+
+		ParameterSweep sweep = new ParameterSweep(PropertiesUtil.setpointProperties(new File(options.config)), new File(options.cache))
+			.addParameters(new File(options.grid))
+			.setSeeds(options.firstSeed, options.firstSeed + options.seeds)
+			.setSteps(options.steps);
+		for (String policy : options.policies) {
+			if ("random".equals(policy)) {
+				sweep.addPolicy(policy, seed -> new RandomPolicy(seed));
+			} else if ("zero".equals(policy)) {
+				sweep.addPolicy(policy, seed -> (observation, action) -> Arrays.fill(action, 0));
+			} else {
+				throw new IllegalArgumentException("unknown policy: " + policy);
+			}
+		}
+
+		List<Result> results = sweep.run(options.threads);
+		try (Writer out = new FileWriter(options.output)) {
+			sweep.writeCsv(results, out);
+		}
+		System.out.println("wrote " + results.size() + " results to " + options.output);
+	}
+}
@@ -0,0 +1,193 @@
+/**
+Copyright 2016 Siemens AG.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.siemens.industrialbenchmark.server;
+
+import static com.siemens.industrialbenchmark.server.SimulationProtocol.*;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+
+import com.google.common.base.Preconditions;
+import com.siemens.industrialbenchmark.datavector.state.ObservableStateDescription;
+
+/**
+ * Blocking client of a {@link SimulationServer} session. Not thread-safe; use one client per thread.
+ */
+public class SimulationClient implements Closeable {
+
+	private static final int BUFFER_SIZE = 8192;
+
+	private final Socket socket;
+	private final DataInputStream in;
+	private final DataOutputStream out;
+
+	/**
+	 * Connects to a server on the loopback address.
+	 * @param port The port of the server
+	 * @throws IOException
+	 */
+	public SimulationClient(int port) throws IOException {
+		this(InetAddress.getLoopbackAddress(), port);
+	}
+
+	/**
+	 * @param address The address of the server
+	 * @param port The port of the server
+	 * @throws IOException
+	 */
+	public SimulationClient(InetAddress address, int port) throws IOException {
+		this.socket = new Socket(address, port);
+		socket.setTcpNoDelay(true);
+		this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), BUFFER_SIZE));
+		this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), BUFFER_SIZE));
+	}
+
+	/**
+	 * Applies one delta action.
+	 * @param observationOut receives the {@link ObservableStateDescription#SIZE} observable values
+	 * @return the reward
+	 * @throws IllegalArgumentException if the server rejected the action
+	 * @throws IOException
+	 */
+	public double step(double deltaVelocity, double deltaGain, double deltaShift, double[] observationOut) throws IOException {
+		checkObservation(observationOut, 1);
+		out.writeByte(OP_STEP);
+		out.writeInt(1);
+		out.writeDouble(deltaVelocity);
+		out.writeDouble(deltaGain);
+		out.writeDouble(deltaShift);
+		out.flush();
+		readStatus();
+		final double reward = in.readDouble();
+		readDoubles(observationOut, 0, ObservableStateDescription.SIZE);
+		return reward;
+	}
+
+	/**
+	 * Applies {@code n} delta actions in a single round trip. Either all or none of them are applied.
+	 * @param actions {@code n} triples of (deltaVelocity, deltaGain, deltaShift)
+	 * @param n The number of actions, at most {@link SimulationProtocol#MAX_STEPS_PER_REQUEST}
+	 * @param rewardsOut receives the {@code n} rewards
+	 * @param observationsOut receives the {@code n} observations back to back
+	 * @throws IllegalArgumentException if the server rejected one of the actions
+	 * @throws IOException
+	 */
+	public void step(double[] actions, int n, double[] rewardsOut, double[] observationsOut) throws IOException {
+		Preconditions.checkArgument(n >= 0 && n <= MAX_STEPS_PER_REQUEST, "n must be in [0, %s], but is %s", MAX_STEPS_PER_REQUEST, n);
+		Preconditions.checkArgument(actions.length >= 3 * n, "actions holds less than %s actions", n);
+		Preconditions.checkArgument(rewardsOut.length >= n, "rewardsOut holds less than %s values", n);
+		checkObservation(observationsOut, n);
+		out.writeByte(OP_STEP);
+		out.writeInt(n);
+		for (int i = 0; i < 3 * n; i++) {
+			out.writeDouble(actions[i]);
+		}
+		out.flush();
+		readStatus();
+		for (int i = 0; i < n; i++) {
+			rewardsOut[i] = in.readDouble();
+			readDoubles(observationsOut, i * ObservableStateDescription.SIZE, ObservableStateDescription.SIZE);
+		}
+	}
+
+	/**
+	 * Resets the session to its initial state.
+	 * @param seed The new random seed
+	 * @param observationOut receives the initial observation
+	 * @throws IOException
+	 */
+	public void reset(long seed, double[] observationOut) throws IOException {
+		checkObservation(observationOut, 1);
+		out.writeByte(OP_RESET);
+		out.writeLong(seed);
+		out.flush();
+		readStatus();
+		readDoubles(observationOut, 0, ObservableStateDescription.SIZE);
+	}
+
+	/**
+	 * @param observationOut receives the current observation
+	 * @throws IOException
+	 */
+	public void state(double[] observationOut) throws IOException {
+		checkObservation(observationOut, 1);
+		out.writeByte(OP_STATE);
+		out.flush();
+		readStatus();
+		readDoubles(observationOut, 0, ObservableStateDescription.SIZE);
+	}
+
+	/**
+	 * @return the values of the internal markov state, in the order of its keys
+	 * @throws IOException
+	 */
+	public double[] markovState() throws IOException {
+		out.writeByte(OP_MARKOV);
+		out.writeInt(0);
+		out.flush();
+		readStatus();
+		final double[] values = new double[in.readInt()];
+		readDoubles(values, 0, values.length);
+		return values;
+	}
+
+	private static void checkObservation(double[] observationOut, int n) {
+		Preconditions.checkArgument(observationOut.length >= n * ObservableStateDescription.SIZE,
+				"observation buffer must hold %s values, but holds %s", n * ObservableStateDescription.SIZE, observationOut.length);
+	}
+
+	private void readStatus() throws IOException {
+		final int status = in.readUnsignedByte();
+		switch (status) {
+		case STATUS_OK:
+			return;
+		case STATUS_INVALID_ARGUMENT:
+			throw new IllegalArgumentException("the server rejected action " + in.readInt() + ", no action was applied");
+		case STATUS_PROTOCOL_ERROR:
+		case STATUS_BUSY:
+			throw new IOException("the server closed the session: " + in.readUTF());
+		default:
+			throw new IOException("unknown status " + status);
+		}
+	}
+
+	private void readDoubles(double[] target, int offset, int length) throws IOException {
+		for (int i = 0; i < length; i++) {
+			target[offset + i] = in.readDouble();
+		}
+	}
+
+	/**
+	 * Ends the session and closes the connection.
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			out.writeByte(OP_CLOSE);
+			out.flush();
+		} catch (IOException e) {
+			// the server has closed the connection already
+		} finally {
+			socket.close();
+		}
+	}
+}
@@ -0,0 +1,58 @@
+/**
+Copyright 2016 Siemens AG.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.siemens.industrialbenchmark.server;
+
+/**
+ * Binary protocol of the {@link SimulationServer}. All values are big-endian as written by 
+ * {@link java.io.DataOutputStream}. Every request starts with an opcode byte, every response 
+ * with a status byte. Requests may be sent without waiting for the responses of earlier requests; 
+ * the responses are sent in request order.
+ * 
+ * <pre>
+ * request                                              response (status OK)
+ * STEP        int n, n * (double dV, dG, dS)            n * (double reward, double[7] observation)
+ * RESET       long seed                                double[7] observation
+ * STATE                                                double[7] observation
+ * MARKOV      int n (expected size, 0 for any)         int n, double[n] markov state
+ * CLOSE                                                (connection is closed)
+ * </pre>
+ * 
+ * The actions of a STEP are validated before the first one is applied. If an action is invalid, 
+ * no step is applied and the status {@link #STATUS_INVALID_ARGUMENT} is followed by the index of 
+ * the action. On other failures the status is followed by a UTF message and the connection is closed.
+ */
+public final class SimulationProtocol {
+
+	public static final byte OP_STEP = 1;
+	public static final byte OP_RESET = 2;
+	public static final byte OP_STATE = 3;
+	public static final byte OP_MARKOV = 4;
+	public static final byte OP_CLOSE = 5;
+
+	public static final byte STATUS_OK = 0;
+	/** an action of a STEP was rejected; followed by int: the index of the rejected action */
+	public static final byte STATUS_INVALID_ARGUMENT = 1;
+	/** the request could not be parsed or exceeds the limits; followed by a UTF message */
+	public static final byte STATUS_PROTOCOL_ERROR = 2;
+	/** the server has no free session; followed by a UTF message */
+	public static final byte STATUS_BUSY = 3;
+
+	/** the maximum number of steps of a pipelined STEP request */
+	public static final int MAX_STEPS_PER_REQUEST = 1024;
+
+	private SimulationProtocol() {
+	}
+}
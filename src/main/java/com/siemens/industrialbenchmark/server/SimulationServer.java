@@ -0,0 +1,397 @@
+/**
+Copyright 2016 Siemens AG.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.siemens.industrialbenchmark.server;
+
+import static com.siemens.industrialbenchmark.server.SimulationProtocol.*;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.beust.jcommander.JCommander;
+import com.beust.jcommander.Parameter;
+import com.google.common.base.Preconditions;
+import com.siemens.industrialbenchmark.datavector.action.ActionDelta;
+import com.siemens.industrialbenchmark.datavector.state.ObservableStateDescription;
+import com.siemens.industrialbenchmark.dynamics.EnvironmentPool;
+import com.siemens.industrialbenchmark.dynamics.IndustrialBenchmarkDynamics;
+import com.siemens.industrialbenchmark.properties.PropertiesException;
+import com.siemens.industrialbenchmark.properties.PropertiesUtil;
+
+/**
+ * Local simulation server mapping every loopback TCP connection to its own 
+ * {@link IndustrialBenchmarkDynamics} session, speaking the {@link SimulationProtocol}. 
+ * Sessions run on virtual threads if the JVM provides them (Java 21+), otherwise on a thread 
+ * pool bounded by the maximum number of sessions. Session instances are taken from an 
+ * {@link EnvironmentPool}. Every session has fixed-size buffers, so its memory is bounded by 
+ * the instance and {@link SimulationProtocol#MAX_STEPS_PER_REQUEST}.
+ * <p>
+ * Example: {@code java ... SimulationServer --port 7878 --max-sessions 512}
+ */
+public class SimulationServer implements Closeable {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(SimulationServer.class);
+	private static final int BUFFER_SIZE = 8192;
+	private static final int MAX_IDLE_INSTANCES = 64;
+
+	/**
+	 * Command line options of the server.
+	 */
+	public static class Options {
+		@Parameter(names = "--config", description = "Properties file of the benchmark")
+		public String config = "src/main/resources/sim.properties";
+
+		@Parameter(names = "--port", description = "Loopback port to listen on, 0 for any free port")
+		public int port = 7878;
+
+		@Parameter(names = "--max-sessions", description = "Maximum number of concurrent sessions")
+		public int maxSessions = 512;
+
+		@Parameter(names = "--idle-timeout", description = "Milliseconds after which an idle session is closed, 0 for never")
+		public int idleTimeout = 0;
+
+		@Parameter(names = "--help", help = true, description = "Prints the usage")
+		public boolean help = false;
+	}
+
+	private final Properties properties;
+	private final int idleTimeoutMillis;
+	private final Semaphore sessionPermits;
+	private final AtomicInteger activeSessions = new AtomicInteger();
+	private final EnvironmentPool pool;
+	private final ServerSocket serverSocket;
+	private final ExecutorService executor;
+	private final boolean virtualThreads;
+	private final Thread acceptor;
+	private volatile boolean closed;
+
+	/**
+	 * Binds the server to the loopback address. Call {@link #start()} to accept connections.
+	 * @param properties The benchmark configuration of all sessions
+	 * @param port The port, 0 for any free port
+	 * @param maxSessions The maximum number of concurrent sessions; further connections are rejected
+	 * @param idleTimeoutMillis Milliseconds after which an idle session is closed, 0 for never
+	 * @throws IOException if the port cannot be bound
+	 */
+	public SimulationServer(Properties properties, int port, int maxSessions, int idleTimeoutMillis) throws IOException {
+		Preconditions.checkArgument(maxSessions > 0, "maxSessions must be positive, but is %s", maxSessions);
+		Preconditions.checkArgument(idleTimeoutMillis >= 0, "idleTimeoutMillis must be non-negative, but is %s", idleTimeoutMillis);
+		this.properties = properties;
+		this.idleTimeoutMillis = idleTimeoutMillis;
+		this.sessionPermits = new Semaphore(maxSessions);
+		this.pool = new EnvironmentPool(Math.min(maxSessions, MAX_IDLE_INSTANCES));
+		this.serverSocket = new ServerSocket(port, 128, InetAddress.getLoopbackAddress());
+
+		ExecutorService virtual = newVirtualThreadExecutor();
+		this.virtualThreads = virtual != null;
+		this.executor = virtual != null ? virtual : newPlatformThreadExecutor(maxSessions);
+		this.acceptor = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				acceptLoop();
+			}
+		}, "simulation-server-acceptor");
+	}
+
+	/**
+	 * @return an executor starting a virtual thread per task, or null before Java 21
+	 */
+	private static ExecutorService newVirtualThreadExecutor() {
+		try {
+			return (ExecutorService) java.util.concurrent.Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException e) {
+			return null;
+		}
+	}
+
+	private static ExecutorService newPlatformThreadExecutor(int maxSessions) {
+		final AtomicInteger count = new AtomicInteger();
+		return new ThreadPoolExecutor(0, maxSessions, 60, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(), new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "simulation-session-" + count.incrementAndGet());
+				t.setDaemon(true);
+				return t;
+			}
+		});
+	}
+
+	/**
+	 * Starts accepting connections.
+	 * @return this server
+	 */
+	public SimulationServer start() {
+		acceptor.start();
+		return this;
+	}
+
+	/**
+	 * @return the bound port
+	 */
+	public int getPort() {
+		return serverSocket.getLocalPort();
+	}
+
+	/**
+	 * @return true if the sessions run on virtual threads
+	 */
+	public boolean isVirtualThreads() {
+		return virtualThreads;
+	}
+
+	/**
+	 * @return the number of open sessions
+	 */
+	public int getActiveSessions() {
+		return activeSessions.get();
+	}
+
+	private void acceptLoop() {
+		while (!closed) {
+			final Socket socket;
+			try {
+				socket = serverSocket.accept();
+			} catch (IOException e) {
+				if (!closed) {
+					LOGGER.warn("accepting a connection failed", e);
+				}
+				continue;
+			}
+			if (!sessionPermits.tryAcquire()) {
+				reject(socket, "too many sessions");
+				continue;
+			}
+			try {
+				executor.execute(new Runnable() {
+					@Override
+					public void run() {
+						try {
+							serve(socket);
+						} finally {
+							sessionPermits.release();
+						}
+					}
+				});
+			} catch (RejectedExecutionException e) {
+				sessionPermits.release();
+				reject(socket, "server is shutting down");
+			}
+		}
+	}
+
+	private static void reject(Socket socket, String reason) {
+		try {
+			DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+			out.writeByte(STATUS_BUSY);
+			out.writeUTF(reason);
+			out.flush();
+		} catch (IOException e) {
+			// the client is gone anyway
+		} finally {
+			closeQuietly(socket);
+		}
+	}
+
+	private void serve(Socket socket) {
+		activeSessions.incrementAndGet();
+		try {
+			socket.setTcpNoDelay(true);
+			socket.setSoTimeout(idleTimeoutMillis);
+			try (EnvironmentPool.Lease lease = pool.acquire(properties)) {
+				new Session(lease.get(), socket).run();
+			}
+		} catch (SocketTimeoutException e) {
+			LOGGER.debug("closing idle session {}", socket.getRemoteSocketAddress());
+		} catch (EOFException | SocketException e) {
+			LOGGER.debug("session {} closed by the client", socket.getRemoteSocketAddress());
+		} catch (IOException | PropertiesException | RuntimeException e) {
+			LOGGER.warn("session " + socket.getRemoteSocketAddress() + " failed", e);
+		} finally {
+			activeSessions.decrementAndGet();
+			closeQuietly(socket);
+		}
+	}
+
+	/**
+	 * One connection: reads requests and writes responses with fixed-size buffers.
+	 */
+	private static final class Session {
+		private final IndustrialBenchmarkDynamics env;
+		private final DataInputStream in;
+		private final DataOutputStream out;
+		private final double[] actions = new double[3 * MAX_STEPS_PER_REQUEST];
+		private final double[] observation = new double[ObservableStateDescription.SIZE];
+		private double[] markov;
+
+		Session(IndustrialBenchmarkDynamics env, Socket socket) throws IOException {
+			this.env = env;
+			this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), BUFFER_SIZE));
+			this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), BUFFER_SIZE));
+		}
+
+		void run() throws IOException {
+			int op;
+			while ((op = in.read()) >= 0) {
+				switch (op) {
+				case OP_STEP:
+					if (!step()) {
+						return;
+					}
+					break;
+				case OP_RESET:
+					env.reset(in.readLong());
+					env.stateInto(observation);
+					out.writeByte(STATUS_OK);
+					writeObservation();
+					break;
+				case OP_STATE:
+					env.stateInto(observation);
+					out.writeByte(STATUS_OK);
+					writeObservation();
+					break;
+				case OP_MARKOV:
+					if (!markovState()) {
+						return;
+					}
+					break;
+				case OP_CLOSE:
+					out.flush();
+					return;
+				default:
+					protocolError("unknown opcode " + op);
+					return;
+				}
+				// pipelined requests are answered with one flush
+				if (in.available() == 0) {
+					out.flush();
+				}
+			}
+		}
+
+		private boolean step() throws IOException {
+			final int n = in.readInt();
+			if (n < 0 || n > MAX_STEPS_PER_REQUEST) {
+				protocolError("number of steps must be in [0, " + MAX_STEPS_PER_REQUEST + "], but is " + n);
+				return false;
+			}
+			for (int i = 0; i < 3 * n; i++) {
+				actions[i] = in.readDouble();
+			}
+			for (int i = 0; i < n; i++) {
+				if (!(Math.abs(actions[3 * i]) <= ActionDelta.MAX_DELTA) || !(Math.abs(actions[3 * i + 1]) <= ActionDelta.MAX_DELTA)) {
+					out.writeByte(STATUS_INVALID_ARGUMENT);
+					out.writeInt(i);
+					return true;
+				}
+			}
+			out.writeByte(STATUS_OK);
+			for (int i = 0; i < n; i++) {
+				out.writeDouble(env.step(actions[3 * i], actions[3 * i + 1], actions[3 * i + 2], observation));
+				writeObservation();
+			}
+			return true;
+		}
+
+		private boolean markovState() throws IOException {
+			if (markov == null) {
+				markov = new double[env.getInternalMarkovState().getKeys().size()];
+			}
+			final int expected = in.readInt();
+			if (expected != 0 && expected != markov.length) {
+				protocolError("the markov state has " + markov.length + " values, but " + expected + " were expected");
+				return false;
+			}
+			env.markovStateInto(markov);
+			out.writeByte(STATUS_OK);
+			out.writeInt(markov.length);
+			for (double v : markov) {
+				out.writeDouble(v);
+			}
+			return true;
+		}
+
+		private void writeObservation() throws IOException {
+			for (double v : observation) {
+				out.writeDouble(v);
+			}
+		}
+
+		private void protocolError(String message) throws IOException {
+			out.writeByte(STATUS_PROTOCOL_ERROR);
+			out.writeUTF(message);
+			out.flush();
+		}
+	}
+
+	private static void closeQuietly(Socket socket) {
+		try {
+			socket.close();
+		} catch (IOException e) {
+			// nothing left to do
+		}
+	}
+
+	/**
+	 * Stops accepting connections and closes the executor. Open sessions end when their client disconnects.
+	 */
+	@Override
+	public void close() throws IOException {
+		closed = true;
+		serverSocket.close();
+		executor.shutdown();
+	}
+
+	/**
+	 * Runs the server from the command line until the process is terminated.
+	 * @param args see {@link Options}
+	 * @throws IOException
+	 * @throws PropertiesException
+	 */
+	public static void main(String[] args) throws IOException, PropertiesException {
+		Options options = new Options();
+		JCommander jc = new JCommander(options, args);
+		if (options.help) {
+			jc.usage();
+			return;
+		}
+
+		Properties props = PropertiesUtil.setpointProperties(new File(options.config));
+		SimulationServer server = new SimulationServer(props, options.port, options.maxSessions, options.idleTimeout).start();
+		System.out.println("listening on 127.0.0.1:" + server.getPort() + (server.isVirtualThreads() ? " (virtual threads)" : ""));
+	}
+}
@@ -0,0 +1,42 @@
+/**
+Copyright 2016 Siemens AG.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.siemens.rl.interfaces;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Implemented by components, e.g. {@link ExternalDriver}s, whose complete internal state can be 
+ * written to and read from an environment checkpoint. Components that do not implement this 
+ * interface are checkpointed by their {@link ExternalDriver#getState()} only.
+ */
+public interface Checkpointable {
+
+	/**
+	 * Writes the complete internal state.
+	 * @param out The output to write to
+	 * @throws IOException
+	 */
+	void writeCheckpoint(DataOutput out) throws IOException;
+
+	/**
+	 * Replaces the internal state with a state written by {@link #writeCheckpoint(DataOutput)}.
+	 * @param in The input to read from
+	 * @throws IOException
+	 */
+	void readCheckpoint(DataInput in) throws IOException;
+}
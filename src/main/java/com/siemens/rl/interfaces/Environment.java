@@ -47,6 +47,46 @@ public interface Environment {
 	 * @return The reward 
 	 */
 	double step (DataVector action);
+
+	/**
+	 * Performs a delta action within the environment and returns the reward, without allocating 
+	 * an action or a state object (optional operation). The default throws an 
+	 * {@link UnsupportedOperationException}.
+	 * @param deltaVelocity The delta velocity
+	 * @param deltaGain The delta gain
+	 * @param deltaShift The delta shift
+	 * @param observationOut receives the successor observation in the layout of {@link #stateInto(double[])}, may be null
+	 * @return The reward
+	 */
+	default double step (double deltaVelocity, double deltaGain, double deltaShift, double[] observationOut) {
+		throw new UnsupportedOperationException("primitive step is not supported by " + getClass().getName());
+	}
+
+	/**
+	 * Copies the observable state into the given array. The layout is the order of the 
+	 * keys of {@link #getState()}, which is stable for a given environment.
+	 * @param out The array to copy to, must be of the length of the observable state
+	 */
+	default void stateInto(double[] out) {
+		double[] values = getState().getValuesArray();
+		if (out.length != values.length) {
+			throw new IllegalArgumentException("expected an array of length " + values.length + ", but got " + out.length);
+		}
+		System.arraycopy(values, 0, out, 0, values.length);
+	}
+
+	/**
+	 * Copies the internal Markovian state into the given array. The layout is the order of 
+	 * the keys of {@link #getInternalMarkovState()}, which is stable for a given environment.
+	 * @param out The array to copy to, must be of the length of the Markovian state
+	 */
+	default void markovStateInto(double[] out) {
+		double[] values = getInternalMarkovState().getValuesArray();
+		if (out.length != values.length) {
+			throw new IllegalArgumentException("expected an array of length " + values.length + ", but got " + out.length);
+		}
+		System.arraycopy(values, 0, out, 0, values.length);
+	}
 	
 	/**
 	 * Function for resetting the environment.
@@ -19,6 +19,7 @@ import static org.junit.Assert.*;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Collections;
 import java.util.Properties;
 import java.util.Random;
 
@@ -26,8 +27,12 @@ import org.junit.Test;
 
 import com.siemens.industrialbenchmark.datavector.action.ActionAbsolute;
 import com.siemens.industrialbenchmark.datavector.action.ActionDelta;
+import com.siemens.industrialbenchmark.datavector.action.MutableAction;
+import com.siemens.industrialbenchmark.dynamics.IndustrialBenchmarkDynamics;
+import com.siemens.industrialbenchmark.externaldrivers.setpointgen.SetPointGenerator;
 import com.siemens.industrialbenchmark.properties.PropertiesException;
 import com.siemens.industrialbenchmark.properties.PropertiesUtil;
+import com.siemens.rl.interfaces.ExternalDriver;
 
 public class TestAction {
 
@@ -95,4 +100,48 @@ public class TestAction {
 			assertEquals (aa.getShift(), c, 0.0001);
 		}
 	}
+
+	/**
+	 * This function tests that a {@link MutableAction} leads to the same trajectory as 
+	 * {@link ActionDelta} and {@link ActionAbsolute}, and that it validates its bounds.
+	 * @throws IOException
+	 * @throws PropertiesException
+	 */
+	@Test
+	public void testMutableAction() throws IOException, PropertiesException {
+		Properties props = PropertiesUtil.setpointProperties(new File ("src/main/resources/simTest.properties"));
+		IndustrialBenchmarkDynamics reference = new IndustrialBenchmarkDynamics(props, 
+				Collections.<ExternalDriver>singletonList(new SetPointGenerator(12345, props)));
+		IndustrialBenchmarkDynamics mutable = new IndustrialBenchmarkDynamics(props, 
+				Collections.<ExternalDriver>singletonList(new SetPointGenerator(12345, props)));
+
+		MutableAction delta = MutableAction.delta();
+		MutableAction absolute = MutableAction.absolute(props);
+		Random actionRand = new Random(12345);
+		for (int i=0; i<500; i++) {
+			double a = 2.f*(actionRand.nextFloat()-0.5f);
+			double b = 2.f*(actionRand.nextFloat()-0.5f);
+			double c = 2.f*(actionRand.nextFloat()-0.5f);
+			if (i % 2 == 0) {
+				assertEquals(reference.step(new ActionDelta(a, b, c)), mutable.step(delta.set(a, b, c)), 0.0);
+			} else {
+				double v = 50 + 50 * a, g = 50 + 50 * b, s = 50 + 50 * c;
+				assertEquals(reference.step(new ActionAbsolute(v, g, s, props)), mutable.step(absolute.set(v, g, s)), 0.0);
+			}
+		}
+		assertArrayEquals(reference.getInternalMarkovState().getValuesArray(), mutable.getInternalMarkovState().getValuesArray(), 0.0);
+
+		try {
+			delta.setGain(ActionDelta.MAX_DELTA + 1);
+			fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		try {
+			absolute.setShift(Double.NaN);
+			fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
 }
@@ -0,0 +1,218 @@
+/**
+Copyright 2016 Siemens AG.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.siemens.industialbenchmark.dynamics;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StreamCorruptedException;
+import java.util.Collections;
+import java.util.Properties;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.siemens.industrialbenchmark.checkpoint.CheckpointWriter;
+import com.siemens.industrialbenchmark.dynamics.IndustrialBenchmarkDynamics;
+import com.siemens.industrialbenchmark.externaldrivers.setpointgen.SetPointGenerator;
+import com.siemens.industrialbenchmark.properties.PropertiesException;
+import com.siemens.industrialbenchmark.properties.PropertiesUtil;
+import com.siemens.rl.interfaces.ExternalDriver;
+
+/**
+ * Tests that checkpointed environments continue exactly like the original environment.
+ */
+public class TestCheckpoint {
+
+	private static Properties properties() throws IOException {
+		return PropertiesUtil.setpointProperties(new File ("src/main/resources/simTest.properties"));
+	}
+
+	private static IndustrialBenchmarkDynamics newDynamics(Properties props, long setPointSeed) throws PropertiesException {
+		return new IndustrialBenchmarkDynamics(props, Collections.<ExternalDriver>singletonList(new SetPointGenerator(setPointSeed, props)));
+	}
+
+	private static double[] run(IndustrialBenchmarkDynamics d, long actionSeed, int steps) {
+		Random rand = new Random(actionSeed);
+		double[] rewards = new double[steps];
+		for (int i = 0; i < steps; i++) {
+			rewards[i] = d.step(2 * rand.nextDouble() - 1, 2 * rand.nextDouble() - 1, 2 * rand.nextDouble() - 1, null);
+		}
+		return rewards;
+	}
+
+	@Test
+	public void testRoundTrip() throws IOException, PropertiesException {
+		Properties props = properties();
+		IndustrialBenchmarkDynamics original = newDynamics(props, 1);
+		run(original, 1, 377);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		original.checkpoint(bytes);
+
+		IndustrialBenchmarkDynamics restored = newDynamics(props, 2);
+		run(restored, 2, 100);
+		restored.restore(new ByteArrayInputStream(bytes.toByteArray()));
+		IndustrialBenchmarkDynamics created = IndustrialBenchmarkDynamics.fromCheckpoint(new ByteArrayInputStream(bytes.toByteArray()));
+
+		double[] expected = run(original, 3, 1000);
+		assertArrayEquals(expected, run(restored, 3, 1000), 0.0);
+		assertArrayEquals(expected, run(created, 3, 1000), 0.0);
+		assertArrayEquals(original.getInternalMarkovState().getValuesArray(), restored.getInternalMarkovState().getValuesArray(), 0.0);
+	}
+
+	@Test
+	public void testCorruption() throws IOException, PropertiesException {
+		Properties props = properties();
+		IndustrialBenchmarkDynamics d = newDynamics(props, 1);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		d.checkpoint(bytes);
+		byte[] checkpoint = bytes.toByteArray();
+		double[] before = d.getInternalMarkovState().getValuesArray();
+
+		byte[] flipped = checkpoint.clone();
+		flipped[flipped.length / 2] ^= 1;
+		byte[] truncated = new byte[checkpoint.length - 3];
+		System.arraycopy(checkpoint, 0, truncated, 0, truncated.length);
+		for (byte[] invalid : new byte[][] {flipped, truncated}) {
+			try {
+				d.restore(new ByteArrayInputStream(invalid));
+				fail();
+			} catch (StreamCorruptedException e) {
+				// expected
+			}
+		}
+
+		Properties other = properties();
+		other.setProperty("CRD", "2.0");
+		try {
+			newDynamics(other, 1).restore(new ByteArrayInputStream(checkpoint));
+			fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		assertArrayEquals(before, d.getInternalMarkovState().getValuesArray(), 0.0);
+	}
+
+	/**
+	 * Applies its checkpoint and fails afterwards, when asked to.
+	 */
+	public static class FailingSetPointGenerator extends SetPointGenerator {
+		boolean fail;
+
+		public FailingSetPointGenerator(long seed, Properties aProperties) throws PropertiesException {
+			super(seed, aProperties);
+		}
+
+		@Override
+		public void readCheckpoint(DataInput in) throws IOException {
+			super.readCheckpoint(in);
+			if (fail) {
+				fail = false;
+				throw new IOException("failing on purpose");
+			}
+		}
+	}
+
+	@Test
+	public void testFailingDriverChangesNothing() throws IOException, PropertiesException {
+		Properties props = properties();
+		FailingSetPointGenerator originalDriver = new FailingSetPointGenerator(1, props);
+		IndustrialBenchmarkDynamics original = new IndustrialBenchmarkDynamics(props, Collections.<ExternalDriver>singletonList(originalDriver));
+		run(original, 1, 377);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		original.checkpoint(bytes);
+
+		FailingSetPointGenerator driver = new FailingSetPointGenerator(2, props);
+		IndustrialBenchmarkDynamics d = new IndustrialBenchmarkDynamics(props, Collections.<ExternalDriver>singletonList(driver));
+		run(d, 2, 100);
+		ByteArrayOutputStream before = new ByteArrayOutputStream();
+		d.checkpoint(before);
+
+		driver.fail = true;
+		try {
+			d.restore(new ByteArrayInputStream(bytes.toByteArray()));
+			fail();
+		} catch (IOException e) {
+			// expected
+		}
+		assertFalse(driver.fail);
+		ByteArrayOutputStream after = new ByteArrayOutputStream();
+		d.checkpoint(after);
+		assertArrayEquals(before.toByteArray(), after.toByteArray());
+	}
+
+	@Test
+	public void testSetPointGenerator() throws IOException, PropertiesException {
+		Properties props = properties();
+		SetPointGenerator original = new SetPointGenerator(1, props);
+		for (int i = 0; i < 250; i++) {
+			original.step();
+		}
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		original.writeCheckpoint(new DataOutputStream(bytes));
+
+		// the random number generator continues without being seeded again
+		SetPointGenerator restored = new SetPointGenerator(2, props);
+		restored.readCheckpoint(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+		for (int i = 0; i < 1000; i++) {
+			assertEquals(original.step(), restored.step(), 0.0);
+		}
+
+		byte[] truncated = new byte[bytes.size() - 4];
+		System.arraycopy(bytes.toByteArray(), 0, truncated, 0, truncated.length);
+		double setPoint = restored.getSetPoint();
+		try {
+			restored.readCheckpoint(new DataInputStream(new ByteArrayInputStream(truncated)));
+			fail();
+		} catch (IOException e) {
+			// expected
+		}
+		assertEquals(setPoint, restored.getSetPoint(), 0.0);
+		assertEquals(original.step(), restored.step(), 0.0);
+	}
+
+	@Test
+	public void testCheckpointWriter() throws IOException, PropertiesException {
+		File file = File.createTempFile("industrialbenchmark", ".checkpoint");
+		file.deleteOnExit();
+		IndustrialBenchmarkDynamics d = newDynamics(properties(), 1);
+		CheckpointWriter writer = new CheckpointWriter(file);
+		for (int i = 0; i < 10; i++) {
+			run(d, i, 10);
+			writer.submit(d);
+		}
+		writer.close();
+		assertNull(writer.getLastError());
+		assertEquals(10, writer.getWrittenCount() + writer.getSkippedCount());
+
+		InputStream in = new FileInputStream(file);
+		IndustrialBenchmarkDynamics restored = IndustrialBenchmarkDynamics.fromCheckpoint(in);
+		in.close();
+		assertArrayEquals(run(d, 42, 100), run(restored, 42, 100), 0.0);
+	}
+}
@@ -16,11 +16,15 @@ limitations under the License.
 package com.siemens.industialbenchmark.dynamics;
 
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
 
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Properties;
 import java.util.Random;
@@ -31,12 +35,14 @@ import com.siemens.industrialbenchmark.datavector.action.ActionDelta;
 import com.siemens.industrialbenchmark.datavector.state.MarkovianStateDescription;
 import com.siemens.industrialbenchmark.datavector.state.ObservableState;
 import com.siemens.industrialbenchmark.datavector.state.ObservableStateDescription;
+import com.siemens.industrialbenchmark.datavector.state.ObservableStateView;
 import com.siemens.industrialbenchmark.dynamics.IndustrialBenchmarkDynamics;
 import com.siemens.industrialbenchmark.externaldrivers.setpointgen.SetPointGenerator;
 import com.siemens.industrialbenchmark.externaldrivers.setpointgen.SetPointGeneratorStateDescription;
 import com.siemens.industrialbenchmark.properties.PropertiesException;
 import com.siemens.industrialbenchmark.properties.PropertiesUtil;
 import com.siemens.rl.interfaces.DataVector;
+import com.siemens.rl.interfaces.Environment;
 import com.siemens.rl.interfaces.ExternalDriver;
 
 /**
@@ -171,4 +177,199 @@ public class TestDynamics {
       		
 		assertEquals (expHistSize, d.getOperationalCostsHistoryLength());
 	}
+
+	/**
+	 * Tests that the in-place reset brings an instance with an arbitrary history back to
+	 * exactly the state of a freshly constructed and reset instance, and that reset(seed) is repeatable.
+	 *
+	 * @throws IOException
+	 * @throws PropertiesException
+	 */
+	@Test
+	public void testReset() throws IOException, PropertiesException {
+		Properties props = PropertiesUtil.setpointProperties(new File ("src/main/resources/simTest.properties"));
+		IndustrialBenchmarkDynamics used = newDynamics(props);
+		runRandomActions(used, new Random(ACTION_SEED), 1000);
+		used.reset();
+
+		IndustrialBenchmarkDynamics fresh = newDynamics(props);
+		fresh.reset();
+		assertArrayEquals(fresh.getInternalMarkovState().getValuesArray(), used.getInternalMarkovState().getValuesArray(), 0.0);
+		assertArrayEquals(runRandomActions(fresh, new Random(ACTION_SEED), 500), runRandomActions(used, new Random(ACTION_SEED), 500), 0.0);
+
+		used.reset(42);
+		double[] first = runRandomActions(used, new Random(ACTION_SEED), 500);
+		used.reset(42);
+		assertArrayEquals(first, runRandomActions(used, new Random(ACTION_SEED), 500), 0.0);
+	}
+
+	/**
+	 * Tests that the primitive step API follows the same trajectory as {@link IndustrialBenchmarkDynamics#step(DataVector)}
+	 * and that the primitive state layouts match {@link DataVector#getValuesArray()}.
+	 * @throws IOException
+	 * @throws PropertiesException
+	 */
+	@Test
+	public void testPrimitiveStep() throws IOException, PropertiesException {
+		Properties props = PropertiesUtil.setpointProperties(new File ("src/main/resources/simTest.properties"));
+		IndustrialBenchmarkDynamics objects = newDynamics(props);
+		IndustrialBenchmarkDynamics primitives = newDynamics(props);
+
+		Random actionRand = new Random(ACTION_SEED);
+		double[] observation = new double[new ObservableStateDescription().getVarNames().size()];
+		double[] markov = new double[objects.getInternalMarkovState().getKeys().size()];
+		for (int i=0; i<500; i++) {
+			double dv = 2.f*(actionRand.nextFloat()-0.5f);
+			double dg = 2.f*(actionRand.nextFloat()-0.5f);
+			double ds = 2.f*(actionRand.nextFloat()-0.5f);
+			assertEquals(objects.step(new ActionDelta(dv, dg, ds)), primitives.step(dv, dg, ds, observation), 0.0);
+			assertArrayEquals(objects.getState().getValuesArray(), observation, 0.0);
+			primitives.markovStateInto(markov);
+			assertArrayEquals(objects.getInternalMarkovState().getValuesArray(), markov, 0.0);
+		}
+		primitives.stateInto(observation);
+		assertArrayEquals(primitives.getState().getValuesArray(), observation, 0.0);
+	}
+
+	/**
+	 * Tests the default methods of an {@link Environment} that only implements the 
+	 * {@link DataVector} API: the state copies follow the same trajectory, the primitive step 
+	 * is not supported.
+	 * @throws IOException
+	 * @throws PropertiesException
+	 */
+	@Test
+	public void testDefaultPrimitiveStep() throws IOException, PropertiesException {
+		Properties props = PropertiesUtil.setpointProperties(new File ("src/main/resources/simTest.properties"));
+		final IndustrialBenchmarkDynamics delegate = newDynamics(props);
+		Environment minimal = new Environment() {
+			@Override
+			public double getReward() {
+				return delegate.getReward();
+			}
+
+			@Override
+			public DataVector getState() {
+				return delegate.getState();
+			}
+
+			@Override
+			public DataVector getInternalMarkovState() {
+				return delegate.getInternalMarkovState();
+			}
+
+			@Override
+			public double step(DataVector action) {
+				return delegate.step(action);
+			}
+
+			@Override
+			public void reset() {
+				delegate.reset();
+			}
+		};
+		IndustrialBenchmarkDynamics primitives = newDynamics(props);
+
+		Random actionRand = new Random(ACTION_SEED);
+		double[] expected = new double[new ObservableStateDescription().getVarNames().size()];
+		double[] actual = new double[expected.length];
+		for (int i=0; i<200; i++) {
+			double dv = 2.f*(actionRand.nextFloat()-0.5f);
+			double dg = 2.f*(actionRand.nextFloat()-0.5f);
+			double ds = 2.f*(actionRand.nextFloat()-0.5f);
+			assertEquals(primitives.step(dv, dg, ds, expected), minimal.step(new ActionDelta(dv, dg, ds)), 0.0);
+			minimal.stateInto(actual);
+			assertArrayEquals(expected, actual, 0.0);
+		}
+		double[] markov = new double[primitives.getInternalMarkovState().getKeys().size()];
+		primitives.markovStateInto(markov);
+		double[] markovActual = new double[markov.length];
+		minimal.markovStateInto(markovActual);
+		assertArrayEquals(markov, markovActual, 0.0);
+
+		try {
+			minimal.step(0, 0, 0, actual);
+			fail("expected the primitive step to be unsupported");
+		} catch (UnsupportedOperationException e) {
+			// expected
+		}
+	}
+
+	/**
+	 * Tests that the state view follows the markov state and that snapshots are independent of it.
+	 * @throws IOException
+	 * @throws PropertiesException
+	 */
+	@Test
+	public void testStateView() throws IOException, PropertiesException {
+		Properties props = PropertiesUtil.setpointProperties(new File ("src/main/resources/simTest.properties"));
+		IndustrialBenchmarkDynamics d = newDynamics(props);
+		ObservableStateView view = d.getStateView();
+		Random actionRand = new Random(ACTION_SEED);
+
+		runRandomActions(d, actionRand, 10);
+		ObservableState snapshot = view.snapshot();
+		assertArrayEquals(d.getState().getValuesArray(), snapshot.getValuesArray(), 0.0);
+
+		runRandomActions(d, actionRand, 10);
+		assertArrayEquals(d.getState().getValuesArray(), view.getValuesArray(), 0.0);
+		for (String key : view.getKeys()) {
+			assertEquals(d.getState().getValue(key), view.getValue(key));
+		}
+		assertFalse(Arrays.equals(snapshot.getValuesArray(), view.getValuesArray()));
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testStateViewIsReadOnly() throws IOException, PropertiesException {
+		Properties props = PropertiesUtil.setpointProperties(new File ("src/main/resources/simTest.properties"));
+		newDynamics(props).getStateView().setValue(ObservableStateDescription.Fatigue, 0);
+	}
+
+	/**
+	 * Tests that {@link IndustrialBenchmarkDynamics#restore(double[])} continues exactly like 
+	 * {@link IndustrialBenchmarkDynamics#setInternalMarkovState(DataVector)}.
+	 * @throws IOException
+	 * @throws PropertiesException
+	 */
+	@Test
+	public void testRestore() throws IOException, PropertiesException {
+		Properties props = PropertiesUtil.setpointProperties(new File ("src/main/resources/simTest.properties"));
+		IndustrialBenchmarkDynamics source = newDynamics(props);
+		runRandomActions(source, new Random(1), 300);
+		DataVector saved = source.getInternalMarkovState();
+		double[] layout = new double[saved.getKeys().size()];
+		source.markovStateInto(layout);
+		double[] layoutCopy = layout.clone();
+
+		IndustrialBenchmarkDynamics viaDataVector = newDynamics(props);
+		runRandomActions(viaDataVector, new Random(2), 100);
+		viaDataVector.setInternalMarkovState(saved);
+
+		IndustrialBenchmarkDynamics viaArray = newDynamics(props);
+		runRandomActions(viaArray, new Random(3), 200);
+		viaArray.restore(layout);
+		assertArrayEquals(layoutCopy, layout, 0.0);
+
+		assertArrayEquals(viaDataVector.getInternalMarkovState().getValuesArray(), viaArray.getInternalMarkovState().getValuesArray(), 0.0);
+		assertArrayEquals(runRandomActions(viaDataVector, new Random(ACTION_SEED), 500), runRandomActions(viaArray, new Random(ACTION_SEED), 500), 0.0);
+		assertArrayEquals(viaDataVector.getInternalMarkovState().getValuesArray(), viaArray.getInternalMarkovState().getValuesArray(), 0.0);
+	}
+
+	private IndustrialBenchmarkDynamics newDynamics(Properties props) throws PropertiesException {
+		List<ExternalDriver> externalDrivers = new ArrayList<ExternalDriver>();
+		externalDrivers.add(new SetPointGenerator (ACTION_SEED, props));
+		return new IndustrialBenchmarkDynamics (props, externalDrivers);
+	}
+
+	private double[] runRandomActions(IndustrialBenchmarkDynamics d, Random actionRand, int steps) throws PropertiesException {
+		final ActionDelta action = new ActionDelta(0, 0, 0);
+		double rewards[] = new double[steps];
+		for (int i=0; i<steps; i++) {
+			action.setDeltaGain(2.f*(actionRand.nextFloat()-0.5f));
+			action.setDeltaVelocity(2.f*(actionRand.nextFloat()-0.5f));
+			action.setDeltaShift(2.f*(actionRand.nextFloat()-0.5f));
+			rewards[i] = d.step(action);
+		}
+		return rewards;
+	}
 }
@@ -0,0 +1,166 @@
+/**
+Copyright 2016 Siemens AG.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.siemens.industialbenchmark.dynamics;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Properties;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.siemens.industrialbenchmark.datavector.action.ActionDelta;
+import com.siemens.industrialbenchmark.dynamics.EnvironmentPool;
+import com.siemens.industrialbenchmark.dynamics.IndustrialBenchmarkDynamics;
+import com.siemens.industrialbenchmark.dynamics.TransitionCache;
+import com.siemens.industrialbenchmark.dynamics.TransitionCache.Eviction;
+import com.siemens.industrialbenchmark.properties.PropertiesException;
+import com.siemens.industrialbenchmark.properties.PropertiesUtil;
+
+/**
+ * Tests reuse and bounds of the {@link EnvironmentPool}.
+ */
+public class TestEnvironmentPool {
+
+	@Test
+	public void testReuse() throws IOException, PropertiesException {
+		Properties props = PropertiesUtil.setpointProperties(new File ("src/main/resources/simTest.properties"));
+		EnvironmentPool pool = new EnvironmentPool(2);
+
+		EnvironmentPool.Lease lease = pool.acquire(props, 7);
+		IndustrialBenchmarkDynamics first = lease.get();
+		double[] trajectory = runPrimitive(first, 200);
+		lease.close();
+		assertEquals(1, pool.getIdleCount());
+		assertEquals(0, pool.getBorrowedCount());
+
+		// same configuration and seed: same instance, same trajectory
+		try (EnvironmentPool.Lease again = pool.acquire((Properties) props.clone(), 7)) {
+			assertSame(first, again.get());
+			assertArrayEquals(trajectory, run(again.get(), 200), 0.0);
+		}
+		assertEquals(1, pool.getCreatedCount());
+		assertEquals(1, pool.getReusedCount());
+
+		// a different configuration does not share instances
+		Properties other = (Properties) props.clone();
+		other.setProperty("CRD", "2.0");
+		try (EnvironmentPool.Lease lease2 = pool.acquire(other)) {
+			assertNotSame(first, lease2.get());
+			assertEquals(1, pool.getIdleCount());
+		}
+	}
+
+	@Test
+	public void testDistinctInstancesReproducible() throws IOException, PropertiesException {
+		Properties props = PropertiesUtil.setpointProperties(new File ("src/main/resources/simTest.properties"));
+		EnvironmentPool pool = new EnvironmentPool(2);
+
+		// two instances borrowed at once, with the same seed: same trajectory including the setpoint
+		try (EnvironmentPool.Lease first = pool.acquire(props, 7);
+				EnvironmentPool.Lease second = pool.acquire(props, 7)) {
+			assertNotSame(first.get(), second.get());
+			assertArrayEquals(run(first.get(), 200), run(second.get(), 200), 0.0);
+			assertArrayEquals(markovState(first.get()), markovState(second.get()), 0.0);
+		}
+		assertEquals(2, pool.getCreatedCount());
+	}
+
+	@Test
+	public void testReleaseDetachesCache() throws IOException, PropertiesException {
+		Properties props = PropertiesUtil.setpointProperties(new File ("src/main/resources/simTest.properties"));
+		EnvironmentPool pool = new EnvironmentPool(1);
+
+		IndustrialBenchmarkDynamics first;
+		double[] trajectory;
+		TransitionCache cache;
+		try (EnvironmentPool.Lease lease = pool.acquire(props, 7)) {
+			first = lease.get();
+			double[] markov = new double[first.getInternalMarkovState().getKeys().size()];
+			cache = new TransitionCache(markov.length, 1000, Eviction.LRU);
+			first.setTransitionCache(cache);
+			trajectory = runPrimitive(first, 200);
+		}
+		assertNull(first.getTransitionCache());
+		long lookups = cache.getHits() + cache.getMisses();
+		assertTrue(lookups > 0);
+
+		// the next borrower neither uses nor fills the cache of the previous one
+		try (EnvironmentPool.Lease again = pool.acquire(props, 7)) {
+			assertSame(first, again.get());
+			assertNull(again.get().getTransitionCache());
+			assertArrayEquals(trajectory, runPrimitive(again.get(), 200), 0.0);
+		}
+		assertEquals(lookups, cache.getHits() + cache.getMisses());
+	}
+
+	@Test
+	public void testBound() throws IOException, PropertiesException {
+		Properties props = PropertiesUtil.setpointProperties(new File ("src/main/resources/simTest.properties"));
+		EnvironmentPool pool = new EnvironmentPool(2);
+		pool.prewarm(props, 5);
+		assertEquals(2, pool.getIdleCount());
+		assertEquals(1.0, pool.getOccupancy(), 0.0);
+
+		EnvironmentPool.Lease[] leases = new EnvironmentPool.Lease[3];
+		for (int i = 0; i < leases.length; i++) {
+			leases[i] = pool.acquire(props);
+		}
+		assertEquals(0, pool.getIdleCount());
+		assertEquals(3, pool.getBorrowedCount());
+		for (EnvironmentPool.Lease l : leases) {
+			l.close();
+			l.close();
+		}
+		assertEquals(2, pool.getIdleCount());
+		assertEquals(0, pool.getBorrowedCount());
+	}
+
+	/**
+	 * Steps with the primitive API, which is the one that uses the transition cache.
+	 */
+	private static double[] runPrimitive(IndustrialBenchmarkDynamics d, int steps) {
+		Random rand = new Random(12345);
+		double[] rewards = new double[steps];
+		for (int i = 0; i < steps; i++) {
+			rewards[i] = d.step(2 * rand.nextFloat() - 1, 2 * rand.nextFloat() - 1, 2 * rand.nextFloat() - 1, null);
+		}
+		return rewards;
+	}
+
+	private static double[] markovState(IndustrialBenchmarkDynamics d) {
+		double[] markov = new double[d.getInternalMarkovState().getKeys().size()];
+		d.markovStateInto(markov);
+		return markov;
+	}
+
+	private static double[] run(IndustrialBenchmarkDynamics d, int steps) throws PropertiesException {
+		Random rand = new Random(12345);
+		double[] rewards = new double[steps];
+		for (int i = 0; i < steps; i++) {
+			d.step(new ActionDelta(2 * rand.nextFloat() - 1, 2 * rand.nextFloat() - 1, 2 * rand.nextFloat() - 1));
+			rewards[i] = d.getState().getValue("RewardTotal");
+		}
+		return rewards;
+	}
+}
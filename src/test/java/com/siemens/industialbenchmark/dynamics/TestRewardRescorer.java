@@ -0,0 +1,122 @@
+/**
+Copyright 2016 Siemens AG.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.siemens.industialbenchmark.dynamics;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Properties;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.siemens.industrialbenchmark.datavector.codec.DataVectorReader;
+import com.siemens.industrialbenchmark.datavector.codec.DataVectorWriter;
+import com.siemens.industrialbenchmark.datavector.state.ObservableStateDescription;
+import com.siemens.industrialbenchmark.dynamics.IndustrialBenchmarkDynamics;
+import com.siemens.industrialbenchmark.dynamics.RewardRescorer;
+import com.siemens.industrialbenchmark.dynamics.RewardWeights;
+import com.siemens.industrialbenchmark.pipeline.TrajectoryWriter;
+import com.siemens.industrialbenchmark.pipeline.TransitionRing;
+import com.siemens.industrialbenchmark.properties.PropertiesException;
+import com.siemens.industrialbenchmark.properties.PropertiesUtil;
+
+/**
+ * Compares re-scored rewards with simulated ones.
+ */
+public class TestRewardRescorer {
+
+	private static final int STEPS = 2500;
+
+	/**
+	 * Collects the rewards of all blocks.
+	 */
+	private static class Collector implements RewardRescorer.Listener {
+		final double[][] rewards;
+		int count;
+
+		Collector(int weights) {
+			rewards = new double[weights][STEPS];
+		}
+
+		@Override
+		public void accept(double[][] block, int n) {
+			for (int k = 0; k < rewards.length; k++) {
+				System.arraycopy(block[k], 0, rewards[k], count, n);
+			}
+			count += n;
+		}
+	}
+
+	@Test
+	public void testRescore() throws IOException, PropertiesException {
+		Properties recorded = PropertiesUtil.setpointProperties(new File ("src/main/resources/sim.properties"));
+		Properties reweighted = new Properties();
+		reweighted.putAll(recorded);
+		reweighted.setProperty("CRD", "1.3");
+		reweighted.setProperty("CRE", "2.1");
+
+		IndustrialBenchmarkDynamics a = new IndustrialBenchmarkDynamics(recorded);
+		IndustrialBenchmarkDynamics b = new IndustrialBenchmarkDynamics(reweighted);
+		a.reset(3);
+		b.reset(3);
+		double[][] expected = new double[2][STEPS];
+		ByteArrayOutputStream binary = new ByteArrayOutputStream();
+		DataVectorWriter vectors = new DataVectorWriter(binary);
+		StringWriter text = new StringWriter();
+		TrajectoryWriter trajectory = new TrajectoryWriter(text, a.getState().getKeys());
+		double[] slot = new double[TransitionRing.SLOT_SIZE];
+		double[] observation = new double[ObservableStateDescription.SIZE];
+		a.stateInto(observation);
+		Random rand = new Random(4);
+		for (int i = 0; i < STEPS; i++) {
+			double dv = 2 * rand.nextDouble() - 1, dg = 2 * rand.nextDouble() - 1, ds = 2 * rand.nextDouble() - 1;
+			System.arraycopy(observation, 0, slot, TransitionRing.OBSERVATION_OFFSET, ObservableStateDescription.SIZE);
+			expected[0][i] = a.step(dv, dg, ds, observation);
+			expected[1][i] = b.step(dv, dg, ds, null);
+			vectors.write(a.getInternalMarkovState());
+			slot[TransitionRing.REWARD_OFFSET] = expected[0][i];
+			System.arraycopy(observation, 0, slot, TransitionRing.NEXT_OBSERVATION_OFFSET, ObservableStateDescription.SIZE);
+			trajectory.accept(slot, 0);
+		}
+		vectors.close();
+		trajectory.close();
+
+		RewardRescorer rescorer = new RewardRescorer(RewardWeights.fromProperties(recorded), RewardWeights.fromProperties(reweighted));
+		Collector fromVectors = new Collector(2);
+		assertEquals(STEPS, rescorer.rescore(new DataVectorReader(new ByteArrayInputStream(binary.toByteArray())), fromVectors));
+		assertArrayEquals(expected[0], fromVectors.rewards[0], 0.0);
+		assertArrayEquals(expected[1], fromVectors.rewards[1], 0.0);
+
+		Collector fromText = new Collector(2);
+		assertEquals(STEPS, rescorer.rescore(new StringReader(text.toString()), fromText));
+		assertArrayEquals(expected[0], fromText.rewards[0], 0.0);
+		assertArrayEquals(expected[1], fromText.rewards[1], 0.0);
+
+		double total = 0;
+		for (double r : expected[1]) {
+			total += r;
+		}
+		assertEquals(2 * STEPS, rescorer.getStepCount());
+		assertEquals(2 * total, rescorer.getTotals()[1], 1e-6 * Math.abs(total));
+	}
+}
@@ -0,0 +1,162 @@
+/**
+Copyright 2016 Siemens AG.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.siemens.industialbenchmark.dynamics;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.siemens.industrialbenchmark.datavector.action.DiscreteActions;
+import com.siemens.industrialbenchmark.dynamics.IndustrialBenchmarkDynamics;
+import com.siemens.industrialbenchmark.dynamics.TransitionCache;
+import com.siemens.industrialbenchmark.dynamics.TransitionCache.Eviction;
+import com.siemens.industrialbenchmark.properties.PropertiesException;
+import com.siemens.industrialbenchmark.properties.PropertiesUtil;
+
+/**
+ * Tests the {@link TransitionCache} and stepping through it.
+ */
+public class TestTransitionCache {
+
+	private static double[] state(double value) {
+		double[] state = new double[4];
+		Arrays.fill(state, value);
+		return state;
+	}
+
+	@Test
+	public void testTransparent() throws IOException, PropertiesException {
+		Properties props = PropertiesUtil.setpointProperties(new File ("src/main/resources/sim.properties"));
+		for (Eviction eviction : Eviction.values()) {
+			IndustrialBenchmarkDynamics plain = new IndustrialBenchmarkDynamics(props);
+			IndustrialBenchmarkDynamics cached = new IndustrialBenchmarkDynamics(props);
+			plain.reset(6);
+			cached.reset(6);
+			double[] start = new double[plain.getInternalMarkovState().getKeys().size()];
+			plain.step(0, 0, 0, null);
+			plain.markovStateInto(start);
+
+			TransitionCache cache = new TransitionCache(start.length, 100, eviction);
+			cached.setTransitionCache(cache);
+			cached.step(0, 0, 0, null);
+
+			double[] a = new double[plain.getStateView().getSlotCount()];
+			double[] b = new double[a.length];
+			double[] markovA = new double[start.length];
+			double[] markovB = new double[start.length];
+			Random choice = new Random(1);
+			for (int rollout = 0; rollout < 60; rollout++) {
+				// rollouts of a few distinct sequences revisit the same transitions
+				Random actions = new Random(choice.nextInt(4));
+				plain.restore(start);
+				cached.restore(start);
+				for (int t = 0; t < 30; t++) {
+					int action = actions.nextInt(DiscreteActions.COUNT);
+					double dv = DiscreteActions.deltaVelocity(action);
+					double dg = DiscreteActions.deltaGain(action);
+					double ds = DiscreteActions.deltaShift(action);
+					assertEquals(plain.step(dv, dg, ds, a), cached.step(dv, dg, ds, b), 0);
+					assertArrayEquals(a, b, 0);
+				}
+				plain.markovStateInto(markovA);
+				cached.markovStateInto(markovB);
+				assertArrayEquals(markovA, markovB, 0);
+			}
+			assertTrue(cache.getHits() > 0);
+			assertTrue(cache.getEvictions() > 0);
+			assertEquals(100, cache.size());
+			assertEquals(cache.getHits() / (double) (cache.getHits() + cache.getMisses()), cache.getHitRate(), 1e-12);
+		}
+	}
+
+	@Test
+	public void testLru() {
+		TransitionCache cache = new TransitionCache(4, 2, Eviction.LRU);
+		double[] out = new double[4];
+		cache.store(1, 0, 0, 0, state(1));
+		cache.store(2, 0, 0, 0, state(2));
+		assertTrue(cache.lookup(1, 0, 0, 0, out));
+		cache.store(3, 0, 0, 0, state(3));
+		assertFalse(cache.lookup(2, 0, 0, 0, out));
+		assertTrue(cache.lookup(1, 0, 0, 0, out));
+		assertArrayEquals(state(1), out, 0);
+		assertTrue(cache.lookup(3, 0, 0, 0, out));
+		assertArrayEquals(state(3), out, 0);
+		assertFalse(cache.lookup(1, 0, 0, 1, out));
+		assertEquals(1, cache.getEvictions());
+	}
+
+	@Test
+	public void testClock() {
+		TransitionCache cache = new TransitionCache(4, 2, Eviction.CLOCK);
+		double[] out = new double[4];
+		cache.store(1, 0, 0, 0, state(1));
+		cache.store(2, 0, 0, 0, state(2));
+		// the hit gives 1 a second chance
+		assertTrue(cache.lookup(1, 0, 0, 0, out));
+		cache.store(3, 0, 0, 0, state(3));
+		assertFalse(cache.lookup(2, 0, 0, 0, out));
+		assertTrue(cache.lookup(1, 0, 0, 0, out));
+		assertTrue(cache.lookup(3, 0, 0, 0, out));
+
+		cache.clear();
+		assertEquals(0, cache.size());
+		assertFalse(cache.lookup(1, 0, 0, 0, out));
+		assertEquals(1, cache.getMisses());
+	}
+
+	@Test
+	public void testAgainstLinkedHashMap() {
+		final int capacity = 64;
+		TransitionCache cache = new TransitionCache(4, capacity, Eviction.LRU);
+		Map<Long, Double> model = new LinkedHashMap<Long, Double>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, Double> eldest) {
+				return size() > capacity;
+			}
+		};
+		Random random = new Random(3);
+		double[] out = new double[4];
+		for (int i = 0; i < 100000; i++) {
+			long key = random.nextInt(200);
+			if (random.nextBoolean()) {
+				double value = random.nextDouble();
+				cache.store(key, 1, -1, 0, state(value));
+				model.put(key, value);
+			} else {
+				Double expected = model.get(key);
+				assertEquals(expected != null, cache.lookup(key, 1, -1, 0, out));
+				if (expected != null) {
+					assertArrayEquals(state(expected), out, 0);
+				}
+			}
+		}
+		assertEquals(model.size(), cache.size());
+	}
+}
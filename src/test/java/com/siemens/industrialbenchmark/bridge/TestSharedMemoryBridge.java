@@ -0,0 +1,114 @@
+/**
+Copyright 2016 Siemens AG.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.siemens.industrialbenchmark.bridge;
+
+import static com.siemens.industrialbenchmark.bridge.SharedMemoryLayout.*;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.siemens.industrialbenchmark.datavector.state.ObservableStateDescription;
+import com.siemens.industrialbenchmark.dynamics.IndustrialBenchmarkDynamics;
+import com.siemens.industrialbenchmark.properties.PropertiesException;
+import com.siemens.industrialbenchmark.properties.PropertiesUtil;
+
+/**
+ * Drives the {@link SharedMemoryBridge} through the shared file like an external client.
+ */
+public class TestSharedMemoryBridge {
+
+	private static final int LANES = 3;
+
+	@Test(timeout = 60000)
+	public void testHandshake() throws IOException, PropertiesException, InterruptedException {
+		Properties props = PropertiesUtil.setpointProperties(new File ("src/main/resources/sim.properties"));
+		File file = File.createTempFile("industrialbenchmark", ".shm");
+		file.deleteOnExit();
+
+		List<IndustrialBenchmarkDynamics> local = new ArrayList<IndustrialBenchmarkDynamics>();
+		for (int i = 0; i < LANES; i++) {
+			local.add(IndustrialBenchmarkDynamics.reproducible(props));
+		}
+		SharedMemoryBridge bridge = SharedMemoryBridge.create(file, props, LANES);
+		Thread loop = new Thread(bridge);
+		loop.start();
+
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		MappedByteBuffer shm = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, raf.length());
+		shm.order(ByteOrder.LITTLE_ENDIAN);
+		assertEquals(MAGIC, shm.getInt(MAGIC_OFFSET));
+		assertEquals(LANES, shm.getInt(LANE_COUNT_OFFSET));
+		assertEquals(STATE_READY, shm.getInt(STATE_OFFSET));
+
+		long seq = 0;
+		double[] expected = new double[ObservableStateDescription.SIZE];
+		double[] actual = new double[ObservableStateDescription.SIZE];
+		Random rand = new Random(1);
+		for (int lane = 0; lane < LANES; lane++) {
+			shm.putLong(laneOffset(lane) + SEED_OFFSET, 100 + lane);
+			shm.putInt(laneOffset(lane) + COMMAND_OFFSET, COMMAND_RESET);
+			call(shm, lane, ++seq);
+			local.get(lane).reset(100 + lane);
+		}
+		for (int i = 0; i < 200; i++) {
+			int lane = i % LANES;
+			int base = laneOffset(lane);
+			double dv = 2 * rand.nextDouble() - 1, dg = 2 * rand.nextDouble() - 1, ds = 2 * rand.nextDouble() - 1;
+			shm.putInt(base + COMMAND_OFFSET, COMMAND_STEP);
+			shm.putDouble(base + DELTA_VELOCITY_OFFSET, dv);
+			shm.putDouble(base + DELTA_GAIN_OFFSET, dg);
+			shm.putDouble(base + DELTA_SHIFT_OFFSET, ds);
+			call(shm, lane, ++seq);
+
+			assertEquals(STATUS_OK, shm.getInt(base + STATUS_OFFSET));
+			assertEquals(local.get(lane).step(dv, dg, ds, expected), shm.getDouble(base + REWARD_OFFSET), 0.0);
+			for (int j = 0; j < ObservableStateDescription.SIZE; j++) {
+				actual[j] = shm.getDouble(base + OBSERVATION_OFFSET + 8 * j);
+			}
+			assertArrayEquals(expected, actual, 0.0);
+		}
+
+		// rejected delta
+		shm.putDouble(laneOffset(0) + DELTA_GAIN_OFFSET, 100);
+		call(shm, 0, ++seq);
+		assertEquals(STATUS_INVALID_ARGUMENT, shm.getInt(laneOffset(0) + STATUS_OFFSET));
+
+		bridge.close();
+		loop.join();
+		assertEquals(STATE_STOPPED, shm.getInt(STATE_OFFSET));
+		assertEquals(LANES + 201, bridge.getCommandCount());
+		raf.close();
+	}
+
+	private static void call(MappedByteBuffer shm, int lane, long seq) {
+		shm.putLong(laneOffset(lane) + REQUEST_SEQ_OFFSET, seq);
+		while (shm.getLong(laneOffset(lane) + RESPONSE_SEQ_OFFSET) != seq) {
+			Thread.yield();
+		}
+	}
+}
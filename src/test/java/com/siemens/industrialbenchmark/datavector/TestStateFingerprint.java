@@ -0,0 +1,180 @@
+/**
+Copyright 2016 Siemens AG.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.siemens.industrialbenchmark.datavector;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.LongConsumer;
+
+import org.junit.Test;
+
+import com.siemens.industrialbenchmark.datavector.codec.DataVectorReader;
+import com.siemens.industrialbenchmark.datavector.codec.DataVectorWriter;
+import com.siemens.industrialbenchmark.datavector.state.ObservableState;
+import com.siemens.industrialbenchmark.datavector.state.ObservableStateDescription;
+import com.siemens.industrialbenchmark.dynamics.IndustrialBenchmarkDynamics;
+import com.siemens.industrialbenchmark.properties.PropertiesException;
+import com.siemens.industrialbenchmark.properties.PropertiesUtil;
+import com.siemens.rl.interfaces.DataVector;
+
+/**
+ * Tests the {@link StateFingerprint} and its maintenance in {@link DataVectorImpl}.
+ */
+public class TestStateFingerprint {
+
+	private static IndustrialBenchmarkDynamics dynamics() throws IOException, PropertiesException {
+		return new IndustrialBenchmarkDynamics(PropertiesUtil.setpointProperties(new File ("src/main/resources/sim.properties")));
+	}
+
+	@Test
+	public void testIncremental() throws IOException, PropertiesException {
+		IndustrialBenchmarkDynamics d = dynamics();
+		d.reset(4);
+		double[] markov = new double[d.getInternalMarkovState().getKeys().size()];
+		double[] start = null;
+		Random random = new Random(2);
+		for (int t = 0; t < 500; t++) {
+			d.step(2 * random.nextDouble() - 1, 2 * random.nextDouble() - 1, 2 * random.nextDouble() - 1, null);
+			d.markovStateInto(markov);
+			assertEquals(StateFingerprint.EXACT.of(markov), d.fingerprint());
+			if (t == 100) {
+				start = markov.clone();
+			}
+		}
+		d.restore(start);
+		assertEquals(StateFingerprint.EXACT.of(start), d.fingerprint());
+	}
+
+	@Test
+	public void testEqualsAndHashCode() throws IOException, PropertiesException {
+		IndustrialBenchmarkDynamics d = dynamics();
+		d.reset(4);
+		d.step(0.5, 0.5, 0.5, null);
+		DataVector a = d.getInternalMarkovState();
+		DataVector b = d.getInternalMarkovState();
+		assertEquals(a, b);
+		assertEquals(a.hashCode(), b.hashCode());
+		assertEquals(((DataVectorImpl) a).fingerprint(), ((DataVectorImpl) b).fingerprint());
+
+		b.setValue("RandomSeed", Math.nextUp(b.getValue("RandomSeed")));
+		assertFalse(a.equals(b));
+		assertTrue(((DataVectorImpl) a).fingerprint() != ((DataVectorImpl) b).fingerprint());
+
+		// the view reads through to the markov state
+		ObservableState snapshot = d.getStateView().snapshot();
+		assertEquals(snapshot, d.getStateView());
+		assertEquals(snapshot.hashCode(), d.getStateView().hashCode());
+		assertEquals(snapshot.fingerprint(), d.getStateView().fingerprint());
+		d.step(0.5, 0.5, 0.5, null);
+		assertFalse(snapshot.equals(d.getStateView()));
+	}
+
+	@Test
+	public void testSerialization() throws IOException, PropertiesException, ClassNotFoundException {
+		IndustrialBenchmarkDynamics d = dynamics();
+		d.reset(4);
+		d.step(0.5, 0.5, 0.5, null);
+		DataVectorImpl markov = (DataVectorImpl) d.getInternalMarkovState();
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(markov);
+		}
+		DataVectorImpl copy;
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			copy = (DataVectorImpl) in.readObject();
+		}
+		assertEquals(markov, copy);
+		assertEquals(markov.hashCode(), copy.hashCode());
+		assertEquals(d.fingerprint(), copy.fingerprint());
+
+		// the fingerprint is maintained after deserialization, including the duplicate SetPoint key
+		copy.setValue("SetPoint", 42);
+		assertEquals(StateFingerprint.EXACT.of(copy), copy.fingerprint());
+	}
+
+	@Test
+	public void testQuantized() {
+		ObservableState a = new ObservableState();
+		ObservableState b = new ObservableState();
+		StateFingerprint quantized = StateFingerprint.quantized(a.getKeys(), Collections.singletonMap(ObservableStateDescription.SetPoint, 10.0));
+		assertFalse(quantized.isExact());
+		a.setFingerprinter(quantized);
+		b.setFingerprinter(quantized);
+		for (String key : a.getKeys()) {
+			a.setValue(key, 1);
+			b.setValue(key, 1);
+		}
+		a.setValue(ObservableStateDescription.SetPoint, 51);
+		b.setValue(ObservableStateDescription.SetPoint, 58.5);
+		assertEquals(a.fingerprint(), b.fingerprint());
+		assertEquals(quantized.of(b), b.fingerprint());
+		assertFalse(a.equals(b));
+
+		b.setValue(ObservableStateDescription.SetPoint, 61);
+		assertTrue(a.fingerprint() != b.fingerprint());
+		a.setValue(ObservableStateDescription.Fatigue, 1.5);
+		b.setValue(ObservableStateDescription.SetPoint, 50);
+		assertTrue(a.fingerprint() != b.fingerprint());
+	}
+
+	@Test
+	public void testBulkDeduplication() throws IOException, PropertiesException {
+		IndustrialBenchmarkDynamics d = dynamics();
+		d.reset(9);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		final List<Long> expected = new ArrayList<Long>();
+		try (DataVectorWriter writer = new DataVectorWriter(bytes)) {
+			for (int t = 0; t < 200; t++) {
+				d.step(0.2, -0.2, 0.1, null);
+				// every state is recorded twice
+				writer.write(d.getInternalMarkovState());
+				writer.write(d.getInternalMarkovState());
+				expected.add(d.fingerprint());
+				expected.add(d.fingerprint());
+			}
+		}
+
+		final List<Long> fingerprints = new ArrayList<Long>();
+		final Set<Long> distinct = new HashSet<Long>();
+		try (DataVectorReader reader = new DataVectorReader(new ByteArrayInputStream(bytes.toByteArray()))) {
+			long count = StateFingerprint.EXACT.ofAll(reader, new LongConsumer() {
+				@Override
+				public void accept(long fingerprint) {
+					fingerprints.add(fingerprint);
+					distinct.add(fingerprint);
+				}
+			});
+			assertEquals(400, count);
+		}
+		assertEquals(expected, fingerprints);
+		assertEquals(200, distinct.size());
+	}
+}
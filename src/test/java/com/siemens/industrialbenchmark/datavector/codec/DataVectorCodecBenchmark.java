@@ -0,0 +1,98 @@
+/**
+Copyright 2016 Siemens AG.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.siemens.industrialbenchmark.datavector.codec;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+
+import com.siemens.industrialbenchmark.dynamics.IndustrialBenchmarkDynamics;
+import com.siemens.industrialbenchmark.properties.PropertiesUtil;
+import com.siemens.rl.interfaces.DataVector;
+
+/**
+ * Compares size and throughput of the {@link DataVectorCodec} with Java serialization for the
+ * markov state. Not run as a unit test, start it with
+ * {@code mvn test-compile exec:java -Dexec.mainClass=... -Dexec.classpathScope=test} or from the IDE.
+ */
+public class DataVectorCodecBenchmark {
+
+	private static final int VECTORS = 100000;
+	private static final int ROUNDS = 5;
+
+	public static void main(String[] args) throws Exception {
+		IndustrialBenchmarkDynamics d = new IndustrialBenchmarkDynamics(PropertiesUtil.setpointProperties(new File ("src/main/resources/sim.properties")));
+		DataVector markov = d.getInternalMarkovState();
+
+		for (int round = 0; round < ROUNDS; round++) {
+			// Java serialization
+			long start = System.nanoTime();
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			ObjectOutputStream oos = new ObjectOutputStream(new BufferedOutputStream(bytes));
+			for (int i = 0; i < VECTORS; i++) {
+				oos.writeObject(markov);
+				oos.reset(); // otherwise only back references are written
+			}
+			oos.close();
+			long encoded = System.nanoTime();
+			ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+			for (int i = 0; i < VECTORS; i++) {
+				ois.readObject();
+			}
+			long decoded = System.nanoTime();
+			report("serialization", bytes.size(), encoded - start, decoded - encoded);
+
+			// codec streams
+			start = System.nanoTime();
+			bytes = new ByteArrayOutputStream();
+			DataVectorWriter writer = new DataVectorWriter(new BufferedOutputStream(bytes));
+			for (int i = 0; i < VECTORS; i++) {
+				writer.write(markov);
+			}
+			writer.close();
+			encoded = System.nanoTime();
+			DataVectorReader reader = new DataVectorReader(new ByteArrayInputStream(bytes.toByteArray()));
+			while (reader.read() != null) {
+			}
+			decoded = System.nanoTime();
+			report("codec stream", bytes.size(), encoded - start, decoded - encoded);
+
+			// codec ByteBuffer
+			DataVectorCodec codec = new DataVectorCodec();
+			ByteBuffer buffer = ByteBuffer.allocateDirect(VECTORS * codec.schemaOf(markov).encodedSize());
+			start = System.nanoTime();
+			for (int i = 0; i < VECTORS; i++) {
+				codec.encode(markov, buffer);
+			}
+			encoded = System.nanoTime();
+			buffer.flip();
+			while (buffer.hasRemaining()) {
+				codec.decode(buffer);
+			}
+			decoded = System.nanoTime();
+			report("codec buffer", buffer.limit(), encoded - start, decoded - encoded);
+		}
+	}
+
+	private static void report(String name, long size, long encodeNanos, long decodeNanos) {
+		System.out.printf("%-14s %6.1f bytes/vector  encode %7.0f ns/vector  decode %7.0f ns/vector%n", 
+				name, size / (double) VECTORS, encodeNanos / (double) VECTORS, decodeNanos / (double) VECTORS);
+	}
+}
@@ -0,0 +1,128 @@
+/**
+Copyright 2016 Siemens AG.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.siemens.industrialbenchmark.datavector.codec;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.siemens.industrialbenchmark.datavector.DataVectorImpl;
+import com.siemens.industrialbenchmark.datavector.action.MutableAction;
+import com.siemens.industrialbenchmark.datavector.state.ObservableStateDescription;
+import com.siemens.industrialbenchmark.dynamics.IndustrialBenchmarkDynamics;
+import com.siemens.industrialbenchmark.properties.PropertiesException;
+import com.siemens.industrialbenchmark.properties.PropertiesUtil;
+import com.siemens.rl.interfaces.DataVector;
+
+/**
+ * Round trip tests of the {@link DataVectorCodec}.
+ */
+public class TestDataVectorCodec {
+
+	private static IndustrialBenchmarkDynamics steppedDynamics() throws IOException, PropertiesException {
+		IndustrialBenchmarkDynamics d = new IndustrialBenchmarkDynamics(PropertiesUtil.setpointProperties(new File ("src/main/resources/sim.properties")));
+		Random rand = new Random(1);
+		for (int i = 0; i < 100; i++) {
+			d.step(2 * rand.nextDouble() - 1, 2 * rand.nextDouble() - 1, 2 * rand.nextDouble() - 1, null);
+		}
+		return d;
+	}
+
+	@Test
+	public void testByteBufferRoundTrip() throws IOException, PropertiesException {
+		IndustrialBenchmarkDynamics d = steppedDynamics();
+		DataVector markov = d.getInternalMarkovState();
+		DataVectorCodec encoder = new DataVectorCodec();
+		DataVectorCodec decoder = new DataVectorCodec();
+		decoder.register(markov.getKeys());
+
+		for (ByteOrder order : new ByteOrder[] {ByteOrder.LITTLE_ENDIAN, ByteOrder.BIG_ENDIAN}) {
+			ByteBuffer buffer = ByteBuffer.allocate(encoder.schemaOf(markov).encodedSize()).order(order);
+			encoder.encode(markov, buffer);
+			assertFalse(buffer.hasRemaining());
+			assertEquals(order, buffer.order());
+
+			buffer.flip();
+			DataVectorImpl decoded = decoder.decode(buffer);
+			assertEquals(markov.getKeys(), decoded.getKeys());
+			assertArrayEquals(markov.getValuesArray(), decoded.getValuesArray(), 0.0);
+
+			// values are little endian regardless of the buffer order
+			assertEquals(Double.doubleToRawLongBits(markov.getValuesArray()[0]), 
+					buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN).getLong(8));
+		}
+
+		// decoding into an existing vector
+		DataVectorImpl target = new DataVectorImpl(new ObservableStateDescription());
+		ByteBuffer buffer = ByteBuffer.allocate(256);
+		encoder.encode(d.getStateView(), buffer);
+		buffer.flip();
+		encoder.decodeInto(buffer, target);
+		assertArrayEquals(d.getState().getValuesArray(), target.getValuesArray(), 0.0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnknownSchema() {
+		ByteBuffer buffer = ByteBuffer.allocate(256);
+		new DataVectorCodec().encode(MutableAction.delta(), buffer);
+		buffer.flip();
+		new DataVectorCodec().decode(buffer);
+	}
+
+	@Test
+	public void testStreamRoundTrip() throws IOException, PropertiesException {
+		IndustrialBenchmarkDynamics d = steppedDynamics();
+		DataVector[] vectors = {
+			d.getInternalMarkovState(), d.getState(), MutableAction.delta().set(0.5, -0.5, 1), d.getState(), d.getInternalMarkovState()
+		};
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataVectorWriter writer = new DataVectorWriter(bytes);
+		for (DataVector v : vectors) {
+			writer.write(v);
+		}
+		writer.close();
+
+		// schemas are written once
+		int valueBytes = 0;
+		for (DataVector v : vectors) {
+			valueBytes += 1 + 8 + 8 * v.getKeys().size();
+		}
+		assertTrue(bytes.size() > valueBytes);
+		assertTrue(bytes.size() < valueBytes + 3 * 1024);
+
+		DataVectorReader reader = new DataVectorReader(new ByteArrayInputStream(bytes.toByteArray()));
+		for (DataVector v : vectors) {
+			DataVectorImpl decoded = reader.read();
+			assertEquals(v.getKeys(), decoded.getKeys());
+			assertArrayEquals(v.getValuesArray(), decoded.getValuesArray(), 0.0);
+		}
+		assertNull(reader.read());
+		reader.close();
+	}
+}
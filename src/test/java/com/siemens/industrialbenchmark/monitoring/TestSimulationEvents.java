@@ -0,0 +1,135 @@
+/**
+Copyright 2016 Siemens AG.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.siemens.industrialbenchmark.monitoring;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import org.junit.Test;
+
+import com.siemens.industrialbenchmark.dynamics.IndustrialBenchmarkDynamics;
+import com.siemens.industrialbenchmark.properties.PropertiesException;
+import com.siemens.industrialbenchmark.properties.PropertiesUtil;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+/**
+ * Tests the JFR events and the bundled {@code industrialbenchmark.jfc} settings.
+ */
+public class TestSimulationEvents {
+
+	private static final String[] EVENTS = {
+		"com.siemens.industrialbenchmark.Step",
+		"com.siemens.industrialbenchmark.GoldstoneTransition",
+		"com.siemens.industrialbenchmark.SetPointSequence",
+		"com.siemens.industrialbenchmark.Episode"
+	};
+
+	private static Configuration settings() throws IOException, ParseException {
+		Reader reader = new InputStreamReader(TestSimulationEvents.class.getResourceAsStream("/industrialbenchmark.jfc"), StandardCharsets.UTF_8);
+		try {
+			return Configuration.create(reader);
+		} finally {
+			reader.close();
+		}
+	}
+
+	private static IndustrialBenchmarkDynamics newDynamics() throws IOException, PropertiesException {
+		Properties props = PropertiesUtil.setpointProperties(new File ("src/main/resources/sim.properties"));
+		return new IndustrialBenchmarkDynamics(props);
+	}
+
+	@Test
+	public void testSettings() throws IOException, ParseException {
+		Map<String, String> settings = settings().getSettings();
+		for (String event : EVENTS) {
+			assertEquals(event, "true", settings.get(event + "#enabled"));
+			assertEquals(event, "0 ns", settings.get(event + "#threshold"));
+		}
+		assertEquals("true", settings.get("com.siemens.industrialbenchmark.Episode#stackTrace"));
+	}
+
+	@Test
+	public void testDisabled() throws IOException, PropertiesException {
+		assertTrue(SimulationEvents.AVAILABLE);
+		assertFalse(JfrEvents.STEP.isEnabled());
+		int steps = JfrEvents.stepCounter.get();
+		IndustrialBenchmarkDynamics d = newDynamics();
+		for (int i = 0; i < 100; i++) {
+			d.step(0.1, -0.1, 0.1, null);
+		}
+		// steps are not even counted without a recording
+		assertEquals(steps, JfrEvents.stepCounter.get());
+	}
+
+	@Test
+	public void testRecording() throws IOException, ParseException, PropertiesException {
+		Map<String, Integer> counts = new HashMap<String, Integer>();
+		int stepsBefore;
+		int stepsAfter;
+		Recording recording = new Recording(settings().getSettings());
+		Path file = Files.createTempFile("industrialbenchmark", ".jfr");
+		try {
+			recording.start();
+			stepsBefore = JfrEvents.stepCounter.get();
+			IndustrialBenchmarkDynamics d = newDynamics();
+			for (int i = 0; i < 1000; i++) {
+				d.step(0.1, -0.1, 0.1, null);
+			}
+			d.reset(7);
+			stepsAfter = JfrEvents.stepCounter.get();
+			recording.stop();
+			recording.dump(file);
+
+			for (RecordedEvent e : RecordingFile.readAllEvents(file)) {
+				String name = e.getEventType().getName();
+				Integer count = counts.get(name);
+				counts.put(name, count == null ? 1 : count + 1);
+				if (name.equals("com.siemens.industrialbenchmark.Episode") && e.getString("boundary").equals("reset")) {
+					assertEquals(7, e.getLong("seed"));
+				}
+				if (name.equals("com.siemens.industrialbenchmark.Step")) {
+					assertTrue(e.getDouble("rewardTotal") <= 0);
+				}
+			}
+		} finally {
+			recording.close();
+			Files.deleteIfExists(file);
+		}
+
+		int interval = SimulationEvents.STEP_SAMPLE_INTERVAL;
+		assertTrue(stepsAfter - stepsBefore >= 1000);
+		assertEquals(stepsAfter / interval - stepsBefore / interval, counts.get("com.siemens.industrialbenchmark.Step").intValue());
+		assertEquals(2, counts.get("com.siemens.industrialbenchmark.Episode").intValue());
+		assertTrue(counts.get("com.siemens.industrialbenchmark.SetPointSequence") > 0);
+	}
+}
@@ -0,0 +1,168 @@
+/**
+Copyright 2016 Siemens AG.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.siemens.industrialbenchmark.monitoring;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import javax.management.JMX;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+
+import org.junit.Test;
+
+import com.siemens.industrialbenchmark.properties.PropertiesUtil;
+
+/**
+ * Tests that the {@link StepProfiler} aggregates the stage timings of {@link StepProbe}s and
+ * exposes them through its {@link StepProfilerMXBean}.
+ */
+public class TestStepProfiler {
+
+	private static void spin(long nanos) {
+		final long end = System.nanoTime() + nanos;
+		while (System.nanoTime() < end) {
+			// busy wait
+		}
+	}
+
+	/**
+	 * Unregisters the MBean of a profiler that was loaded by another test.
+	 */
+	private static void unregister(MBeanServer server, ObjectName name) throws Exception {
+		if (server.isRegistered(name)) {
+			server.unregisterMBean(name);
+		}
+	}
+
+	@Test
+	public void testProbe() throws Exception {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName name = new ObjectName(StepProfiler.OBJECT_NAME);
+		unregister(server, name);
+		StepProfiler profiler = StepProfiler.get();
+		if (!server.isRegistered(name)) {
+			server.registerMBean(profiler, name);
+		}
+		profiler.reset();
+
+		StepProbe probe = new StepProbe(profiler, 4);
+		for (int i = 0; i < 40; i++) {
+			probe.begin();
+			for (StepStage stage : StepStage.values()) {
+				spin(1000 * (stage.ordinal() + 1));
+				probe.lap(stage);
+			}
+			probe.end();
+		}
+
+		StepProfile profile = profiler.snapshot();
+		assertEquals(40, profile.getStepCount());
+		assertEquals(10, profile.getSampledStepCount());
+		double sum = 0;
+		for (StepStage stage : StepStage.values()) {
+			assertTrue(stage.name(), profile.getMeanNanos(stage) >= 1000 * (stage.ordinal() + 1));
+			sum += profile.getMeanNanos(stage);
+		}
+		assertEquals(sum, profile.getMeanStepNanos(), 1e-6);
+		assertTrue(profile.getStepsPerSecond() > 0);
+
+		StepProfilerMXBean bean = JMX.newMXBeanProxy(server, name, StepProfilerMXBean.class);
+		assertEquals(40, bean.getStepCount());
+		assertEquals(10, bean.getSampledStepCount());
+		assertEquals(StepProfiler.SAMPLE_INTERVAL, bean.getSampleInterval());
+		Map<String, Double> means = bean.getMeanStageNanos();
+		List<String> stages = new ArrayList<String>();
+		for (StepStage stage : StepStage.values()) {
+			stages.add(stage.name());
+			assertEquals(stage.name(), profile.getMeanNanos(stage), means.get(stage.name()), 0.0);
+		}
+		assertEquals(stages, new ArrayList<String>(means.keySet()));
+
+		bean.reset();
+		assertEquals(0, profiler.snapshot().getStepCount());
+		assertEquals(0, bean.getSampledStepCount());
+		assertTrue(Double.isNaN(profiler.snapshot().getMeanNanos(StepStage.REWARD)));
+	}
+
+	/**
+	 * Enables profiling for a copy of the dynamics loaded by a separate class loader, since 
+	 * {@link StepProfiler#ENABLED} is fixed when the class is initialized.
+	 */
+	@Test
+	public void testProfiledDynamics() throws Exception {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName name = new ObjectName(StepProfiler.OBJECT_NAME);
+		unregister(server, name);
+
+		List<URL> urls = new ArrayList<URL>();
+		for (String entry : System.getProperty("java.class.path").split(File.pathSeparator)) {
+			urls.add(new File(entry).toURI().toURL());
+		}
+		String enabled = System.setProperty("industrialbenchmark.profiling", "true");
+		String interval = System.setProperty("industrialbenchmark.profiling.sampleInterval", "8");
+		URLClassLoader loader = new URLClassLoader(urls.toArray(new URL[urls.size()]), ClassLoader.getSystemClassLoader().getParent());
+		ClassLoader context = Thread.currentThread().getContextClassLoader();
+		// log4j loads its appenders with the context class loader
+		Thread.currentThread().setContextClassLoader(loader);
+		try {
+			Class<?> dynamics = loader.loadClass("com.siemens.industrialbenchmark.dynamics.IndustrialBenchmarkDynamics");
+			Properties props = PropertiesUtil.setpointProperties(new File ("src/main/resources/sim.properties"));
+			Object d = dynamics.getConstructor(Properties.class).newInstance(props);
+			Method step = dynamics.getMethod("step", double.class, double.class, double.class, double[].class);
+			for (int i = 0; i < 800; i++) {
+				step.invoke(d, 0.1, -0.1, 0.1, null);
+			}
+
+			long steps = (Long) server.getAttribute(name, "StepCount");
+			assertTrue(steps >= 800);
+			assertEquals(steps / 8, ((Long) server.getAttribute(name, "SampledStepCount")).longValue());
+			assertEquals(8, ((Integer) server.getAttribute(name, "SampleInterval")).intValue());
+			TabularData means = (TabularData) server.getAttribute(name, "MeanStageNanos");
+			assertEquals(StepStage.values().length, means.size());
+			for (Object row : means.values()) {
+				CompositeData entry = (CompositeData) row;
+				assertTrue(entry.get("key").toString(), (Double) entry.get("value") > 0);
+			}
+		} finally {
+			Thread.currentThread().setContextClassLoader(context);
+			unregister(server, name);
+			loader.close();
+			restore("industrialbenchmark.profiling", enabled);
+			restore("industrialbenchmark.profiling.sampleInterval", interval);
+		}
+	}
+
+	private static void restore(String key, String value) {
+		if (value == null) {
+			System.clearProperty(key);
+		} else {
+			System.setProperty(key, value);
+		}
+	}
+}
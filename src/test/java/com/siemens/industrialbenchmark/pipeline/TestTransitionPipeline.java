@@ -0,0 +1,133 @@
+/**
+Copyright 2016 Siemens AG.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.siemens.industrialbenchmark.pipeline;
+
+import static com.siemens.industrialbenchmark.pipeline.TransitionRing.*;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+
+import org.junit.Test;
+
+import com.siemens.industrialbenchmark.datavector.state.ObservableStateDescription;
+import com.siemens.industrialbenchmark.dynamics.IndustrialBenchmarkDynamics;
+import com.siemens.industrialbenchmark.properties.PropertiesException;
+import com.siemens.industrialbenchmark.properties.PropertiesUtil;
+
+/**
+ * Tests the {@link TransitionRing} and the {@link TransitionPipeline}.
+ */
+public class TestTransitionPipeline {
+
+	@Test
+	public void testRing() throws InterruptedException {
+		TransitionRing ring = new TransitionRing(4, WaitStrategy.BUSY_SPIN, WaitStrategy.BUSY_SPIN);
+		for (int round = 0; round < 3; round++) {
+			for (int i = 0; i < 4; i++) {
+				long seq = ring.claim();
+				ring.buffer()[ring.offset(seq) + REWARD_OFFSET] = seq;
+				ring.publish();
+			}
+			assertEquals(3, ring.claimBatch(3));
+			long first = ring.consumerSequence();
+			for (int i = 0; i < 3; i++) {
+				assertEquals(first + i, ring.buffer()[ring.offset(first + i) + REWARD_OFFSET], 0.0);
+			}
+			ring.release(3);
+			assertEquals(1, ring.claimBatch(8));
+			ring.release(1);
+		}
+		ring.close();
+		assertEquals(0, ring.claimBatch(8));
+	}
+
+	@Test(timeout = 60000)
+	public void testPipeline() throws PropertiesException, IOException, ExecutionException, InterruptedException {
+		Properties props = PropertiesUtil.setpointProperties(new File ("src/main/resources/sim.properties"));
+		IndustrialBenchmarkDynamics served = new IndustrialBenchmarkDynamics(props);
+		IndustrialBenchmarkDynamics local = new IndustrialBenchmarkDynamics(props);
+		served.reset(5);
+		local.reset(5);
+
+		final int steps = 2000;
+		final List<double[]> transitions = new ArrayList<double[]>();
+		StringWriter text = new StringWriter();
+		TrajectoryWriter writer = new TrajectoryWriter(text, served.getState().getKeys());
+		for (WaitStrategy wait : WaitStrategy.values()) {
+			// a small ring forces the producer to wait for the consumer
+			TransitionRing ring = new TransitionRing(8, wait, wait);
+			TransitionPipeline pipeline = new TransitionPipeline(served, new RandomPolicy(wait.ordinal()), steps, ring, 3,
+				new TransitionSink() {
+					@Override
+					public void accept(double[] ring, int offset) {
+						transitions.add(Arrays.copyOfRange(ring, offset, offset + SLOT_SIZE));
+					}
+
+					@Override
+					public void close() {
+					}
+				}, writer);
+			assertEquals(steps, pipeline.start().await());
+			assertEquals(steps, pipeline.getProducedCount());
+			writer = new TrajectoryWriter(new StringWriter(), served.getState().getKeys());
+		}
+		assertEquals(steps, text.toString().split("\n").length - 1);
+
+		double[] observation = new double[ObservableStateDescription.SIZE];
+		double[] action = new double[ACTION_SIZE];
+		double[] expected = new double[SLOT_SIZE];
+		for (WaitStrategy wait : WaitStrategy.values()) {
+			RandomPolicy policy = new RandomPolicy(wait.ordinal());
+			local.stateInto(observation);
+			for (int i = 0; i < steps; i++) {
+				System.arraycopy(observation, 0, expected, OBSERVATION_OFFSET, ObservableStateDescription.SIZE);
+				policy.act(observation, action);
+				System.arraycopy(action, 0, expected, ACTION_OFFSET, ACTION_SIZE);
+				expected[REWARD_OFFSET] = local.step(action[0], action[1], action[2], observation);
+				System.arraycopy(observation, 0, expected, NEXT_OBSERVATION_OFFSET, ObservableStateDescription.SIZE);
+				assertArrayEquals(expected, transitions.get(wait.ordinal() * steps + i), 0.0);
+			}
+		}
+	}
+
+	@Test(timeout = 60000)
+	public void testFailure() throws PropertiesException, IOException, InterruptedException {
+		Properties props = PropertiesUtil.setpointProperties(new File ("src/main/resources/sim.properties"));
+		TransitionRing ring = new TransitionRing(16, WaitStrategy.PARK, WaitStrategy.PARK);
+		TransitionPipeline pipeline = new TransitionPipeline(new IndustrialBenchmarkDynamics(props), new Policy() {
+			@Override
+			public void act(double[] observation, double[] actionOut) {
+				actionOut[0] = 100;
+			}
+		}, 10, ring, 4);
+		try {
+			pipeline.start().await();
+			fail("expected the invalid action to fail the pipeline");
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof IllegalArgumentException);
+		}
+	}
+}
@@ -0,0 +1,149 @@
+/**
+Copyright 2016 Siemens AG.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.siemens.industrialbenchmark.pipeline;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import org.junit.Test;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import com.siemens.industrialbenchmark.datavector.state.ObservableStateDescription;
+import com.siemens.industrialbenchmark.dynamics.IndustrialBenchmarkDynamics;
+import com.siemens.industrialbenchmark.properties.PropertiesException;
+import com.siemens.industrialbenchmark.properties.PropertiesUtil;
+
+/**
+ * Tests the demand handling of the {@link TransitionPublisher}.
+ */
+public class TestTransitionPublisher {
+
+	/**
+	 * Copies the transitions and requests {@code perItem} more after every element.
+	 */
+	private static class Recorder implements Subscriber<Transition> {
+		final long initial;
+		final long perItem;
+		final List<Transition> received = new ArrayList<Transition>();
+		Subscription subscription;
+		Throwable error;
+		boolean complete;
+
+		Recorder(long initial, long perItem) {
+			this.initial = initial;
+			this.perItem = perItem;
+		}
+
+		@Override
+		public void onSubscribe(Subscription s) {
+			subscription = s;
+			if (initial > 0) {
+				s.request(initial);
+			}
+		}
+
+		@Override
+		public void onNext(Transition t) {
+			received.add(t.copy());
+			if (perItem > 0) {
+				subscription.request(perItem);
+			}
+		}
+
+		@Override
+		public void onError(Throwable t) {
+			error = t;
+		}
+
+		@Override
+		public void onComplete() {
+			complete = true;
+		}
+	}
+
+	private static IndustrialBenchmarkDynamics newEnvironment() throws IOException, PropertiesException {
+		Properties props = PropertiesUtil.setpointProperties(new File ("src/main/resources/sim.properties"));
+		IndustrialBenchmarkDynamics env = new IndustrialBenchmarkDynamics(props);
+		env.reset(11);
+		return env;
+	}
+
+	@Test
+	public void testLazyDemand() throws IOException, PropertiesException {
+		IndustrialBenchmarkDynamics env = newEnvironment();
+		Recorder recorder = new Recorder(3, 0);
+		new TransitionPublisher(env, new RandomPolicy(1), 10).subscribe(recorder);
+		assertEquals(3, recorder.received.size());
+		// the environment is not stepped ahead of the demand
+		assertEquals(3, recorder.received.get(2).getStep());
+		double[] observation = new double[ObservableStateDescription.SIZE];
+		env.stateInto(observation);
+		assertArrayEquals(recorder.received.get(2).getNextObservation(), observation, 0.0);
+
+		recorder.subscription.request(100);
+		assertEquals(10, recorder.received.size());
+		assertTrue(recorder.complete);
+		assertNull(recorder.error);
+
+		IndustrialBenchmarkDynamics local = newEnvironment();
+		RandomPolicy policy = new RandomPolicy(1);
+		double[] action = new double[TransitionRing.ACTION_SIZE];
+		local.stateInto(observation);
+		for (Transition t : recorder.received) {
+			assertArrayEquals(observation, t.getObservation(), 0.0);
+			policy.act(observation, action);
+			assertArrayEquals(action, t.getAction(), 0.0);
+			assertEquals(local.step(action[0], action[1], action[2], observation), t.getReward(), 0.0);
+			assertArrayEquals(observation, t.getNextObservation(), 0.0);
+		}
+	}
+
+	@Test
+	public void testRequestFromOnNext() throws IOException, PropertiesException {
+		// requesting from within onNext must not recurse
+		Recorder recorder = new Recorder(1, 1);
+		new TransitionPublisher(newEnvironment(), new RandomPolicy(2), 20000).subscribe(recorder);
+		assertEquals(20000, recorder.received.size());
+		assertTrue(recorder.complete);
+	}
+
+	@Test
+	public void testErrors() throws IOException, PropertiesException {
+		TransitionPublisher publisher = TransitionPublisher.continuous(newEnvironment(), new RandomPolicy(3));
+		Recorder first = new Recorder(0, 0);
+		publisher.subscribe(first);
+		first.subscription.request(0);
+		assertTrue(first.error instanceof IllegalArgumentException);
+
+		Recorder second = new Recorder(1, 0);
+		publisher.subscribe(second);
+		assertTrue(second.error instanceof IllegalStateException);
+		assertEquals(0, second.received.size());
+
+		Recorder empty = new Recorder(0, 0);
+		new TransitionPublisher(newEnvironment(), new RandomPolicy(4), 0).subscribe(empty);
+		assertTrue(empty.complete);
+	}
+}
@@ -0,0 +1,115 @@
+/**
+Copyright 2016 Siemens AG.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.siemens.industrialbenchmark.planning;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Properties;
+
+import org.junit.Test;
+
+import com.siemens.industrialbenchmark.datavector.action.DiscreteActions;
+import com.siemens.industrialbenchmark.dynamics.IndustrialBenchmarkDynamics;
+import com.siemens.industrialbenchmark.properties.PropertiesException;
+import com.siemens.industrialbenchmark.properties.PropertiesUtil;
+
+/**
+ * Tests the {@link MonteCarloTreeSearch}.
+ */
+public class TestMonteCarloTreeSearch {
+
+	private static Properties props() throws IOException {
+		return PropertiesUtil.setpointProperties(new File ("src/main/resources/sim.properties"));
+	}
+
+	private static double[] startState(IndustrialBenchmarkDynamics env) {
+		env.reset(7);
+		for (int i = 0; i < 20; i++) {
+			env.step(0.5, 0.5, 0.1, null);
+		}
+		double[] state = new double[env.getInternalMarkovState().getKeys().size()];
+		env.markovStateInto(state);
+		return state;
+	}
+
+	@Test
+	public void testOneStepValues() throws IOException, PropertiesException {
+		Properties props = props();
+		IndustrialBenchmarkDynamics env = new IndustrialBenchmarkDynamics(props);
+		double[] start = startState(env);
+		double[] observations = new double[DiscreteActions.COUNT * env.getStateView().getSlotCount()];
+		double[] rewards = new double[DiscreteActions.COUNT];
+		env.lookaheadAll(start, observations, rewards);
+
+		try (MonteCarloTreeSearch search = new MonteCarloTreeSearch(props, 1, 1, 1.0, 3)) {
+			search.setExploration(100);
+			search.search(start, 10 * DiscreteActions.COUNT);
+			for (int a = 0; a < DiscreteActions.COUNT; a++) {
+				assertTrue(search.getRootVisits(a) > 0);
+				assertEquals(rewards[a], search.getRootValue(a), 1e-9);
+			}
+			// actions clipped at a bound lead to the same successor
+			assertTrue(search.getTableSize() <= 1 + DiscreteActions.COUNT);
+		}
+	}
+
+	@Test
+	public void testDeterministic() throws IOException, PropertiesException {
+		Properties props = props();
+		double[] start = startState(new IndustrialBenchmarkDynamics(props));
+		try (MonteCarloTreeSearch a = new MonteCarloTreeSearch(props, 1, 8, 0.97, 5);
+				MonteCarloTreeSearch b = new MonteCarloTreeSearch(props, 1, 8, 0.97, 5)) {
+			assertEquals(a.search(start, 400), b.search(start, 400));
+			for (int i = 0; i < DiscreteActions.COUNT; i++) {
+				assertEquals(a.getRootVisits(i), b.getRootVisits(i));
+				assertEquals(a.getRootValue(i), b.getRootValue(i), 0.0);
+			}
+		}
+	}
+
+	@Test
+	public void testParallelPlayoutsAndReuse() throws IOException, PropertiesException {
+		Properties props = props();
+		IndustrialBenchmarkDynamics env = new IndustrialBenchmarkDynamics(props);
+		double[] start = startState(env);
+		try (MonteCarloTreeSearch search = new MonteCarloTreeSearch(props, 3, 6, 0.97, 5)) {
+			int best = search.search(start, 600);
+			int visits = 0;
+			for (int a = 0; a < DiscreteActions.COUNT; a++) {
+				visits += search.getRootVisits(a);
+			}
+			assertEquals(600, visits);
+
+			// the successor of the chosen action is already in the table
+			int nodes = search.getTableSize();
+			long transpositions = search.getTranspositions();
+			env.restore(start);
+			env.step(DiscreteActions.deltaVelocity(best), DiscreteActions.deltaGain(best), DiscreteActions.deltaShift(best), null);
+			double[] next = new double[start.length];
+			env.markovStateInto(next);
+			search.search(next, 100);
+			assertTrue(search.getTranspositions() > transpositions);
+			assertTrue(search.getTableSize() >= nodes);
+
+			search.setMaxTableSize(1);
+			search.search(next, 10);
+			assertTrue(search.getTableSize() <= 11);
+		}
+	}
+}
@@ -0,0 +1,130 @@
+/**
+Copyright 2016 Siemens AG.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.siemens.industrialbenchmark.planning;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Properties;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.siemens.industrialbenchmark.dynamics.IndustrialBenchmarkDynamics;
+import com.siemens.industrialbenchmark.properties.PropertiesException;
+import com.siemens.industrialbenchmark.properties.PropertiesUtil;
+
+/**
+ * Tests the {@link RolloutEvaluator} and the planners.
+ */
+public class TestPlanners {
+
+	private static final int HORIZON = 5;
+
+	private static Properties props() throws IOException {
+		return PropertiesUtil.setpointProperties(new File ("src/main/resources/sim.properties"));
+	}
+
+	private static double[] startState(Properties props) throws PropertiesException {
+		IndustrialBenchmarkDynamics env = new IndustrialBenchmarkDynamics(props);
+		env.reset(7);
+		for (int i = 0; i < 20; i++) {
+			env.step(0.5, 0.5, 0.1, null);
+		}
+		double[] state = new double[env.getInternalMarkovState().getKeys().size()];
+		env.markovStateInto(state);
+		return state;
+	}
+
+	@Test
+	public void testEvaluator() throws IOException, PropertiesException {
+		Properties props = props();
+		double[] start = startState(props);
+		int particles = 10;
+		double[] actions = new double[particles * HORIZON * RolloutEvaluator.ACTION_SIZE];
+		Random rand = new Random(1);
+		for (int i = 0; i < actions.length; i++) {
+			actions[i] = 2 * rand.nextDouble() - 1;
+		}
+
+		double[] sequential = new double[particles];
+		double[] parallel = new double[particles];
+		try (RolloutEvaluator one = new RolloutEvaluator(props, 1); RolloutEvaluator three = new RolloutEvaluator(props, 3)) {
+			one.evaluate(start, actions, particles, HORIZON, 0.9, sequential);
+			three.evaluate(start, actions, particles, HORIZON, 0.9, parallel);
+		}
+		assertArrayEquals(sequential, parallel, 0.0);
+
+		IndustrialBenchmarkDynamics env = new IndustrialBenchmarkDynamics(props);
+		env.restore(start);
+		double expected = 0;
+		double weight = 1;
+		for (int t = 0; t < HORIZON; t++) {
+			int a = (3 * HORIZON + t) * RolloutEvaluator.ACTION_SIZE;
+			expected += weight * env.step(actions[a], actions[a + 1], actions[a + 2], null);
+			weight *= 0.9;
+		}
+		assertEquals(expected, sequential[3], 0.0);
+	}
+
+	@Test
+	public void testPlanners() throws IOException, PropertiesException {
+		Properties props = props();
+		double[] start = startState(props);
+		try (RolloutEvaluator evaluator = new RolloutEvaluator(props, 2)) {
+			double[] zero = new double[1];
+			evaluator.evaluate(start, new double[HORIZON * RolloutEvaluator.ACTION_SIZE], 1, HORIZON, 1, zero);
+
+			Planner[] planners = {
+				new CrossEntropyPlanner(evaluator, HORIZON, 16, 4, 3, 1),
+				new ParticleSwarmPlanner(evaluator, HORIZON, 16, 3, 1)
+			};
+			double[] action = new double[RolloutEvaluator.ACTION_SIZE];
+			for (Planner planner : planners) {
+				// starting from zero actions, the planned return is at least that of zero actions
+				double planned = planner.plan(start, action);
+				assertTrue(planned >= zero[0]);
+				for (double a : action) {
+					assertTrue(a >= -1 && a <= 1);
+				}
+
+				// the returned plan evaluates to the reported return
+				double[] check = new double[1];
+				evaluator.evaluate(start, planner.getPlan(), 1, HORIZON, 1, check);
+				assertEquals(planned, check[0], 0.0);
+
+				// the warm start is the shifted plan, which the next optimization cannot fall below
+				double[] shifted = shift(planner.getPlan());
+				double[] shiftedReturn = new double[1];
+				evaluator.evaluate(start, shifted, 1, HORIZON, 1, shiftedReturn);
+				assertTrue(planner.plan(start, action) >= shiftedReturn[0]);
+				assertEquals(2, planner.getPlanningTime().getTotalCount());
+				assertTrue(planner.getLastPlanningNanos() > 0);
+			}
+		}
+	}
+
+	private static double[] shift(double[] plan) {
+		int n = RolloutEvaluator.ACTION_SIZE;
+		double[] shifted = new double[plan.length];
+		System.arraycopy(plan, n, shifted, 0, plan.length - n);
+		System.arraycopy(plan, plan.length - n, shifted, plan.length - n, n);
+		return shifted;
+	}
+}
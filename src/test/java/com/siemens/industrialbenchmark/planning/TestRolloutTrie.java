@@ -0,0 +1,217 @@
+/**
+Copyright 2016 Siemens AG.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.siemens.industrialbenchmark.planning;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.siemens.industrialbenchmark.dynamics.IndustrialBenchmarkDynamics;
+import com.siemens.industrialbenchmark.properties.PropertiesException;
+import com.siemens.industrialbenchmark.properties.PropertiesUtil;
+
+/**
+ * Compares rollouts resumed from a {@link RolloutTrie} with simulated ones.
+ */
+public class TestRolloutTrie {
+
+	private static final int HORIZON = 8;
+	private static final int PARTICLES = 12;
+
+	private static Properties props() throws IOException {
+		return PropertiesUtil.setpointProperties(new File ("src/main/resources/sim.properties"));
+	}
+
+	private static double[] startState(IndustrialBenchmarkDynamics env) {
+		env.reset(7);
+		for (int i = 0; i < 20; i++) {
+			env.step(0.5, 0.5, 0.1, null);
+		}
+		double[] state = new double[env.getInternalMarkovState().getKeys().size()];
+		env.markovStateInto(state);
+		return state;
+	}
+
+	/**
+	 * @return action sequences where groups of particles share prefixes of different lengths
+	 */
+	private static double[] relatedSequences(Random rand) {
+		double[] actions = new double[PARTICLES * HORIZON * RolloutEvaluator.ACTION_SIZE];
+		for (int i = 0; i < actions.length; i++) {
+			actions[i] = 2 * rand.nextDouble() - 1;
+		}
+		for (int p = 1; p < PARTICLES; p++) {
+			int shared = rand.nextInt(HORIZON + 1) * RolloutEvaluator.ACTION_SIZE;
+			System.arraycopy(actions, 0, actions, p * HORIZON * RolloutEvaluator.ACTION_SIZE, shared);
+		}
+		return actions;
+	}
+
+	@Test
+	public void testSameReturns() throws IOException, PropertiesException {
+		Properties props = props();
+		double[] start = startState(new IndustrialBenchmarkDynamics(props));
+		RolloutTrie trie = new RolloutTrie(10000);
+		double[] expected = new double[PARTICLES];
+		double[] resumed = new double[PARTICLES];
+		try (RolloutEvaluator plain = new RolloutEvaluator(props, 1); RolloutEvaluator cached = new RolloutEvaluator(props, 3)) {
+			cached.setRolloutTrie(trie);
+			Random rand = new Random(4);
+			for (int batch = 0; batch < 5; batch++) {
+				double[] actions = relatedSequences(rand);
+				plain.evaluate(start, actions, PARTICLES, HORIZON, 0.95, expected);
+				cached.evaluate(start, actions, PARTICLES, HORIZON, 0.95, resumed);
+				assertArrayEquals(expected, resumed, 0);
+				// the second evaluation of the same batch is resumed completely
+				long simulated = trie.getSimulatedSteps();
+				cached.evaluate(start, actions, PARTICLES, HORIZON, 0.95, resumed);
+				assertArrayEquals(expected, resumed, 0);
+				assertEquals(simulated, trie.getSimulatedSteps());
+			}
+		}
+		assertTrue(trie.getReusedSteps() > trie.getSimulatedSteps());
+	}
+
+	@Test
+	public void testRecedingHorizon() throws IOException, PropertiesException {
+		Properties props = props();
+		IndustrialBenchmarkDynamics env = new IndustrialBenchmarkDynamics(props);
+		double[] start = startState(env);
+		RolloutTrie trie = new RolloutTrie(10000);
+		double[] returns = new double[1];
+		double[] expected = new double[1];
+		try (RolloutEvaluator plain = new RolloutEvaluator(props, 1); RolloutEvaluator cached = new RolloutEvaluator(props, 1)) {
+			cached.setRolloutTrie(trie);
+			double[] plan = relatedSequences(new Random(8));
+			cached.evaluate(start, plan, 1, HORIZON, 1, returns);
+
+			// execute the first action and evaluate the shifted plan from the successor
+			env.restore(start);
+			env.step(plan[0], plan[1], plan[2], null);
+			double[] next = new double[start.length];
+			env.markovStateInto(next);
+			double[] shifted = new double[HORIZON * RolloutEvaluator.ACTION_SIZE];
+			System.arraycopy(plan, RolloutEvaluator.ACTION_SIZE, shifted, 0, shifted.length - RolloutEvaluator.ACTION_SIZE);
+			System.arraycopy(plan, shifted.length - RolloutEvaluator.ACTION_SIZE, shifted, shifted.length - RolloutEvaluator.ACTION_SIZE, RolloutEvaluator.ACTION_SIZE);
+
+			long reused = trie.getReusedSteps();
+			cached.evaluate(next, shifted, 1, HORIZON, 1, returns);
+			plain.evaluate(next, shifted, 1, HORIZON, 1, expected);
+			assertEquals(expected[0], returns[0], 0);
+			assertEquals(HORIZON - 1, trie.getReusedSteps() - reused);
+		}
+	}
+
+	@Test
+	public void testEviction() throws IOException, PropertiesException {
+		Properties props = props();
+		double[] start = startState(new IndustrialBenchmarkDynamics(props));
+		RolloutTrie trie = new RolloutTrie(40);
+		double[] expected = new double[PARTICLES];
+		double[] resumed = new double[PARTICLES];
+		try (RolloutEvaluator plain = new RolloutEvaluator(props, 1); RolloutEvaluator cached = new RolloutEvaluator(props, 2)) {
+			cached.setRolloutTrie(trie);
+			Random rand = new Random(5);
+			for (int batch = 0; batch < 20; batch++) {
+				double[] actions = relatedSequences(rand);
+				plain.evaluate(start, actions, PARTICLES, HORIZON, 0.9, expected);
+				cached.evaluate(start, actions, PARTICLES, HORIZON, 0.9, resumed);
+				assertArrayEquals(expected, resumed, 0);
+				assertTrue(trie.size() <= 40);
+			}
+		}
+		assertTrue(trie.getEvictions() > 0);
+	}
+
+	/**
+	 * Plans over many control steps with a small trie. Each root is found again as the successor of the 
+	 * executed action, i.e. as a child of the previous root, which must not keep the evicted earlier 
+	 * tries reachable.
+	 */
+	@Test
+	public void testRetainedNodesBounded() throws IOException, PropertiesException, InterruptedException {
+		Properties props = props();
+		IndustrialBenchmarkDynamics env = new IndustrialBenchmarkDynamics(props);
+		double[] state = startState(env);
+		final int maxNodes = 40;
+		final int controlSteps = 150;
+		RolloutTrie trie = new RolloutTrie(maxNodes);
+		List<WeakReference<RolloutTrie.Node>> roots = new ArrayList<WeakReference<RolloutTrie.Node>>();
+		double[] returns = new double[PARTICLES];
+		try (RolloutEvaluator cached = new RolloutEvaluator(props, 1)) {
+			cached.setRolloutTrie(trie);
+			Random rand = new Random(9);
+			for (int i = 0; i < controlSteps; i++) {
+				double[] actions = relatedSequences(rand);
+				cached.evaluate(state, actions, PARTICLES, HORIZON, 0.95, returns);
+				roots.add(new WeakReference<RolloutTrie.Node>(trie.begin(state)));
+				env.step(actions[0], actions[1], actions[2], null);
+				env.markovStateInto(state);
+				assertTrue(trie.size() <= maxNodes);
+			}
+		}
+		assertTrue(trie.getEvictions() > 0);
+
+		int alive = controlSteps;
+		for (int attempt = 0; attempt < 10 && alive > maxNodes; attempt++) {
+			System.gc();
+			Thread.sleep(10);
+			alive = 0;
+			for (WeakReference<RolloutTrie.Node> root : roots) {
+				if (root.get() != null) {
+					alive++;
+				}
+			}
+		}
+		assertTrue("retained roots: " + alive, alive <= maxNodes);
+		assertTrue(trie.size() > 0);
+	}
+
+	@Test
+	public void testPlannerUnchanged() throws IOException, PropertiesException {
+		Properties props = props();
+		IndustrialBenchmarkDynamics env = new IndustrialBenchmarkDynamics(props);
+		double[] start = startState(env);
+		RolloutTrie trie = new RolloutTrie(100000);
+		try (RolloutEvaluator plain = new RolloutEvaluator(props, 1); RolloutEvaluator cached = new RolloutEvaluator(props, 2)) {
+			cached.setRolloutTrie(trie);
+			Planner a = new CrossEntropyPlanner(plain, HORIZON, 16, 4, 3, 1);
+			Planner b = new CrossEntropyPlanner(cached, HORIZON, 16, 4, 3, 1);
+			double[] state = start.clone();
+			double[] actionA = new double[RolloutEvaluator.ACTION_SIZE];
+			double[] actionB = new double[RolloutEvaluator.ACTION_SIZE];
+			env.restore(start);
+			for (int i = 0; i < 5; i++) {
+				assertEquals(a.plan(state, actionA), b.plan(state, actionB), 0);
+				assertArrayEquals(actionA, actionB, 0);
+				env.step(actionA[0], actionA[1], actionA[2], null);
+				env.markovStateInto(state);
+			}
+		}
+		// the warm started plan shares all but its last action with the previous control step
+		assertTrue(trie.getReusedSteps() >= 4 * (HORIZON - 1));
+	}
+}
@@ -0,0 +1,111 @@
+/**
+Copyright 2016 Siemens AG.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.siemens.industrialbenchmark.policysearch;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Properties;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.siemens.industrialbenchmark.datavector.state.ObservableStateDescription;
+import com.siemens.industrialbenchmark.dynamics.IndustrialBenchmarkDynamics;
+import com.siemens.industrialbenchmark.properties.PropertiesException;
+import com.siemens.industrialbenchmark.properties.PropertiesUtil;
+
+/**
+ * Tests the {@link PolicySearchEngine} and the {@link SwarmPolicySearch}.
+ */
+public class TestPolicySearch {
+
+	private static final long[] SEEDS = {1, 2, 3};
+	private static final int STEPS = 30;
+
+	@Test
+	public void testEvaluate() throws IOException, PropertiesException {
+		Properties props = PropertiesUtil.setpointProperties(new File ("src/main/resources/sim.properties"));
+		ParametricPolicy policy = new MlpPolicy(ObservableStateDescription.SIZE, 4, PolicySearchEngine.ACTION_SIZE);
+		assertEquals(4 * 8 + 3 * 5, policy.getParameterCount());
+
+		int size = 5;
+		double[] population = new double[size * policy.getParameterCount()];
+		Random rand = new Random(1);
+		for (int i = 0; i < population.length; i++) {
+			population[i] = rand.nextGaussian();
+		}
+		double[] sequential = new double[size];
+		double[] parallel = new double[size];
+		try (PolicySearchEngine one = new PolicySearchEngine(props, policy, 1, 1);
+				PolicySearchEngine three = new PolicySearchEngine(props, policy, 3, 2)) {
+			one.evaluate(population, size, SEEDS, STEPS, sequential);
+			three.evaluate(population, size, SEEDS, STEPS, parallel);
+		}
+		assertArrayEquals(sequential, parallel, 0.0);
+
+		// individual 2, evaluated step by step
+		IndustrialBenchmarkDynamics env = new IndustrialBenchmarkDynamics(props);
+		double[] scale = {100, 100, 100, 100, 100, 1000, 1000};
+		double[] observation = new double[ObservableStateDescription.SIZE];
+		double[] features = new double[ObservableStateDescription.SIZE];
+		double[] scratch = new double[policy.getScratchSize()];
+		double[] action = new double[PolicySearchEngine.ACTION_SIZE];
+		double total = 0;
+		for (long seed : SEEDS) {
+			env.reset(seed);
+			env.stateInto(observation);
+			double episode = 0;
+			for (int t = 0; t < STEPS; t++) {
+				for (int i = 0; i < features.length; i++) {
+					features[i] = observation[i] * (1 / scale[i]);
+				}
+				policy.act(population, 2 * policy.getParameterCount(), features, scratch, action);
+				episode += env.step(action[0], action[1], action[2], observation);
+			}
+			total += episode;
+		}
+		assertEquals(total / SEEDS.length, sequential[2], 0.0);
+
+		int[] ranking = PolicySearchEngine.rank(sequential, size);
+		for (int i = 1; i < size; i++) {
+			assertTrue(sequential[ranking[i - 1]] >= sequential[ranking[i]]);
+		}
+	}
+
+	@Test
+	public void testSwarm() throws IOException, PropertiesException {
+		Properties props = PropertiesUtil.setpointProperties(new File ("src/main/resources/sim.properties"));
+		ParametricPolicy policy = new LinearPolicy(ObservableStateDescription.SIZE, PolicySearchEngine.ACTION_SIZE);
+		try (PolicySearchEngine engine = new PolicySearchEngine(props, policy, 2, 3)) {
+			SwarmPolicySearch search = new SwarmPolicySearch(engine, 8, 0.5, 1);
+			double best = Double.NEGATIVE_INFINITY;
+			for (int g = 0; g < 4; g++) {
+				double next = search.generation(SEEDS, STEPS);
+				assertTrue(next >= best);
+				best = next;
+			}
+			assertEquals(best, search.getBestFitness(), 0.0);
+
+			double[] fitness = new double[1];
+			engine.evaluate(search.getBestParameters(), 1, SEEDS, STEPS, fitness);
+			assertEquals(best, fitness[0], 0.0);
+		}
+	}
+}
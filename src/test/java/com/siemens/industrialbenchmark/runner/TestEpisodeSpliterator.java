@@ -0,0 +1,69 @@
+/**
+Copyright 2016 Siemens AG.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.siemens.industrialbenchmark.runner;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Properties;
+import java.util.Spliterator;
+
+import org.junit.Test;
+
+import com.siemens.industrialbenchmark.pipeline.RandomPolicy;
+import com.siemens.industrialbenchmark.properties.PropertiesException;
+import com.siemens.industrialbenchmark.properties.PropertiesUtil;
+
+/**
+ * Tests splitting and the parallel evaluation of an {@link EpisodeSpliterator}.
+ */
+public class TestEpisodeSpliterator {
+
+	@Test
+	public void testSplit() throws IOException, PropertiesException {
+		Properties props = PropertiesUtil.setpointProperties(new File ("src/main/resources/sim.properties"));
+		EpisodeSpliterator spliterator = new EpisodeSpliterator(props, 10, 17);
+		assertTrue(spliterator.hasCharacteristics(Spliterator.SIZED | Spliterator.SUBSIZED));
+		Spliterator<Episode> prefix = spliterator.trySplit();
+		assertEquals(3, prefix.estimateSize());
+		assertEquals(4, spliterator.estimateSize());
+		final long[] seeds = new long[1];
+		prefix.tryAdvance(e -> seeds[0] = e.getSeed());
+		assertEquals(10, seeds[0]);
+		spliterator.tryAdvance(e -> seeds[0] = e.getSeed());
+		assertEquals(13, seeds[0]);
+
+		Spliterator<Episode> single = new EpisodeSpliterator(props, 5, 6);
+		assertNull(single.trySplit());
+		assertEquals(0, new EpisodeSpliterator(props, 5, 5).estimateSize());
+	}
+
+	@Test(timeout = 120000)
+	public void testParallelMatchesSequential() throws IOException, PropertiesException {
+		// non-stationary setpoint, so the episodes depend on the setpoint generator as well
+		Properties props = PropertiesUtil.setpointProperties(new File ("src/main/resources/simTest.properties"));
+		double[] sequential = EpisodeSpliterator.episodes(props, 0, 64)
+				.mapToDouble(e -> e.run(new RandomPolicy(e.getSeed()), 200)).toArray();
+		double[] parallel = EpisodeSpliterator.episodes(props, 0, 64).parallel()
+				.mapToDouble(e -> e.run(new RandomPolicy(e.getSeed()), 200)).toArray();
+		assertEquals(64, parallel.length);
+		assertArrayEquals(sequential, parallel, 0.0);
+	}
+}
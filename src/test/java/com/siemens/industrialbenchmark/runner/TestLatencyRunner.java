@@ -0,0 +1,162 @@
+/**
+Copyright 2016 Siemens AG.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.siemens.industrialbenchmark.runner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.HdrHistogram.EncodableHistogram;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogReader;
+import org.junit.Test;
+
+import com.siemens.industrialbenchmark.properties.PropertiesException;
+import com.siemens.industrialbenchmark.properties.PropertiesUtil;
+import com.siemens.rl.interfaces.DataVector;
+import com.siemens.rl.interfaces.Environment;
+
+/**
+ * Tests the coordinated omission correction of the {@link LatencyRunner} and the histogram log
+ * export of the {@link LatencyReport}.
+ */
+public class TestLatencyRunner {
+
+	private static final long STALL_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+
+	/**
+	 * Returns immediately, except for one step that stalls for {@link #STALL_NANOS}.
+	 */
+	private static Environment stallingEnvironment(final int stallingStep) {
+		return new Environment() {
+			private int steps;
+
+			@Override
+			public double getReward() {
+				return 0;
+			}
+
+			@Override
+			public DataVector getState() {
+				return null;
+			}
+
+			@Override
+			public DataVector getInternalMarkovState() {
+				return null;
+			}
+
+			@Override
+			public double step(DataVector action) {
+				if (steps++ == stallingStep) {
+					final long end = System.nanoTime() + STALL_NANOS;
+					while (System.nanoTime() < end) {
+						// busy wait
+					}
+				}
+				return 0;
+			}
+
+			@Override
+			public void reset() {
+				steps = 0;
+			}
+		};
+	}
+
+	private static long countAtOrAbove(Histogram h, long value) {
+		return h.getTotalCount() - h.getCountBetweenValues(0, value - 1);
+	}
+
+	@Test
+	public void testCoordinatedOmission() throws PropertiesException {
+		LatencyRunner.Options options = new LatencyRunner.Options();
+		options.warmup = 10;
+		options.steps = 100;
+		options.rate = 1000;
+		Histogram[] h = new LatencyRunner(new Properties(), options).drive(stallingEnvironment(options.warmup + 10), 1);
+		Histogram service = h[0];
+		Histogram response = h[1];
+		assertEquals(options.steps, service.getTotalCount());
+		assertEquals(options.steps, response.getTotalCount());
+
+		// the stall itself is the only slow step ...
+		assertTrue(service.getMaxValue() >= STALL_NANOS);
+		assertEquals(1, countAtOrAbove(service, STALL_NANOS / 2));
+		// ... but the steps queued behind it started late: with one step per millisecond, the
+		// k-th step after a 20ms stall starts about 20-k milliseconds after its intended start
+		assertTrue(response.getMaxValue() >= STALL_NANOS);
+		assertTrue(countAtOrAbove(response, STALL_NANOS / 2) >= 10);
+		assertTrue(response.getMean() > service.getMean());
+	}
+
+	@Test
+	public void testUnthrottled() throws PropertiesException {
+		LatencyRunner.Options options = new LatencyRunner.Options();
+		options.warmup = 0;
+		options.steps = 50;
+		Histogram[] h = new LatencyRunner(new Properties(), options).drive(stallingEnvironment(10), 1);
+		// without a rate there is no intended start to be late for
+		assertEquals(h[0], h[1]);
+		assertEquals(1, countAtOrAbove(h[1], STALL_NANOS / 2));
+	}
+
+	@Test
+	public void testHistogramLog() throws IOException, PropertiesException, InterruptedException {
+		Properties props = PropertiesUtil.setpointProperties(new File ("src/main/resources/sim.properties"));
+		LatencyRunner.Options options = new LatencyRunner.Options();
+		options.threads = 2;
+		options.warmup = 100;
+		options.steps = 500;
+		LatencyReport report = new LatencyRunner(props, options).run();
+		assertEquals(2, report.getServiceTimes().size());
+		assertEquals(2 * options.steps, report.getMergedServiceTimes().getTotalCount());
+		assertEquals(2 * options.steps, report.getMergedResponseTimes().getTotalCount());
+
+		File file = File.createTempFile("industrialbenchmark", ".hlog");
+		file.deleteOnExit();
+		report.write(file);
+		Map<String, Long> counts = readCounts(file);
+		assertEquals(6, counts.size());
+		for (int i = 0; i < options.threads; i++) {
+			assertEquals(options.steps, counts.get("service-thread-" + i).longValue());
+			assertEquals(options.steps, counts.get("response-thread-" + i).longValue());
+		}
+		assertEquals(2 * options.steps, counts.get("service-all").longValue());
+		assertEquals(2 * options.steps, counts.get("response-all").longValue());
+	}
+
+	private static Map<String, Long> readCounts(File file) throws FileNotFoundException {
+		Map<String, Long> counts = new HashMap<String, Long>();
+		HistogramLogReader reader = new HistogramLogReader(file);
+		try {
+			EncodableHistogram h;
+			while ((h = reader.nextIntervalHistogram()) != null) {
+				counts.put(h.getTag(), ((Histogram) h).getTotalCount());
+			}
+		} finally {
+			reader.close();
+		}
+		return counts;
+	}
+}
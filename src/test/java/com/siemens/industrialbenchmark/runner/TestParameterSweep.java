@@ -0,0 +1,108 @@
+/**
+Copyright 2016 Siemens AG.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.siemens.industrialbenchmark.runner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Properties;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+
+import org.junit.Test;
+
+import com.siemens.industrialbenchmark.dynamics.IndustrialBenchmarkDynamics;
+import com.siemens.industrialbenchmark.pipeline.RandomPolicy;
+import com.siemens.industrialbenchmark.properties.PropertiesException;
+import com.siemens.industrialbenchmark.properties.PropertiesUtil;
+
+/**
+ * Tests the grid expansion and the result cache of the {@link ParameterSweep}.
+ */
+public class TestParameterSweep {
+
+	private static final String CONV_A = "0.11111,0.22222,0.33333,0.22222,0.11111,0,0,0,0,0";
+	private static final String CONV_B = "0.2,0.2,0.2,0.2,0.2,0,0,0,0,0";
+
+	private static int countCached(List<ParameterSweep.Result> results) {
+		int cached = 0;
+		for (ParameterSweep.Result result : results) {
+			if (result.isCached()) {
+				cached++;
+			}
+		}
+		return cached;
+	}
+
+	@Test(timeout = 120000)
+	public void testCache() throws IOException, PropertiesException, ExecutionException, InterruptedException {
+		Properties props = PropertiesUtil.setpointProperties(new File ("src/main/resources/sim.properties"));
+		File cache = Files.createTempDirectory("industrialbenchmark-sweep").toFile();
+
+		ParameterSweep sweep = new ParameterSweep(props, cache)
+			.addParameter("CRD", "1", "3")
+			.addParameter("ConvArray", CONV_A, CONV_B)
+			.addPolicy("random", seed -> new RandomPolicy(seed))
+			.setSeeds(0, 4)
+			.setSteps(50);
+		List<ParameterSweep.Result> first = sweep.run(2);
+		assertEquals(16, first.size());
+		assertEquals(0, countCached(first));
+
+		// a job computed on its own gives the same result
+		ParameterSweep.Result job = first.get(9);
+		SortedMap<String, String> parameters = new TreeMap<String, String>();
+		parameters.put("CRD", "3");
+		parameters.put("ConvArray", CONV_A);
+		assertEquals(parameters, job.getParameters());
+		IndustrialBenchmarkDynamics env = IndustrialBenchmarkDynamics.reproducible(sweep.configuration(parameters));
+		env.reset(1);
+		assertEquals(new Episode(1, env).run(new RandomPolicy(1), 50), job.getTotalReward(), 0.0);
+
+		List<ParameterSweep.Result> second = sweep.run(3);
+		assertEquals(16, countCached(second));
+		for (int i = 0; i < first.size(); i++) {
+			assertEquals(first.get(i).getTotalReward(), second.get(i).getTotalReward(), 0.0);
+		}
+
+		// only the new cells are computed
+		sweep.addParameter("CRD", "1", "3", "5");
+		List<ParameterSweep.Result> third = sweep.run(2);
+		assertEquals(24, third.size());
+		assertEquals(16, countCached(third));
+
+		StringWriter csv = new StringWriter();
+		sweep.writeCsv(third, csv);
+		String[] lines = csv.toString().split("\n");
+		assertEquals(25, lines.length);
+		assertEquals("CRD,ConvArray,seed,policy,totalReward,cached", lines[0]);
+		assertTrue(lines[1].startsWith("1,\"" + CONV_A + "\",0,random,"));
+
+		ParameterSweep uncached = new ParameterSweep(props, null)
+			.addParameter("STATIONARY_SETPOINT", ParameterSweep.UNSET)
+			.addPolicy("random", seed -> new RandomPolicy(seed))
+			.setSteps(10);
+		assertFalse(uncached.configuration(uncached.configurations().get(0)).containsKey("STATIONARY_SETPOINT"));
+		assertEquals(0, countCached(uncached.run(1)));
+	}
+}
@@ -0,0 +1,115 @@
+/**
+Copyright 2016 Siemens AG.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.siemens.industrialbenchmark.server;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Properties;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.siemens.industrialbenchmark.datavector.state.ObservableStateDescription;
+import com.siemens.industrialbenchmark.dynamics.IndustrialBenchmarkDynamics;
+import com.siemens.industrialbenchmark.properties.PropertiesException;
+import com.siemens.industrialbenchmark.properties.PropertiesUtil;
+
+/**
+ * Compares sessions of the {@link SimulationServer} with local instances.
+ */
+public class TestSimulationServer {
+
+	@Test(timeout = 60000)
+	public void testSessions() throws IOException, PropertiesException {
+		Properties props = PropertiesUtil.setpointProperties(new File ("src/main/resources/sim.properties"));
+		SimulationServer server = new SimulationServer(props, 0, 2, 0).start();
+		try {
+			SimulationClient a = new SimulationClient(server.getPort());
+			SimulationClient b = new SimulationClient(server.getPort());
+			IndustrialBenchmarkDynamics localA = IndustrialBenchmarkDynamics.reproducible(props);
+			IndustrialBenchmarkDynamics localB = IndustrialBenchmarkDynamics.reproducible(props);
+
+			double[] expected = new double[ObservableStateDescription.SIZE];
+			double[] actual = new double[ObservableStateDescription.SIZE];
+			a.reset(1, actual);
+			localA.reset(1);
+			localA.stateInto(expected);
+			assertArrayEquals(expected, actual, 0.0);
+			b.reset(2, actual);
+			localB.reset(2);
+
+			// single steps, interleaved between the sessions
+			Random rand = new Random(3);
+			for (int i = 0; i < 50; i++) {
+				double dv = 2 * rand.nextDouble() - 1, dg = 2 * rand.nextDouble() - 1, ds = 2 * rand.nextDouble() - 1;
+				assertEquals(localA.step(dv, dg, ds, expected), a.step(dv, dg, ds, actual), 0.0);
+				assertArrayEquals(expected, actual, 0.0);
+				assertEquals(localB.step(ds, dv, dg, expected), b.step(ds, dv, dg, actual), 0.0);
+				assertArrayEquals(expected, actual, 0.0);
+			}
+
+			// pipelined steps
+			int n = 100;
+			double[] actions = new double[3 * n];
+			for (int i = 0; i < actions.length; i++) {
+				actions[i] = 2 * rand.nextDouble() - 1;
+			}
+			double[] rewards = new double[n];
+			double[] observations = new double[n * ObservableStateDescription.SIZE];
+			a.step(actions, n, rewards, observations);
+			for (int i = 0; i < n; i++) {
+				assertEquals(localA.step(actions[3 * i], actions[3 * i + 1], actions[3 * i + 2], expected), rewards[i], 0.0);
+				System.arraycopy(observations, i * ObservableStateDescription.SIZE, actual, 0, ObservableStateDescription.SIZE);
+				assertArrayEquals(expected, actual, 0.0);
+			}
+
+			double[] markov = new double[localA.getInternalMarkovState().getKeys().size()];
+			localA.markovStateInto(markov);
+			assertArrayEquals(markov, a.markovState(), 0.0);
+
+			// a rejected action leaves the session unchanged
+			actions[3 * 7 + 1] = 100;
+			try {
+				a.step(actions, n, rewards, observations);
+				fail("expected the action to be rejected");
+			} catch (IllegalArgumentException e) {
+				// expected
+			}
+			a.state(actual);
+			localA.stateInto(expected);
+			assertArrayEquals(expected, actual, 0.0);
+
+			// the third session exceeds the limit
+			SimulationClient c = new SimulationClient(server.getPort());
+			try {
+				c.state(actual);
+				fail("expected the session to be rejected");
+			} catch (IOException e) {
+				// expected
+			}
+			c.close();
+
+			a.close();
+			b.close();
+		} finally {
+			server.close();
+		}
+	}
+}